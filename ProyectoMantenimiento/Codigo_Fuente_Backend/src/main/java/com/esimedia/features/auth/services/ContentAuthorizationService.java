@@ -13,10 +13,7 @@ import com.esimedia.features.auth.enums.Rol;
 import com.esimedia.features.auth.enums.TipoContenido;
 import com.esimedia.features.auth.entity.CreadorContenido;
 import com.esimedia.features.auth.repository.CreadorContenidoRepository;
-import com.esimedia.features.content.entity.ContenidosAudio;
-import com.esimedia.features.content.entity.ContenidosVideo;
-import com.esimedia.features.content.repository.ContenidosAudioRepository;
-import com.esimedia.features.content.repository.ContenidosVideoRepository;
+import com.esimedia.features.content.services.ContentTypeRegistry;
 import com.esimedia.shared.util.JwtValidationUtil;
 
 
@@ -32,17 +29,14 @@ public class ContentAuthorizationService {
     
     private final JwtValidationUtil jwtValidationService;
     private final CreadorContenidoRepository creadorContenidoRepository;
-    private final ContenidosAudioRepository audioRepository;
-    private final ContenidosVideoRepository videoRepository;
+    private final ContentTypeRegistry contentTypeRegistry;
     
     public ContentAuthorizationService(JwtValidationUtil jwtValidationService, 
                                      CreadorContenidoRepository creadorContenidoRepository,
-                                     ContenidosAudioRepository audioRepository,
-                                     ContenidosVideoRepository videoRepository) {
+                                     ContentTypeRegistry contentTypeRegistry) {
         this.jwtValidationService = jwtValidationService;
         this.creadorContenidoRepository = creadorContenidoRepository;
-        this.audioRepository = audioRepository;
-        this.videoRepository = videoRepository;
+        this.contentTypeRegistry = contentTypeRegistry;
     }
 
     
@@ -109,27 +103,16 @@ public class ContentAuthorizationService {
     }
 
     /**
-     * Obtiene el tipo de contenido basado en el ID (busca en ambas colecciones)
+     * Obtiene el tipo de contenido basado en el ID (según el registro de tipos)
      * @param contenidoId ID del contenido
      * @return TipoContenido (AUDIO o VIDEO)
      * @throws ResponseStatusException si el contenido no existe
      */
     public TipoContenido getTipoContenidoById(String contenidoId) {
-        // Primero buscar en audios
-        Optional<ContenidosAudio> audio = audioRepository.findById(contenidoId);
-        if (audio.isPresent()) {
-            return TipoContenido.AUDIO;
-        }
-
-        // Luego buscar en videos
-        Optional<ContenidosVideo> video = videoRepository.findById(contenidoId);
-        if (video.isPresent()) {
-            return TipoContenido.VIDEO;
-        }
-
-        // No encontrado
-        throw new ResponseStatusException(HttpStatus.NOT_FOUND, 
-            "Contenido no encontrado con ID: " + contenidoId);
+        // El registro de tipos indica la colección: una sola consulta para comprobar que existe
+        return contentTypeRegistry.tipoExistente(contenidoId)
+            .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, 
+                "Contenido no encontrado con ID: " + contenidoId));
     }
 
     /**
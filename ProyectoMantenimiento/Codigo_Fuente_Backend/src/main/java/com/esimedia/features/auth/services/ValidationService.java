@@ -10,9 +10,9 @@ import java.text.SimpleDateFormat;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.http.HttpStatus;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.web.server.ResponseStatusException;
-import org.apache.tika.Tika;
 
 import com.esimedia.features.content.enums.ArchivosAudioSoportados;
 import com.esimedia.features.content.enums.DominiosVideoPermitidos;
@@ -26,14 +26,18 @@ import com.esimedia.features.content.dto.ContentAudioUploadDTO;
 import com.esimedia.features.content.dto.ContentUpdateDTO;
 import com.esimedia.features.content.dto.ContentUploadDTO;
 import com.esimedia.features.content.dto.ContentVideoUploadDTO;
-import com.esimedia.shared.util.ContentUtil;
+import com.esimedia.shared.util.FicheroSubido;
 
 
 @Service
 public class ValidationService {
 
     private static final Logger logger = LoggerFactory.getLogger(ValidationService.class);
-    private static final long MAX_AUDIO_SIZE = 1024L * 1024;
+    private static final long BYTES_POR_MB = 1024L * 1024;
+
+    // Tamaño máximo de audio configurable: los ficheros se guardan en GridFS y no en el documento
+    @Value("${content.audio.max-size-bytes:1048576}")
+    private long maxAudioSize = BYTES_POR_MB;
 
     // Solo patrones para validaciones de negocio específicas (básicas van en DTOs)
 
@@ -335,13 +339,18 @@ public class ValidationService {
     }
 
 
+    /**
+     * Validaciones de una subida de audio que no necesitan decodificar el fichero:
+     * datos del contenido, longitud del base64 y tamaño que tendrá una vez decodificado.
+     * El formato se comprueba después sobre el fichero ya decodificado con {@link #validateAudioFile}.
+     */
     public String validateAudioContent(ContentAudioUploadDTO audioDTO) throws IllegalArgumentException {
-        String contenido = audioDTO.getFichero();
+        long tamano = FicheroSubido.tamanoBase64(audioDTO.getFichero());
 
         String[] errores = new String[] {
             validateContentUpload(audioDTO),
-            (!ContentUtil.isValidBase64(contenido)) ? "El archivo de audio debe estar en formato base64 válido" : null,
-            getAudioProcessingError(contenido)
+            (tamano <= 0) ? "El archivo de audio debe estar en formato base64 válido" : null,
+            getAudioSizeError(tamano)
         };
         String result = null;
         for (String error : errores) {
@@ -353,14 +362,17 @@ public class ValidationService {
         return result;
     }
 
-    private String getAudioProcessingError(String contenido) throws IllegalArgumentException {
+    /**
+     * Valida el formato y el tamaño de un fichero de audio ya decodificado.
+     * @return Mensaje de error o null si el audio es válido
+     */
+    public String validateAudioFile(FicheroSubido fichero) {
         String result = null;
 
-        byte[] audioBytes = ContentUtil.decodeBase64(contenido);
         String[] errores = new String[] {
-            (audioBytes == null) ? "Error al procesar el archivo de audio" : null,
-            (audioBytes != null && !esAudioSoportado(audioBytes)) ? "Formato de audio no soportado" : null,
-            (audioBytes != null && audioBytes.length > MAX_AUDIO_SIZE) ? "El archivo de audio debe ser menor a 1MB" : null
+            (fichero == null) ? "Error al procesar el archivo de audio" : null,
+            (fichero != null && !ArchivosAudioSoportados.contains(fichero.mimeType())) ? "Formato de audio no soportado" : null,
+            (fichero != null) ? getAudioSizeError(fichero.tamano()) : null
         };
         for (String error : errores) {
             if (error != null) {
@@ -371,6 +383,14 @@ public class ValidationService {
         return result;
     }
 
+    private String getAudioSizeError(long tamano) {
+        return tamano > maxAudioSize ? "El archivo de audio debe ser menor a " + (maxAudioSize / BYTES_POR_MB) + "MB" : null;
+    }
+
+    public long getMaxAudioSize() {
+        return maxAudioSize;
+    }
+
     public String validateVideoContent(ContentVideoUploadDTO videoDTO) throws IllegalArgumentException {
         String[] errores = new String[] {
             validateContentUpload(videoDTO),
@@ -402,9 +422,7 @@ public class ValidationService {
     }
 
     public boolean esAudioSoportado(byte[] audioBytes) {
-        Tika tika = new Tika();
-        String mimeType = tika.detect(audioBytes);
-        return ArchivosAudioSoportados.contains(mimeType);
+        return ArchivosAudioSoportados.contains(FicheroSubido.detectarMime(audioBytes));
     }
 
     /**
@@ -0,0 +1,30 @@
+package com.esimedia.features.content.dto;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import jakarta.validation.constraints.*;
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.NoArgsConstructor;
+
+/**
+ * Datos para iniciar una subida de audio por fragmentos: los mismos que {@link ContentAudioUploadDTO}
+ * salvo el fichero, que se envía después en binario, y su tamaño total.
+ */
+@Data
+@EqualsAndHashCode(callSuper = true)
+@NoArgsConstructor
+@JsonIgnoreProperties(ignoreUnknown = true)
+public class AudioUploadInitDTO extends ContentUploadDTO {
+
+    @NotBlank(message = "El MIME type del fichero no puede estar vacío")
+    @Pattern(regexp = "^audio/(mp3|mpeg|wav|flac|aac|ogg|x-m4a|webm)$", message = "El MIME type debe ser un formato de audio válido (audio/mpeg, audio/wav, audio/flac, audio/aac, audio/ogg, audio/x-m4a, audio/webm)")
+    private String ficheroExtension;
+
+    @NotNull(message = "El tamaño del fichero es obligatorio")
+    @Positive(message = "El tamaño del fichero debe ser positivo")
+    private Long tamano;
+
+    @Min(value = 0, message = "La restricción de edad no puede ser negativa")
+    @Max(value = 18, message = "La restricción de edad no puede ser mayor a 18")
+    private Integer restriccionEdad;
+}
@@ -0,0 +1,10 @@
+package com.esimedia.features.content.dto;
+
+/**
+ * Estado de una subida de audio por fragmentos.
+ * @param id Identificador de la sesión de subida
+ * @param tamano Tamaño total del fichero en bytes
+ * @param recibido Bytes recibidos: desplazamiento del siguiente fragmento
+ */
+public record AudioUploadSessionDTO(String id, long tamano, long recibido) {
+}
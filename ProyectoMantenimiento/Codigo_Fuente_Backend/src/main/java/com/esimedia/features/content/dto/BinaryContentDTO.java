@@ -0,0 +1,16 @@
+package com.esimedia.features.content.dto;
+
+import org.springframework.core.io.Resource;
+
+/**
+ * Contenido binario servido directamente en la respuesta HTTP (fichero de audio o miniatura).
+ * @param recurso Bytes del contenido (en memoria o leídos por bloques desde el almacén de blobs)
+ * @param mimeType Tipo MIME almacenado junto al contenido
+ * @param etag Hash del contenido para el ETag de la respuesta (null si no se conoce)
+ */
+public record BinaryContentDTO(Resource recurso, String mimeType, String etag) {
+
+    public BinaryContentDTO(Resource recurso, String mimeType) {
+        this(recurso, mimeType, null);
+    }
+}
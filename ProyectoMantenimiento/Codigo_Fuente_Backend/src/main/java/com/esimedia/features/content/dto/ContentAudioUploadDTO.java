@@ -18,6 +18,9 @@ public class ContentAudioUploadDTO extends ContentUploadDTO {
     @NotBlank(message = "El MIME type del fichero no puede estar vacío")
     @Pattern(regexp = "^audio/(mp3|mpeg|wav|flac|aac|ogg|x-m4a|webm)$", message = "El MIME type debe ser un formato de audio válido (audio/mpeg, audio/wav, audio/flac, audio/aac, audio/ogg, audio/x-m4a, audio/webm)")
     private String ficheroExtension;
+
+    // Referencia al endpoint binario del fichero de audio (los listados no incluyen el data URI)
+    private String ficheroUrl;
     
     @Min(value = 0, message = "La restricción de edad no puede ser negativa")
     @Max(value = 18, message = "La restricción de edad no puede ser mayor a 18")
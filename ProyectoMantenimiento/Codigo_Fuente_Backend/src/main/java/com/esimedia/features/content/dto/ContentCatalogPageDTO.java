@@ -0,0 +1,27 @@
+package com.esimedia.features.content.dto;
+
+import java.util.List;
+import java.util.Map;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Página del catálogo de contenidos.
+ * nextCursor es un token opaco que el cliente debe reenviar para obtener la siguiente página.
+ * facetas solo se rellena en la primera página: por faceta, número de contenidos de cada valor.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ContentCatalogPageDTO {
+
+    private List<ContentUploadDTO> items;
+
+    private String nextCursor;
+
+    private boolean hasMore;
+
+    private Map<String, Map<String, Long>> facetas;
+}
@@ -0,0 +1,25 @@
+package com.esimedia.features.content.dto;
+
+import java.util.List;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Página de resultados de búsqueda, ordenados por relevancia.
+ * page es el número de página (desde 0) y hasMore indica si se puede pedir la siguiente.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ContentSearchPageDTO {
+
+    private List<ContentUploadDTO> items;
+
+    private int page;
+
+    private int limit;
+
+    private boolean hasMore;
+}
@@ -2,6 +2,7 @@ package com.esimedia.features.content.dto;
 
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 import java.util.List;
+import java.util.Map;
 import jakarta.validation.constraints.*;
 import lombok.Data;
 import lombok.NoArgsConstructor;
@@ -45,4 +46,10 @@ public class ContentUploadDTO {
     
     private String miniatura;
     private String formatoMiniatura;
+
+    // Referencia al endpoint binario de la miniatura (los listados no incluyen el data URI)
+    private String miniaturaUrl;
+
+    // URLs de las miniaturas derivadas por tamaño (96, 320, 720 y placeholder)
+    private Map<String, String> miniaturas;
 }
\ No newline at end of file
@@ -0,0 +1,9 @@
+package com.esimedia.features.content.dto;
+
+/**
+ * Validadores de una respuesta para peticiones condicionales (If-None-Match / If-Modified-Since).
+ * @param etag ETag débil con la versión y el usuario, ya entrecomillado
+ * @param ultimaModificacion Instante de la última modificación en milisegundos, o -1 si no se conoce
+ */
+public record ContentVersionDTO(String etag, long ultimaModificacion) {
+}
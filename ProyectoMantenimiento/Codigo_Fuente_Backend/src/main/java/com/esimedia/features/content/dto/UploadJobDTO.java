@@ -0,0 +1,25 @@
+package com.esimedia.features.content.dto;
+
+import java.util.Date;
+
+import com.esimedia.features.auth.enums.TipoContenido;
+import com.esimedia.features.content.entity.TrabajoSubida;
+import com.esimedia.features.content.enums.EstadoSubida;
+
+/**
+ * Estado de una subida procesada en segundo plano.
+ * @param id Identificador del trabajo
+ * @param tipo Audio o vídeo
+ * @param estado EN_COLA, ANALIZANDO, GUARDADO o FALLIDO
+ * @param mensaje Resultado al terminar: mensaje de éxito o motivo del fallo
+ * @param fechaCreacion Fecha en que se aceptó la subida
+ * @param fechaActualizacion Fecha del último cambio de estado
+ */
+public record UploadJobDTO(String id, TipoContenido tipo, EstadoSubida estado, String mensaje,
+        Date fechaCreacion, Date fechaActualizacion) {
+
+    public static UploadJobDTO desde(TrabajoSubida trabajo) {
+        return new UploadJobDTO(trabajo.getId(), trabajo.getTipo(), trabajo.getEstado(), trabajo.getMensaje(),
+            trabajo.getFechaCreacion(), trabajo.getFechaActualizacion());
+    }
+}
@@ -0,0 +1,23 @@
+package com.esimedia.features.content.dto;
+
+import java.util.List;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Resumen de las valoraciones de un contenido.
+ * histograma tiene 11 posiciones: la posición i cuenta las valoraciones de valor i * 0.5 (de 0.0 a 5.0).
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ValoracionResumenDTO {
+
+    private double valoracionMedia;
+
+    private long numValoraciones;
+
+    private List<Long> histograma;
+}
@@ -0,0 +1,28 @@
+package com.esimedia.features.content.entity;
+
+import org.springframework.data.mongodb.core.mapping.Field;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Referencia embebida a un binario guardado en el almacén de blobs (GridFS).
+ * El documento del contenido solo conserva el id, el tamaño y el hash del fichero.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BlobRef {
+
+    @Field("id")
+    private String id;
+
+    // Tamaño en bytes
+    @Field("tamano")
+    private long tamano;
+
+    // SHA-256 en hexadecimal
+    @Field("sha256")
+    private String sha256;
+}
@@ -0,0 +1,57 @@
+package com.esimedia.features.content.entity;
+
+import java.util.Date;
+import java.util.List;
+
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+import org.springframework.data.mongodb.core.mapping.Field;
+
+import com.esimedia.features.auth.enums.TipoContenido;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Copia periódica de una clasificación en memoria (tendencias o mejor valorados),
+ * para recuperarla al arrancar sin recalcularla.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Document(collection = "clasificaciones")
+public class Clasificacion {
+
+    // Nombre de la clasificación
+    @Id
+    private String nombre;
+
+    // Instante base de las puntuaciones con decaimiento (null si la clasificación no decae)
+    @Field("referencia")
+    private Date referencia;
+
+    @Field("fecha")
+    private Date fecha;
+
+    @Field("posiciones")
+    private List<Posicion> posiciones;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Posicion {
+
+        @Field("idContenido")
+        private String idContenido;
+
+        @Field("tipo")
+        private TipoContenido tipo;
+
+        @Field("especialidad")
+        private String especialidad;
+
+        @Field("puntuacion")
+        private double puntuacion;
+    }
+}
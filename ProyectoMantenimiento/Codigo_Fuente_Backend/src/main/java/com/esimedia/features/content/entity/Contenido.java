@@ -1,6 +1,8 @@
 package com.esimedia.features.content.entity;
 
 import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.Indexed;
+import org.springframework.data.mongodb.core.index.TextIndexed;
 import org.springframework.data.mongodb.core.mapping.Document;
 import org.springframework.data.mongodb.core.mapping.Field;
 
@@ -16,6 +18,7 @@ import lombok.AccessLevel;
 
 import java.util.Date;
 import java.util.List;
+import java.util.Map;
 import java.util.ArrayList;
 
 @Data
@@ -28,12 +31,15 @@ public class Contenido {
     @Id
     private String id;
     
+    // Campos de la búsqueda de texto: el peso indica cuánto cuenta una coincidencia en cada uno
     @Field("titulo")
+    @TextIndexed(weight = 10)
     @NotBlank(message = "El título no puede estar vacío")
     @Size(min = 3, max = 100, message = "El título debe tener entre 3 y 100 caracteres")
     private String titulo;
     
     @Field("descripcion")
+    @TextIndexed
     @Size(max = 500, message = "La descripción no puede exceder 500 caracteres")
     private String descripcion;
     
@@ -61,9 +67,17 @@ public class Contenido {
     @NotBlank(message = "El ID del creador no puede estar vacío")
     private String idCreador;
     
+    // Miniatura embebida (documentos antiguos). Las nuevas se guardan en GridFS y solo tienen miniaturaBlob
     @Field("imagen")
     private byte[] miniatura;
 
+    @Field("imagenBlob")
+    private BlobRef miniaturaBlob;
+
+    // Miniaturas derivadas (JPEG) indexadas por tamaño: 96, 320, 720 y placeholder
+    @Field("imagenDerivados")
+    private Map<String, BlobRef> miniaturasDerivadas;
+
     @Field("formatoImagen")
     @Pattern(regexp = "^image/(jpeg|jpg|png|gif|webp)$", message = "El formato de imagen no es válido")
     private String formatoMiniatura;
@@ -74,6 +88,7 @@ public class Contenido {
     private Date fechaSubida;
 
     @Field("especialidad")
+    @TextIndexed(weight = 3)
     @NotBlank(message = "La especialidad no puede estar vacía")
     @Size(min = 2, max = 100, message = "La especialidad debe tener entre 2 y 100 caracteres")
     private String especialidad;
@@ -86,7 +101,21 @@ public class Contenido {
     @Builder.Default
     private double valoracionMedia = 0.0;
 
+    // Agregados de valoraciones mantenidos con $inc; null mientras no se han inicializado
+    @Field("sumaValoraciones")
+    private Double sumaValoraciones;
+
+    @Field("numValoraciones")
+    private Long numValoraciones;
+
+    // Histograma en cubetas de 0.5: la clave es el índice de la cubeta (valoración * 2, de "0" a "10")
+    @Field("histogramaValoraciones")
+    private Map<String, Long> histogramaValoraciones;
+
+    // Nombres de tags desnormalizados (índice multikey para búsquedas por tag)
     @Field("tags")
+    @Indexed
+    @TextIndexed(weight = 5)
     @Builder.Default
     private List<String> tags = new ArrayList<>();
 
@@ -94,6 +123,14 @@ public class Contenido {
     @Field("visualizaciones")
     @Builder.Default
     private int visualizaciones = 0;
+
+    // Versión del catálogo en la última modificación: crece con cada cambio y se usa como ETag
+    @Field("version")
+    private long version;
+
+    @Field("modificado")
+    private Date modificado;
+
     public static Contenido createContenido(String titulo, String descripcion, int duracionSecs, String idCreador) {
         Contenido contenido = new Contenido();
         contenido.titulo = titulo;
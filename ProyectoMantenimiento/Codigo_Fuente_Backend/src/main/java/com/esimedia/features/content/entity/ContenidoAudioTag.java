@@ -1,6 +1,7 @@
 package com.esimedia.features.content.entity;
 
 import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.Indexed;
 import org.springframework.data.mongodb.core.mapping.Document;
 import org.springframework.data.mongodb.core.mapping.Field;
 import jakarta.validation.constraints.*;
@@ -16,6 +17,7 @@ public class ContenidoAudioTag {
 
     // FK a ContenidoAudio
     @Field("idContenido")
+    @Indexed
     @NotBlank(message = "El ID del contenido no puede estar vacío")
     private String idContenido; 
 
@@ -0,0 +1,28 @@
+package com.esimedia.features.content.entity;
+
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+import org.springframework.data.mongodb.core.mapping.Field;
+
+import com.esimedia.features.auth.enums.TipoContenido;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Registro id de contenido → tipo, para ir directamente a la colección de audios o de videos.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Document(collection = "contenidoTipos")
+public class ContenidoTipo {
+
+    // Mismo id que el contenido registrado
+    @Id
+    private String idContenido;
+
+    @Field("tipo")
+    private TipoContenido tipo;
+}
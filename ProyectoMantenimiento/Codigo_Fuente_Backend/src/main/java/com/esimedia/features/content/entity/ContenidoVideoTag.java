@@ -1,6 +1,7 @@
 package com.esimedia.features.content.entity;
 
 import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.Indexed;
 import org.springframework.data.mongodb.core.mapping.Document;
 import org.springframework.data.mongodb.core.mapping.Field;
 import jakarta.validation.constraints.*;
@@ -15,6 +16,7 @@ public class ContenidoVideoTag {
     private String id;
 
     @Field("idContenido")
+    @Indexed
     @NotBlank(message = "El ID del contenido no puede estar vacío")
     private String idContenido;
 
@@ -1,5 +1,7 @@
 package com.esimedia.features.content.entity;
 
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.index.CompoundIndexes;
 import org.springframework.data.mongodb.core.mapping.Document;
 import org.springframework.data.mongodb.core.mapping.Field;
 
@@ -15,14 +17,28 @@ import lombok.experimental.SuperBuilder;
 @NoArgsConstructor
 @AllArgsConstructor
 @SuperBuilder
-@Document(collection = "contenidosAudio")
+// Índices del catálogo paginado: orden por (fechaSubida, _id) y filtros de visibilidad para usuarios NORMAL
+@CompoundIndexes({
+    @CompoundIndex(name = "catalogo_orden", def = "{'fechaSubida': -1, '_id': -1}"),
+    @CompoundIndex(name = "catalogo_visible", def = "{'visibilidad': 1, 'fechaSubida': -1, '_id': -1, 'restriccionEdad': 1, 'fechaDisponibleHasta': 1}"),
+    // Ordenaciones alternativas del catálogo y filtro por especialidad
+    @CompoundIndex(name = "catalogo_valoracion", def = "{'visibilidad': 1, 'valoracionMedia': -1, '_id': -1}"),
+    @CompoundIndex(name = "catalogo_visualizaciones", def = "{'visibilidad': 1, 'visualizaciones': -1, '_id': -1}"),
+    @CompoundIndex(name = "catalogo_especialidad", def = "{'especialidad': 1, 'visibilidad': 1, 'fechaSubida': -1, '_id': -1}"),
+    // Barrido periódico de contenidos caducados
+    @CompoundIndex(name = "caducidad", def = "{'visibilidad': 1, 'fechaDisponibleHasta': 1}")
+})
+// Idioma del índice de texto (raíces y palabras vacías en español)
+@Document(collection = "contenidosAudio", language = "spanish")
 public class ContenidosAudio extends Contenido {
     
+    // Fichero embebido (documentos antiguos). Los nuevos se guardan en GridFS y solo tienen ficheroBlob
     @Field("fichero")
-    @NotNull(message = "El fichero no puede ser nulo")
-    @Size(min = 1, message = "El fichero no puede estar vacío")
     private byte[] fichero;
 
+    @Field("ficheroBlob")
+    private BlobRef ficheroBlob;
+
     @Field("ficheroExtension")
     @NotBlank(message = "La extensión del fichero no puede estar vacía")
     @Pattern(regexp = "^\\.(mp3|wav|flac|aac|ogg|m4a)$", message = "La extensión debe ser un formato de audio válido (.mp3, .wav, .flac, .aac, .ogg, .m4a)")
@@ -0,0 +1,40 @@
+package com.esimedia.features.content.entity;
+
+import java.util.Date;
+
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+import org.springframework.data.mongodb.core.mapping.Field;
+
+import com.esimedia.features.auth.enums.TipoContenido;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Firma MinHash de los tags de un contenido, guardada periódicamente
+ * para no recalcular todas las firmas al arrancar.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Document(collection = "firmasContenido")
+public class FirmaContenido {
+
+    @Id
+    private String idContenido;
+
+    @Field("tipo")
+    private TipoContenido tipo;
+
+    // SHA-256 del conjunto de tags con el que se calculó la firma, para detectar cambios
+    @Field("huella")
+    private String huella;
+
+    @Field("firma")
+    private int[] firma;
+
+    @Field("fecha")
+    private Date fecha;
+}
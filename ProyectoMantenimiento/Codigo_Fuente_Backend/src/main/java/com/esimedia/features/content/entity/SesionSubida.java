@@ -0,0 +1,45 @@
+package com.esimedia.features.content.entity;
+
+import java.util.Date;
+
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+import org.springframework.data.mongodb.core.mapping.Field;
+
+import com.esimedia.features.content.dto.ContentAudioUploadDTO;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Subida de audio por fragmentos en curso.
+ * Los bytes recibidos viven en un fichero temporal; su tamaño es el desplazamiento desde el que el
+ * cliente debe continuar, así que aquí solo se guardan los datos del contenido y el tamaño esperado.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Document(collection = "sesionesSubida")
+public class SesionSubida {
+
+    @Id
+    private String id;
+
+    @Field("idCreador")
+    private String idCreador;
+
+    // Datos del contenido sin el fichero
+    @Field("metadatos")
+    private ContentAudioUploadDTO metadatos;
+
+    // Tamaño total del fichero en bytes
+    @Field("tamano")
+    private long tamano;
+
+    @Field("fechaCreacion")
+    private Date fechaCreacion;
+
+    @Field("fechaCaducidad")
+    private Date fechaCaducidad;
+}
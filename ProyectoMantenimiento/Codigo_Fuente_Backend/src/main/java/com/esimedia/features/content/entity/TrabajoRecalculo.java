@@ -0,0 +1,65 @@
+package com.esimedia.features.content.entity;
+
+import java.util.Date;
+import java.util.List;
+
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.Indexed;
+import org.springframework.data.mongodb.core.mapping.Document;
+import org.springframework.data.mongodb.core.mapping.Field;
+
+import com.esimedia.features.auth.enums.TipoContenido;
+import com.esimedia.features.content.enums.FaseRecalculo;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Estado guardado de un recálculo de valoraciones, para consultarlo aunque la aplicación se reinicie.
+ * Se actualiza en cada cambio de fase; los terminados caducan a los 7 días (índice TTL sobre fechaFin).
+ * Las variaciones y las colecciones ya actualizadas permiten retomarlo tras un reinicio y no se exponen en la API.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Document(collection = "trabajosRecalculo")
+public class TrabajoRecalculo {
+
+    @Id
+    private String id;
+
+    @Field("idUsuario")
+    private String idUsuario;
+
+    @Field("fase")
+    @Indexed
+    private FaseRecalculo fase;
+
+    @Field("contenidosAfectados")
+    private int contenidosAfectados;
+
+    @Field("contenidosActualizados")
+    private int contenidosActualizados;
+
+    @Field("fechaInicio")
+    private Date fechaInicio;
+
+    // Solo existe en los terminados, así que el TTL no borra los que siguen en curso
+    @Field("fechaFin")
+    @Indexed(expireAfter = "7d")
+    private Date fechaFin;
+
+    @Field("error")
+    private String error;
+
+    // Se guardan al pasar a BORRANDO, antes de borrar las valoraciones del usuario
+    @JsonIgnore
+    @Field("variaciones")
+    private List<VariacionValoracion> variaciones;
+
+    @JsonIgnore
+    @Field("tiposAplicados")
+    private List<TipoContenido> tiposAplicados;
+}
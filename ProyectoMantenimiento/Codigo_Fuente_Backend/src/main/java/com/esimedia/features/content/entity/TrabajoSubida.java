@@ -0,0 +1,53 @@
+package com.esimedia.features.content.entity;
+
+import java.util.Date;
+
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+import org.springframework.data.mongodb.core.mapping.Field;
+
+import com.esimedia.features.auth.enums.TipoContenido;
+import com.esimedia.features.content.enums.EstadoSubida;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Subida aceptada que se procesa en segundo plano.
+ * La petición completa, con el fichero en base64, se guarda en el BlobStore hasta que el trabajo termina:
+ * el documento solo lleva su id, así que no depende del límite de 16 MB de BSON, y un trabajo interrumpido
+ * por un reinicio se puede volver a lanzar. Al terminar se borra el blob y queda solo el estado para consultarlo.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Document(collection = "trabajosSubida")
+public class TrabajoSubida {
+
+    @Id
+    private String id;
+
+    @Field("tipo")
+    private TipoContenido tipo;
+
+    @Field("idCreador")
+    private String idCreador;
+
+    @Field("estado")
+    private EstadoSubida estado;
+
+    // Blob con la petición original en JSON; null una vez terminado
+    @Field("peticionBlob")
+    private String peticionBlob;
+
+    // Resultado del procesado o motivo del fallo
+    @Field("mensaje")
+    private String mensaje;
+
+    @Field("fechaCreacion")
+    private Date fechaCreacion;
+
+    @Field("fechaActualizacion")
+    private Date fechaActualizacion;
+}
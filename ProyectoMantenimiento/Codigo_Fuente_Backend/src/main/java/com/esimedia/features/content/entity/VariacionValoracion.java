@@ -0,0 +1,37 @@
+package com.esimedia.features.content.entity;
+
+import java.util.Map;
+
+import org.springframework.data.mongodb.core.mapping.Field;
+
+import com.esimedia.features.auth.enums.TipoContenido;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Variación de los agregados de valoración de un contenido, embebida en un recálculo.
+ * Se guarda antes de borrar las valoraciones del usuario: después ya no se podría volver a calcular.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class VariacionValoracion {
+
+    @Field("idContenido")
+    private String idContenido;
+
+    @Field("tipo")
+    private TipoContenido tipo;
+
+    @Field("suma")
+    private double suma;
+
+    @Field("num")
+    private long num;
+
+    // Variación de cada cubeta, por índice de cubeta como texto
+    @Field("cubetas")
+    private Map<String, Long> cubetas;
+}
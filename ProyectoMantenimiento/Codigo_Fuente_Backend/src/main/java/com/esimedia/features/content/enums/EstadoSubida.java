@@ -0,0 +1,17 @@
+package com.esimedia.features.content.enums;
+
+/**
+ * Estados de un trabajo de subida procesado en segundo plano.
+ */
+public enum EstadoSubida {
+    // Aceptado y pendiente de un hilo libre
+    EN_COLA,
+    // Validando el fichero, pasando el antivirus y guardando
+    ANALIZANDO,
+    GUARDADO,
+    FALLIDO;
+
+    public boolean isTerminado() {
+        return this == GUARDADO || this == FALLIDO;
+    }
+}
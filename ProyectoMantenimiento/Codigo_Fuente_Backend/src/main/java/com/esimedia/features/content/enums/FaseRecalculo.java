@@ -0,0 +1,18 @@
+package com.esimedia.features.content.enums;
+
+/**
+ * Fases de un recálculo de valoraciones en segundo plano.
+ */
+public enum FaseRecalculo {
+    PENDIENTE,
+    AGRUPANDO,
+    INICIALIZANDO,
+    BORRANDO,
+    ACTUALIZANDO,
+    COMPLETADO,
+    ERROR;
+
+    public boolean isTerminado() {
+        return this == COMPLETADO || this == ERROR;
+    }
+}
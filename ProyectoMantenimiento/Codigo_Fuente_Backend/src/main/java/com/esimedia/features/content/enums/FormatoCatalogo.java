@@ -0,0 +1,74 @@
+package com.esimedia.features.content.enums;
+
+import java.util.Comparator;
+import java.util.List;
+
+import org.springframework.http.InvalidMediaTypeException;
+import org.springframework.http.MediaType;
+
+/**
+ * Formatos en los que se puede volcar el catálogo completo, elegidos por la cabecera Accept.
+ * El orden de declaración decide cuando el cliente acepta cualquier tipo o application/*:
+ * JSON es el formato por defecto.
+ */
+public enum FormatoCatalogo {
+    JSON(MediaType.APPLICATION_JSON, "json"),
+    // Un objeto JSON por línea
+    NDJSON(MediaType.APPLICATION_NDJSON, "ndjson"),
+    SMILE(MediaType.parseMediaType("application/x-jackson-smile"), "smile"),
+    CBOR(MediaType.parseMediaType("application/cbor"), "cbor");
+
+    private final MediaType mediaType;
+    private final String valor;
+
+    FormatoCatalogo(MediaType mediaType, String valor) {
+        this.mediaType = mediaType;
+        this.valor = valor;
+    }
+
+    public MediaType getMediaType() {
+        return mediaType;
+    }
+
+    public String getValor() {
+        return valor;
+    }
+
+    /**
+     * Elige el formato según la cabecera Accept: los tipos aceptados se recorren de mayor a menor calidad
+     * y gana el primer formato que encaje. Sin cabecera se devuelve JSON.
+     * @return El formato, o null si el cliente no acepta ninguno (o la cabecera no es válida)
+     */
+    public static FormatoCatalogo negociar(String accept) {
+        if (accept == null || accept.isBlank()) {
+            return JSON;
+        }
+        List<MediaType> aceptados;
+        try {
+            aceptados = MediaType.parseMediaTypes(accept);
+        }
+        catch (InvalidMediaTypeException e) {
+            return null;
+        }
+        // Orden estable: a igual calidad se respeta el orden de la cabecera
+        aceptados = aceptados.stream()
+            .sorted(Comparator.comparingDouble(MediaType::getQualityValue).reversed())
+            .toList();
+        for (MediaType aceptado : aceptados) {
+            if (aceptado.getQualityValue() <= 0) {
+                continue;
+            }
+            for (FormatoCatalogo formato : values()) {
+                if (aceptado.includes(formato.mediaType)) {
+                    return formato;
+                }
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public String toString() {
+        return valor;
+    }
+}
@@ -0,0 +1,47 @@
+package com.esimedia.features.content.enums;
+
+/**
+ * Tamaños de las miniaturas derivadas que se generan al subir un contenido.
+ * El ancho máximo se aplica conservando la proporción de la imagen original.
+ */
+public enum TamanoMiniatura {
+    PEQUENA("96", 96),
+    MEDIANA("320", 320),
+    GRANDE("720", 720),
+    // Imagen diminuta y de baja calidad para mostrar mientras carga la real
+    PLACEHOLDER("placeholder", 16);
+
+    private final String valor;
+    private final int ancho;
+
+    TamanoMiniatura(String valor, int ancho) {
+        this.valor = valor;
+        this.ancho = ancho;
+    }
+
+    public String getValor() {
+        return valor;
+    }
+
+    public int getAncho() {
+        return ancho;
+    }
+
+    /**
+     * Obtiene el tamaño a partir del parámetro de la URL (96, 320, 720 o placeholder).
+     * @return El tamaño o null si el valor no es válido
+     */
+    public static TamanoMiniatura fromValor(String valor) {
+        for (TamanoMiniatura tamano : values()) {
+            if (tamano.valor.equalsIgnoreCase(valor)) {
+                return tamano;
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public String toString() {
+        return valor;
+    }
+}
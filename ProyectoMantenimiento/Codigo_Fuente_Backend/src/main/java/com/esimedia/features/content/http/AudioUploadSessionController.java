@@ -0,0 +1,110 @@
+package com.esimedia.features.content.http;
+
+import java.io.InputStream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.CrossOrigin;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.PutMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
+
+import com.esimedia.features.content.dto.AudioUploadInitDTO;
+import com.esimedia.features.content.dto.AudioUploadSessionDTO;
+import com.esimedia.features.content.services.AudioUploadSessionService;
+
+import jakarta.validation.Valid;
+
+/**
+ * Subida de audios reanudable por fragmentos.
+ * POST crea la subida, PUT ?offset=N añade un fragmento binario (application/octet-stream),
+ * GET devuelve los bytes recibidos para continuar tras un corte y POST /complete?sha256=... la cierra.
+ */
+@RestController
+@RequestMapping("/content/upload-audio/sessions")
+@CrossOrigin(origins = "http://localhost:4200", allowedHeaders = "*", exposedHeaders = "Authorization")
+public class AudioUploadSessionController {
+
+    private static final Logger logger = LoggerFactory.getLogger(AudioUploadSessionController.class);
+    private static final String ERROR_INTERNO = "Error interno del servidor";
+
+    private final AudioUploadSessionService uploadSessionService;
+
+    public AudioUploadSessionController(AudioUploadSessionService uploadSessionService) {
+        this.uploadSessionService = uploadSessionService;
+    }
+
+    @PostMapping
+    public ResponseEntity<AudioUploadSessionDTO> iniciar(
+            @RequestHeader("Authorization") String authHeader,
+            @Valid @RequestBody AudioUploadInitDTO datos) {
+        try {
+            return ResponseEntity.status(HttpStatus.CREATED).body(uploadSessionService.iniciar(authHeader, datos));
+        }
+        catch (ResponseStatusException e) {
+            logger.warn("Error iniciando subida de audio: {}", e.getReason());
+            throw e;
+        }
+        catch (Exception e) {
+            logger.error("Error iniciando subida de audio: {}", e.getMessage());
+            throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR, ERROR_INTERNO);
+        }
+    }
+
+    @GetMapping("/{id}")
+    public ResponseEntity<AudioUploadSessionDTO> estado(
+            @RequestHeader("Authorization") String authHeader,
+            @PathVariable String id) {
+        return ResponseEntity.ok(uploadSessionService.estado(authHeader, id));
+    }
+
+    @PutMapping(value = "/{id}", consumes = MediaType.APPLICATION_OCTET_STREAM_VALUE)
+    public ResponseEntity<AudioUploadSessionDTO> escribirFragmento(
+            @RequestHeader("Authorization") String authHeader,
+            @PathVariable String id,
+            @RequestParam long offset,
+            InputStream datos) {
+        return ResponseEntity.ok(uploadSessionService.escribirFragmento(authHeader, id, offset, datos));
+    }
+
+    @PostMapping("/{id}/complete")
+    public ResponseEntity<String> completar(
+            @RequestHeader("Authorization") String authHeader,
+            @PathVariable String id,
+            @RequestParam String sha256) {
+        try {
+            String result = uploadSessionService.completar(authHeader, id, sha256);
+            if (result.startsWith("SUCCESS:")) {
+                return ResponseEntity.ok(result.substring(8));
+            }
+            return ResponseEntity.badRequest().body(result);
+        }
+        catch (ResponseStatusException e) {
+            logger.warn("Error completando subida de audio {}: {}", id, e.getReason());
+            return ResponseEntity.status(e.getStatusCode()).body(e.getReason());
+        }
+        catch (Exception e) {
+            logger.error("Error completando subida de audio {}: {}", id, e.getMessage());
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(ERROR_INTERNO);
+        }
+    }
+
+    @DeleteMapping("/{id}")
+    public ResponseEntity<Void> cancelar(
+            @RequestHeader("Authorization") String authHeader,
+            @PathVariable String id) {
+        uploadSessionService.cancelar(authHeader, id);
+        return ResponseEntity.noContent().build();
+    }
+}
@@ -2,7 +2,12 @@ package com.esimedia.features.content.http;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.core.io.Resource;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.InvalidMediaTypeException;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.CrossOrigin;
 import org.springframework.web.bind.annotation.GetMapping;
@@ -11,24 +16,43 @@ import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
 import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.DeleteMapping;
 
 import com.esimedia.features.auth.enums.TipoContenido;
+import com.esimedia.features.content.dto.BinaryContentDTO;
 import com.esimedia.features.content.dto.ContentAudioUploadDTO;
+import com.esimedia.features.content.dto.ContentCatalogPageDTO;
+import com.esimedia.features.content.dto.ContentSearchPageDTO;
+import com.esimedia.features.content.dto.ContentUploadDTO;
 import com.esimedia.features.content.dto.ContentUpdateDTO;
+import com.esimedia.features.content.dto.ContentVersionDTO;
 import com.esimedia.features.content.dto.ContentVideoUploadDTO;
+import com.esimedia.features.content.dto.UploadJobDTO;
+import com.esimedia.features.content.dto.ValoracionResumenDTO;
+import com.esimedia.features.content.entity.TrabajoRecalculo;
+import com.esimedia.features.content.enums.FormatoCatalogo;
+import com.esimedia.features.content.repository.CatalogFacets;
 import com.esimedia.features.content.services.AudioContentService;
+import com.esimedia.features.content.services.ContentCatalogService;
+import com.esimedia.features.content.services.ContentMediaService;
+import com.esimedia.features.content.services.ContentMediaUrls;
+import com.esimedia.features.content.services.UploadJobService;
 import com.esimedia.features.content.services.ValoracionService;
 import com.esimedia.features.content.services.VideoContentService;
 import com.esimedia.shared.util.JwtValidationUtil;
 
+import jakarta.servlet.http.HttpServletResponse;
 import jakarta.validation.Valid;
 
+import java.net.URI;
+import java.time.Duration;
 import java.util.List;
-import java.util.ArrayList;
 
 @RestController
 @RequestMapping("/content")
@@ -38,48 +62,60 @@ public class ContentController {
     private static final Logger logger = LoggerFactory.getLogger(ContentController.class);
     private static final String ERROR_INTERNO = "Error interno del servidor";
     private static final String UNAUTHORIZED_MESSAGE = "Usuario no autorizado para ver audios.";
+    // Las derivadas no cambian una vez generadas
+    private static final Duration THUMBNAIL_MAX_AGE = Duration.ofDays(365);
+    // Las respuestas versionadas se pueden guardar, pero el cliente debe revalidarlas con su ETag
+    private static final CacheControl REVALIDAR = CacheControl.noCache().cachePrivate();
     
     private final AudioContentService audioContentService;
     private final VideoContentService videoContentService;
     private final ValoracionService valoracionService;
     private final JwtValidationUtil jwtValidationService;
+    private final ContentCatalogService contentCatalogService;
+    private final ContentMediaService contentMediaService;
+    private final UploadJobService uploadJobService;
 
-    public ContentController(AudioContentService audioContentService, VideoContentService videoContentService, ValoracionService valoracionService, JwtValidationUtil jwtValidationService) {
+    public ContentController(AudioContentService audioContentService, VideoContentService videoContentService, ValoracionService valoracionService, JwtValidationUtil jwtValidationService, ContentCatalogService contentCatalogService, ContentMediaService contentMediaService, UploadJobService uploadJobService) {
         this.audioContentService = audioContentService;
         this.videoContentService = videoContentService;
         this.valoracionService = valoracionService;
         this.jwtValidationService = jwtValidationService;
+        this.contentCatalogService = contentCatalogService;
+        this.contentMediaService = contentMediaService;
+        this.uploadJobService = uploadJobService;
     }
 
+    /**
+     * Acepta una subida de audio y la procesa en segundo plano.
+     * Responde 202 con el trabajo creado; su estado se consulta en la URL de la cabecera Location.
+     */
     @PostMapping("/upload-audio")
-    public ResponseEntity<String> uploadAudioContent(
+    public ResponseEntity<UploadJobDTO> uploadAudioContent(
             @RequestHeader("Authorization") String authHeader,
             @Valid @RequestBody ContentAudioUploadDTO audioDTO) {
         try {
             logger.info("Se ha registrado una petición de audio con estos datos: {}", audioDTO);
-            String result = audioContentService.uploadAudioContent(authHeader, audioDTO);
-            return processServiceResult(result);
+            return aceptada(uploadJobService.encolarAudio(authHeader, audioDTO));
         }
         catch (ResponseStatusException e) {
             logger.warn("Error de validación o autorización en audio: {}", e.getReason());
-            return ResponseEntity.status(e.getStatusCode()).body(e.getReason());
+            throw e;
         } 
         catch (Exception e) {
             logger.error("Error procesando contenido de audio: {}", e.getMessage());
-            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(ERROR_INTERNO);
+            throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR, ERROR_INTERNO);
         }
     }
 
     @PostMapping("/upload-video")
-    public ResponseEntity<String> uploadVideoContent(@RequestHeader("Authorization") String authHeader, @Valid @RequestBody ContentVideoUploadDTO videoDTO) {
+    public ResponseEntity<UploadJobDTO> uploadVideoContent(@RequestHeader("Authorization") String authHeader, @Valid @RequestBody ContentVideoUploadDTO videoDTO) {
         try {
             logger.info("Se ha registrado una petición de video con estos datos: {}", videoDTO);
-            String result = videoContentService.uploadVideoContent(authHeader, videoDTO);
-            return processServiceResult(result);
+            return aceptada(uploadJobService.encolarVideo(authHeader, videoDTO));
         } 
         catch (ResponseStatusException e) {
             logger.warn("Error de validación o autorización en video: {}", e.getReason());
-            return ResponseEntity.status(e.getStatusCode()).body(e.getReason());
+            throw e;
         }
         catch (Exception e) {
             logger.error("Error procesando contenido de video: {}", e.getMessage());
@@ -87,17 +123,39 @@ public class ContentController {
         }
     }
 
+    /**
+     * Estado de una subida aceptada: EN_COLA, ANALIZANDO, GUARDADO o FALLIDO (con el motivo).
+     */
+    @GetMapping("/jobs/{id}")
+    public ResponseEntity<UploadJobDTO> getUploadJob(
+            @RequestHeader("Authorization") String authHeader,
+            @PathVariable String id) {
+        return ResponseEntity.ok(uploadJobService.estado(authHeader, id));
+    }
+
+    private static ResponseEntity<UploadJobDTO> aceptada(UploadJobDTO trabajo) {
+        return ResponseEntity.accepted().location(URI.create("/content/jobs/" + trabajo.id())).body(trabajo);
+    }
+
 
+    /**
+     * Detalle de un audio. Admite If-None-Match / If-Modified-Since: si el audio no ha cambiado
+     * responde 304 tras leer solo su versión.
+     */
     @GetMapping("/getAudio/{id}")
     public ResponseEntity<ContentAudioUploadDTO> getAudio(
             @RequestHeader("Authorization") String authHeader,
-            @PathVariable String id) {
+            @PathVariable String id,
+            WebRequest request) {
         try {
+            if (noModificado(request, contentCatalogService.getVersionContenido(authHeader, TipoContenido.AUDIO, id))) {
+                return null;
+            }
             ContentAudioUploadDTO audioDTO = audioContentService.getAudioByIdAsDTO(authHeader, id);
             if (audioDTO == null) {
                 return ResponseEntity.notFound().build();
             }
-            return ResponseEntity.ok(audioDTO);
+            return ResponseEntity.ok().cacheControl(REVALIDAR).body(audioDTO);
         }
         catch (Exception e) {
             logger.error("Error obteniendo audio por ID {}: {}", id, e.getMessage());
@@ -105,16 +163,23 @@ public class ContentController {
         }
     }
 
+    /**
+     * Detalle de un vídeo, con las mismas peticiones condicionales que el de audio.
+     */
     @GetMapping("/getVideo/{id}")
     public ResponseEntity<ContentVideoUploadDTO> getVideo(
             @RequestHeader("Authorization") String authHeader,
-            @PathVariable String id) {
+            @PathVariable String id,
+            WebRequest request) {
         try {
+            if (noModificado(request, contentCatalogService.getVersionContenido(authHeader, TipoContenido.VIDEO, id))) {
+                return null;
+            }
             ContentVideoUploadDTO videoDTO = videoContentService.getVideoByIdAsDTO(authHeader, id);
             if (videoDTO == null) {
                 return ResponseEntity.notFound().build();
             }
-            return ResponseEntity.ok(videoDTO);
+            return ResponseEntity.ok().cacheControl(REVALIDAR).body(videoDTO);
         }
         catch (Exception e) {
             logger.error("Error obteniendo video por ID {}: {}", id, e.getMessage());
@@ -122,23 +187,40 @@ public class ContentController {
         }
     }
 
+    /**
+     * Catálogo completo visible para el usuario (audios y vídeos), escrito en streaming desde un cursor de MongoDB.
+     * El formato se negocia con Accept: por defecto un array JSON; application/x-ndjson devuelve un objeto
+     * por línea, y application/x-jackson-smile o application/cbor el array en esas codificaciones binarias.
+     * Si el cliente no acepta ninguno de ellos responde 406, sin recurrir a JSON.
+     * Si el catálogo no ha cambiado desde el ETag o la fecha de la petición responde 304 sin leer contenidos.
+     * El ETag depende del formato y la respuesta lleva Vary: Accept, también en el 304, para que una caché
+     * no sirva a un cliente el catálogo guardado en otro formato.
+     */
     @GetMapping("/getAllContent")
-    public ResponseEntity<List<Object>> getAllContent(
-            @RequestHeader("Authorization") String authHeader) {
+    public ResponseEntity<StreamingResponseBody> getAllContent(
+            @RequestHeader("Authorization") String authHeader,
+            @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept,
+            WebRequest request,
+            HttpServletResponse response) {
+        response.setHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT);
+        FormatoCatalogo formato = FormatoCatalogo.negociar(accept);
+        if (formato == null) {
+            return ResponseEntity.status(HttpStatus.NOT_ACCEPTABLE).build();
+        }
         try {
-            List<Object> allContent = new ArrayList<>();
-            
-            // Agregar todos los audios (solo si el usuario tiene permisos)
-            List<ContentAudioUploadDTO> audios = audioContentService.getAllAudiosAsDTO(authHeader);
-            allContent.addAll(audios);
-            List<ContentVideoUploadDTO> videos = videoContentService.getAllVideosAsDTO(authHeader);
-            allContent.addAll(videos);
-            return ResponseEntity.ok(allContent);
+            if (noModificado(request, contentCatalogService.getVersionCatalogo(authHeader, formato))) {
+                return null;
+            }
+            StreamingResponseBody body = contentCatalogService.streamCatalog(authHeader, formato);
+            return ResponseEntity.ok()
+                .contentType(formato.getMediaType())
+                .cacheControl(REVALIDAR)
+                .body(body);
         }
         catch (ResponseStatusException e) {
-        // Usuario no autorizado para ver audios, continuar sin agregar
-        logger.info("Usuario no autorizado para ver audios: {}", e.getReason());
-        throw new ResponseStatusException(HttpStatus.UNAUTHORIZED, UNAUTHORIZED_MESSAGE);
+            // Usuario no autorizado para ver audios o vídeos
+            logger.info("Usuario no autorizado para ver el contenido: {}", e.getReason());
+            throw new ResponseStatusException(HttpStatus.UNAUTHORIZED, UNAUTHORIZED_MESSAGE);
         }
         catch (Exception e) {
             logger.error("Error obteniendo todo el contenido: {}", e.getMessage());
@@ -146,6 +228,219 @@ public class ContentController {
         }
     }
 
+    /**
+     * Catálogo paginado por cursor (audios y vídeos ordenados por fecha de subida, valoración o visualizaciones).
+     * Admite filtros por faceta; devuelve una página acotada y el token nextCursor para solicitar la siguiente.
+     */
+    @GetMapping("/catalog")
+    public ResponseEntity<ContentCatalogPageDTO> getCatalog(
+            @RequestHeader("Authorization") String authHeader,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer limit,
+            @RequestParam(required = false) String tipo,
+            @RequestParam(required = false) String orden,
+            @RequestParam(required = false) String especialidad,
+            @RequestParam(required = false) String resolucion,
+            @RequestParam(required = false) Boolean esVIP,
+            @RequestParam(required = false) String restriccionEdad,
+            @RequestParam(required = false) Integer duracionMin,
+            @RequestParam(required = false) Integer duracionMax) {
+        try {
+            CatalogFacets facetas = contentCatalogService.parseFacetas(especialidad, resolucion, esVIP, restriccionEdad,
+                duracionMin, duracionMax);
+            return ResponseEntity.ok(contentCatalogService.getCatalogPage(authHeader, cursor, limit, tipo, orden, facetas));
+        }
+        catch (ResponseStatusException e) {
+            logger.warn("Error obteniendo página del catálogo: {}", e.getReason());
+            throw e;
+        }
+        catch (Exception e) {
+            logger.error("Error obteniendo página del catálogo: {}", e.getMessage());
+            throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR, ERROR_INTERNO);
+        }
+    }
+
+    /**
+     * Búsqueda de texto en título, tags, especialidad y descripción, con las mismas reglas de visibilidad que el catálogo.
+     * Los resultados se ordenan por relevancia y popularidad y se paginan con page (desde 0) y limit.
+     */
+    @GetMapping("/search")
+    public ResponseEntity<ContentSearchPageDTO> search(
+            @RequestHeader("Authorization") String authHeader,
+            @RequestParam String q,
+            @RequestParam(required = false) Integer page,
+            @RequestParam(required = false) Integer limit,
+            @RequestParam(required = false) String tipo) {
+        try {
+            return ResponseEntity.ok(contentCatalogService.buscar(authHeader, q, page, limit, tipo));
+        }
+        catch (ResponseStatusException e) {
+            logger.warn("Error en la búsqueda de contenidos: {}", e.getReason());
+            throw e;
+        }
+        catch (Exception e) {
+            logger.error("Error en la búsqueda de contenidos: {}", e.getMessage());
+            throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR, ERROR_INTERNO);
+        }
+    }
+
+    /**
+     * Contenidos con más actividad reciente (visualizaciones, valoraciones y favoritos), en general o de una especialidad.
+     */
+    @GetMapping("/trending")
+    public ResponseEntity<List<ContentUploadDTO>> getTrending(
+            @RequestHeader("Authorization") String authHeader,
+            @RequestParam(required = false) String especialidad,
+            @RequestParam(required = false) Integer limit) {
+        try {
+            return ResponseEntity.ok(contentCatalogService.getTendencias(authHeader, especialidad, limit));
+        }
+        catch (ResponseStatusException e) {
+            logger.warn("Error obteniendo tendencias: {}", e.getReason());
+            throw e;
+        }
+        catch (Exception e) {
+            logger.error("Error obteniendo tendencias: {}", e.getMessage());
+            throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR, ERROR_INTERNO);
+        }
+    }
+
+    /**
+     * Contenidos con tags parecidos a los de uno dado, para la página de detalle.
+     * Va aparte de getAudio/getVideo: el detalle se revalida con la versión del propio contenido y la lista
+     * cambia con los tags de los demás, así que incluirla haría que un 304 devolviese relacionados caducados.
+     */
+    @GetMapping("/related/{id}")
+    public ResponseEntity<List<ContentUploadDTO>> getRelated(
+            @RequestHeader("Authorization") String authHeader,
+            @PathVariable String id,
+            @RequestParam(required = false) Integer limit) {
+        try {
+            return ResponseEntity.ok(contentCatalogService.getRelacionados(authHeader, id, limit));
+        }
+        catch (ResponseStatusException e) {
+            logger.warn("Error obteniendo contenidos relacionados: {}", e.getReason());
+            throw e;
+        }
+        catch (Exception e) {
+            logger.error("Error obteniendo contenidos relacionados: {}", e.getMessage());
+            throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR, ERROR_INTERNO);
+        }
+    }
+
+    /**
+     * Contenidos recomendados según los gustos (tags) del usuario; sin gustos, las tendencias.
+     */
+    @GetMapping("/recommended")
+    public ResponseEntity<List<ContentUploadDTO>> getRecommended(
+            @RequestHeader("Authorization") String authHeader,
+            @RequestParam(required = false) Integer limit) {
+        try {
+            return ResponseEntity.ok(contentCatalogService.getRecomendados(authHeader, limit));
+        }
+        catch (ResponseStatusException e) {
+            logger.warn("Error obteniendo recomendaciones: {}", e.getReason());
+            throw e;
+        }
+        catch (Exception e) {
+            logger.error("Error obteniendo recomendaciones: {}", e.getMessage());
+            throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR, ERROR_INTERNO);
+        }
+    }
+
+    /**
+     * Contenidos mejor valorados, en general o de una especialidad.
+     */
+    @GetMapping("/top-rated")
+    public ResponseEntity<List<ContentUploadDTO>> getTopRated(
+            @RequestHeader("Authorization") String authHeader,
+            @RequestParam(required = false) String especialidad,
+            @RequestParam(required = false) Integer limit) {
+        try {
+            return ResponseEntity.ok(contentCatalogService.getMejorValorados(authHeader, especialidad, limit));
+        }
+        catch (ResponseStatusException e) {
+            logger.warn("Error obteniendo mejor valorados: {}", e.getReason());
+            throw e;
+        }
+        catch (Exception e) {
+            logger.error("Error obteniendo mejor valorados: {}", e.getMessage());
+            throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR, ERROR_INTERNO);
+        }
+    }
+
+    /**
+     * Fichero binario de un audio para reproducción directa. Los listados solo incluyen la URL de este endpoint.
+     * Admite peticiones con cabecera Range (206 Partial Content) para poder buscar sin descargar el fichero completo.
+     */
+    @GetMapping({"/audio/{id}/stream", "/audio/{id}/fichero"})
+    public ResponseEntity<Resource> getAudioFichero(
+            @RequestHeader("Authorization") String authHeader,
+            @PathVariable String id) {
+        try {
+            return binaryResponse(contentMediaService.getFicheroAudio(authHeader, id));
+        }
+        catch (ResponseStatusException e) {
+            logger.warn("Error obteniendo fichero del audio {}: {}", id, e.getReason());
+            throw e;
+        }
+        catch (Exception e) {
+            logger.error("Error obteniendo fichero del audio {}: {}", id, e.getMessage());
+            throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR, ERROR_INTERNO);
+        }
+    }
+
+    /**
+     * Miniatura binaria de un contenido (audio o video).
+     * Admite la URL firmada de los listados en lugar de la cabecera Authorization.
+     */
+    @GetMapping("/{id}/miniatura")
+    public ResponseEntity<Resource> getMiniatura(
+            @RequestHeader(value = "Authorization", required = false) String authHeader,
+            @PathVariable String id,
+            @RequestParam(value = ContentMediaUrls.PARAM_FIRMA, required = false) String firma) {
+        try {
+            return binaryResponse(contentMediaService.getMiniatura(authHeader, id, firma));
+        }
+        catch (ResponseStatusException e) {
+            logger.warn("Error obteniendo miniatura del contenido {}: {}", id, e.getReason());
+            throw e;
+        }
+        catch (Exception e) {
+            logger.error("Error obteniendo miniatura del contenido {}: {}", id, e.getMessage());
+            throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR, ERROR_INTERNO);
+        }
+    }
+
+    /**
+     * Miniatura derivada de un contenido (96, 320, 720 o placeholder).
+     * Lleva un ETag fuerte con el hash de la imagen, por lo que las peticiones con If-None-Match
+     * que coinciden se responden con 304 sin cuerpo. Admite la URL firmada de los listados en lugar
+     * de la cabecera Authorization.
+     */
+    @GetMapping("/{id}/thumbnail")
+    public ResponseEntity<Resource> getThumbnail(
+            @RequestHeader(value = "Authorization", required = false) String authHeader,
+            @PathVariable String id,
+            @RequestParam(value = "size", required = false) String size,
+            @RequestParam(value = ContentMediaUrls.PARAM_FIRMA, required = false) String firma) {
+        try {
+            BinaryContentDTO miniatura = contentMediaService.getThumbnail(authHeader, id, size, firma);
+            return binaryHeaders(miniatura)
+                .eTag(miniatura.etag())
+                .cacheControl(CacheControl.maxAge(THUMBNAIL_MAX_AGE).cachePrivate())
+                .body(miniatura.recurso());
+        }
+        catch (ResponseStatusException e) {
+            logger.warn("Error obteniendo thumbnail del contenido {}: {}", id, e.getReason());
+            throw e;
+        }
+        catch (Exception e) {
+            logger.error("Error obteniendo thumbnail del contenido {}: {}", id, e.getMessage());
+            throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR, ERROR_INTERNO);
+        }
+    }
+
     @GetMapping("/getAllAudios")
     public ResponseEntity<List<ContentAudioUploadDTO>> getAllAudios(
             @RequestHeader("Authorization") String authHeader) {
@@ -233,6 +528,73 @@ public class ContentController {
         }
     }
 
+    /**
+     * Estado de un recálculo de valoraciones (borrado de un usuario). Solo administradores:
+     * cuando se consulta, el usuario que lo originó ya no existe.
+     */
+    @GetMapping("/ratings/jobs/{id}")
+    public ResponseEntity<TrabajoRecalculo> getRecalculoValoraciones(
+            @RequestHeader("Authorization") String authHeader,
+            @PathVariable String id) {
+        jwtValidationService.validarGetAdmin(authHeader);
+        return valoracionService.getRecalculo(id)
+            .map(ResponseEntity::ok)
+            .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Recálculo no encontrado"));
+    }
+
+    @GetMapping("/{idContenido}/valoraciones")
+    public ResponseEntity<ValoracionResumenDTO> getResumenValoraciones(
+            @RequestHeader("Authorization") String authHeader,
+            @PathVariable String idContenido) {
+        try {
+            jwtValidationService.validateContentAccess(authHeader, TipoContenido.AUDIO);
+            return ResponseEntity.ok(valoracionService.getResumenValoraciones(idContenido));
+        }
+        catch (ResponseStatusException e) {
+            return ResponseEntity.status(e.getStatusCode()).build();
+        }
+        catch (Exception e) {
+            logger.error("Error obteniendo valoraciones de {}: {}", idContenido, e.getMessage());
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
+        }
+    }
+
+    /**
+     * Comprueba la petición condicional; Spring añade ETag y Last-Modified a la respuesta
+     * y, si coinciden, la marca como 304.
+     * @param version Validadores de la respuesta (null si no se conocen)
+     */
+    private static boolean noModificado(WebRequest request, ContentVersionDTO version) {
+        return version != null && request.checkNotModified(version.etag(), version.ultimaModificacion());
+    }
+
+    /**
+     * Respuesta binaria escrita directamente en el cuerpo, sin pasar por base64.
+     * Al devolver un Resource, Spring MVC resuelve las cabeceras Range (206, Content-Range y 416)
+     * y añade Accept-Ranges y Content-Length.
+     */
+    private ResponseEntity<Resource> binaryResponse(BinaryContentDTO contenido) {
+        return binaryHeaders(contenido).body(contenido.recurso());
+    }
+
+    /**
+     * Cabeceras comunes de las respuestas binarias con el tipo MIME almacenado (octet-stream si no es válido)
+     */
+    private ResponseEntity.BodyBuilder binaryHeaders(BinaryContentDTO contenido) {
+        MediaType mediaType = MediaType.APPLICATION_OCTET_STREAM;
+        if (contenido.mimeType() != null) {
+            try {
+                mediaType = MediaType.parseMediaType(contenido.mimeType());
+            }
+            catch (InvalidMediaTypeException e) {
+                logger.debug("Tipo MIME no válido '{}', se sirve como octet-stream", contenido.mimeType());
+            }
+        }
+        return ResponseEntity.ok()
+            .contentType(mediaType)
+            .header(HttpHeaders.ACCEPT_RANGES, "bytes");
+    }
+
     /**
      * Método común para procesar el resultado del servicio
      */
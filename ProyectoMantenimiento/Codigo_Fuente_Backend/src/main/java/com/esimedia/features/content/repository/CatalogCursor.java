@@ -0,0 +1,116 @@
+package com.esimedia.features.content.repository;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.Locale;
+
+import com.esimedia.features.content.entity.Contenido;
+
+/**
+ * Posición dentro del catálogo para la paginación por clave (keyset).
+ * El catálogo se ordena por el campo del criterio de ordenación (por defecto fechaSubida) descendente y,
+ * a igualdad, por id descendente, por lo que el par (valor, id) identifica de forma única el último elemento entregado.
+ * El token incluye el criterio para poder rechazar cursores de otra ordenación.
+ */
+public final class CatalogCursor {
+
+    private static final String SEPARATOR = ":";
+    private static final String SIN_FECHA = "-";
+    private static final String SEPARADOR_ORDEN = "@";
+
+    /**
+     * Orden del catálogo: más recientes primero, contenidos sin fecha al final y desempate por id.
+     */
+    public static final Comparator<Contenido> ORDEN_CATALOGO = CatalogSort.RECIENTES.getComparador();
+
+    private final CatalogSort orden;
+    // Date para RECIENTES, Double para el resto de criterios
+    private final Object valor;
+    private final String id;
+
+    public CatalogCursor(Date fechaSubida, String id) {
+        this(CatalogSort.RECIENTES, fechaSubida, id);
+    }
+
+    public CatalogCursor(CatalogSort orden, Object valor, String id) {
+        if (id == null || id.isBlank()) {
+            throw new IllegalArgumentException("El cursor debe referenciar un contenido");
+        }
+        this.orden = orden;
+        this.valor = valor;
+        this.id = id;
+    }
+
+    public static CatalogCursor from(Contenido contenido) {
+        return from(contenido, CatalogSort.RECIENTES);
+    }
+
+    public static CatalogCursor from(Contenido contenido, CatalogSort orden) {
+        return new CatalogCursor(orden, orden.valorDe(contenido), contenido.getId());
+    }
+
+    public CatalogSort getOrden() {
+        return orden;
+    }
+
+    public Object getValor() {
+        return valor;
+    }
+
+    public Date getFechaSubida() {
+        return orden == CatalogSort.RECIENTES ? (Date) valor : null;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    /**
+     * Codifica el cursor como token opaco (base64 url-safe) para devolverlo al cliente.
+     */
+    public String encode() {
+        String clave;
+        if (orden == CatalogSort.RECIENTES) {
+            clave = valor != null ? String.valueOf(((Date) valor).getTime()) : SIN_FECHA;
+        }
+        else {
+            clave = orden.name() + SEPARADOR_ORDEN + (valor != null ? valor : SIN_FECHA);
+        }
+        String raw = clave + SEPARATOR + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Decodifica un token generado por {@link #encode()}.
+     * @param token Token de continuación recibido del cliente (puede ser null o vacío)
+     * @return El cursor, o null si no se ha proporcionado token
+     * @throws IllegalArgumentException si el token no es válido
+     */
+    public static CatalogCursor decode(String token) {
+        if (token == null || token.isBlank()) {
+            return null;
+        }
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(token.trim()), StandardCharsets.UTF_8);
+            int separatorIndex = raw.indexOf(SEPARATOR);
+            if (separatorIndex <= 0) {
+                throw new IllegalArgumentException("Cursor de catálogo inválido");
+            }
+            String clave = raw.substring(0, separatorIndex);
+            String id = raw.substring(separatorIndex + 1);
+            int ordenIndex = clave.indexOf(SEPARADOR_ORDEN);
+            if (ordenIndex >= 0) {
+                CatalogSort orden = CatalogSort.valueOf(clave.substring(0, ordenIndex).toUpperCase(Locale.ROOT));
+                String valor = clave.substring(ordenIndex + 1);
+                return new CatalogCursor(orden, SIN_FECHA.equals(valor) ? null : Double.valueOf(valor), id);
+            }
+            Date fechaSubida = SIN_FECHA.equals(clave) ? null : new Date(Long.parseLong(clave));
+            return new CatalogCursor(fechaSubida, id);
+        }
+        catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Cursor de catálogo inválido", e);
+        }
+    }
+}
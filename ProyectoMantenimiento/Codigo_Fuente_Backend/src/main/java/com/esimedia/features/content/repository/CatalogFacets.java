@@ -0,0 +1,79 @@
+package com.esimedia.features.content.repository;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.springframework.data.mongodb.core.query.Criteria;
+
+import com.esimedia.features.content.enums.Resolucion;
+import com.esimedia.features.content.enums.RestriccionEdad;
+
+import lombok.Builder;
+import lombok.Getter;
+
+/**
+ * Filtros por faceta elegidos por el usuario en el catálogo. Los campos nulos no filtran.
+ * Los enums se comparan por nombre, que es como se guardan, para que los criterios
+ * valgan tanto en consultas como en agregaciones.
+ */
+@Getter
+@Builder
+public final class CatalogFacets {
+
+    static final String ESPECIALIDAD = "especialidad";
+    static final String RESOLUCION = "resolucion";
+    static final String ES_VIP = "esVIP";
+    static final String RESTRICCION_EDAD = "restriccionEdad";
+    static final String DURACION = "duracion";
+
+    public static final CatalogFacets NINGUNA = CatalogFacets.builder().build();
+
+    private final String especialidad;
+    // Solo existe en vídeos: si se indica, los audios quedan fuera
+    private final Resolucion resolucion;
+    private final Boolean esVIP;
+    private final RestriccionEdad restriccionEdad;
+    // Duración en segundos, ambos límites incluidos
+    private final Integer duracionMin;
+    private final Integer duracionMax;
+
+    public boolean isSoloVideos() {
+        return resolucion != null;
+    }
+
+    public List<Criteria> toCriteria() {
+        return toCriteriaExcepto(null);
+    }
+
+    /**
+     * Criterios de todas las facetas salvo una. Los recuentos de una faceta se calculan sin su propio
+     * filtro para que el cliente vea cuántos contenidos tendría al elegir otro valor de la misma faceta.
+     * @param faceta Campo de la faceta que no filtra (null para aplicarlas todas)
+     */
+    public List<Criteria> toCriteriaExcepto(String faceta) {
+        List<Criteria> criterios = new ArrayList<>();
+        if (especialidad != null && !ESPECIALIDAD.equals(faceta)) {
+            criterios.add(Criteria.where(ESPECIALIDAD).is(especialidad));
+        }
+        if (resolucion != null && !RESOLUCION.equals(faceta)) {
+            criterios.add(Criteria.where(RESOLUCION).is(resolucion.name()));
+        }
+        if (esVIP != null && !ES_VIP.equals(faceta)) {
+            criterios.add(Criteria.where(ES_VIP).is(esVIP));
+        }
+        if (restriccionEdad != null && !RESTRICCION_EDAD.equals(faceta)) {
+            criterios.add(Criteria.where(RESTRICCION_EDAD).is(restriccionEdad.name()));
+        }
+        if ((duracionMin != null || duracionMax != null) && !DURACION.equals(faceta)) {
+            Criteria duracion = Criteria.where(DURACION);
+            if (duracionMin != null) {
+                duracion.gte(duracionMin);
+            }
+            if (duracionMax != null) {
+                duracion.lte(duracionMax);
+            }
+            criterios.add(duracion);
+        }
+        return criterios;
+    }
+}
@@ -0,0 +1,112 @@
+package com.esimedia.features.content.repository;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+
+import org.springframework.data.mongodb.core.query.Criteria;
+
+import com.esimedia.features.auth.enums.Rol;
+import com.esimedia.features.content.enums.RestriccionEdad;
+
+/**
+ * Reglas de visibilidad del catálogo traducidas a criterios de MongoDB.
+ * Replica las reglas que antes se aplicaban en memoria (visibilidad, caducidad y restricción de edad),
+ * que solo afectan a usuarios con rol NORMAL, y añade los filtros por faceta elegidos por el usuario.
+ */
+public final class CatalogFilter {
+
+    static final String VISIBILIDAD = "visibilidad";
+    static final String FECHA_DISPONIBLE_HASTA = "fechaDisponibleHasta";
+    static final String RESTRICCION_EDAD = "restriccionEdad";
+
+    private final boolean soloVisibles;
+    private final Integer edadUsuario;
+    private final Date ahora;
+    private final CatalogFacets facetas;
+
+    private CatalogFilter(boolean soloVisibles, Integer edadUsuario, Date ahora, CatalogFacets facetas) {
+        this.soloVisibles = soloVisibles;
+        this.edadUsuario = edadUsuario;
+        this.ahora = ahora;
+        this.facetas = facetas;
+    }
+
+    /**
+     * Crea el filtro correspondiente al rol y edad del usuario que consulta.
+     * @param rol Rol del usuario autenticado
+     * @param edadUsuario Edad del usuario (null si se desconoce o no aplica)
+     */
+    public static CatalogFilter forUser(Rol rol, Integer edadUsuario) {
+        boolean esNormal = rol == Rol.NORMAL;
+        return new CatalogFilter(esNormal, esNormal ? edadUsuario : null, new Date(), CatalogFacets.NINGUNA);
+    }
+
+    /**
+     * Mismo filtro de visibilidad restringido además por las facetas indicadas.
+     */
+    public CatalogFilter conFacetas(CatalogFacets facetas) {
+        return new CatalogFilter(soloVisibles, edadUsuario, ahora, facetas != null ? facetas : CatalogFacets.NINGUNA);
+    }
+
+    public boolean isSoloVisibles() {
+        return soloVisibles;
+    }
+
+    public Integer getEdadUsuario() {
+        return edadUsuario;
+    }
+
+    public Date getAhora() {
+        return ahora;
+    }
+
+    public CatalogFacets getFacetas() {
+        return facetas;
+    }
+
+    /**
+     * Construye la lista de criterios de visibilidad y facetas. Vacía para roles sin restricciones y sin facetas.
+     */
+    public List<Criteria> toCriteria() {
+        List<Criteria> criterios = new ArrayList<>(facetas.toCriteria());
+        criterios.addAll(toCriteriaVisibilidad());
+        return criterios;
+    }
+
+    /**
+     * Construye solo los criterios de visibilidad, sin facetas. Vacía para roles sin restricciones.
+     */
+    public List<Criteria> toCriteriaVisibilidad() {
+        List<Criteria> criterios = new ArrayList<>();
+        if (!soloVisibles) {
+            return criterios;
+        }
+
+        criterios.add(Criteria.where(VISIBILIDAD).is(true));
+        criterios.add(new Criteria().orOperator(
+            Criteria.where(FECHA_DISPONIBLE_HASTA).is(null),
+            Criteria.where(FECHA_DISPONIBLE_HASTA).gt(ahora)
+        ));
+
+        if (edadUsuario != null) {
+            criterios.add(Criteria.where(RESTRICCION_EDAD).in(restriccionesPermitidas(edadUsuario)));
+        }
+        return criterios;
+    }
+
+    /**
+     * Restricciones de edad compatibles con la edad del usuario.
+     * Incluye null para que $in también acepte contenidos sin restricción.
+     */
+    static List<String> restriccionesPermitidas(int edad) {
+        List<String> permitidas = new ArrayList<>();
+        permitidas.add(null);
+        Arrays.stream(RestriccionEdad.values())
+            .filter(restriccion -> restriccion.getValor() <= edad)
+            .map(RestriccionEdad::name)
+            .forEach(permitidas::add);
+        return permitidas;
+    }
+}
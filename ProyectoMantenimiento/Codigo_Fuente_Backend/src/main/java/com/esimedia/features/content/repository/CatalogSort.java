@@ -0,0 +1,53 @@
+package com.esimedia.features.content.repository;
+
+import java.util.Comparator;
+import java.util.function.Function;
+
+import com.esimedia.features.content.entity.Contenido;
+
+/**
+ * Criterios de ordenación del catálogo. Todos son descendentes y desempatan por id descendente,
+ * de modo que el par (valor, id) identifica la posición para la paginación por clave.
+ * Cada criterio tiene su índice compuesto en las colecciones de contenidos.
+ */
+public enum CatalogSort {
+
+    RECIENTES("fechaSubida", Contenido::getFechaSubida),
+    VALORACION("valoracionMedia", contenido -> contenido.getValoracionMedia()),
+    VISUALIZACIONES("visualizaciones", contenido -> (double) contenido.getVisualizaciones());
+
+    private final String campo;
+    private final Function<Contenido, ? extends Comparable<?>> valor;
+    private final Comparator<Contenido> comparador;
+
+    <T extends Comparable<? super T>> CatalogSort(String campo, Function<Contenido, T> valor) {
+        this.campo = campo;
+        this.valor = valor;
+        // Los valores nulos quedan al final, igual que en el orden descendente de MongoDB
+        this.comparador = Comparator
+            .comparing(valor, Comparator.nullsFirst(Comparator.<T>naturalOrder()))
+            .thenComparing(Contenido::getId, Comparator.nullsFirst(Comparator.<String>naturalOrder()))
+            .reversed();
+    }
+
+    /**
+     * Campo del documento por el que se ordena.
+     */
+    public String getCampo() {
+        return campo;
+    }
+
+    /**
+     * Orden en memoria equivalente al de MongoDB, para mezclar páginas de audios y vídeos.
+     */
+    public Comparator<Contenido> getComparador() {
+        return comparador;
+    }
+
+    /**
+     * Valor del campo de ordenación de un contenido (Date para RECIENTES, Double para el resto).
+     */
+    public Object valorDe(Contenido contenido) {
+        return valor.apply(contenido);
+    }
+}
@@ -0,0 +1,10 @@
+package com.esimedia.features.content.repository;
+
+import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.stereotype.Repository;
+
+import com.esimedia.features.content.entity.Clasificacion;
+
+@Repository
+public interface ClasificacionRepository extends MongoRepository<Clasificacion, String> {
+}
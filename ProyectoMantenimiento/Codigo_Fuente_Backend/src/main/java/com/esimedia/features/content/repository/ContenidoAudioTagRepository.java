@@ -12,6 +12,9 @@ public interface ContenidoAudioTagRepository extends MongoRepository<ContenidoAu
     
     // Buscar todas las tags de un contenido de audio específico
     List<ContenidoAudioTag> findByIdContenido(String idContenido);
+
+    // Buscar las tags de varios contenidos de audio en una sola consulta
+    List<ContenidoAudioTag> findByIdContenidoIn(List<String> idsContenido);
     
     // Buscar todos los contenidos de audio que tienen una tag específica
     List<ContenidoAudioTag> findByIdTag(String idTag);
@@ -22,6 +25,9 @@ public interface ContenidoAudioTagRepository extends MongoRepository<ContenidoAu
     // Eliminar relación específica
     void deleteByIdContenidoAndIdTag(String idContenido, String idTag);
 
+    // Eliminar varias relaciones de un contenido en una sola operación
+    void deleteByIdContenidoAndIdTagIn(String idContenido, List<String> idsTag);
+
     // Eliminar todas las relaciones de un contenido
     void deleteByIdContenido(String idContenido);
     
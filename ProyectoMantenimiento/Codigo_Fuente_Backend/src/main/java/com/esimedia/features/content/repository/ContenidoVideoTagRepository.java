@@ -12,6 +12,9 @@ public interface ContenidoVideoTagRepository extends MongoRepository<ContenidoVi
     
     // Buscar todas las tags de un contenido de video específico
     List<ContenidoVideoTag> findByIdContenido(String idContenido);
+
+    // Buscar las tags de varios contenidos de video en una sola consulta
+    List<ContenidoVideoTag> findByIdContenidoIn(List<String> idsContenido);
     
     // Buscar todos los contenidos de video que tienen una tag específica
     List<ContenidoVideoTag> findByIdTag(String idTag);
@@ -21,6 +24,9 @@ public interface ContenidoVideoTagRepository extends MongoRepository<ContenidoVi
     
     // Eliminar relación específica
     void deleteByIdContenidoAndIdTag(String idContenido, String idTag);
+
+    // Eliminar varias relaciones de un contenido en una sola operación
+    void deleteByIdContenidoAndIdTagIn(String idContenido, List<String> idsTag);
     
     // Eliminar todas las relaciones de un contenido
     void deleteByIdContenido(String idContenido);
@@ -0,0 +1,308 @@
+package com.esimedia.features.content.repository;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+import org.bson.Document;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.aggregation.AggregationOperation;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Repository;
+
+import com.esimedia.features.content.entity.Contenido;
+
+/**
+ * Consultas paginadas del catálogo ejecutadas íntegramente en MongoDB.
+ * Los filtros de visibilidad y la paginación por clave se resuelven con los índices compuestos
+ * declarados en las entidades de contenido, sin cargar la colección completa en memoria.
+ * Las lecturas de listados usan una proyección de solo metadatos que nunca trae los campos binarios.
+ */
+@Repository
+public class ContentCatalogRepository {
+
+    public static final String FECHA_SUBIDA = "fechaSubida";
+    static final String ID = "_id";
+    // Campos editables de un contenido (actualización parcial con $set)
+    public static final String TITULO = "titulo";
+    public static final String DESCRIPCION = "descripcion";
+    public static final String VISIBILIDAD = "visibilidad";
+    public static final String FECHA_DISPONIBLE_HASTA = "fechaDisponibleHasta";
+    public static final String TAGS = "tags";
+    public static final String ES_VIP = CatalogFacets.ES_VIP;
+    public static final String RESTRICCION_EDAD = CatalogFacets.RESTRICCION_EDAD;
+    public static final String RESOLUCION = CatalogFacets.RESOLUCION;
+
+    // Campos binarios que no se cargan en listados (fichero de audio y miniatura)
+    public static final String FICHERO = "fichero";
+    public static final String FICHERO_EXTENSION = "ficheroExtension";
+    public static final String IMAGEN = "imagen";
+    public static final String FORMATO_IMAGEN = "formatoImagen";
+    // Referencias a GridFS (pequeñas, sí se incluyen en la proyección de metadatos)
+    public static final String FICHERO_BLOB = "ficheroBlob";
+    public static final String IMAGEN_BLOB = "imagenBlob";
+    public static final String IMAGEN_DERIVADOS = "imagenDerivados";
+
+    // Documentos que el cursor trae por cada viaje al servidor al recorrer el catálogo completo
+    static final int STREAM_BATCH_SIZE = 100;
+
+    // Facetas del catálogo (nombre en la respuesta = campo del documento) y tramos de duración en segundos
+    public static final String FACETA_DURACION = CatalogFacets.DURACION;
+    static final List<String> FACETAS_POR_VALOR = List.of(
+        CatalogFacets.ESPECIALIDAD, CatalogFacets.RESOLUCION, CatalogFacets.ES_VIP, CatalogFacets.RESTRICCION_EDAD);
+    static final List<Integer> TRAMOS_DURACION = List.of(0, 300, 1200, 3600, 86401);
+    static final String TOTAL = "total";
+
+    private final MongoTemplate mongoTemplate;
+    private final ContentVersionRepository versionRepository;
+
+    public ContentCatalogRepository(MongoTemplate mongoTemplate, ContentVersionRepository versionRepository) {
+        this.mongoTemplate = mongoTemplate;
+        this.versionRepository = versionRepository;
+    }
+
+    /**
+     * Obtiene la siguiente página del catálogo para un tipo de contenido.
+     * @param tipo Clase de la entidad (ContenidosAudio o ContenidosVideo)
+     * @param filter Filtro de visibilidad y facetas del usuario
+     * @param orden Criterio de ordenación
+     * @param cursor Último elemento entregado (null para la primera página)
+     * @param limit Número máximo de elementos a devolver
+     * @return Contenidos ordenados por el campo del criterio e id descendentes
+     */
+    public <T extends Contenido> List<T> findPage(Class<T> tipo, CatalogFilter filter, CatalogSort orden,
+                                                  CatalogCursor cursor, int limit) {
+        return mongoTemplate.find(buildPageQuery(filter, orden, cursor, limit), tipo);
+    }
+
+    /**
+     * Cuenta los contenidos visibles para el filtro por cada valor de faceta con una única agregación $facet.
+     * Cada faceta se cuenta con los filtros de las demás pero no con el suyo (selección múltiple): elegir un
+     * valor no deja a cero el resto de valores de esa misma faceta.
+     * @return Por faceta, número de contenidos de cada valor; la duración se agrupa por tramos (clave = inicio del tramo)
+     */
+    public Map<String, Map<String, Long>> contarFacetas(Class<? extends Contenido> tipo, CatalogFilter filter) {
+        List<AggregationOperation> etapas = new ArrayList<>();
+        List<Criteria> criterios = filter.toCriteriaVisibilidad();
+        if (!criterios.isEmpty()) {
+            etapas.add(Aggregation.match(new Criteria().andOperator(criterios.toArray(new Criteria[0]))));
+        }
+        Document facetas = new Document();
+        for (String campo : FACETAS_POR_VALOR) {
+            facetas.append(campo, etapasFaceta(filter.getFacetas(), campo, new Document("$group", new Document(ID, "$" + campo)
+                .append(TOTAL, new Document("$sum", 1)))));
+        }
+        facetas.append(FACETA_DURACION, etapasFaceta(filter.getFacetas(), FACETA_DURACION,
+            new Document("$bucket", new Document("groupBy", "$" + CatalogFacets.DURACION)
+                .append("boundaries", TRAMOS_DURACION)
+                .append("default", "otros")
+                .append("output", new Document(TOTAL, new Document("$sum", 1))))));
+        etapas.add(contexto -> new Document("$facet", facetas));
+
+        Map<String, Map<String, Long>> conteos = new LinkedHashMap<>();
+        Document resultado = mongoTemplate.aggregate(Aggregation.newAggregation(etapas), tipo, Document.class)
+            .getUniqueMappedResult();
+        if (resultado == null) {
+            return conteos;
+        }
+        for (String faceta : resultado.keySet()) {
+            Map<String, Long> valores = new LinkedHashMap<>();
+            for (Document grupo : resultado.getList(faceta, Document.class)) {
+                // Los audios no tienen resolución: su grupo nulo no es un valor de la faceta
+                if (grupo.get(ID) != null) {
+                    valores.put(String.valueOf(grupo.get(ID)), ((Number) grupo.get(TOTAL)).longValue());
+                }
+            }
+            conteos.put(faceta, valores);
+        }
+        return conteos;
+    }
+
+    /**
+     * Subpipeline de una faceta dentro de $facet: filtra por las demás facetas y agrupa.
+     */
+    static List<Document> etapasFaceta(CatalogFacets facetas, String faceta, Document agrupacion) {
+        List<Criteria> criterios = facetas.toCriteriaExcepto(faceta);
+        if (criterios.isEmpty()) {
+            return List.of(agrupacion);
+        }
+        Criteria otras = new Criteria().andOperator(criterios.toArray(new Criteria[0]));
+        return List.of(new Document("$match", otras.getCriteriaObject()), agrupacion);
+    }
+
+    /**
+     * Recorre con un cursor de MongoDB todos los contenidos visibles para el filtro, en el orden del catálogo
+     * y sin los campos binarios. Los documentos se leen bajo demanda, por lo que la memoria no depende del
+     * tamaño de la colección. El stream debe cerrarse para liberar el cursor.
+     */
+    public <T extends Contenido> Stream<T> streamVisible(Class<T> tipo, CatalogFilter filter) {
+        // limit 0: sin límite
+        Query query = buildPageQuery(filter, CatalogSort.RECIENTES, null, 0).cursorBatchSize(STREAM_BATCH_SIZE);
+        return mongoTemplate.stream(query, tipo);
+    }
+
+    /**
+     * Recorre con un cursor todos los contenidos de un tipo leyendo solo los tags y los campos de popularidad.
+     * El stream debe cerrarse para liberar el cursor.
+     */
+    public <T extends Contenido> Stream<T> streamTags(Class<T> tipo) {
+        Query query = new Query().cursorBatchSize(STREAM_BATCH_SIZE);
+        query.fields().include(TAGS, ContentSearchRepository.VISUALIZACIONES, ContentRatingRepository.MEDIA);
+        return mongoTemplate.stream(query, tipo);
+    }
+
+    /**
+     * Obtiene todos los contenidos de un tipo visibles para el filtro, sin los campos binarios.
+     * La caducidad se aplica como predicado de la consulta, por lo que la lectura nunca escribe.
+     */
+    public <T extends Contenido> List<T> findAllVisible(Class<T> tipo, CatalogFilter filter) {
+        return mongoTemplate.find(buildPageQuery(filter, CatalogSort.RECIENTES, null, 0), tipo);
+    }
+
+    /**
+     * Obtiene los contenidos con los ids indicados sin los campos binarios.
+     * Los ids que no pertenecen a la colección se ignoran.
+     */
+    public <T extends Contenido> List<T> findMetadataByIds(Class<T> tipo, Collection<String> ids) {
+        if (ids.isEmpty()) {
+            return List.of();
+        }
+        return mongoTemplate.find(soloMetadatos(new Query(Criteria.where(ID).in(ids))), tipo);
+    }
+
+    /**
+     * Obtiene los contenidos con los ids indicados que son visibles para el filtro, sin los campos binarios.
+     * El orden no está definido: lo fija quien conoce la posición de cada id.
+     */
+    public <T extends Contenido> List<T> findVisibleByIds(Class<T> tipo, CatalogFilter filter, Collection<String> ids) {
+        if (ids.isEmpty()) {
+            return List.of();
+        }
+        List<Criteria> criterios = new ArrayList<>(filter.toCriteria());
+        criterios.add(Criteria.where(ID).in(ids));
+        return mongoTemplate.find(soloMetadatos(new Query(new Criteria().andOperator(criterios.toArray(new Criteria[0])))), tipo);
+    }
+
+    /**
+     * Indica si un contenido existe y es visible para el filtro, sin leer el documento.
+     */
+    public boolean existeVisible(Class<? extends Contenido> tipo, CatalogFilter filter, String id) {
+        List<Criteria> criterios = new ArrayList<>(filter.toCriteria());
+        criterios.add(Criteria.where(ID).is(id));
+        return mongoTemplate.exists(new Query(new Criteria().andOperator(criterios.toArray(new Criteria[0]))), tipo);
+    }
+
+    /**
+     * Especialidad de cada contenido, leyendo solo ese campo.
+     * @return Especialidad por id; los ids que no pertenecen a la colección no aparecen
+     */
+    public Map<String, String> findEspecialidades(Class<? extends Contenido> tipo, Collection<String> ids) {
+        Map<String, String> especialidades = new LinkedHashMap<>();
+        if (ids.isEmpty()) {
+            return especialidades;
+        }
+        Query query = new Query(Criteria.where(ID).in(ids));
+        query.fields().include(CatalogFacets.ESPECIALIDAD);
+        for (Contenido contenido : mongoTemplate.find(query, tipo)) {
+            especialidades.put(contenido.getId(), contenido.getEspecialidad());
+        }
+        return especialidades;
+    }
+
+    /**
+     * Contenidos con valoraciones, de mayor a menor media, con solo los campos de la valoración y la especialidad.
+     * @param limite Número máximo de contenidos
+     */
+    public <T extends Contenido> List<T> findMejorValorados(Class<T> tipo, int limite) {
+        Query query = new Query(Criteria.where(ContentRatingRepository.NUM).gt(0))
+            .with(Sort.by(Sort.Direction.DESC, ContentRatingRepository.MEDIA, ID))
+            .limit(limite);
+        query.fields().include(CatalogFacets.ESPECIALIDAD, ContentRatingRepository.SUMA, ContentRatingRepository.NUM);
+        return mongoTemplate.find(query, tipo);
+    }
+
+    /**
+     * Obtiene un contenido cargando únicamente los campos indicados (además del id).
+     * Se usa en los endpoints binarios para no traer el resto del documento.
+     */
+    public <T extends Contenido> T findFields(Class<T> tipo, String id, String... campos) {
+        Query query = new Query(Criteria.where(ID).is(id));
+        query.fields().include(campos);
+        return mongoTemplate.findOne(query, tipo);
+    }
+
+    /**
+     * Aplica una actualización parcial a un contenido. Solo escribe los campos del Update, así que no pisa
+     * los contadores que otros escriben con $inc (visualizaciones, valoraciones) entre la lectura y la
+     * escritura, ni los binarios que la migración a GridFS mueve mientras tanto.
+     * @return false si el contenido ya no existe
+     */
+    public boolean actualizar(Class<? extends Contenido> tipo, String id, Update update) {
+        return mongoTemplate.updateFirst(new Query(Criteria.where(ID).is(id)), update, tipo).getMatchedCount() > 0;
+    }
+
+    /**
+     * Marca como no visibles, con una única actualización parcial, los contenidos visibles cuya fecha
+     * de disponibilidad ya ha pasado. Usa el índice (visibilidad, fechaDisponibleHasta) de la colección.
+     * La versión del catálogo solo avanza si hay algo que ocultar.
+     * @return Número de documentos ocultados
+     */
+    public long ocultarCaducados(Class<? extends Contenido> tipo, Date ahora) {
+        Query caducados = new Query(Criteria.where(VISIBILIDAD).is(true).and(FECHA_DISPONIBLE_HASTA).lte(ahora));
+        if (!mongoTemplate.exists(caducados, tipo)) {
+            return 0;
+        }
+        Update ocultar = ContentVersionRepository.versionar(new Update().set(VISIBILIDAD, false), versionRepository.avanzar());
+        return mongoTemplate.updateMulti(caducados, ocultar, tipo).getModifiedCount();
+    }
+
+    Query buildPageQuery(CatalogFilter filter, CatalogSort orden, CatalogCursor cursor, int limit) {
+        List<Criteria> criterios = new ArrayList<>(filter.toCriteria());
+        if (cursor != null) {
+            criterios.add(afterCursor(cursor));
+        }
+
+        Query query = soloMetadatos(new Query());
+        if (!criterios.isEmpty()) {
+            query.addCriteria(new Criteria().andOperator(criterios.toArray(new Criteria[0])));
+        }
+        return query
+            .with(Sort.by(Sort.Direction.DESC, orden.getCampo(), ID))
+            .limit(limit);
+    }
+
+    /**
+     * Condición de continuación: elementos estrictamente posteriores al cursor en el orden del catálogo.
+     * En orden descendente MongoDB coloca los valores nulos al final.
+     */
+    static Criteria afterCursor(CatalogCursor cursor) {
+        String campo = cursor.getOrden().getCampo();
+        if (cursor.getValor() == null) {
+            return new Criteria().andOperator(
+                Criteria.where(campo).is(null),
+                Criteria.where(ID).lt(cursor.getId())
+            );
+        }
+        return new Criteria().orOperator(
+            Criteria.where(campo).lt(cursor.getValor()),
+            new Criteria().andOperator(
+                Criteria.where(campo).is(cursor.getValor()),
+                Criteria.where(ID).lt(cursor.getId())
+            ),
+            Criteria.where(campo).is(null)
+        );
+    }
+
+    static Query soloMetadatos(Query query) {
+        query.fields().exclude(FICHERO, IMAGEN);
+        return query;
+    }
+}
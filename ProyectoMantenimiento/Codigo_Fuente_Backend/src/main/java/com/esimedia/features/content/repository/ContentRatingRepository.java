@@ -0,0 +1,232 @@
+package com.esimedia.features.content.repository;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+
+import org.bson.Document;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.aggregation.AggregationOperation;
+import org.springframework.data.mongodb.core.aggregation.AggregationUpdate;
+import org.springframework.data.mongodb.core.aggregation.ConditionalOperators;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.data.mongodb.core.query.UpdateDefinition;
+import org.springframework.data.util.Pair;
+import org.springframework.stereotype.Repository;
+
+import com.esimedia.features.content.entity.Contenido;
+import com.esimedia.features.content.entity.ContenidosAudio;
+import com.esimedia.features.content.entity.ContenidosVideo;
+import com.esimedia.features.content.entity.ValoracionContenido;
+
+/**
+ * Agregados de valoraciones guardados en el propio documento de contenido: suma, número de valoraciones
+ * e histograma por cubetas. Se actualizan con updates atómicos, de modo que valorar un contenido cuesta lo mismo
+ * tenga las valoraciones que tenga y la media se sirve sin recorrer la colección de valoraciones.
+ */
+@Repository
+public class ContentRatingRepository {
+
+    static final String ID = "_id";
+    public static final String SUMA = "sumaValoraciones";
+    public static final String NUM = "numValoraciones";
+    public static final String HISTOGRAMA = "histogramaValoraciones";
+    public static final String MEDIA = "valoracionMedia";
+    static final String VERSION = ContentVersionRepository.VERSION;
+    static final String MODIFICADO = ContentVersionRepository.MODIFICADO;
+
+    // Campos de la colección de valoraciones
+    static final String ID_CONTENIDO = "idContenido";
+    static final String ID_USUARIO = "idUsuario";
+    static final String VALORACION = "valoracion";
+    static final String FECHA_VALORACION = "fechaValoracion";
+    static final String TOTAL = "total";
+    static final String DEL_USUARIO = "delUsuario";
+
+    private static final List<Class<? extends Contenido>> TIPOS = List.of(ContenidosAudio.class, ContenidosVideo.class);
+
+    private final MongoTemplate mongoTemplate;
+    private final ContentVersionRepository versionRepository;
+
+    public ContentRatingRepository(MongoTemplate mongoTemplate, ContentVersionRepository versionRepository) {
+        this.mongoTemplate = mongoTemplate;
+        this.versionRepository = versionRepository;
+    }
+
+    /**
+     * Carga solo los campos de valoración de un contenido de la colección indicada.
+     * @return El contenido o null si no existe
+     */
+    public Contenido findAgregados(Class<? extends Contenido> tipo, String idContenido) {
+        Query query = new Query(Criteria.where(ID).is(idContenido));
+        query.fields().include(SUMA, NUM, HISTOGRAMA, MEDIA);
+        return mongoTemplate.findOne(query, tipo);
+    }
+
+    /**
+     * Fija los agregados calculados a partir de las valoraciones existentes.
+     * Solo escribe si el contenido todavía no los tiene, así que si dos peticiones inicializan a la vez
+     * prevalece la primera.
+     * @return true si se han escrito
+     */
+    public boolean inicializar(Class<? extends Contenido> tipo, String idContenido,
+                               double suma, long num, Map<String, Long> histograma) {
+        Query sinAgregados = new Query(Criteria.where(ID).is(idContenido).and(NUM).exists(false));
+        Update update = new Update()
+            .set(SUMA, suma)
+            .set(NUM, num)
+            .set(HISTOGRAMA, histograma)
+            .set(MEDIA, media(suma, num));
+        return mongoTemplate.updateFirst(sinAgregados, update, tipo).getModifiedCount() > 0;
+    }
+
+    /**
+     * Guarda la valoración de un usuario sobre un contenido y devuelve la que reemplaza, en una sola operación
+     * (findAndModify con upsert sobre contenido y usuario, devolviendo el documento anterior).
+     * @return Valoración anterior, o null si el usuario no había valorado el contenido
+     */
+    public Double cambiarValoracion(String idContenido, String idUsuario, double valoracion) {
+        Query query = new Query(Criteria.where(ID_CONTENIDO).is(idContenido).and(ID_USUARIO).is(idUsuario));
+        query.fields().include(VALORACION);
+        Update update = new Update().set(VALORACION, valoracion).set(FECHA_VALORACION, new Date());
+        ValoracionContenido anterior = mongoTemplate.findAndModify(query, update,
+            FindAndModifyOptions.options().upsert(true).returnNew(false), ValoracionContenido.class);
+        return anterior != null ? anterior.getValoracion() : null;
+    }
+
+    /**
+     * Aplica la variación de una valoración (nueva, cambiada o eliminada) con el mismo update con pipeline
+     * que {@link #aplicarEnBloque}: suma, número, histograma, media y versión cambian en un único paso atómico.
+     * @return Suma y número de valoraciones tras aplicarla, o null si el contenido ya no existe
+     */
+    public Contenido aplicar(Class<? extends Contenido> tipo, RatingTotals variacion) {
+        Query query = new Query(Criteria.where(ID).is(variacion.getIdContenido()));
+        query.fields().include(SUMA, NUM);
+        return mongoTemplate.findAndModify(query, sumarConMedia(variacion, versionRepository.avanzar()),
+            FindAndModifyOptions.options().returnNew(true), tipo);
+    }
+
+    /**
+     * Carga los campos de valoración de varios contenidos con una consulta $in por colección.
+     */
+    public List<Contenido> findAgregados(Collection<String> idsContenido) {
+        List<Contenido> contenidos = new ArrayList<>();
+        if (idsContenido.isEmpty()) {
+            return contenidos;
+        }
+        for (Class<? extends Contenido> tipo : TIPOS) {
+            Query query = new Query(Criteria.where(ID).in(idsContenido));
+            query.fields().include(SUMA, NUM, HISTOGRAMA, MEDIA);
+            contenidos.addAll(mongoTemplate.find(query, tipo));
+        }
+        return contenidos;
+    }
+
+    /**
+     * Valoración agrupada por contenido y valor: total de valoraciones y cuántas son del usuario consultado.
+     */
+    public record GrupoValoraciones(String idContenido, double valoracion, long total, long delUsuario) { }
+
+    /**
+     * Ids de los contenidos que ha valorado un usuario.
+     */
+    public List<String> findIdsValoradosPor(String idUsuario) {
+        return mongoTemplate.findDistinct(new Query(Criteria.where(ID_USUARIO).is(idUsuario)),
+            ID_CONTENIDO, ValoracionContenido.class, String.class);
+    }
+
+    /**
+     * Agrupa en una sola pasada de agregación las valoraciones de un usuario y todas las de los contenidos indicados,
+     * por contenido y valor.
+     * @param idUsuario Usuario cuyas valoraciones se van a descontar
+     * @param idsCompletos Contenidos de los que se necesitan todas las valoraciones (los que no tienen agregados)
+     */
+    public List<GrupoValoraciones> agruparValoraciones(String idUsuario, Collection<String> idsCompletos) {
+        Aggregation agregacion = Aggregation.newAggregation(
+            Aggregation.match(new Criteria().orOperator(
+                Criteria.where(ID_USUARIO).is(idUsuario),
+                Criteria.where(ID_CONTENIDO).in(idsCompletos))),
+            Aggregation.group(ID_CONTENIDO, VALORACION)
+                .count().as(TOTAL)
+                .sum(ConditionalOperators.when(Criteria.where(ID_USUARIO).is(idUsuario)).then(1).otherwise(0)).as(DEL_USUARIO)
+        );
+        List<GrupoValoraciones> grupos = new ArrayList<>();
+        for (Document grupo : mongoTemplate.aggregate(agregacion, ValoracionContenido.class, Document.class).getMappedResults()) {
+            Document clave = grupo.get(ID, Document.class);
+            Object valoracion = clave.get(VALORACION);
+            if (valoracion instanceof Number numero) {
+                grupos.add(new GrupoValoraciones(clave.getString(ID_CONTENIDO), numero.doubleValue(),
+                    ((Number) grupo.get(TOTAL)).longValue(), ((Number) grupo.get(DEL_USUARIO)).longValue()));
+            }
+        }
+        return grupos;
+    }
+
+    /**
+     * Inicializa en un único bulk los agregados de los contenidos que todavía no los tienen.
+     * @return Número de contenidos inicializados (los que otra petición inicializó antes no cuentan)
+     */
+    public int inicializarEnBloque(Class<? extends Contenido> tipo, List<RatingTotals> totales) {
+        if (totales.isEmpty()) {
+            return 0;
+        }
+        List<Pair<Query, UpdateDefinition>> updates = totales.stream()
+            .map(total -> Pair.<Query, UpdateDefinition>of(
+                new Query(Criteria.where(ID).is(total.getIdContenido()).and(NUM).exists(false)),
+                new Update()
+                    .set(SUMA, total.getSuma())
+                    .set(NUM, total.getNum())
+                    .set(HISTOGRAMA, total.histogramaDocumento())
+                    .set(MEDIA, media(total.getSuma(), total.getNum()))))
+            .toList();
+        return mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, tipo).updateOne(updates).execute().getModifiedCount();
+    }
+
+    /**
+     * Aplica en un único bulk las variaciones de varios contenidos. Cada operación es un update con pipeline
+     * que suma la variación y recalcula la media en el mismo paso, de forma atómica por documento.
+     * @return Número de contenidos actualizados
+     */
+    public int aplicarEnBloque(Class<? extends Contenido> tipo, List<RatingTotals> variaciones) {
+        if (variaciones.isEmpty()) {
+            return 0;
+        }
+        ContentVersionRepository.Version version = versionRepository.avanzar();
+        List<Pair<Query, UpdateDefinition>> updates = variaciones.stream()
+            .map(variacion -> Pair.<Query, UpdateDefinition>of(
+                new Query(Criteria.where(ID).is(variacion.getIdContenido())),
+                sumarConMedia(variacion, version)))
+            .toList();
+        return mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, tipo).updateOne(updates).execute().getModifiedCount();
+    }
+
+    static AggregationUpdate sumarConMedia(RatingTotals variacion, ContentVersionRepository.Version version) {
+        Document nuevaSuma = new Document("$add", List.of("$" + SUMA, variacion.getSuma()));
+        Document nuevoNum = new Document("$add", List.of("$" + NUM, variacion.getNum()));
+        Document set = new Document(SUMA, nuevaSuma)
+            .append(NUM, nuevoNum)
+            .append(MEDIA, new Document("$cond", List.of(
+                new Document("$gt", List.of(nuevoNum, 0)),
+                new Document("$divide", List.of(nuevaSuma, nuevoNum)),
+                0.0)))
+            .append(VERSION, new Document("$max", List.of("$" + VERSION, version.numero())))
+            .append(MODIFICADO, new Document("$max", List.of("$" + MODIFICADO, version.modificado())));
+        variacion.getCubetas().forEach((cubeta, cantidad) -> {
+            String campo = HISTOGRAMA + "." + cubeta;
+            set.append(campo, new Document("$add", List.of(new Document("$ifNull", List.of("$" + campo, 0L)), cantidad)));
+        });
+        AggregationOperation etapa = contexto -> new Document("$set", set);
+        return AggregationUpdate.from(List.of(etapa));
+    }
+
+    public static double media(double suma, long num) {
+        return num > 0 ? suma / num : 0.0;
+    }
+}
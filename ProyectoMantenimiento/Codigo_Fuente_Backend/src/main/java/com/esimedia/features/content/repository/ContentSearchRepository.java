@@ -0,0 +1,88 @@
+package com.esimedia.features.content.repository;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.bson.Document;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.aggregation.AggregationOperation;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.TextCriteria;
+import org.springframework.stereotype.Repository;
+
+import com.esimedia.features.content.entity.Contenido;
+
+/**
+ * Búsqueda de texto sobre el índice de texto de cada colección de contenidos
+ * (título, tags, especialidad y descripción, con pesos decrecientes).
+ * La relevancia de MongoDB se multiplica por un factor de popularidad que crece con el logaritmo
+ * de las visualizaciones y con la valoración media, y el orden y el límite se aplican en el servidor.
+ */
+@Repository
+public class ContentSearchRepository {
+
+    static final String PUNTUACION = "puntuacion";
+    static final String VISUALIZACIONES = "visualizaciones";
+    static final String VALORACION_MEDIA = "valoracionMedia";
+
+    // Peso de la popularidad frente a la relevancia del texto
+    static final double PESO_VISUALIZACIONES = 0.1;
+    static final double PESO_VALORACION = 0.1;
+
+    /**
+     * Contenido encontrado junto con su puntuación, comparable entre audios y vídeos.
+     */
+    public record Resultado<T extends Contenido>(T contenido, double puntuacion) { }
+
+    private final MongoTemplate mongoTemplate;
+
+    public ContentSearchRepository(MongoTemplate mongoTemplate) {
+        this.mongoTemplate = mongoTemplate;
+    }
+
+    /**
+     * Busca contenidos de un tipo que coincidan con el texto y sean visibles para el filtro.
+     * @param limite Número máximo de resultados, los de mayor puntuación
+     * @return Resultados ordenados por puntuación descendente (sin los campos binarios)
+     */
+    public <T extends Contenido> List<Resultado<T>> buscar(Class<T> tipo, String texto, CatalogFilter filter, int limite) {
+        List<Resultado<T>> resultados = new ArrayList<>();
+        for (Document documento : mongoTemplate.aggregate(buildAgregacion(texto, filter, limite), tipo, Document.class)
+                .getMappedResults()) {
+            double puntuacion = ((Number) documento.get(PUNTUACION)).doubleValue();
+            resultados.add(new Resultado<>(mongoTemplate.getConverter().read(tipo, documento), puntuacion));
+        }
+        return resultados;
+    }
+
+    Aggregation buildAgregacion(String texto, CatalogFilter filter, int limite) {
+        // $text tiene que ir en la primera etapa $match; los filtros de visibilidad se añaden en la misma
+        Document coincidencias = new Document(TextCriteria.forDefaultLanguage().matching(texto).getCriteriaObject());
+        List<Criteria> criterios = filter.toCriteria();
+        if (!criterios.isEmpty()) {
+            coincidencias.append("$and", criterios.stream().map(Criteria::getCriteriaObject).toList());
+        }
+
+        Document popularidad = new Document("$add", List.of(
+            1,
+            new Document("$multiply", List.of(PESO_VISUALIZACIONES,
+                new Document("$ln", new Document("$add", List.of(1, ifNull(VISUALIZACIONES)))))),
+            new Document("$multiply", List.of(PESO_VALORACION, ifNull(VALORACION_MEDIA)))));
+        Document puntuacion = new Document("$multiply", List.of(new Document("$meta", "textScore"), popularidad));
+
+        List<AggregationOperation> etapas = List.of(
+            contexto -> new Document("$match", coincidencias),
+            contexto -> new Document("$addFields", new Document(PUNTUACION, puntuacion)),
+            contexto -> new Document("$sort", new Document(PUNTUACION, -1).append(ContentCatalogRepository.ID, -1)),
+            contexto -> new Document("$limit", limite),
+            contexto -> new Document("$project", new Document(ContentCatalogRepository.FICHERO, 0)
+                .append(ContentCatalogRepository.IMAGEN, 0))
+        );
+        return Aggregation.newAggregation(etapas);
+    }
+
+    private static Document ifNull(String campo) {
+        return new Document("$ifNull", List.of("$" + campo, 0));
+    }
+}
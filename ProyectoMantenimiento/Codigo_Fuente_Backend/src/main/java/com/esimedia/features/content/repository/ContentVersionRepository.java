@@ -0,0 +1,87 @@
+package com.esimedia.features.content.repository;
+
+import java.util.Date;
+
+import org.bson.Document;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Repository;
+
+import com.esimedia.features.content.entity.Contenido;
+
+/**
+ * Versión del catálogo: un contador en un único documento que avanza con cada cambio de contenidos
+ * (alta, edición, borrado, valoraciones, visualizaciones y caducidad). Cada contenido modificado guarda
+ * el valor con el que cambió, así que su versión también crece siempre y las dos sirven de ETag
+ * sin cargar ningún contenido.
+ */
+@Repository
+public class ContentVersionRepository {
+
+    public static final String VERSION = "version";
+    public static final String MODIFICADO = "modificado";
+    static final String COLECCION = "versionCatalogo";
+    static final String CATALOGO = "catalogo";
+    static final String ID = "_id";
+
+    /**
+     * Versión y fecha de la última modificación (null si nunca ha cambiado).
+     */
+    public record Version(long numero, Date modificado) {
+
+        public static final Version INICIAL = new Version(0, null);
+    }
+
+    private final MongoTemplate mongoTemplate;
+
+    public ContentVersionRepository(MongoTemplate mongoTemplate) {
+        this.mongoTemplate = mongoTemplate;
+    }
+
+    /**
+     * Avanza la versión del catálogo antes de un cambio.
+     * @return La nueva versión, con la que se marcan los contenidos modificados
+     */
+    public Version avanzar() {
+        Document actualizado = mongoTemplate.findAndModify(
+            new Query(Criteria.where(ID).is(CATALOGO)),
+            new Update().inc(VERSION, 1L).currentDate(MODIFICADO),
+            FindAndModifyOptions.options().upsert(true).returnNew(true),
+            Document.class, COLECCION);
+        return aVersion(actualizado);
+    }
+
+    /**
+     * Versión actual del catálogo: una lectura por clave de un documento diminuto.
+     */
+    public Version actual() {
+        return aVersion(mongoTemplate.findById(CATALOGO, Document.class, COLECCION));
+    }
+
+    /**
+     * Marca en una actualización parcial la versión con la que cambia el contenido.
+     * Con $max una escritura que llegue tarde nunca hace retroceder la versión.
+     */
+    public static Update versionar(Update update, Version version) {
+        return update.max(VERSION, version.numero()).max(MODIFICADO, version.modificado());
+    }
+
+    /**
+     * Marca un contenido que se va a guardar completo con la versión con la que cambia.
+     */
+    public static void versionar(Contenido contenido, Version version) {
+        contenido.setVersion(version.numero());
+        contenido.setModificado(version.modificado());
+    }
+
+    private static Version aVersion(Document documento) {
+        if (documento == null) {
+            return Version.INICIAL;
+        }
+        Number numero = documento.get(VERSION, Number.class);
+        return new Version(numero != null ? numero.longValue() : 0, documento.getDate(MODIFICADO));
+    }
+}
@@ -0,0 +1,76 @@
+package com.esimedia.features.content.repository;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Suma, número de valoraciones e histograma de un contenido.
+ * Se usa tanto para valores absolutos (inicialización) como para variaciones (valores negativos al borrar).
+ */
+public final class RatingTotals {
+
+    private final String idContenido;
+    private double suma;
+    private long num;
+    private final Map<Integer, Long> cubetas = new HashMap<>();
+
+    public RatingTotals(String idContenido) {
+        this.idContenido = idContenido;
+    }
+
+    /**
+     * Totales ya calculados, p. ej. una variación guardada en un recálculo.
+     */
+    public RatingTotals(String idContenido, double suma, long num, Map<Integer, Long> cubetas) {
+        this.idContenido = idContenido;
+        this.suma = suma;
+        this.num = num;
+        this.cubetas.putAll(cubetas);
+    }
+
+    /**
+     * Acumula "cantidad" valoraciones de un mismo valor (negativa para descontarlas).
+     */
+    public RatingTotals add(double valoracion, long cantidad) {
+        suma += valoracion * cantidad;
+        num += cantidad;
+        cubetas.merge(cubeta(valoracion), cantidad, Long::sum);
+        return this;
+    }
+
+    public String getIdContenido() {
+        return idContenido;
+    }
+
+    public double getSuma() {
+        return suma;
+    }
+
+    public long getNum() {
+        return num;
+    }
+
+    public Map<Integer, Long> getCubetas() {
+        return cubetas;
+    }
+
+    /**
+     * Histograma con las claves tal y como se guardan en el documento (índice de cubeta como texto).
+     */
+    public Map<String, Long> histogramaDocumento() {
+        Map<String, Long> histograma = new HashMap<>();
+        cubetas.forEach((cubeta, cantidad) -> {
+            if (cantidad != 0) {
+                histograma.put(String.valueOf(cubeta), cantidad);
+            }
+        });
+        return histograma;
+    }
+
+    /**
+     * Índice de la cubeta de 0.5 de una valoración (0 para 0.0, 10 para 5.0).
+     */
+    public static int cubeta(double valoracion) {
+        return (int) Math.round(valoracion * 2);
+    }
+}
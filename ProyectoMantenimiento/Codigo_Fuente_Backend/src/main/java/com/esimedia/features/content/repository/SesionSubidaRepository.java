@@ -0,0 +1,15 @@
+package com.esimedia.features.content.repository;
+
+import java.util.Date;
+import java.util.List;
+
+import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.stereotype.Repository;
+
+import com.esimedia.features.content.entity.SesionSubida;
+
+@Repository
+public interface SesionSubidaRepository extends MongoRepository<SesionSubida, String> {
+
+    List<SesionSubida> findByFechaCaducidadBefore(Date fecha);
+}
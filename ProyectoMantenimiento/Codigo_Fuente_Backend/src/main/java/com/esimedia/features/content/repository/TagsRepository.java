@@ -5,6 +5,7 @@ import org.springframework.stereotype.Repository;
 
 import com.esimedia.features.content.entity.Tags;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -22,4 +23,7 @@ public interface TagsRepository extends MongoRepository<Tags, String> {
     
     // Buscar tags por lista de IDs
     List<Tags> findByIdTagIn(List<String> ids);
+
+    // Buscar tags por lista de nombres
+    List<Tags> findByNombreIn(Collection<String> nombres);
 }
\ No newline at end of file
@@ -0,0 +1,16 @@
+package com.esimedia.features.content.repository;
+
+import java.util.Collection;
+import java.util.List;
+
+import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.stereotype.Repository;
+
+import com.esimedia.features.content.entity.TrabajoRecalculo;
+import com.esimedia.features.content.enums.FaseRecalculo;
+
+@Repository
+public interface TrabajoRecalculoRepository extends MongoRepository<TrabajoRecalculo, String> {
+
+    List<TrabajoRecalculo> findByFaseNotIn(Collection<FaseRecalculo> fases);
+}
@@ -0,0 +1,103 @@
+package com.esimedia.features.content.repository;
+
+import java.util.Date;
+import java.util.List;
+import java.util.Optional;
+
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Repository;
+
+import com.esimedia.features.content.entity.TrabajoSubida;
+import com.esimedia.features.content.enums.EstadoSubida;
+
+/**
+ * Trabajos de subida en segundo plano. Los cambios de estado son actualizaciones atómicas
+ * condicionadas al estado anterior, así que un mismo trabajo nunca lo procesan dos hilos.
+ */
+@Repository
+public class TrabajoSubidaRepository {
+
+    static final String ID = "_id";
+    static final String ESTADO = "estado";
+    static final String FECHA_CREACION = "fechaCreacion";
+    static final String FECHA_ACTUALIZACION = "fechaActualizacion";
+    static final String PETICION_BLOB = "peticionBlob";
+
+    private final MongoTemplate mongoTemplate;
+
+    public TrabajoSubidaRepository(MongoTemplate mongoTemplate) {
+        this.mongoTemplate = mongoTemplate;
+    }
+
+    public TrabajoSubida guardar(TrabajoSubida trabajo) {
+        return mongoTemplate.insert(trabajo);
+    }
+
+    public Optional<TrabajoSubida> findById(String id) {
+        return Optional.ofNullable(mongoTemplate.findById(id, TrabajoSubida.class));
+    }
+
+    public void deleteById(String id) {
+        mongoTemplate.remove(new Query(Criteria.where(ID).is(id)), TrabajoSubida.class);
+    }
+
+    /**
+     * Pasa un trabajo de EN_COLA a ANALIZANDO.
+     * @return El trabajo con su petición, o vacío si ya lo ha cogido otro hilo o no existe
+     */
+    public Optional<TrabajoSubida> reclamar(String id) {
+        return Optional.ofNullable(mongoTemplate.findAndModify(
+            new Query(Criteria.where(ID).is(id).and(ESTADO).is(EstadoSubida.EN_COLA)),
+            new Update().set(ESTADO, EstadoSubida.ANALIZANDO).currentDate(FECHA_ACTUALIZACION),
+            FindAndModifyOptions.options().returnNew(true),
+            TrabajoSubida.class));
+    }
+
+    /**
+     * Deja el trabajo en su estado final y quita la referencia a la petición, que ya no hace falta.
+     */
+    public void terminar(String id, EstadoSubida estado, String mensaje) {
+        mongoTemplate.updateFirst(
+            new Query(Criteria.where(ID).is(id)),
+            new Update().set(ESTADO, estado).set("mensaje", mensaje).unset(PETICION_BLOB)
+                .currentDate(FECHA_ACTUALIZACION),
+            TrabajoSubida.class);
+    }
+
+    /**
+     * Devuelve a la cola los trabajos que estaban en proceso cuando se paró la aplicación.
+     * @return Número de trabajos devueltos a la cola
+     */
+    public long reiniciarInterrumpidos() {
+        return mongoTemplate.updateMulti(
+            new Query(Criteria.where(ESTADO).is(EstadoSubida.ANALIZANDO)),
+            new Update().set(ESTADO, EstadoSubida.EN_COLA).currentDate(FECHA_ACTUALIZACION),
+            TrabajoSubida.class).getModifiedCount();
+    }
+
+    /**
+     * Identificadores de los trabajos pendientes, del más antiguo al más reciente.
+     */
+    public List<String> findIdsEnCola() {
+        Query query = new Query(Criteria.where(ESTADO).is(EstadoSubida.EN_COLA))
+            .with(Sort.by(FECHA_CREACION));
+        query.fields().include(ID);
+        return mongoTemplate.find(query, TrabajoSubida.class).stream().map(TrabajoSubida::getId).toList();
+    }
+
+    /**
+     * Borra los trabajos terminados antes de la fecha indicada.
+     * @return Número de trabajos borrados
+     */
+    public long borrarTerminadosAntesDe(Date fecha) {
+        return mongoTemplate.remove(
+            new Query(Criteria.where(ESTADO).in(EstadoSubida.GUARDADO, EstadoSubida.FALLIDO)
+                .and(FECHA_ACTUALIZACION).lt(fecha)),
+            TrabajoSubida.class).getDeletedCount();
+    }
+}
@@ -15,6 +15,8 @@ public interface ValoracionContenidoRepository extends MongoRepository<Valoracio
     ValoracionContenido findByIdContenidoAndIdUsuario(String idContenido, String idUsuario);
     
     List<ValoracionContenido> findByIdUsuario(String idUsuario);
+
+    List<ValoracionContenido> findByIdUsuarioAndIdContenidoIn(String idUsuario, List<String> idsContenido);
     
     void deleteByIdUsuario(String idUsuario);
 }
\ No newline at end of file
@@ -0,0 +1,39 @@
+package com.esimedia.features.content.scheduler;
+
+import java.util.Date;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import com.esimedia.features.content.entity.ContenidosAudio;
+import com.esimedia.features.content.entity.ContenidosVideo;
+import com.esimedia.features.content.repository.ContentCatalogRepository;
+
+/**
+ * Persiste periódicamente la caducidad de los contenidos: los que siguen visibles con la fecha de
+ * disponibilidad vencida pasan a no visibles con un único updateMulti por colección.
+ * Las lecturas ya excluyen los caducados en la consulta, así que este barrido solo mantiene el dato al día.
+ */
+@Component
+public class ExpiredContentSweeper {
+
+    private static final Logger logger = LoggerFactory.getLogger(ExpiredContentSweeper.class);
+
+    private final ContentCatalogRepository catalogRepository;
+
+    public ExpiredContentSweeper(ContentCatalogRepository catalogRepository) {
+        this.catalogRepository = catalogRepository;
+    }
+
+    @Scheduled(fixedDelayString = "${content.expiry-sweep.delay-ms:300000}")
+    public void ocultarCaducados() {
+        Date ahora = new Date();
+        long audios = catalogRepository.ocultarCaducados(ContenidosAudio.class, ahora);
+        long videos = catalogRepository.ocultarCaducados(ContenidosVideo.class, ahora);
+        if (audios + videos > 0) {
+            logger.info("Contenidos caducados ocultados: {} audios, {} videos", audios, videos);
+        }
+    }
+}
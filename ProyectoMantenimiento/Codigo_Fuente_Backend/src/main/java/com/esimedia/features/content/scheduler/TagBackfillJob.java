@@ -0,0 +1,121 @@
+package com.esimedia.features.content.scheduler;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+import org.bson.Document;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.data.mongodb.core.query.UpdateDefinition;
+import org.springframework.data.util.Pair;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import com.esimedia.features.content.entity.Contenido;
+import com.esimedia.features.content.entity.ContenidosAudio;
+import com.esimedia.features.content.entity.ContenidosVideo;
+import com.esimedia.features.content.repository.ContentVersionRepository;
+import com.esimedia.features.content.services.ContentBatchLoader;
+
+/**
+ * Rellena el campo tags de los contenidos subidos antes de que se desnormalizaran los nombres.
+ * Recorre cada colección por _id en lotes pequeños, resuelve los nombres a partir de las relaciones
+ * contenido-tag con una consulta $in por lote y los escribe con una única operación bulk.
+ * Cuando termina una colección no vuelve a consultarla: los contenidos nuevos ya guardan sus tags.
+ * Cada lote con cambios avanza la versión del catálogo, porque los tags forman parte de las respuestas en caché.
+ * Se desactiva con content.tag-backfill.enabled=false.
+ */
+@Component
+@ConditionalOnProperty(name = "content.tag-backfill.enabled", havingValue = "true", matchIfMissing = true)
+public class TagBackfillJob {
+
+    private static final Logger logger = LoggerFactory.getLogger(TagBackfillJob.class);
+    private static final String ID = "_id";
+    private static final String TAGS = "tags";
+
+    private final MongoTemplate mongoTemplate;
+    private final ContentBatchLoader batchLoader;
+    private final ContentVersionRepository versionRepository;
+
+    // Último _id procesado por colección; null cuando la colección ya está completa
+    private final Map<Class<? extends Contenido>, Object> progreso = new HashMap<>();
+
+    @Value("${content.tag-backfill.batch-size:200}")
+    private int batchSize = 200;
+
+    public TagBackfillJob(MongoTemplate mongoTemplate, ContentBatchLoader batchLoader,
+                          ContentVersionRepository versionRepository) {
+        this.mongoTemplate = mongoTemplate;
+        this.batchLoader = batchLoader;
+        this.versionRepository = versionRepository;
+    }
+
+    @Scheduled(fixedDelayString = "${content.tag-backfill.delay-ms:30000}")
+    public void rellenarLote() {
+        int audios = rellenar(ContenidosAudio.class, batchLoader::cargarTagsAudios);
+        int videos = rellenar(ContenidosVideo.class, batchLoader::cargarTagsVideos);
+        if (audios + videos > 0) {
+            logger.info("Backfill de tags: {} audios y {} videos actualizados", audios, videos);
+        }
+    }
+
+    /**
+     * Procesa el siguiente lote de una colección.
+     * @return Número de documentos actualizados
+     */
+    synchronized int rellenar(Class<? extends Contenido> tipo,
+            Function<List<String>, Map<String, List<String>>> cargador) {
+        if (progreso.containsKey(tipo) && progreso.get(tipo) == null) {
+            return 0;
+        }
+
+        Query pendientes = new Query(sinTags()).with(Sort.by(ID)).limit(batchSize);
+        Object ultimoId = progreso.get(tipo);
+        if (ultimoId != null) {
+            pendientes.addCriteria(Criteria.where(ID).gt(ultimoId));
+        }
+        pendientes.fields().include(ID);
+
+        List<Document> documentos = mongoTemplate.find(pendientes, Document.class, mongoTemplate.getCollectionName(tipo));
+        if (documentos.isEmpty()) {
+            progreso.put(tipo, null);
+            logger.info("Backfill de tags completado para {}", tipo.getSimpleName());
+            return 0;
+        }
+        progreso.put(tipo, documentos.get(documentos.size() - 1).get(ID));
+
+        Map<String, List<String>> tags = cargador.apply(documentos.stream().map(doc -> doc.get(ID).toString()).toList());
+        List<Pair<Query, UpdateDefinition>> cambios = new ArrayList<>();
+        ContentVersionRepository.Version version = null;
+        for (Document documento : documentos) {
+            List<String> nombres = tags.get(documento.get(ID).toString());
+            if (nombres != null && !nombres.isEmpty()) {
+                if (version == null) {
+                    version = versionRepository.avanzar();
+                }
+                // Condicional: no pisa los tags si el contenido se editó mientras tanto
+                cambios.add(Pair.of(new Query(Criteria.where(ID).is(documento.get(ID))).addCriteria(sinTags()),
+                    ContentVersionRepository.versionar(new Update().set(TAGS, nombres), version)));
+            }
+        }
+        if (!cambios.isEmpty()) {
+            mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, tipo).updateOne(cambios).execute();
+        }
+        return cambios.size();
+    }
+
+    private static Criteria sinTags() {
+        return new Criteria().orOperator(Criteria.where(TAGS).exists(false), Criteria.where(TAGS).size(0));
+    }
+}
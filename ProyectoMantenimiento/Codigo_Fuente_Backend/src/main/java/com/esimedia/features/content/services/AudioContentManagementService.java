@@ -5,6 +5,7 @@ import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Service;
 import org.springframework.web.server.ResponseStatusException;
 import org.springframework.http.HttpStatus;
+import org.springframework.data.mongodb.core.query.Update;
 
 import com.esimedia.features.content.enums.RestriccionEdad;
 import com.esimedia.features.auth.enums.TipoContenido;
@@ -18,8 +19,10 @@ import com.esimedia.features.content.entity.ContenidosAudio;
 import com.esimedia.features.content.entity.ValoracionContenido;
 import com.esimedia.features.content.repository.ContenidoAudioTagRepository;
 import com.esimedia.features.content.repository.ContenidosAudioRepository;
-import com.esimedia.features.content.repository.TagsRepository;
 import com.esimedia.features.content.repository.ValoracionContenidoRepository;
+import com.esimedia.features.content.repository.ContentVersionRepository;
+import com.esimedia.features.content.repository.ContentCatalogRepository;
+import com.esimedia.features.content.storage.BlobStore;
 import com.esimedia.shared.util.ContentProcessingUtil;
 import com.esimedia.shared.util.ContentTagProcessor;
 import com.esimedia.shared.util.JwtValidationUtil;
@@ -41,6 +44,14 @@ public class AudioContentManagementService {
     private final ValoracionContenidoRepository valoracionRepository;
     private final ContentTagProcessor tagProcessor;
     private final ContentAuthorizationService contentAuthorizationService;
+    private final BlobStore blobStore;
+    private final ViewCounterService viewCounterService;
+    private final ContentTypeRegistry contentTypeRegistry;
+    private final ContentTagIndex tagIndex;
+    private final ContentSimilarityIndex similarityIndex;
+    private final LeaderboardService leaderboardService;
+    private final ContentVersionRepository versionRepository;
+    private final ContentCatalogRepository catalogRepository;
 
     public AudioContentManagementService(
         JwtValidationUtil jwtValidationService,
@@ -48,9 +59,17 @@ public class AudioContentManagementService {
         ValidationService validationService,
         ContenidosAudioRepository contenidoAudioRepository,
         ContenidoAudioTagRepository contenidoAudioTagRepository,
-        TagsRepository tagsRepository,
+        TagDictionary tagDictionary,
         ValoracionContenidoRepository valoracionRepository,
-        ContentAuthorizationService contentAuthorizationService
+        ContentAuthorizationService contentAuthorizationService,
+        BlobStore blobStore,
+        ViewCounterService viewCounterService,
+        ContentTypeRegistry contentTypeRegistry,
+        ContentTagIndex tagIndex,
+        ContentSimilarityIndex similarityIndex,
+        LeaderboardService leaderboardService,
+        ContentVersionRepository versionRepository,
+        ContentCatalogRepository catalogRepository
     ) {
         this.jwtValidationService = jwtValidationService;
         this.creadorContenidoRepository = creadorContenidoRepository;
@@ -59,7 +78,16 @@ public class AudioContentManagementService {
         this.contenidoAudioTagRepository = contenidoAudioTagRepository;
         this.valoracionRepository = valoracionRepository;
         this.contentAuthorizationService = contentAuthorizationService;
-        this.tagProcessor = new ContentTagProcessor(tagsRepository, ContenidoAudioTag::new);
+        this.blobStore = blobStore;
+        this.viewCounterService = viewCounterService;
+        this.contentTypeRegistry = contentTypeRegistry;
+        this.tagIndex = tagIndex;
+        this.similarityIndex = similarityIndex;
+        this.leaderboardService = leaderboardService;
+        this.versionRepository = versionRepository;
+        this.catalogRepository = catalogRepository;
+        this.tagProcessor = new ContentTagProcessor(tagDictionary, ContenidoAudioTag::new, tagIndex, similarityIndex,
+            TipoContenido.AUDIO);
     }
 
     public String updateAudioContent(String authHeader, String contentId, ContentUpdateDTO updateDTO) {
@@ -79,18 +107,24 @@ public class AudioContentManagementService {
                 return validationResult;
             }
 
-            updateContentFields(existingContent, updateDTO);
+            Update update = camposEditados(updateDTO);
 
-            tagProcessor.updateContentTags(
+            // Los nombres se desnormalizan en el documento para leerlos sin pasar por las relaciones
+            update.set(ContentCatalogRepository.TAGS, tagProcessor.updateContentTags(
                 contentId,
                 updateDTO.getTags(),
                 () -> contenidoAudioTagRepository.findByIdContenido(contentId)
                          .stream().map(ContenidoAudioTag::getIdTag).toList(),
-                tagId -> contenidoAudioTagRepository.deleteByIdContenidoAndIdTag(contentId, tagId),
-                relation -> contenidoAudioTagRepository.save((ContenidoAudioTag) relation)
-            );
-
-            contenidoAudioRepository.save(existingContent);
+                tagIds -> contenidoAudioTagRepository.deleteByIdContenidoAndIdTagIn(contentId, tagIds),
+                relaciones -> contenidoAudioTagRepository.insert(relaciones.stream().map(ContenidoAudioTag.class::cast).toList())
+            ));
+
+            // Solo se escriben los campos editados: un save del documento completo pisaría las
+            // visualizaciones y valoraciones que se incrementen con $inc mientras tanto
+            ContentVersionRepository.versionar(update, versionRepository.avanzar());
+            if (!catalogRepository.actualizar(ContenidosAudio.class, existingContent.getId(), update)) {
+                throw new ResponseStatusException(HttpStatus.NOT_FOUND, AUDIO_NOT_FOUND);
+            }
 
             logger.info("Contenido de audio {} actualizado exitosamente por {}", contentId, username);
             return "SUCCESS:Contenido de audio actualizado exitosamente";
@@ -109,7 +143,7 @@ public class AudioContentManagementService {
         try {
             contentAuthorizationService.validateContentDeletion(authHeader, contentId);
 
-            contenidoAudioRepository.findById(contentId).orElseThrow(() ->
+            ContenidosAudio audio = contenidoAudioRepository.findById(contentId).orElseThrow(() ->
                 new ResponseStatusException(HttpStatus.NOT_FOUND, AUDIO_NOT_FOUND));
 
             contenidoAudioTagRepository.deleteByIdContenido(contentId);
@@ -118,6 +152,12 @@ public class AudioContentManagementService {
             valoracionRepository.deleteAll(valoraciones);
 
             contenidoAudioRepository.deleteById(contentId);
+            versionRepository.avanzar();
+            contentTypeRegistry.eliminar(contentId);
+            tagIndex.eliminar(contentId);
+            similarityIndex.eliminar(contentId);
+            leaderboardService.eliminar(contentId);
+            blobStore.eliminarBlobs(audio);
 
             logger.info("Contenido de audio {} eliminado exitosamente", contentId);
         } 
@@ -132,11 +172,12 @@ public class AudioContentManagementService {
 
     public void incrementarVisualizaciones(String contentId) {
         try {
-            ContenidosAudio content = contenidoAudioRepository.findById(contentId).orElseThrow(() ->
-                new ResponseStatusException(HttpStatus.NOT_FOUND, AUDIO_NOT_FOUND));
-            content.setVisualizaciones(content.getVisualizaciones() + 1);
-            contenidoAudioRepository.save(content);
-            logger.info("Visualizaciones incrementadas para audio {}", contentId);
+            if (!contenidoAudioRepository.existsById(contentId)) {
+                throw new ResponseStatusException(HttpStatus.NOT_FOUND, AUDIO_NOT_FOUND);
+            }
+            // El incremento se acumula en memoria y se escribe con $inc en el siguiente volcado
+            viewCounterService.registrar(ContenidosAudio.class, contentId);
+            logger.debug("Visualización registrada para audio {}", contentId);
         } 
         catch (Exception e) {
             logger.error("Error incrementando visualizaciones para audio {}: {}", contentId, e.getMessage());
@@ -144,25 +185,28 @@ public class AudioContentManagementService {
         }
     }
 
-    private void updateContentFields(ContenidosAudio content, ContentUpdateDTO updateDTO) {
+    private Update camposEditados(ContentUpdateDTO updateDTO) {
+        Update update = new Update();
         if (updateDTO.getTitulo() != null) {
-            content.setTitulo(updateDTO.getTitulo());
+            update.set(ContentCatalogRepository.TITULO, updateDTO.getTitulo());
         }
         if (updateDTO.getDescripcion() != null) {
-            content.setDescripcion(updateDTO.getDescripcion());
+            update.set(ContentCatalogRepository.DESCRIPCION, updateDTO.getDescripcion());
         }
         if (updateDTO.getEsVIP() != null) {
-            content.setEsVIP(updateDTO.getEsVIP());
+            update.set(ContentCatalogRepository.ES_VIP, updateDTO.getEsVIP());
         }
         if (updateDTO.getVisibilidad() != null) {
-            content.setVisibilidad(updateDTO.getVisibilidad());
+            update.set(ContentCatalogRepository.VISIBILIDAD, updateDTO.getVisibilidad());
         }
         if (updateDTO.getFechaExpiracion() != null) {
-            content.setFechaDisponibleHasta(ContentProcessingUtil.parseFechaExpiracion(updateDTO.getFechaExpiracion()));
+            update.set(ContentCatalogRepository.FECHA_DISPONIBLE_HASTA,
+                ContentProcessingUtil.parseFechaExpiracion(updateDTO.getFechaExpiracion()));
         }
         if (updateDTO.getRestriccionEdad() != null) {
-            content.setRestriccionEdad(getRestriccionEdadFromValue(updateDTO.getRestriccionEdad()));
+            update.set(ContentCatalogRepository.RESTRICCION_EDAD, getRestriccionEdadFromValue(updateDTO.getRestriccionEdad()));
         }
+        return update;
     }
 
     private RestriccionEdad getRestriccionEdadFromValue(Integer valor) {
@@ -10,20 +10,17 @@ import com.esimedia.features.auth.entity.UsuarioNormal;
 import com.esimedia.features.auth.repository.UsuarioNormalRepository;
 import com.esimedia.features.auth.services.ValidationService;
 import com.esimedia.features.content.dto.ContentAudioUploadDTO;
-import com.esimedia.features.content.entity.ContenidoAudioTag;
 import com.esimedia.features.content.entity.ContenidosAudio;
-import com.esimedia.features.content.entity.Tags;
-import com.esimedia.features.content.entity.ValoracionContenido;
-import com.esimedia.features.content.repository.ContenidoAudioTagRepository;
+import com.esimedia.features.content.repository.CatalogFilter;
 import com.esimedia.features.content.repository.ContenidosAudioRepository;
-import com.esimedia.features.content.repository.TagsRepository;
-import com.esimedia.features.content.repository.ValoracionContenidoRepository;
+import com.esimedia.features.content.repository.ContentCatalogRepository;
+import com.esimedia.features.content.storage.BlobStore;
 import com.esimedia.shared.util.ContentProcessingUtil;
 import com.esimedia.shared.util.ContentUtil;
 import com.esimedia.shared.util.JwtValidationUtil;
 
-import java.util.Date;
 import java.util.List;
+import java.util.Map;
 
 @Service
 public class AudioContentRetrievalService {
@@ -34,26 +31,29 @@ public class AudioContentRetrievalService {
     private final UsuarioNormalRepository usuarioNormalRepository;
     private final ValidationService validationService;
     private final ContenidosAudioRepository contenidoAudioRepository;
-    private final ContenidoAudioTagRepository contenidoAudioTagRepository;
-    private final TagsRepository tagsRepository;
-    private final ValoracionContenidoRepository valoracionRepository;
+    private final ContentBatchLoader batchLoader;
+    private final ContentCatalogRepository catalogRepository;
+    private final BlobStore blobStore;
+    private final ContentMediaUrls mediaUrls;
 
     public AudioContentRetrievalService(
         JwtValidationUtil jwtValidationService,
         UsuarioNormalRepository usuarioNormalRepository,
         ValidationService validationService,
         ContenidosAudioRepository contenidoAudioRepository,
-        ContenidoAudioTagRepository contenidoAudioTagRepository,
-        TagsRepository tagsRepository,
-        ValoracionContenidoRepository valoracionRepository
+        ContentBatchLoader batchLoader,
+        ContentCatalogRepository catalogRepository,
+        BlobStore blobStore,
+        ContentMediaUrls mediaUrls
     ) {
         this.jwtValidationService = jwtValidationService;
         this.usuarioNormalRepository = usuarioNormalRepository;
         this.validationService = validationService;
         this.contenidoAudioRepository = contenidoAudioRepository;
-        this.contenidoAudioTagRepository = contenidoAudioTagRepository;
-        this.tagsRepository = tagsRepository;
-        this.valoracionRepository = valoracionRepository;
+        this.batchLoader = batchLoader;
+        this.catalogRepository = catalogRepository;
+        this.blobStore = blobStore;
+        this.mediaUrls = mediaUrls;
     }
 
     public List<ContentAudioUploadDTO> getAllAudiosAsDTO(String authHeader) {
@@ -63,13 +63,11 @@ public class AudioContentRetrievalService {
 
         Integer userAge = getUserAge(username, userRole);
 
-        List<ContenidosAudio> audios = contenidoAudioRepository.findAll();
-        updateExpiredVisibility(audios);
-
-        return audios.stream()
-            .filter(audio -> isAudioVisibleToUser(audio, userRole, userAge))
-            .map(audio -> mapAudioToDTO(audio, username))
-            .toList();
+        // Solo metadatos: el fichero y la miniatura se sirven desde sus endpoints binarios.
+        // Visibilidad, caducidad y edad se filtran en MongoDB
+        List<ContenidosAudio> visibles = catalogRepository.findAllVisible(ContenidosAudio.class,
+            CatalogFilter.forUser(userRole, userAge));
+        return mapAudiosToDTO(visibles, username);
     }
 
     public ContenidosAudio getAudioById(String id) {
@@ -82,7 +80,14 @@ public class AudioContentRetrievalService {
         if (audio == null) {
             return null;
         }
-        return mapAudioToDTO(audio, username);
+        // Compatibilidad con los data URIs de este endpoint para binarios ya movidos a GridFS
+        if (audio.getFichero() == null && audio.getFicheroBlob() != null) {
+            audio.setFichero(blobStore.leer(audio.getFicheroBlob().getId()));
+        }
+        if (audio.getMiniatura() == null && audio.getMiniaturaBlob() != null) {
+            audio.setMiniatura(blobStore.leer(audio.getMiniaturaBlob().getId()));
+        }
+        return mapAudiosToDTO(List.of(audio), username).get(0);
     }
 
     private Integer getUserAge(String username, Rol userRole) {
@@ -96,37 +101,20 @@ public class AudioContentRetrievalService {
         return userAge;
     }
 
-    private void updateExpiredVisibility(List<ContenidosAudio> audios) {
-        audios.forEach(audio -> {
-            if (audio.getFechaDisponibleHasta() != null && audio.getFechaDisponibleHasta().before(new Date())) {
-                audio.setVisibilidad(false);
-                contenidoAudioRepository.save(audio);
-            }
-        });
-    }
-
-    private boolean isAudioVisibleToUser(ContenidosAudio audio, Rol userRole, Integer userAge) {
-        if (userRole != Rol.NORMAL) {
-            return true;
-        }
+    /**
+     * Convierte una lista de audios en DTOs cargando tags y valoraciones del usuario en bloque.
+     */
+    List<ContentAudioUploadDTO> mapAudiosToDTO(List<ContenidosAudio> audios, String username) {
+        List<String> ids = audios.stream().map(ContenidosAudio::getId).toList();
+        Map<String, Double> valoraciones = batchLoader.cargarValoracionesUsuario(username, ids);
+        Map<String, List<String>> tags = ContentBatchLoader.resolverTags(audios, batchLoader::cargarTagsAudios);
 
-        if (!audio.isVisibilidad()) {
-            logger.debug("Audio {} filtrado por visibilidad", audio.getId());
-            return false;
-        }
-
-        if (audio.getRestriccionEdad() != null && userAge != null) {
-            if (userAge < audio.getRestriccionEdad().getValor()) {
-                logger.debug("Audio {} filtrado: edad {} < restricción {}",
-                    audio.getId(), userAge, audio.getRestriccionEdad().getValor());
-                return false;
-            }
-        }
-
-        return true;
+        return audios.stream()
+            .map(audio -> mapAudioToDTO(audio, valoraciones.get(audio.getId()), tags.getOrDefault(audio.getId(), List.of())))
+            .toList();
     }
 
-    private ContentAudioUploadDTO mapAudioToDTO(ContenidosAudio audio, String username) {
+    private ContentAudioUploadDTO mapAudioToDTO(ContenidosAudio audio, Double valoracionUsuario, List<String> tagNames) {
         ContentAudioUploadDTO dto = new ContentAudioUploadDTO();
         dto.setId(audio.getId());
         dto.setTitulo(audio.getTitulo());
@@ -138,8 +126,7 @@ public class AudioContentRetrievalService {
         dto.setValoracionMedia(audio.getValoracionMedia());
         dto.setVisualizaciones(audio.getVisualizaciones());
 
-        ValoracionContenido userRating = valoracionRepository.findByIdContenidoAndIdUsuario(audio.getId(), username);
-        dto.setValoracionUsuario(userRating != null ? userRating.getValoracion() : null);
+        dto.setValoracionUsuario(valoracionUsuario);
 
         // Formatear fechas en formato yyyy-MM-dd (consistente con fecha de expiración)
         if (audio.getFechaSubida() != null) {
@@ -153,25 +140,22 @@ public class AudioContentRetrievalService {
             dto.setFechaExpiracion(ContentProcessingUtil.formatDate(audio.getFechaDisponibleHasta()));
         }
 
-        List<ContenidoAudioTag> audioTags = contenidoAudioTagRepository.findByIdContenido(audio.getId());
-        List<String> tagIds = audioTags.stream()
-            .map(ContenidoAudioTag::getIdTag)
-            .toList();
-        List<Tags> tags = tagsRepository.findByIdTagIn(tagIds);
-        List<String> tagNames = tags.stream()
-            .map(Tags::getNombre)
-            .toList();
         dto.setTags(tagNames);
 
+        // Los data URI solo se generan si el audio se cargó con sus binarios (lectura individual)
         String ficheroDataUri = ContentUtil.createDataUriFromBinary(audio.getFichero(), audio.getFicheroExtension());
         dto.setFichero(ficheroDataUri);
         dto.setFicheroExtension(audio.getFicheroExtension());
+        dto.setFicheroUrl(ContentMediaUrls.ficheroAudio(audio.getId()));
 
         String miniaturaDataUri = ContentUtil.createDataUri(audio.getMiniatura(), audio.getFormatoMiniatura());
         dto.setMiniatura(miniaturaDataUri);
         dto.setFormatoMiniatura(audio.getFormatoMiniatura());
+        dto.setMiniaturaUrl(mediaUrls.miniatura(audio.getId(), audio.getFormatoMiniatura()));
+        dto.setMiniaturas(mediaUrls.miniaturasDerivadas(audio.getId(), audio.getMiniaturasDerivadas()));
 
-        dto.setVisibilidad(audio.isVisibilidad());
+        // Un contenido caducado se muestra oculto aunque el barrido aún no lo haya persistido
+        dto.setVisibilidad(audio.isVisibilidad() && !ContentProcessingUtil.isCaducado(audio.getFechaDisponibleHasta()));
 
         return dto;
     }
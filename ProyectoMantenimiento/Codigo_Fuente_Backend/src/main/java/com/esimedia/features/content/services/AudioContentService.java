@@ -1,52 +1,27 @@
 package com.esimedia.features.content.services;
 
 
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Service;
 
-import com.esimedia.features.auth.enums.TipoContenido;
 import com.esimedia.features.content.dto.ContentAudioUploadDTO;
 import com.esimedia.features.content.dto.ContentUpdateDTO;
 import com.esimedia.features.content.entity.ContenidosAudio;
-import com.esimedia.shared.util.JwtValidationUtil;
 
 import java.util.List;
 
 @Service
 public class AudioContentService {
-    
-    private static final Logger logger = LoggerFactory.getLogger(AudioContentService.class);
-    private static final String ERROR_INTERNO_SERVIDOR = "Error interno del servidor";
 
-    private final AudioContentUploadService uploadService;
+    // Las subidas las gestiona UploadJobService, que llama directamente a AudioContentUploadService
     private final AudioContentRetrievalService retrievalService;
     private final AudioContentManagementService managementService;
-    private final JwtValidationUtil jwtValidationService;
 
     public AudioContentService(
-        AudioContentUploadService uploadService,
         AudioContentRetrievalService retrievalService,
-        AudioContentManagementService managementService,
-        JwtValidationUtil jwtValidationService
+        AudioContentManagementService managementService
     ) {
-        this.uploadService = uploadService;
         this.retrievalService = retrievalService;
         this.managementService = managementService;
-        this.jwtValidationService = jwtValidationService;
-    }
-
-    public String uploadAudioContent(String authHeader, ContentAudioUploadDTO audioDTO) {
-        try {
-            // Validar autorización usando servicio centralizado
-            String username = jwtValidationService.validateContentUpload(authHeader, TipoContenido.AUDIO);
-
-            return uploadService.uploadAudioContent(username, audioDTO);
-        } 
-        catch (Exception e) {
-            logger.error("Error procesando contenido de audio: {}", e.getMessage());
-            return ERROR_INTERNO_SERVIDOR;
-        }
     }
 
     // La funcionalidad de decodificar miniaturas y extraer MIME se delega a ContentUtil.processImageContent(...)
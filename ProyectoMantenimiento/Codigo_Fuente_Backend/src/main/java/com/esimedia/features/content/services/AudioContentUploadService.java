@@ -6,6 +6,7 @@ import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Service;
 
 import com.esimedia.features.content.enums.RestriccionEdad;
+import com.esimedia.features.auth.enums.TipoContenido;
 import com.esimedia.features.auth.entity.CreadorContenido;
 import com.esimedia.features.auth.repository.CreadorContenidoRepository;
 import com.esimedia.features.auth.services.ValidationService;
@@ -14,15 +15,19 @@ import com.esimedia.features.content.entity.ContenidoAudioTag;
 import com.esimedia.features.content.entity.ContenidosAudio;
 import com.esimedia.features.content.repository.ContenidoAudioTagRepository;
 import com.esimedia.features.content.repository.ContenidosAudioRepository;
-import com.esimedia.features.content.repository.TagsRepository;
+import com.esimedia.features.content.repository.ContentVersionRepository;
+import com.esimedia.features.content.storage.BlobStore;
 import com.esimedia.shared.util.ContentProcessingUtil;
 import com.esimedia.shared.util.ContentTagProcessor;
 import com.esimedia.shared.util.ContentUtil;
+import com.esimedia.shared.util.FicheroSubido;
 import com.esimedia.shared.security.ClamAVService;
 import com.esimedia.features.notifications.services.NotificationService;
 
 
 import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.Map;
 
 @Service
 public class AudioContentUploadService {
@@ -36,6 +41,10 @@ public class AudioContentUploadService {
     private final CreadorContenidoRepository creadorContenidoRepository;
     private final ContentTagProcessor tagProcessor;
     private final NotificationService notificationService;
+    private final BlobStore blobStore;
+    private final ThumbnailService thumbnailService;
+    private final ContentTypeRegistry contentTypeRegistry;
+    private final ContentVersionRepository versionRepository;
 
 
     public AudioContentUploadService(
@@ -43,9 +52,15 @@ public class AudioContentUploadService {
         ClamAVService clamavService,
         ContenidosAudioRepository contenidoAudioRepository,
         ContenidoAudioTagRepository contenidoAudioTagRepository,
-        TagsRepository tagsRepository,
+        TagDictionary tagDictionary,
         CreadorContenidoRepository creadorContenidoRepository,
-        NotificationService notificationService
+        NotificationService notificationService,
+        BlobStore blobStore,
+        ThumbnailService thumbnailService,
+        ContentTypeRegistry contentTypeRegistry,
+        ContentTagIndex tagIndex,
+        ContentSimilarityIndex similarityIndex,
+        ContentVersionRepository versionRepository
     ) {
         this.validationService = validationService;
         this.clamavService = clamavService;
@@ -53,21 +68,58 @@ public class AudioContentUploadService {
         this.contenidoAudioTagRepository = contenidoAudioTagRepository;
         this.creadorContenidoRepository = creadorContenidoRepository;
         this.notificationService = notificationService;
-        this.tagProcessor = new ContentTagProcessor(tagsRepository, ContenidoAudioTag::new);
+        this.blobStore = blobStore;
+        this.thumbnailService = thumbnailService;
+        this.contentTypeRegistry = contentTypeRegistry;
+        this.versionRepository = versionRepository;
+        this.tagProcessor = new ContentTagProcessor(tagDictionary, ContenidoAudioTag::new, tagIndex, similarityIndex,
+            TipoContenido.AUDIO);
     }
 
+    /**
+     * Sube un audio recibido en base64. El fichero se decodifica una sola vez, tras las validaciones
+     * que no lo necesitan, y ese mismo buffer se valida, se analiza con el antivirus y se guarda.
+     */
     public String uploadAudioContent(String username, ContentAudioUploadDTO audioDTO) {
         String validationResult = validationService.validateAudioContent(audioDTO);
         if (validationResult != null) {
             return validationResult;
         }
-        return processAudioContent(username, audioDTO);
+        FicheroSubido fichero;
+        try {
+            // Procesar para el fichero de audio (base64 puro)
+            fichero = FicheroSubido.desdeBase64(audioDTO.getFichero());
+        }
+        catch (IllegalArgumentException e) {
+            logger.error("Error en los datos proporcionados: {}", e.getMessage());
+            return "Error en los datos proporcionados: " + e.getMessage();
+        }
+        validationResult = validationService.validateAudioFile(fichero);
+        if (validationResult != null) {
+            return validationResult;
+        }
+        return processAudioContent(username, audioDTO, fichero);
+    }
+
+    /**
+     * Sube un audio cuyo fichero llega ya ensamblado (subida por fragmentos) en lugar de en base64.
+     * Pasa por las mismas validaciones, el antivirus y el guardado que la subida en una petición.
+     * @param metadatos Datos del contenido; el campo fichero se ignora
+     * @param fichero Fichero de audio completo
+     */
+    public String uploadAudioContent(String username, ContentAudioUploadDTO metadatos, FicheroSubido fichero) {
+        String validationResult = validationService.validateContentUpload(metadatos);
+        if (validationResult == null) {
+            validationResult = validationService.validateAudioFile(fichero);
+        }
+        if (validationResult != null) {
+            return validationResult;
+        }
+        return processAudioContent(username, metadatos, fichero);
     }
 
-    private String processAudioContent(String userId, ContentAudioUploadDTO audioDTO) {
+    private String processAudioContent(String userId, ContentAudioUploadDTO audioDTO, FicheroSubido fichero) {
         try {
-            // Procesar para el fichero de audio (base64 puro)
-            byte[] audioBytes = ContentUtil.decodeAudio(audioDTO.getFichero());
             String ficheroExtension = audioDTO.getFicheroExtension();
 
             // Procesar para la imagen (si existe)
@@ -78,6 +130,17 @@ public class AudioContentUploadService {
                 imagenExtension = audioDTO.getFormatoMiniatura();
             }
 
+            // El audio y la miniatura se analizan a la vez, cada uno en su conexión con clamd
+            Map<String, byte[]> ficheros = new LinkedHashMap<>();
+            ficheros.put(audioDTO.getTitulo(), fichero.datos());
+            if (imagenBytes != null) {
+                ficheros.put(audioDTO.getTitulo() + " (miniatura)", imagenBytes);
+            }
+            if (!clamavService.scanFiles(ficheros)) {
+                logger.warn("Virus detectado en el audio subido por {}", userId);
+                return "El archivo de audio contiene un virus y no se ha guardado";
+            }
+
             // Obtener especialidad del creador
             CreadorContenido creador = creadorContenidoRepository.findById(userId).orElseThrow(() ->
                 new RuntimeException("Creador no encontrado"));
@@ -93,25 +156,40 @@ public class AudioContentUploadService {
                 .duracion(audioDTO.getDuracion())
                 .idCreador(userId)
                 .especialidad(especialidad)
-                .fichero(audioBytes)
                 .ficheroExtension(ficheroExtension)
                 .esVIP(audioDTO.getEsVIP() != null ? audioDTO.getEsVIP() : false)
                 .fechaSubida(Date.from(Instant.now()))
                 .fechaDisponibleHasta(ContentProcessingUtil.parseFechaExpiracion(audioDTO.getFechaExpiracion()))
-                .miniatura(imagenBytes)
                 .formatoMiniatura(imagenExtension)
                 .restriccionEdad(audioDTO.getRestriccionEdad() != null ?
                     getRestriccionEdadFromValue(audioDTO.getRestriccionEdad()) : null)
                 .visibilidad(visible)
+                .tags(ContentTagProcessor.normalizarNombres(audioDTO.getTags()))
                 .build();
 
-            // Guardar contenido
-            ContenidosAudio savedContent = contenidoAudioRepository.save(contenidoAudio);
+            // Los binarios se guardan en GridFS; el documento solo guarda las referencias
+            // El hash ya se calculó al decodificar. Si el documento no se llega a guardar
+            // se eliminan los blobs ya escritos.
+            ContenidosAudio savedContent;
+            try {
+                contenidoAudio.setFicheroBlob(blobStore.guardar(fichero.datos(), ficheroExtension, fichero.sha256()));
+                if (imagenBytes != null) {
+                    contenidoAudio.setMiniaturaBlob(blobStore.guardar(imagenBytes, imagenExtension));
+                    contenidoAudio.setMiniaturasDerivadas(thumbnailService.generarDerivados(imagenBytes));
+                }
+                ContentVersionRepository.versionar(contenidoAudio, versionRepository.avanzar());
+                savedContent = contenidoAudioRepository.save(contenidoAudio);
+            }
+            catch (RuntimeException e) {
+                blobStore.descartarBlobs(contenidoAudio, e);
+                throw e;
+            }
+            contentTypeRegistry.registrar(savedContent.getId(), TipoContenido.AUDIO);
             // Crear notificaciones para nuevos contenidos
             notificationService.createNotificationsForNewContent(savedContent);
             // Procesar tags
             tagProcessor.processContentTags(savedContent.getId(), audioDTO.getTags(),
-                relation -> contenidoAudioTagRepository.save((ContenidoAudioTag) relation));
+                relaciones -> contenidoAudioTagRepository.insert(relaciones.stream().map(ContenidoAudioTag.class::cast).toList()));
 
             logger.info("Contenido de audio creado exitosamente con ID: {}", savedContent.getId());
             return "SUCCESS:Contenido de audio subido exitosamente";
@@ -0,0 +1,280 @@
+package com.esimedia.features.content.services;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Date;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.BeanUtils;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.web.server.ResponseStatusException;
+
+import com.esimedia.features.auth.enums.TipoContenido;
+import com.esimedia.features.auth.services.ValidationService;
+import com.esimedia.features.content.dto.AudioUploadInitDTO;
+import com.esimedia.features.content.dto.AudioUploadSessionDTO;
+import com.esimedia.features.content.dto.ContentAudioUploadDTO;
+import com.esimedia.features.content.entity.SesionSubida;
+import com.esimedia.features.content.repository.SesionSubidaRepository;
+import com.esimedia.shared.util.FicheroSubido;
+import com.esimedia.shared.util.JwtValidationUtil;
+
+/**
+ * Subida de audios reanudable por fragmentos: iniciar → enviar fragmentos con su desplazamiento → completar.
+ * Los fragmentos llegan en binario y se escriben directamente en un fichero temporal, sin base64 ni
+ * el fichero entero en la petición. Si la conexión se corta, el cliente consulta los bytes recibidos
+ * y continúa desde ahí. Al completar se comprueba el SHA-256 y el fichero pasa por las mismas
+ * validaciones, antivirus y guardado que la subida en una petición.
+ * Los ficheros temporales son locales a la instancia que recibe la subida.
+ */
+@Service
+public class AudioUploadSessionService {
+
+    private static final Logger logger = LoggerFactory.getLogger(AudioUploadSessionService.class);
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final String SUBIDA_NO_ENCONTRADA = "Subida no encontrada";
+
+    private final SesionSubidaRepository sesionRepository;
+    private final AudioContentUploadService uploadService;
+    private final ValidationService validationService;
+    private final JwtValidationUtil jwtValidationService;
+    private final Path directorio;
+    private final long duracionSesionMs;
+
+    // Subidas con un fragmento o un cierre en curso: no se admiten escrituras simultáneas sobre el mismo fichero
+    private final Set<String> enCurso = ConcurrentHashMap.newKeySet();
+
+    public AudioUploadSessionService(
+        SesionSubidaRepository sesionRepository,
+        AudioContentUploadService uploadService,
+        ValidationService validationService,
+        JwtValidationUtil jwtValidationService,
+        @Value("${content.upload.temp-dir:${java.io.tmpdir}/esimedia-subidas}") String directorio,
+        @Value("${content.upload.session-ttl-ms:86400000}") long duracionSesionMs
+    ) {
+        this.sesionRepository = sesionRepository;
+        this.uploadService = uploadService;
+        this.validationService = validationService;
+        this.jwtValidationService = jwtValidationService;
+        this.directorio = Path.of(directorio);
+        this.duracionSesionMs = duracionSesionMs;
+    }
+
+    /**
+     * Inicia una subida: valida los datos del contenido y el tamaño declarado y reserva el fichero temporal.
+     */
+    public AudioUploadSessionDTO iniciar(String authHeader, AudioUploadInitDTO datos) {
+        String username = jwtValidationService.validateContentUpload(authHeader, TipoContenido.AUDIO);
+        String error = validationService.validateContentUpload(datos);
+        if (error != null) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, error);
+        }
+        if (datos.getTamano() > validationService.getMaxAudioSize()) {
+            throw new ResponseStatusException(HttpStatus.PAYLOAD_TOO_LARGE,
+                "El archivo de audio no puede superar " + validationService.getMaxAudioSize() + " bytes");
+        }
+
+        ContentAudioUploadDTO metadatos = new ContentAudioUploadDTO();
+        BeanUtils.copyProperties(datos, metadatos);
+        Date ahora = new Date();
+        SesionSubida sesion = new SesionSubida(UUID.randomUUID().toString(), username, metadatos, datos.getTamano(),
+            ahora, new Date(ahora.getTime() + duracionSesionMs));
+        // La sesión se guarda antes de crear el fichero: si falla el guardado no queda un fichero huérfano
+        // que la limpieza de caducadas nunca encontraría, y si falla el fichero se borra la sesión
+        sesionRepository.save(sesion);
+        try {
+            Files.createDirectories(directorio);
+            Files.createFile(fichero(sesion.getId()));
+        }
+        catch (IOException e) {
+            sesionRepository.deleteById(sesion.getId());
+            logger.error("No se pudo crear el fichero temporal de la subida: {}", e.getMessage());
+            throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR, "No se pudo iniciar la subida");
+        }
+        logger.info("Subida {} iniciada por {} ({} bytes)", sesion.getId(), username, sesion.getTamano());
+        return new AudioUploadSessionDTO(sesion.getId(), sesion.getTamano(), 0);
+    }
+
+    /**
+     * Bytes recibidos hasta ahora, para reanudar una subida interrumpida.
+     */
+    public AudioUploadSessionDTO estado(String authHeader, String id) {
+        SesionSubida sesion = buscar(authHeader, id);
+        return new AudioUploadSessionDTO(id, sesion.getTamano(), recibidos(sesion));
+    }
+
+    /**
+     * Añade un fragmento al fichero temporal.
+     * @param offset Desplazamiento del fragmento: debe coincidir con los bytes ya recibidos
+     * @param datos Cuerpo binario de la petición, que se copia por bloques
+     * @return Estado tras el fragmento. Si la conexión se corta a mitad, lo escrito se conserva
+     */
+    public AudioUploadSessionDTO escribirFragmento(String authHeader, String id, long offset, InputStream datos) {
+        SesionSubida sesion = buscar(authHeader, id);
+        bloquear(id);
+        try (FileChannel canal = FileChannel.open(fichero(id), StandardOpenOption.WRITE)) {
+            long recibido = canal.size();
+            if (offset != recibido) {
+                throw new ResponseStatusException(HttpStatus.CONFLICT, "El fragmento debe empezar en el byte " + recibido);
+            }
+            canal.position(recibido);
+            long escritos = copiar(datos, canal, sesion.getTamano() - recibido);
+            if (escritos < 0) {
+                canal.truncate(recibido);
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "El fragmento supera el tamaño declarado del fichero");
+            }
+            return new AudioUploadSessionDTO(id, sesion.getTamano(), recibido + escritos);
+        }
+        catch (NoSuchFileException e) {
+            descartar(sesion);
+            throw new ResponseStatusException(HttpStatus.GONE, "Los datos de la subida ya no están disponibles");
+        }
+        catch (IOException e) {
+            logger.warn("Fragmento de la subida {} interrumpido: {}", id, e.getMessage());
+            throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR, "Error recibiendo el fragmento");
+        }
+        finally {
+            enCurso.remove(id);
+        }
+    }
+
+    /**
+     * Cierra la subida: comprueba que el fichero está completo y su SHA-256, y lo entrega al servicio de subida.
+     * La subida se descarta después, tanto si el contenido se guarda como si no pasa la validación.
+     * @param sha256 SHA-256 del fichero completo en hexadecimal
+     * @return Resultado del servicio de subida ("SUCCESS:..." o el mensaje de error)
+     */
+    public String completar(String authHeader, String id, String sha256) {
+        SesionSubida sesion = buscar(authHeader, id);
+        bloquear(id);
+        try {
+            long recibido = recibidos(sesion);
+            if (recibido != sesion.getTamano()) {
+                throw new ResponseStatusException(HttpStatus.CONFLICT,
+                    "Subida incompleta: recibidos " + recibido + " de " + sesion.getTamano() + " bytes");
+            }
+            // El SHA-256 calculado aquí es el que se guarda con el blob
+            FicheroSubido audio = FicheroSubido.desdeBytes(Files.readAllBytes(fichero(id)));
+            if (sha256 == null || !audio.sha256().equalsIgnoreCase(sha256.trim())) {
+                descartar(sesion);
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "El SHA-256 no coincide con el fichero recibido");
+            }
+            String resultado = uploadService.uploadAudioContent(sesion.getIdCreador(), sesion.getMetadatos(), audio);
+            descartar(sesion);
+            return resultado;
+        }
+        catch (IOException e) {
+            logger.error("Error leyendo el fichero de la subida {}: {}", id, e.getMessage());
+            throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR, "Error completando la subida");
+        }
+        finally {
+            enCurso.remove(id);
+        }
+    }
+
+    public void cancelar(String authHeader, String id) {
+        descartar(buscar(authHeader, id));
+    }
+
+    /**
+     * Elimina las subidas abandonadas y sus ficheros temporales.
+     * Cada subida se bloquea como un fragmento más antes de borrarla: las que tienen una escritura o un cierre
+     * en curso se dejan para la siguiente pasada, y mientras se borra ninguna escritura puede empezar.
+     */
+    @Scheduled(fixedDelayString = "${content.upload.cleanup-ms:3600000}")
+    public void limpiarCaducadas() {
+        int eliminadas = 0;
+        for (SesionSubida sesion : sesionRepository.findByFechaCaducidadBefore(new Date())) {
+            if (!enCurso.add(sesion.getId())) {
+                continue;
+            }
+            try {
+                descartar(sesion);
+                eliminadas++;
+            }
+            finally {
+                enCurso.remove(sesion.getId());
+            }
+        }
+        if (eliminadas > 0) {
+            logger.info("Subidas caducadas eliminadas: {}", eliminadas);
+        }
+    }
+
+    private SesionSubida buscar(String authHeader, String id) {
+        String username = jwtValidationService.validateContentUpload(authHeader, TipoContenido.AUDIO);
+        // Las subidas de otros usuarios se tratan como inexistentes
+        SesionSubida sesion = sesionRepository.findById(id)
+            .filter(encontrada -> encontrada.getIdCreador().equals(username))
+            .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, SUBIDA_NO_ENCONTRADA));
+        // Las caducadas que la limpieza aún no ha borrado no admiten más fragmentos ni se pueden completar
+        if (sesion.getFechaCaducidad() != null && sesion.getFechaCaducidad().before(new Date())) {
+            throw new ResponseStatusException(HttpStatus.GONE, "La subida ha caducado");
+        }
+        return sesion;
+    }
+
+    private void bloquear(String id) {
+        if (!enCurso.add(id)) {
+            throw new ResponseStatusException(HttpStatus.CONFLICT, "Ya se está procesando otro fragmento de esta subida");
+        }
+    }
+
+    private long recibidos(SesionSubida sesion) {
+        try {
+            return Files.size(fichero(sesion.getId()));
+        }
+        catch (IOException e) {
+            descartar(sesion);
+            throw new ResponseStatusException(HttpStatus.GONE, "Los datos de la subida ya no están disponibles");
+        }
+    }
+
+    private void descartar(SesionSubida sesion) {
+        try {
+            Files.deleteIfExists(fichero(sesion.getId()));
+        }
+        catch (IOException e) {
+            logger.warn("No se pudo borrar el fichero de la subida {}: {}", sesion.getId(), e.getMessage());
+        }
+        sesionRepository.deleteById(sesion.getId());
+    }
+
+    private Path fichero(String id) {
+        return directorio.resolve(id + ".part");
+    }
+
+    /**
+     * Copia el cuerpo al fichero por bloques.
+     * @return Bytes copiados, o -1 si el cuerpo supera el límite
+     */
+    private static long copiar(InputStream datos, FileChannel canal, long limite) throws IOException {
+        byte[] buffer = new byte[BUFFER_SIZE];
+        long total = 0;
+        int leidos;
+        while ((leidos = datos.read(buffer)) != -1) {
+            if (total + leidos > limite) {
+                return -1;
+            }
+            ByteBuffer bloque = ByteBuffer.wrap(buffer, 0, leidos);
+            while (bloque.hasRemaining()) {
+                canal.write(bloque);
+            }
+            total += leidos;
+        }
+        return total;
+    }
+}
@@ -0,0 +1,125 @@
+package com.esimedia.features.content.services;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import org.springframework.stereotype.Component;
+
+import com.esimedia.features.content.entity.Contenido;
+import com.esimedia.features.content.entity.ContenidoAudioTag;
+import com.esimedia.features.content.entity.ContenidoVideoTag;
+import com.esimedia.features.content.entity.ValoracionContenido;
+import com.esimedia.features.content.repository.ContenidoAudioTagRepository;
+import com.esimedia.features.content.repository.ContenidoVideoTagRepository;
+import com.esimedia.features.content.repository.ValoracionContenidoRepository;
+
+/**
+ * Carga en bloque los datos asociados a una lista de contenidos (tags y valoración del usuario).
+ * Cada método resuelve todos los contenidos con una consulta $in por colección en lugar de
+ * una consulta por elemento, de modo que el coste de construir los DTOs no crece con el tamaño de la lista.
+ */
+@Component
+public class ContentBatchLoader {
+
+    private final ContenidoAudioTagRepository contenidoAudioTagRepository;
+    private final ContenidoVideoTagRepository contenidoVideoTagRepository;
+    private final TagDictionary tagDictionary;
+    private final ValoracionContenidoRepository valoracionRepository;
+
+    public ContentBatchLoader(
+        ContenidoAudioTagRepository contenidoAudioTagRepository,
+        ContenidoVideoTagRepository contenidoVideoTagRepository,
+        TagDictionary tagDictionary,
+        ValoracionContenidoRepository valoracionRepository
+    ) {
+        this.contenidoAudioTagRepository = contenidoAudioTagRepository;
+        this.contenidoVideoTagRepository = contenidoVideoTagRepository;
+        this.tagDictionary = tagDictionary;
+        this.valoracionRepository = valoracionRepository;
+    }
+
+    /**
+     * Nombres de tags de cada audio, indexados por id de contenido.
+     * Los audios sin tags no aparecen en el mapa.
+     */
+    public Map<String, List<String>> cargarTagsAudios(List<String> idsContenido) {
+        if (idsContenido.isEmpty()) {
+            return Map.of();
+        }
+        return agruparNombresTags(contenidoAudioTagRepository.findByIdContenidoIn(idsContenido),
+            ContenidoAudioTag::getIdContenido, ContenidoAudioTag::getIdTag);
+    }
+
+    /**
+     * Nombres de tags de cada video, indexados por id de contenido.
+     * Los videos sin tags no aparecen en el mapa.
+     */
+    public Map<String, List<String>> cargarTagsVideos(List<String> idsContenido) {
+        if (idsContenido.isEmpty()) {
+            return Map.of();
+        }
+        return agruparNombresTags(contenidoVideoTagRepository.findByIdContenidoIn(idsContenido),
+            ContenidoVideoTag::getIdContenido, ContenidoVideoTag::getIdTag);
+    }
+
+    /**
+     * Tags de cada contenido a partir de los nombres desnormalizados en el documento.
+     * Solo los contenidos que todavía no los tienen (anteriores al backfill) se resuelven
+     * con las relaciones contenido-tag mediante el cargador indicado, en una única consulta.
+     * @param contenidos Contenidos de la misma colección
+     * @param cargador cargarTagsAudios o cargarTagsVideos según el tipo
+     */
+    public static Map<String, List<String>> resolverTags(
+        List<? extends Contenido> contenidos, Function<List<String>, Map<String, List<String>>> cargador
+    ) {
+        Map<String, List<String>> tagsPorContenido = new HashMap<>();
+        List<String> pendientes = new ArrayList<>();
+        for (Contenido contenido : contenidos) {
+            if (contenido.getTags() != null && !contenido.getTags().isEmpty()) {
+                tagsPorContenido.put(contenido.getId(), contenido.getTags());
+            }
+            else {
+                pendientes.add(contenido.getId());
+            }
+        }
+        tagsPorContenido.putAll(cargador.apply(pendientes));
+        return tagsPorContenido;
+    }
+
+    /**
+     * Valoraciones del usuario para los contenidos indicados, indexadas por id de contenido.
+     */
+    public Map<String, Double> cargarValoracionesUsuario(String idUsuario, List<String> idsContenido) {
+        if (idUsuario == null || idsContenido.isEmpty()) {
+            return Map.of();
+        }
+        return valoracionRepository.findByIdUsuarioAndIdContenidoIn(idUsuario, idsContenido).stream()
+            .filter(valoracion -> valoracion.getValoracion() != null)
+            .collect(Collectors.toMap(ValoracionContenido::getIdContenido, ValoracionContenido::getValoracion,
+                (primera, segunda) -> primera));
+    }
+
+    private <R> Map<String, List<String>> agruparNombresTags(
+        List<R> relaciones, Function<R, String> idContenido, Function<R, String> idTag
+    ) {
+        if (relaciones.isEmpty()) {
+            return Map.of();
+        }
+
+        List<String> tagIds = relaciones.stream().map(idTag).distinct().toList();
+        Map<String, String> nombresPorId = tagDictionary.nombres(tagIds);
+
+        Map<String, List<String>> tagsPorContenido = new HashMap<>();
+        for (R relacion : relaciones) {
+            String nombre = nombresPorId.get(idTag.apply(relacion));
+            if (nombre != null) {
+                tagsPorContenido.computeIfAbsent(idContenido.apply(relacion), id -> new ArrayList<>()).add(nombre);
+            }
+        }
+        return tagsPorContenido;
+    }
+}
@@ -0,0 +1,593 @@
+package com.esimedia.features.content.services;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+import java.util.stream.Stream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import com.esimedia.features.auth.entity.UsuarioNormal;
+import com.esimedia.features.auth.enums.Rol;
+import com.esimedia.features.auth.enums.TipoContenido;
+import com.esimedia.features.auth.repository.UsuarioNormalRepository;
+import com.esimedia.features.auth.services.ValidationService;
+import com.esimedia.features.content.dto.ContentCatalogPageDTO;
+import com.esimedia.features.content.dto.ContentSearchPageDTO;
+import com.esimedia.features.content.dto.ContentUploadDTO;
+import com.esimedia.features.content.dto.ContentVersionDTO;
+import com.esimedia.features.content.entity.Contenido;
+import com.esimedia.features.content.entity.ContenidosAudio;
+import com.esimedia.features.content.entity.ContenidosVideo;
+import com.esimedia.features.content.enums.FormatoCatalogo;
+import com.esimedia.features.content.enums.Resolucion;
+import com.esimedia.features.content.enums.RestriccionEdad;
+import com.esimedia.features.content.repository.CatalogCursor;
+import com.esimedia.features.content.repository.CatalogFacets;
+import com.esimedia.features.content.repository.CatalogFilter;
+import com.esimedia.features.content.repository.CatalogSort;
+import com.esimedia.features.content.repository.ContentCatalogRepository;
+import com.esimedia.features.content.repository.ContentSearchRepository;
+import com.esimedia.features.content.repository.ContentSearchRepository.Resultado;
+import com.esimedia.features.content.repository.ContentVersionRepository;
+import com.esimedia.features.content.repository.ContentVersionRepository.Version;
+import com.esimedia.features.content.services.Leaderboard.Entrada;
+import com.esimedia.shared.util.JwtValidationUtil;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SequenceWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+
+/**
+ * Catálogo paginado por cursor que combina audios y vídeos.
+ * Los filtros de visibilidad, caducidad y edad, las facetas y la ordenación se ejecutan en MongoDB y cada llamada
+ * devuelve como máximo una página acotada junto con el token de continuación.
+ * También permite volcar el catálogo completo en streaming (array JSON o NDJSON) con memoria constante
+ * y buscar por texto con los mismos filtros de visibilidad.
+ * Las clasificaciones (tendencias y mejor valorados), las recomendaciones por gustos y los contenidos
+ * parecidos se calculan en memoria
+ * y solo se consultan a MongoDB sus primeros contenidos.
+ */
+@Service
+public class ContentCatalogService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ContentCatalogService.class);
+
+    static final int DEFAULT_LIMIT = 20;
+    static final int MAX_LIMIT = 100;
+    // Contenidos que se convierten a DTO juntos al volcar el catálogo (tags y valoraciones se cargan por lote)
+    static final int STREAM_LOTE = 100;
+    // La búsqueda pagina por desplazamiento: solo se sirven los primeros resultados más relevantes
+    static final int MAX_RESULTADOS_BUSQUEDA = 500;
+    static final int MAX_LONGITUD_BUSQUEDA = 100;
+    // Posiciones leídas de una clasificación por cada contenido pedido, por si alguno no es visible para el usuario
+    static final int MARGEN_CLASIFICACION = 2;
+
+    // Mayor puntuación primero; a igualdad, mismo desempate por id que el catálogo
+    private static final Comparator<Resultado<? extends Contenido>> ORDEN_RELEVANCIA =
+        Comparator.<Resultado<? extends Contenido>>comparingDouble(Resultado::puntuacion)
+            .thenComparing(resultado -> resultado.contenido().getId(), Comparator.nullsFirst(Comparator.<String>naturalOrder()))
+            .reversed();
+
+    private final JwtValidationUtil jwtValidationService;
+    private final UsuarioNormalRepository usuarioNormalRepository;
+    private final ValidationService validationService;
+    private final ContentCatalogRepository catalogRepository;
+    private final ContentSearchRepository searchRepository;
+    private final LeaderboardService leaderboardService;
+    private final ContentTagIndex tagIndex;
+    private final ContentSimilarityIndex similarityIndex;
+    private final ContentVersionRepository versionRepository;
+    private final AudioContentRetrievalService audioRetrievalService;
+    private final VideoContentService videoContentService;
+    private final Map<FormatoCatalogo, ObjectWriter> writers = new EnumMap<>(FormatoCatalogo.class);
+
+    public ContentCatalogService(
+        JwtValidationUtil jwtValidationService,
+        UsuarioNormalRepository usuarioNormalRepository,
+        ValidationService validationService,
+        ContentCatalogRepository catalogRepository,
+        ContentSearchRepository searchRepository,
+        LeaderboardService leaderboardService,
+        ContentTagIndex tagIndex,
+        ContentSimilarityIndex similarityIndex,
+        ContentVersionRepository versionRepository,
+        AudioContentRetrievalService audioRetrievalService,
+        VideoContentService videoContentService,
+        ObjectMapper objectMapper
+    ) {
+        this.jwtValidationService = jwtValidationService;
+        this.usuarioNormalRepository = usuarioNormalRepository;
+        this.validationService = validationService;
+        this.catalogRepository = catalogRepository;
+        this.searchRepository = searchRepository;
+        this.leaderboardService = leaderboardService;
+        this.tagIndex = tagIndex;
+        this.similarityIndex = similarityIndex;
+        this.versionRepository = versionRepository;
+        this.audioRetrievalService = audioRetrievalService;
+        this.videoContentService = videoContentService;
+        // El volcado se vacía al llenarse el buffer de la respuesta, no tras cada elemento
+        // y sin cerrar la salida, que pertenece al contenedor. Smile y CBOR usan copias del mapper
+        // de la aplicación, con sus módulos y opciones, como los convertidores de JacksonConfig
+        ObjectWriter json = volcado(objectMapper);
+        this.writers.put(FormatoCatalogo.JSON, json);
+        this.writers.put(FormatoCatalogo.NDJSON, json.withRootValueSeparator("\n"));
+        this.writers.put(FormatoCatalogo.SMILE, volcado(objectMapper.copyWith(new SmileFactory())));
+        this.writers.put(FormatoCatalogo.CBOR, volcado(objectMapper.copyWith(new CBORFactory())));
+    }
+
+    private static ObjectWriter volcado(ObjectMapper mapper) {
+        return mapper.writer()
+            .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE)
+            .without(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+    }
+
+    /**
+     * Obtiene una página del catálogo visible para el usuario, ordenada por fecha de subida y sin facetas.
+     */
+    public ContentCatalogPageDTO getCatalogPage(String authHeader, String cursorToken, Integer limit, String tipo) {
+        return getCatalogPage(authHeader, cursorToken, limit, tipo, null, CatalogFacets.NINGUNA);
+    }
+
+    /**
+     * Obtiene una página del catálogo visible para el usuario.
+     * @param authHeader Header de autorización con JWT
+     * @param cursorToken Token de continuación devuelto por la página anterior (null para la primera)
+     * @param limit Tamaño de página solicitado (se acota a [1, 100])
+     * @param tipo AUDIO, VIDEO o null para ambos
+     * @param orden RECIENTES, VALORACION, VISUALIZACIONES o null para RECIENTES
+     * @param facetas Filtros por faceta (ver {@link #parseFacetas})
+     * @return Página con los contenidos y el cursor de la siguiente; la primera incluye los recuentos por faceta
+     */
+    public ContentCatalogPageDTO getCatalogPage(String authHeader, String cursorToken, Integer limit, String tipo,
+                                                String orden, CatalogFacets facetas) {
+        TipoContenido tipoContenido = parseTipo(tipo);
+        CatalogSort criterio = parseOrden(orden);
+        CatalogCursor cursor = parseCursor(cursorToken);
+        if (cursor != null && cursor.getOrden() != criterio) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "El cursor pertenece a otra ordenación del catálogo");
+        }
+        int pageSize = normalizeLimit(limit);
+
+        String username = jwtValidationService.validateContentAccess(authHeader,
+            tipoContenido != null ? tipoContenido : TipoContenido.AUDIO);
+        Rol userRole = jwtValidationService.getRolFromToken(authHeader);
+        CatalogFilter filter = CatalogFilter.forUser(userRole, getUserAge(username, userRole)).conFacetas(facetas);
+        logger.debug("Usuario {} con rol {} solicita catálogo (tipo={}, orden={}, limit={})",
+            username, userRole, tipoContenido, criterio, pageSize);
+
+        // La resolución solo existe en vídeos: con esa faceta no se consultan los audios
+        List<Class<? extends Contenido>> tipos = new ArrayList<>();
+        if (tipoContenido != TipoContenido.VIDEO && !filter.getFacetas().isSoloVideos()) {
+            tipos.add(ContenidosAudio.class);
+        }
+        if (tipoContenido != TipoContenido.AUDIO) {
+            tipos.add(ContenidosVideo.class);
+        }
+
+        // Se pide un elemento extra de cada colección para saber si hay más páginas
+        List<Contenido> candidatos = new ArrayList<>();
+        for (Class<? extends Contenido> clase : tipos) {
+            candidatos.addAll(catalogRepository.findPage(clase, filter, criterio, cursor, pageSize + 1));
+        }
+        candidatos.sort(criterio.getComparador());
+
+        boolean hasMore = candidatos.size() > pageSize;
+        List<Contenido> pagina = hasMore ? candidatos.subList(0, pageSize) : candidatos;
+
+        List<ContentUploadDTO> items = mapToDTO(pagina, username);
+        String nextCursor = hasMore ? CatalogCursor.from(pagina.get(pagina.size() - 1), criterio).encode() : null;
+
+        return new ContentCatalogPageDTO(items, nextCursor, hasMore, cursor == null ? contarFacetas(tipos, filter) : null);
+    }
+
+    /**
+     * Traduce los parámetros de faceta de la petición.
+     * @param resolucion Nombre (HD_720) o valor (720) de la resolución
+     * @param restriccionEdad Nombre (ADULTOS) o edad mínima (18) de la restricción
+     * @param duracionMin Duración mínima en segundos
+     * @param duracionMax Duración máxima en segundos
+     * @return Las facetas, sin filtro en los parámetros nulos o vacíos
+     */
+    public CatalogFacets parseFacetas(String especialidad, String resolucion, Boolean esVIP, String restriccionEdad,
+                                      Integer duracionMin, Integer duracionMax) {
+        if ((duracionMin != null && duracionMin < 0) || (duracionMax != null && duracionMax < 0)
+                || (duracionMin != null && duracionMax != null && duracionMin > duracionMax)) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Rango de duración no válido");
+        }
+        return CatalogFacets.builder()
+            .especialidad(especialidad != null && !especialidad.isBlank() ? especialidad.trim() : null)
+            .resolucion(parseResolucion(resolucion))
+            .esVIP(esVIP)
+            .restriccionEdad(parseRestriccionEdad(restriccionEdad))
+            .duracionMin(duracionMin)
+            .duracionMax(duracionMax)
+            .build();
+    }
+
+    /**
+     * Busca por texto en título, tags, especialidad y descripción entre los contenidos visibles para el usuario.
+     * Los resultados se ordenan por relevancia ponderada por popularidad (visualizaciones y valoración media).
+     * @param authHeader Header de autorización con JWT
+     * @param texto Texto a buscar
+     * @param page Número de página, desde 0 (null para la primera)
+     * @param limit Tamaño de página solicitado (se acota a [1, 100])
+     * @param tipo AUDIO, VIDEO o null para ambos
+     * @return Página de resultados
+     */
+    public ContentSearchPageDTO buscar(String authHeader, String texto, Integer page, Integer limit, String tipo) {
+        String consulta = texto != null ? texto.trim() : "";
+        if (consulta.isEmpty()) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "El texto de búsqueda no puede estar vacío");
+        }
+        if (consulta.length() > MAX_LONGITUD_BUSQUEDA) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                "El texto de búsqueda no puede exceder " + MAX_LONGITUD_BUSQUEDA + " caracteres");
+        }
+        TipoContenido tipoContenido = parseTipo(tipo);
+        int pageSize = normalizeLimit(limit);
+        int pagina = page != null ? page : 0;
+        int inicio = pagina * pageSize;
+        if (pagina < 0 || inicio >= MAX_RESULTADOS_BUSQUEDA) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                "Solo se pueden consultar los primeros " + MAX_RESULTADOS_BUSQUEDA + " resultados");
+        }
+
+        String username = jwtValidationService.validateContentAccess(authHeader,
+            tipoContenido != null ? tipoContenido : TipoContenido.AUDIO);
+        Rol userRole = jwtValidationService.getRolFromToken(authHeader);
+        CatalogFilter filter = CatalogFilter.forUser(userRole, getUserAge(username, userRole));
+        logger.debug("Usuario {} con rol {} busca '{}' (tipo={}, page={}, limit={})", username, userRole, consulta,
+            tipoContenido, pagina, pageSize);
+
+        // Cada colección aporta sus mejores resultados hasta el final de la página, más uno para saber si hay más
+        int limite = inicio + pageSize + 1;
+        List<Resultado<? extends Contenido>> candidatos = new ArrayList<>();
+        if (tipoContenido != TipoContenido.VIDEO) {
+            candidatos.addAll(searchRepository.buscar(ContenidosAudio.class, consulta, filter, limite));
+        }
+        if (tipoContenido != TipoContenido.AUDIO) {
+            candidatos.addAll(searchRepository.buscar(ContenidosVideo.class, consulta, filter, limite));
+        }
+        candidatos.sort(ORDEN_RELEVANCIA);
+
+        int fin = Math.min(inicio + pageSize, candidatos.size());
+        List<Contenido> resultados = candidatos.subList(Math.min(inicio, fin), fin).stream()
+            .<Contenido>map(Resultado::contenido)
+            .toList();
+        boolean hasMore = candidatos.size() > inicio + pageSize && inicio + pageSize < MAX_RESULTADOS_BUSQUEDA;
+
+        return new ContentSearchPageDTO(mapToDTO(resultados, username), pagina, pageSize, hasMore);
+    }
+
+    /**
+     * Contenidos con más actividad reciente visibles para el usuario.
+     * @param especialidad Especialidad o null para la clasificación general
+     * @param limit Número de contenidos solicitado (se acota a [1, 100])
+     */
+    public List<ContentUploadDTO> getTendencias(String authHeader, String especialidad, Integer limit) {
+        return getClasificacion(authHeader, especialidad, limit, leaderboardService::tendencias);
+    }
+
+    /**
+     * Contenidos mejor valorados visibles para el usuario.
+     * @param especialidad Especialidad o null para la clasificación general
+     * @param limit Número de contenidos solicitado (se acota a [1, 100])
+     */
+    public List<ContentUploadDTO> getMejorValorados(String authHeader, String especialidad, Integer limit) {
+        return getClasificacion(authHeader, especialidad, limit, leaderboardService::mejorValorados);
+    }
+
+    /**
+     * Contenidos recomendados según los gustos (tags) del usuario, puntuados con el índice invertido de tags.
+     * Si el usuario no tiene gustos se recomiendan las tendencias.
+     * @param limit Número de contenidos solicitado (se acota a [1, 100])
+     */
+    public List<ContentUploadDTO> getRecomendados(String authHeader, Integer limit) {
+        int pageSize = normalizeLimit(limit);
+        String username = jwtValidationService.validateContentAccess(authHeader, TipoContenido.AUDIO);
+        Rol userRole = jwtValidationService.getRolFromToken(authHeader);
+        UsuarioNormal user = userRole == Rol.NORMAL ? usuarioNormalRepository.findById(username).orElse(null) : null;
+        if (user == null || user.getGustosTags() == null || user.getGustosTags().isEmpty()) {
+            return getClasificacion(authHeader, null, limit, leaderboardService::tendencias);
+        }
+        Integer edad = user.getFechaNacimiento() != null ? validationService.calculateAge(user.getFechaNacimiento()) : null;
+        CatalogFilter filter = CatalogFilter.forUser(userRole, edad);
+
+        Map<String, TipoContenido> posiciones = new LinkedHashMap<>();
+        tagIndex.recomendar(user.getGustosTags(), pageSize * MARGEN_CLASIFICACION)
+            .forEach(candidato -> posiciones.put(candidato.id(), candidato.tipo()));
+        logger.debug("Usuario {} recibe {} candidatos para {} gustos", username, posiciones.size(), user.getGustosTags().size());
+        return cargarEnOrden(posiciones, filter, pageSize, username);
+    }
+
+    /**
+     * Contenidos con tags parecidos a los de uno dado ("más como este"), visibles para el usuario.
+     * El contenido de referencia también tiene que ser visible: si no, sus relacionados revelarían sus tags.
+     * @param contentId Contenido de referencia
+     * @param limit Número de contenidos solicitado (se acota a [1, 100])
+     * @return Contenidos de más a menos parecido; vacía si el contenido no tiene tags
+     * @throws ResponseStatusException 404 si el contenido de referencia no es visible para el usuario
+     */
+    public List<ContentUploadDTO> getRelacionados(String authHeader, String contentId, Integer limit) {
+        int pageSize = normalizeLimit(limit);
+        String username = jwtValidationService.validateContentAccess(authHeader, TipoContenido.AUDIO);
+        Rol userRole = jwtValidationService.getRolFromToken(authHeader);
+        CatalogFilter filter = CatalogFilter.forUser(userRole, getUserAge(username, userRole));
+
+        Optional<TipoContenido> tipo = similarityIndex.tipoDe(contentId);
+        if (tipo.isEmpty()) {
+            return List.of();
+        }
+        if (!catalogRepository.existeVisible(ContentTypeRegistry.claseDe(tipo.get()), filter, contentId)) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Contenido no encontrado");
+        }
+
+        Map<String, TipoContenido> posiciones = new LinkedHashMap<>();
+        similarityIndex.relacionados(contentId, pageSize * MARGEN_CLASIFICACION)
+            .forEach(relacionado -> posiciones.put(relacionado.id(), relacionado.tipo()));
+        return cargarEnOrden(posiciones, filter, pageSize, username);
+    }
+
+    /**
+     * Lee las primeras posiciones de una clasificación y las carga conservando su orden.
+     */
+    private List<ContentUploadDTO> getClasificacion(String authHeader, String especialidad, Integer limit,
+                                                    BiFunction<String, Integer, List<Entrada>> clasificacion) {
+        int pageSize = normalizeLimit(limit);
+        String username = jwtValidationService.validateContentAccess(authHeader, TipoContenido.AUDIO);
+        Rol userRole = jwtValidationService.getRolFromToken(authHeader);
+        CatalogFilter filter = CatalogFilter.forUser(userRole, getUserAge(username, userRole));
+
+        String clave = especialidad != null && !especialidad.isBlank() ? especialidad.trim() : null;
+        Map<String, TipoContenido> posiciones = new LinkedHashMap<>();
+        clasificacion.apply(clave, Math.min(pageSize * MARGEN_CLASIFICACION, leaderboardService.getCapacidad()))
+            .forEach(entrada -> posiciones.put(entrada.id(), entrada.tipo()));
+        return cargarEnOrden(posiciones, filter, pageSize, username);
+    }
+
+    /**
+     * Carga con una consulta por colección los contenidos visibles para el usuario entre los indicados
+     * y devuelve los primeros en el orden recibido.
+     * @param posiciones Ids en orden, con su tipo
+     */
+    private List<ContentUploadDTO> cargarEnOrden(Map<String, TipoContenido> posiciones, CatalogFilter filter,
+                                                 int pageSize, String username) {
+        Map<TipoContenido, List<String>> idsPorTipo = new HashMap<>();
+        posiciones.forEach((id, tipo) -> idsPorTipo.computeIfAbsent(tipo, t -> new ArrayList<>()).add(id));
+        Map<String, Contenido> visibles = new HashMap<>();
+        idsPorTipo.forEach((tipo, ids) -> catalogRepository.findVisibleByIds(ContentTypeRegistry.claseDe(tipo), filter, ids)
+            .forEach(contenido -> visibles.put(contenido.getId(), contenido)));
+
+        List<Contenido> contenidos = posiciones.keySet().stream()
+            .map(visibles::get)
+            .filter(Objects::nonNull)
+            .limit(pageSize)
+            .toList();
+        return mapToDTO(contenidos, username);
+    }
+
+    /**
+     * Validadores del catálogo completo para el usuario, a partir de la versión del catálogo:
+     * no lee ni convierte ningún contenido. El ETag incluye el usuario, su rol y su edad,
+     * que deciden qué contenidos ve, y el formato de la respuesta.
+     * Los contenidos que caducan se reflejan cuando el barrido de caducados los oculta.
+     */
+    public ContentVersionDTO getVersionCatalogo(String authHeader, FormatoCatalogo formato) {
+        String username = jwtValidationService.validateContentAccess(authHeader, TipoContenido.AUDIO);
+        jwtValidationService.validateContentAccess(authHeader, TipoContenido.VIDEO);
+        Rol userRole = jwtValidationService.getRolFromToken(authHeader);
+        Version version = versionRepository.actual();
+        return validadores(version.numero(), version.modificado(),
+            username, userRole, getUserAge(username, userRole), formato.getValor());
+    }
+
+    /**
+     * Validadores de un contenido para el usuario leyendo solo su versión.
+     * El ETag incluye el usuario porque la respuesta lleva su valoración.
+     * @return Los validadores, o null si el contenido no existe
+     */
+    public ContentVersionDTO getVersionContenido(String authHeader, TipoContenido tipo, String contentId) {
+        String username = jwtValidationService.validateContentAccess(authHeader, tipo);
+        Contenido contenido = catalogRepository.findFields(ContentTypeRegistry.claseDe(tipo), contentId,
+            ContentVersionRepository.VERSION, ContentVersionRepository.MODIFICADO, ContentCatalogRepository.FECHA_SUBIDA);
+        if (contenido == null) {
+            return null;
+        }
+        // Los contenidos sin modificar desde que existe la versión solo tienen la fecha de subida
+        Date modificado = contenido.getModificado() != null ? contenido.getModificado() : contenido.getFechaSubida();
+        return validadores(contenido.getVersion(), modificado, username);
+    }
+
+    private static ContentVersionDTO validadores(long version, Date modificado, Object... usuario) {
+        String etag = "W/\"" + version + "-" + Integer.toHexString(Objects.hash(usuario)) + "\"";
+        return new ContentVersionDTO(etag, modificado != null ? modificado.getTime() : -1);
+    }
+
+    /**
+     * Prepara el volcado de todo el catálogo visible para el usuario (audios y después vídeos).
+     * El acceso se valida al llamar al método, antes de empezar a escribir la respuesta; los contenidos
+     * se leen con un cursor de MongoDB y cada lote se convierte y escribe directamente en la salida,
+     * sin acumular el catálogo en memoria.
+     * @param authHeader Header de autorización con JWT
+     * @param formato NDJSON escribe un objeto por línea; JSON, Smile y CBOR, un único array
+     * @return Cuerpo de la respuesta que escribe el catálogo al ejecutarse
+     */
+    public StreamingResponseBody streamCatalog(String authHeader, FormatoCatalogo formato) {
+        String username = jwtValidationService.validateContentAccess(authHeader, TipoContenido.AUDIO);
+        jwtValidationService.validateContentAccess(authHeader, TipoContenido.VIDEO);
+        Rol userRole = jwtValidationService.getRolFromToken(authHeader);
+        CatalogFilter filter = CatalogFilter.forUser(userRole, getUserAge(username, userRole));
+        logger.debug("Usuario {} con rol {} solicita el catálogo completo en streaming ({})", username, userRole, formato);
+
+        return salida -> {
+            ObjectWriter writer = writers.get(formato);
+            boolean ndjson = formato == FormatoCatalogo.NDJSON;
+            int escritos;
+            try (SequenceWriter secuencia = ndjson ? writer.writeValues(salida) : writer.writeValuesAsArray(salida)) {
+                escritos = escribirLotes(ContenidosAudio.class, filter,
+                    audios -> audioRetrievalService.mapAudiosToDTO(audios, username), secuencia);
+                escritos += escribirLotes(ContenidosVideo.class, filter,
+                    videos -> videoContentService.mapVideosToDTO(videos, username), secuencia);
+            }
+            // El separador solo se escribe entre elementos: NDJSON termina cada línea con salto
+            if (ndjson && escritos > 0) {
+                salida.write('\n');
+            }
+            salida.flush();
+        };
+    }
+
+    private <T extends Contenido> int escribirLotes(Class<T> tipo, CatalogFilter filter,
+            Function<List<T>, List<? extends ContentUploadDTO>> mapper, SequenceWriter secuencia) throws IOException {
+        try (Stream<T> contenidos = catalogRepository.streamVisible(tipo, filter)) {
+            Iterator<T> iterador = contenidos.iterator();
+            List<T> lote = new ArrayList<>(STREAM_LOTE);
+            int escritos = 0;
+            while (iterador.hasNext()) {
+                lote.add(iterador.next());
+                if (lote.size() == STREAM_LOTE || !iterador.hasNext()) {
+                    secuencia.writeAll(mapper.apply(lote));
+                    escritos += lote.size();
+                    lote.clear();
+                }
+            }
+            return escritos;
+        }
+    }
+
+    /**
+     * Construye los DTOs de la página en bloque por tipo y conserva el orden del catálogo.
+     */
+    private List<ContentUploadDTO> mapToDTO(List<Contenido> pagina, String username) {
+        List<ContenidosAudio> audios = new ArrayList<>();
+        List<ContenidosVideo> videos = new ArrayList<>();
+        for (Contenido contenido : pagina) {
+            if (contenido instanceof ContenidosAudio audio) {
+                audios.add(audio);
+            }
+            else {
+                videos.add((ContenidosVideo) contenido);
+            }
+        }
+
+        Map<String, ContentUploadDTO> dtosPorId = new HashMap<>();
+        audioRetrievalService.mapAudiosToDTO(audios, username).forEach(dto -> dtosPorId.put(dto.getId(), dto));
+        videoContentService.mapVideosToDTO(videos, username).forEach(dto -> dtosPorId.put(dto.getId(), dto));
+
+        return pagina.stream()
+            .map(contenido -> dtosPorId.get(contenido.getId()))
+            .toList();
+    }
+
+    private Integer getUserAge(String username, Rol userRole) {
+        if (userRole != Rol.NORMAL) {
+            return null;
+        }
+        UsuarioNormal user = usuarioNormalRepository.findById(username).orElse(null);
+        return (user != null && user.getFechaNacimiento() != null) ?
+            validationService.calculateAge(user.getFechaNacimiento()) : null;
+    }
+
+    private TipoContenido parseTipo(String tipo) {
+        if (tipo == null || tipo.isBlank()) {
+            return null;
+        }
+        try {
+            return TipoContenido.valueOf(tipo.trim().toUpperCase(Locale.ROOT));
+        }
+        catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Tipo de contenido no válido. Use: AUDIO o VIDEO");
+        }
+    }
+
+    /**
+     * Suma los recuentos por faceta de cada colección consultada.
+     */
+    private Map<String, Map<String, Long>> contarFacetas(List<Class<? extends Contenido>> tipos, CatalogFilter filter) {
+        Map<String, Map<String, Long>> facetas = new LinkedHashMap<>();
+        for (Class<? extends Contenido> clase : tipos) {
+            catalogRepository.contarFacetas(clase, filter).forEach((faceta, valores) -> {
+                Map<String, Long> total = facetas.computeIfAbsent(faceta, clave -> new LinkedHashMap<>());
+                valores.forEach((valor, cuenta) -> total.merge(valor, cuenta, Long::sum));
+            });
+        }
+        return facetas;
+    }
+
+    private CatalogSort parseOrden(String orden) {
+        if (orden == null || orden.isBlank()) {
+            return CatalogSort.RECIENTES;
+        }
+        try {
+            return CatalogSort.valueOf(orden.trim().toUpperCase(Locale.ROOT));
+        }
+        catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                "Orden no válido. Use: RECIENTES, VALORACION o VISUALIZACIONES");
+        }
+    }
+
+    private Resolucion parseResolucion(String resolucion) {
+        if (resolucion == null || resolucion.isBlank()) {
+            return null;
+        }
+        String valor = resolucion.trim();
+        for (Resolucion candidata : Resolucion.values()) {
+            if (candidata.name().equalsIgnoreCase(valor) || candidata.getValor().equals(valor)) {
+                return candidata;
+            }
+        }
+        throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Resolución no válida. Use: 720, 1080 o 2160");
+    }
+
+    private RestriccionEdad parseRestriccionEdad(String restriccionEdad) {
+        if (restriccionEdad == null || restriccionEdad.isBlank()) {
+            return null;
+        }
+        String valor = restriccionEdad.trim();
+        for (RestriccionEdad candidata : RestriccionEdad.values()) {
+            if (candidata.name().equalsIgnoreCase(valor) || String.valueOf(candidata.getValor()).equals(valor)) {
+                return candidata;
+            }
+        }
+        throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Restricción de edad no válida");
+    }
+
+    private CatalogCursor parseCursor(String cursorToken) {
+        try {
+            return CatalogCursor.decode(cursorToken);
+        }
+        catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage());
+        }
+    }
+
+    private int normalizeLimit(Integer limit) {
+        if (limit == null) {
+            return DEFAULT_LIMIT;
+        }
+        return Math.max(1, Math.min(limit, MAX_LIMIT));
+    }
+}
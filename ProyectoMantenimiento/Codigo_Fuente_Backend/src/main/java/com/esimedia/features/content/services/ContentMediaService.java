@@ -0,0 +1,160 @@
+package com.esimedia.features.content.services;
+
+import java.util.Map;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.core.io.Resource;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.web.server.ResponseStatusException;
+
+import com.esimedia.features.auth.enums.TipoContenido;
+import com.esimedia.features.content.dto.BinaryContentDTO;
+import com.esimedia.features.content.entity.BlobRef;
+import com.esimedia.features.content.entity.Contenido;
+import com.esimedia.features.content.entity.ContenidosAudio;
+import com.esimedia.features.content.enums.TamanoMiniatura;
+import com.esimedia.features.content.repository.ContentCatalogRepository;
+import com.esimedia.features.content.storage.BlobStore;
+import com.esimedia.shared.util.ContentUtil;
+import com.esimedia.shared.util.JwtValidationUtil;
+
+/**
+ * Acceso a los campos binarios de un contenido (fichero de audio y miniatura).
+ * Los listados solo devuelven las URLs de estos endpoints; los bytes se cargan aquí
+ * de forma individual: desde GridFS si el contenido tiene referencia a blob, o desde el
+ * campo embebido en los documentos que aún no se han migrado.
+ * Las miniaturas se piden por id sin tipo: ContentTypeRegistry indica la colección a consultar.
+ */
+@Service
+public class ContentMediaService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ContentMediaService.class);
+    private static final String FICHERO_NOT_FOUND = "Fichero de audio no encontrado";
+    private static final String MINIATURA_NOT_FOUND = "Miniatura no encontrada";
+
+    private final JwtValidationUtil jwtValidationService;
+    private final ContentCatalogRepository catalogRepository;
+    private final BlobStore blobStore;
+    private final ContentMediaUrls mediaUrls;
+    private final ContentTypeRegistry contentTypeRegistry;
+
+    public ContentMediaService(JwtValidationUtil jwtValidationService, ContentCatalogRepository catalogRepository,
+                               BlobStore blobStore, ContentMediaUrls mediaUrls, ContentTypeRegistry contentTypeRegistry) {
+        this.jwtValidationService = jwtValidationService;
+        this.catalogRepository = catalogRepository;
+        this.blobStore = blobStore;
+        this.mediaUrls = mediaUrls;
+        this.contentTypeRegistry = contentTypeRegistry;
+    }
+
+    /**
+     * Obtiene el fichero binario de un audio.
+     * @param authHeader Header de autorización con JWT
+     * @param audioId ID del audio
+     * @return Fichero y su tipo MIME
+     */
+    public BinaryContentDTO getFicheroAudio(String authHeader, String audioId) {
+        jwtValidationService.validateContentAccess(authHeader, TipoContenido.AUDIO);
+
+        ContenidosAudio audio = catalogRepository.findFields(ContenidosAudio.class, audioId,
+            ContentCatalogRepository.FICHERO, ContentCatalogRepository.FICHERO_EXTENSION,
+            ContentCatalogRepository.FICHERO_BLOB);
+        if (audio == null) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, FICHERO_NOT_FOUND);
+        }
+        Resource recurso = resolver(audio.getFicheroBlob(), audio.getFichero(), FICHERO_NOT_FOUND);
+        logger.debug("Sirviendo fichero del audio {}", audioId);
+        return new BinaryContentDTO(recurso, audio.getFicheroExtension());
+    }
+
+    /**
+     * Obtiene la miniatura de un contenido (audio o video).
+     * @param authHeader Header de autorización con JWT (puede ser null si la URL va firmada)
+     * @param contenidoId ID del contenido
+     * @param firma Firma de la URL publicada en los listados (puede ser null)
+     * @return Imagen y su tipo MIME
+     */
+    public BinaryContentDTO getMiniatura(String authHeader, String contenidoId, String firma) {
+        validarAcceso(authHeader, contenidoId, firma);
+
+        Contenido contenido = buscarMiniatura(contenidoId,
+            ContentCatalogRepository.IMAGEN, ContentCatalogRepository.FORMATO_IMAGEN, ContentCatalogRepository.IMAGEN_BLOB);
+        Resource recurso = resolver(contenido.getMiniaturaBlob(), contenido.getMiniatura(), MINIATURA_NOT_FOUND);
+        return new BinaryContentDTO(recurso, contenido.getFormatoMiniatura());
+    }
+
+    /**
+     * Obtiene una miniatura derivada de un contenido (audio o video).
+     * Los contenidos sin derivadas (subidos antes de generarlas o con formatos que ImageIO no decodifica)
+     * devuelven la miniatura original.
+     * @param authHeader Header de autorización con JWT (puede ser null si la URL va firmada)
+     * @param contenidoId ID del contenido
+     * @param tamano 96, 320, 720 o placeholder (320 si es null)
+     * @param firma Firma de la URL publicada en los listados (puede ser null)
+     * @return Imagen, su tipo MIME y el hash para el ETag
+     */
+    public BinaryContentDTO getThumbnail(String authHeader, String contenidoId, String tamano, String firma) {
+        TamanoMiniatura tamanoMiniatura = tamano == null ? TamanoMiniatura.MEDIANA : TamanoMiniatura.fromValor(tamano);
+        if (tamanoMiniatura == null) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                "Tamaño de miniatura no válido. Use: 96, 320, 720 o placeholder");
+        }
+        validarAcceso(authHeader, contenidoId, firma);
+
+        String[] campos = {
+            ContentCatalogRepository.IMAGEN_DERIVADOS, ContentCatalogRepository.IMAGEN,
+            ContentCatalogRepository.FORMATO_IMAGEN, ContentCatalogRepository.IMAGEN_BLOB
+        };
+        Contenido contenido = buscarMiniatura(contenidoId, campos);
+
+        Map<String, BlobRef> derivados = contenido.getMiniaturasDerivadas();
+        BlobRef derivado = derivados != null ? derivados.get(tamanoMiniatura.getValor()) : null;
+        if (derivado != null) {
+            Resource recurso = resolver(derivado, null, MINIATURA_NOT_FOUND);
+            return new BinaryContentDTO(recurso, ThumbnailService.FORMATO_DERIVADO, derivado.getSha256());
+        }
+
+        Resource recurso = resolver(contenido.getMiniaturaBlob(), contenido.getMiniatura(), MINIATURA_NOT_FOUND);
+        String etag = contenido.getMiniaturaBlob() != null ?
+            contenido.getMiniaturaBlob().getSha256() : ContentUtil.sha256Hex(contenido.getMiniatura());
+        return new BinaryContentDTO(recurso, contenido.getFormatoMiniatura(), etag);
+    }
+
+    /**
+     * Las miniaturas se cargan desde etiquetas img, que no envían la cabecera Authorization:
+     * una URL firmada basta; sin firma válida se exige el JWT.
+     */
+    private void validarAcceso(String authHeader, String contenidoId, String firma) {
+        if (!mediaUrls.firmaValida(contenidoId, firma)) {
+            jwtValidationService.validarGenerico(authHeader);
+        }
+    }
+
+    /**
+     * Carga los campos de miniatura de la colección del tipo del contenido: una sola consulta,
+     * y ninguna si el id ya se sabe inexistente.
+     */
+    private Contenido buscarMiniatura(String contenidoId, String... campos) {
+        Contenido contenido = contentTypeRegistry.tipoDe(contenidoId)
+            .map(tipo -> catalogRepository.findFields(ContentTypeRegistry.claseDe(tipo), contenidoId, campos))
+            .orElse(null);
+        if (contenido == null) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, MINIATURA_NOT_FOUND);
+        }
+        return contenido;
+    }
+
+    private Resource resolver(BlobRef blob, byte[] embebido, String mensajeNoEncontrado) {
+        if (blob != null) {
+            return blobStore.abrir(blob.getId()).orElseThrow(() ->
+                new ResponseStatusException(HttpStatus.NOT_FOUND, mensajeNoEncontrado));
+        }
+        if (embebido == null || embebido.length == 0) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, mensajeNoEncontrado);
+        }
+        return new ByteArrayResource(embebido);
+    }
+}
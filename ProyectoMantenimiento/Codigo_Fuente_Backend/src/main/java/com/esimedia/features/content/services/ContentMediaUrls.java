@@ -0,0 +1,116 @@
+package com.esimedia.features.content.services;
+
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.esimedia.features.content.entity.BlobRef;
+import com.esimedia.features.content.enums.TamanoMiniatura;
+
+/**
+ * URLs de los endpoints que sirven los binarios de un contenido (fichero de audio y miniaturas).
+ * Los DTO de listados solo llevan estas URLs; los bytes se sirven desde ContentMediaService.
+ * Las URLs de miniaturas van firmadas (parámetro firma) para que un &lt;img src&gt; pueda cargarlas
+ * sin cabecera Authorization. La firma no caduca: solo identifica el contenido y las respuestas
+ * de catálogo en caché (304) siguen apuntando a URLs válidas.
+ */
+@Component
+public class ContentMediaUrls {
+
+    public static final String PARAM_FIRMA = "firma";
+
+    private static final String CONTENT_PATH = "/content/";
+    private static final String HMAC = "HmacSHA256";
+    private static final int BYTES_FIRMA = 16;
+
+    private final SecretKeySpec clave;
+
+    public ContentMediaUrls(@Value("${content.media.url-secret:${token.secret}}") String secreto) {
+        this.clave = new SecretKeySpec(secreto.getBytes(StandardCharsets.UTF_8), HMAC);
+    }
+
+    /**
+     * URL firmada de la miniatura original de un contenido.
+     * @param contenidoId ID del contenido
+     * @param formatoMiniatura Formato de la miniatura (null si el contenido no tiene miniatura)
+     * @return Ruta relativa al endpoint o null si no hay miniatura
+     */
+    public String miniatura(String contenidoId, String formatoMiniatura) {
+        if (contenidoId == null || formatoMiniatura == null) {
+            return null;
+        }
+        return CONTENT_PATH + contenidoId + "/miniatura?" + PARAM_FIRMA + "=" + firmar(contenidoId);
+    }
+
+    /**
+     * URL del fichero binario de un audio (admite Range). No va firmada: el acceso depende
+     * de la suscripción del usuario y se comprueba con el JWT en cada petición.
+     * @param audioId ID del audio
+     * @return Ruta relativa al endpoint o null si el id es null
+     */
+    public static String ficheroAudio(String audioId) {
+        if (audioId == null) {
+            return null;
+        }
+        return CONTENT_PATH + "audio/" + audioId + "/stream";
+    }
+
+    /**
+     * URLs firmadas de las miniaturas derivadas que existen para un contenido, indexadas por tamaño.
+     * Los contenidos sin derivadas (anteriores a su generación o con imágenes que no se pudieron
+     * redimensionar) no anuncian ninguna: el cliente usa la miniatura original.
+     * @param contenidoId ID del contenido
+     * @param derivados Derivadas guardadas del contenido (puede ser null)
+     * @return Mapa tamaño -> URL o null si no hay derivadas
+     */
+    public Map<String, String> miniaturasDerivadas(String contenidoId, Map<String, BlobRef> derivados) {
+        if (contenidoId == null || derivados == null || derivados.isEmpty()) {
+            return null;
+        }
+        String firma = firmar(contenidoId);
+        Map<String, String> urls = new LinkedHashMap<>();
+        for (TamanoMiniatura tamano : TamanoMiniatura.values()) {
+            if (derivados.containsKey(tamano.getValor())) {
+                urls.put(tamano.getValor(), CONTENT_PATH + contenidoId + "/thumbnail?size=" + tamano.getValor()
+                    + "&" + PARAM_FIRMA + "=" + firma);
+            }
+        }
+        return urls.isEmpty() ? null : urls;
+    }
+
+    /**
+     * Comprueba la firma de una URL de miniatura en tiempo constante.
+     * @param contenidoId ID del contenido
+     * @param firma Valor del parámetro firma (puede ser null)
+     * @return true si la firma corresponde al contenido
+     */
+    public boolean firmaValida(String contenidoId, String firma) {
+        if (contenidoId == null || firma == null || firma.isEmpty()) {
+            return false;
+        }
+        return MessageDigest.isEqual(firmar(contenidoId).getBytes(StandardCharsets.US_ASCII),
+            firma.getBytes(StandardCharsets.US_ASCII));
+    }
+
+    private String firmar(String contenidoId) {
+        try {
+            Mac mac = Mac.getInstance(HMAC);
+            mac.init(clave);
+            byte[] hmac = mac.doFinal(("miniatura:" + contenidoId).getBytes(StandardCharsets.UTF_8));
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(Arrays.copyOf(hmac, BYTES_FIRMA));
+        }
+        catch (GeneralSecurityException e) {
+            throw new IllegalStateException("HmacSHA256 no disponible", e);
+        }
+    }
+}
@@ -0,0 +1,327 @@
+package com.esimedia.features.content.services;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.SplittableRandom;
+import java.util.TreeSet;
+import java.util.stream.Stream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import com.esimedia.features.auth.enums.TipoContenido;
+import com.esimedia.features.content.entity.Contenido;
+import com.esimedia.features.content.entity.FirmaContenido;
+import com.esimedia.features.content.repository.ContentCatalogRepository;
+import com.esimedia.features.content.repository.FirmaContenidoRepository;
+import com.esimedia.shared.util.ContentUtil;
+
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Índice en memoria de contenidos parecidos según sus tags ("más como este").
+ * Cada contenido tiene una firma MinHash de su conjunto de tags: la fracción de posiciones en las que
+ * coinciden dos firmas estima su similitud de Jaccard. Las firmas se reparten en bandas (LSH) y solo se
+ * comparan los contenidos que comparten alguna banda entera, sin recorrer el catálogo.
+ * Con 16 bandas de 4 filas, dos contenidos con Jaccard 0,5 comparten banda con probabilidad ~0,65
+ * y con Jaccard 0,2 solo ~0,025.
+ * El procesador de tags lo mantiene al día; las firmas se guardan periódicamente y al arrancar
+ * solo se recalculan las de los contenidos cuyos tags han cambiado.
+ */
+@Component
+public class ContentSimilarityIndex {
+
+    private static final Logger logger = LoggerFactory.getLogger(ContentSimilarityIndex.class);
+
+    static final int BANDAS = 16;
+    static final int FILAS = 4;
+    static final int NUM_HASHES = BANDAS * FILAS;
+
+    // Semillas fijas: las firmas guardadas deben seguir siendo válidas tras reiniciar
+    private static final long[] SEMILLAS = new SplittableRandom(0x5EED_7A65L).longs(NUM_HASHES).toArray();
+
+    /**
+     * Contenido parecido con su similitud de Jaccard estimada.
+     */
+    public record Relacionado(String id, TipoContenido tipo, double similitud) { }
+
+    private record Firma(TipoContenido tipo, String huella, int[] valores) { }
+
+    private final FirmaContenidoRepository firmaRepository;
+    private final ContentCatalogRepository catalogRepository;
+
+    private final Map<String, Firma> firmas = new HashMap<>();
+    // Clave de banda (número de banda y hash de sus filas) → contenidos
+    private final Map<Long, Set<String>> cubetas = new HashMap<>();
+    // Cambios pendientes de guardar
+    private final Set<String> modificados = new HashSet<>();
+    private final Set<String> eliminados = new HashSet<>();
+
+    public ContentSimilarityIndex(FirmaContenidoRepository firmaRepository, ContentCatalogRepository catalogRepository) {
+        this.firmaRepository = firmaRepository;
+        this.catalogRepository = catalogRepository;
+    }
+
+    /**
+     * Huella del conjunto de tags normalizados, independiente del orden: SHA-256 de los tags ordenados.
+     * Con un hash de 32 bits dos conjuntos distintos podían coincidir y la firma guardada no se recalculaba.
+     */
+    static String huella(Set<String> claves) {
+        // Cada tag va precedido de su longitud: dos conjuntos distintos nunca dan la misma cadena
+        StringBuilder ordenadas = new StringBuilder();
+        for (String clave : new TreeSet<>(claves)) {
+            ordenadas.append(clave.length()).append(':').append(clave);
+        }
+        return ContentUtil.sha256Hex(ordenadas.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Firma MinHash: para cada función hash, el mínimo sobre los tags.
+     */
+    static int[] firmar(Set<String> claves) {
+        int[] valores = new int[NUM_HASHES];
+        Arrays.fill(valores, Integer.MAX_VALUE);
+        for (String clave : claves) {
+            long base = clave.hashCode();
+            for (int i = 0; i < NUM_HASHES; i++) {
+                valores[i] = Math.min(valores[i], (int) (mezclar(base ^ SEMILLAS[i]) >>> 33));
+            }
+        }
+        return valores;
+    }
+
+    /**
+     * Similitud de Jaccard estimada: fracción de posiciones iguales de las dos firmas.
+     */
+    static double similitud(int[] a, int[] b) {
+        int iguales = 0;
+        for (int i = 0; i < NUM_HASHES; i++) {
+            if (a[i] == b[i]) {
+                iguales++;
+            }
+        }
+        return (double) iguales / NUM_HASHES;
+    }
+
+    /**
+     * Tags de un contenido creado o editado.
+     */
+    public synchronized void actualizar(String id, TipoContenido tipo, Collection<String> tags) {
+        Set<String> claves = claves(tags);
+        Firma actual = firmas.get(id);
+        String huella = huella(claves);
+        if (actual != null && actual.huella().equals(huella)) {
+            return;
+        }
+        quitar(id);
+        if (!claves.isEmpty()) {
+            insertar(id, new Firma(tipo, huella, firmar(claves)));
+        }
+        marcar(id, !claves.isEmpty());
+    }
+
+    public synchronized void eliminar(String id) {
+        if (quitar(id)) {
+            marcar(id, false);
+        }
+    }
+
+    /**
+     * Tipo de un contenido con firma, o vacío si no tiene tags o no existe.
+     */
+    public synchronized Optional<TipoContenido> tipoDe(String id) {
+        Firma firma = firmas.get(id);
+        return firma != null ? Optional.of(firma.tipo()) : Optional.empty();
+    }
+
+    /**
+     * Los contenidos más parecidos a uno dado.
+     * @param id Contenido de referencia
+     * @param k Número máximo de resultados
+     * @return Contenidos de mayor a menor similitud, sin el de referencia
+     */
+    public synchronized List<Relacionado> relacionados(String id, int k) {
+        Firma firma = firmas.get(id);
+        if (firma == null || k <= 0) {
+            return List.of();
+        }
+        Set<String> candidatos = new HashSet<>();
+        for (int banda = 0; banda < BANDAS; banda++) {
+            candidatos.addAll(cubetas.getOrDefault(claveBanda(firma.valores(), banda), Set.of()));
+        }
+        candidatos.remove(id);
+
+        List<Relacionado> resultado = new ArrayList<>(candidatos.size());
+        for (String candidato : candidatos) {
+            Firma otra = firmas.get(candidato);
+            resultado.add(new Relacionado(candidato, otra.tipo(), similitud(firma.valores(), otra.valores())));
+        }
+        resultado.sort(Comparator.comparingDouble(Relacionado::similitud).reversed().thenComparing(Relacionado::id));
+        return resultado.size() > k ? new ArrayList<>(resultado.subList(0, k)) : resultado;
+    }
+
+    /**
+     * Carga las firmas guardadas y las contrasta con los tags actuales del catálogo:
+     * solo se firman los contenidos nuevos o con tags distintos, y se retiran los que ya no existen.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void cargar() {
+        try {
+            Map<String, FirmaContenido> guardadas = new HashMap<>();
+            firmaRepository.findAll().forEach(copia -> guardadas.put(copia.getIdContenido(), copia));
+            int recalculadas = 0;
+            synchronized (this) {
+                for (TipoContenido tipo : TipoContenido.values()) {
+                    try (Stream<? extends Contenido> contenidos = catalogRepository.streamTags(ContentTypeRegistry.claseDe(tipo))) {
+                        Iterator<? extends Contenido> iterador = contenidos.iterator();
+                        while (iterador.hasNext()) {
+                            Contenido contenido = iterador.next();
+                            Set<String> claves = claves(contenido.getTags());
+                            FirmaContenido copia = guardadas.remove(contenido.getId());
+                            if (claves.isEmpty()) {
+                                if (copia != null) {
+                                    eliminados.add(contenido.getId());
+                                }
+                                continue;
+                            }
+                            String huella = huella(claves);
+                            // Las copias con la huella antigua (hash de 32 bits) no coinciden y se firman de nuevo
+                            if (copia != null && huella.equals(copia.getHuella())
+                                && copia.getFirma() != null && copia.getFirma().length == NUM_HASHES) {
+                                insertar(contenido.getId(), new Firma(tipo, huella, copia.getFirma()));
+                            }
+                            else {
+                                insertar(contenido.getId(), new Firma(tipo, huella, firmar(claves)));
+                                modificados.add(contenido.getId());
+                                recalculadas++;
+                            }
+                        }
+                    }
+                }
+                eliminados.addAll(guardadas.keySet());
+            }
+            logger.info("Índice de similitud cargado: {} firmas, {} recalculadas", firmas.size(), recalculadas);
+            guardar();
+        }
+        catch (Exception e) {
+            logger.error("Error cargando el índice de similitud: {}", e.getMessage());
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${content.similarity.snapshot-ms:300000}",
+        initialDelayString = "${content.similarity.snapshot-ms:300000}")
+    public void guardarPeriodico() {
+        guardar();
+    }
+
+    @PreDestroy
+    public void guardarAlParar() {
+        guardar();
+    }
+
+    /**
+     * Guarda las firmas cambiadas desde la última copia y borra las de contenidos eliminados.
+     */
+    public void guardar() {
+        List<FirmaContenido> copias = new ArrayList<>();
+        List<String> borrar;
+        synchronized (this) {
+            Date ahora = new Date();
+            for (String id : modificados) {
+                Firma firma = firmas.get(id);
+                copias.add(new FirmaContenido(id, firma.tipo(), firma.huella(), firma.valores(), ahora));
+            }
+            borrar = new ArrayList<>(eliminados);
+            modificados.clear();
+            eliminados.clear();
+        }
+        try {
+            if (!copias.isEmpty()) {
+                firmaRepository.saveAll(copias);
+            }
+            if (!borrar.isEmpty()) {
+                firmaRepository.deleteAllById(borrar);
+            }
+        }
+        catch (Exception e) {
+            logger.error("Error guardando las firmas de similitud: {}", e.getMessage());
+            synchronized (this) {
+                // Se reintenta en la siguiente copia salvo que hayan vuelto a cambiar
+                copias.forEach(copia -> {
+                    if (firmas.containsKey(copia.getIdContenido()) && !eliminados.contains(copia.getIdContenido())) {
+                        modificados.add(copia.getIdContenido());
+                    }
+                });
+                borrar.stream().filter(id -> !firmas.containsKey(id)).forEach(eliminados::add);
+            }
+        }
+    }
+
+    private void marcar(String id, boolean existe) {
+        if (existe) {
+            modificados.add(id);
+            eliminados.remove(id);
+        }
+        else {
+            modificados.remove(id);
+            eliminados.add(id);
+        }
+    }
+
+    private void insertar(String id, Firma firma) {
+        firmas.put(id, firma);
+        for (int banda = 0; banda < BANDAS; banda++) {
+            cubetas.computeIfAbsent(claveBanda(firma.valores(), banda), clave -> new HashSet<>()).add(id);
+        }
+    }
+
+    private boolean quitar(String id) {
+        Firma anterior = firmas.remove(id);
+        if (anterior == null) {
+            return false;
+        }
+        for (int banda = 0; banda < BANDAS; banda++) {
+            long clave = claveBanda(anterior.valores(), banda);
+            Set<String> cubeta = cubetas.get(clave);
+            if (cubeta != null && cubeta.remove(id) && cubeta.isEmpty()) {
+                cubetas.remove(clave);
+            }
+        }
+        return true;
+    }
+
+    private static Set<String> claves(Collection<String> tags) {
+        Set<String> claves = new HashSet<>();
+        if (tags != null) {
+            tags.stream().filter(tag -> tag != null && !tag.isBlank()).map(ContentTagIndex::clave).forEach(claves::add);
+        }
+        return claves;
+    }
+
+    private static long claveBanda(int[] valores, int banda) {
+        int hash = Arrays.hashCode(Arrays.copyOfRange(valores, banda * FILAS, (banda + 1) * FILAS));
+        return ((long) banda << 32) | (hash & 0xFFFFFFFFL);
+    }
+
+    // Finalizador de SplitMix64: reparte bien bits de entradas parecidas
+    private static long mezclar(long x) {
+        x = (x ^ (x >>> 30)) * 0xBF58476D1CE4E5B9L;
+        x = (x ^ (x >>> 27)) * 0x94D049BB133111EBL;
+        return x ^ (x >>> 31);
+    }
+}
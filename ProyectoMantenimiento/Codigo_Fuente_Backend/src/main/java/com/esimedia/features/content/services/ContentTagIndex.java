@@ -0,0 +1,242 @@
+package com.esimedia.features.content.services;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.stream.Stream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import com.esimedia.features.auth.enums.TipoContenido;
+import com.esimedia.features.content.entity.Contenido;
+import com.esimedia.features.content.repository.ContentCatalogRepository;
+
+/**
+ * Índice invertido en memoria tag → contenidos para las recomendaciones por gustos.
+ * Cada lista de un tag está ordenada por popularidad descendente y la puntuación de un contenido es
+ * su popularidad por la suma de los pesos (idf) de los gustos que cumple. Los k mejores se obtienen
+ * recorriendo las listas de los gustos en paralelo y parando en cuanto ningún contenido no visto
+ * puede superar al k-ésimo (algoritmo de umbral), sin recorrer el catálogo.
+ * El procesador de tags lo actualiza al crear y editar contenidos; la popularidad se refresca periódicamente.
+ */
+@Component
+public class ContentTagIndex {
+
+    private static final Logger logger = LoggerFactory.getLogger(ContentTagIndex.class);
+
+    /**
+     * Contenido recomendado con su puntuación.
+     */
+    public record Candidato(String id, TipoContenido tipo, double puntuacion) { }
+
+    record Posting(String id, double popularidad) { }
+
+    // generacion: reconstrucción en la que se indexó, para retirar después lo que ya no existe
+    private record Documento(TipoContenido tipo, Set<String> tags, double popularidad, long generacion) { }
+
+    private static final Comparator<Posting> ORDEN = Comparator.comparingDouble(Posting::popularidad).reversed()
+        .thenComparing(Posting::id);
+
+    private final ContentCatalogRepository catalogRepository;
+
+    private final Map<String, NavigableSet<Posting>> postings = new ConcurrentHashMap<>();
+    // Contenidos por tag: size() de la skip list recorre la lista entera
+    private final Map<String, Integer> frecuencias = new ConcurrentHashMap<>();
+    private final Map<String, Documento> documentos = new ConcurrentHashMap<>();
+    private long generacion;
+
+    public ContentTagIndex(ContentCatalogRepository catalogRepository) {
+        this.catalogRepository = catalogRepository;
+    }
+
+    /**
+     * Popularidad base de un contenido: siempre positiva, crece con el logaritmo de las visualizaciones y con la valoración.
+     */
+    static double popularidad(int visualizaciones, double valoracionMedia) {
+        return 1 + Math.log1p(Math.max(0, visualizaciones)) + valoracionMedia;
+    }
+
+    static String clave(String tag) {
+        return tag.trim().toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Tags de un contenido creado o editado; conserva la popularidad que ya tuviera.
+     */
+    public synchronized void actualizar(String id, TipoContenido tipo, Collection<String> tags) {
+        Documento actual = documentos.get(id);
+        indexar(id, tipo, tags, actual != null ? actual.popularidad() : popularidad(0, 0));
+    }
+
+    public synchronized void eliminar(String id) {
+        Documento anterior = documentos.remove(id);
+        if (anterior != null) {
+            anterior.tags().forEach(tag -> quitarPosting(tag, new Posting(id, anterior.popularidad())));
+        }
+    }
+
+    /**
+     * Los k contenidos con mayor puntuación para los gustos indicados.
+     * @param gustos Tags del usuario (se comparan sin distinguir mayúsculas)
+     * @param k Número máximo de candidatos
+     * @return Candidatos de mayor a menor puntuación
+     */
+    public List<Candidato> recomendar(Collection<String> gustos, int k) {
+        List<NavigableSet<Posting>> listas = new ArrayList<>();
+        Set<String> claves = new LinkedHashSet<>();
+        for (String gusto : gustos) {
+            String clave = gusto != null ? clave(gusto) : "";
+            NavigableSet<Posting> lista = postings.get(clave);
+            if (!clave.isEmpty() && lista != null && !lista.isEmpty() && claves.add(clave)) {
+                listas.add(lista);
+            }
+        }
+        if (listas.isEmpty() || k <= 0) {
+            return List.of();
+        }
+
+        // Los tags poco frecuentes dicen más del usuario que los que tiene casi todo el catálogo
+        double total = Math.max(1, documentos.size());
+        List<String> ordenClaves = new ArrayList<>(claves);
+        Map<String, Double> pesos = new HashMap<>();
+        List<Iterator<Posting>> iteradores = new ArrayList<>();
+        Posting[] cabezas = new Posting[listas.size()];
+        for (int i = 0; i < listas.size(); i++) {
+            pesos.put(ordenClaves.get(i), Math.log(1 + total / Math.max(1, frecuencias.getOrDefault(ordenClaves.get(i), 1))));
+            iteradores.add(listas.get(i).iterator());
+            cabezas[i] = iteradores.get(i).hasNext() ? iteradores.get(i).next() : null;
+        }
+
+        PriorityQueue<Candidato> mejores = new PriorityQueue<>(Comparator.comparingDouble(Candidato::puntuacion));
+        Set<String> vistos = new HashSet<>();
+        while (true) {
+            boolean avanzado = false;
+            for (int i = 0; i < cabezas.length; i++) {
+                Posting posting = cabezas[i];
+                if (posting == null) {
+                    continue;
+                }
+                avanzado = true;
+                cabezas[i] = iteradores.get(i).hasNext() ? iteradores.get(i).next() : null;
+                if (vistos.add(posting.id())) {
+                    puntuar(posting.id(), pesos, mejores, k);
+                }
+            }
+            if (!avanzado) {
+                break;
+            }
+            // Cota de cualquier contenido aún no visto: cada lista aporta como mucho su peso por la popularidad de su cabeza
+            double umbral = 0;
+            for (int i = 0; i < cabezas.length; i++) {
+                if (cabezas[i] != null) {
+                    umbral += pesos.get(ordenClaves.get(i)) * cabezas[i].popularidad();
+                }
+            }
+            if (mejores.size() == k && mejores.peek().puntuacion() >= umbral) {
+                break;
+            }
+        }
+
+        List<Candidato> resultado = new ArrayList<>(mejores);
+        resultado.sort(Comparator.comparingDouble(Candidato::puntuacion).reversed().thenComparing(Candidato::id));
+        return resultado;
+    }
+
+    /**
+     * Reconstruye el índice al arrancar y cada cierto tiempo para refrescar la popularidad.
+     * Los contenidos se leen con un cursor y solo con los campos del índice.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(fixedDelayString = "${content.tag-index.refresh-ms:1800000}",
+        initialDelayString = "${content.tag-index.refresh-ms:1800000}")
+    public void reconstruir() {
+        try {
+            long inicio;
+            synchronized (this) {
+                inicio = ++generacion;
+            }
+            for (TipoContenido tipo : TipoContenido.values()) {
+                try (Stream<? extends Contenido> contenidos = catalogRepository.streamTags(ContentTypeRegistry.claseDe(tipo))) {
+                    contenidos.forEach(contenido -> {
+                        synchronized (this) {
+                            indexar(contenido.getId(), tipo, contenido.getTags(),
+                                popularidad(contenido.getVisualizaciones(), contenido.getValoracionMedia()));
+                        }
+                    });
+                }
+            }
+            // Lo que no se ha vuelto a indexar se borró sin pasar por el servicio (p. ej. desde otra instancia)
+            documentos.forEach((id, documento) -> {
+                if (documento.generacion() < inicio) {
+                    eliminar(id);
+                }
+            });
+            logger.info("Índice de tags reconstruido: {} contenidos, {} tags", documentos.size(), postings.size());
+        }
+        catch (Exception e) {
+            logger.error("Error reconstruyendo el índice de tags: {}", e.getMessage());
+        }
+    }
+
+    private void puntuar(String id, Map<String, Double> pesos, PriorityQueue<Candidato> mejores, int k) {
+        Documento documento = documentos.get(id);
+        if (documento == null) {
+            return;
+        }
+        double suma = 0;
+        for (String tag : documento.tags()) {
+            suma += pesos.getOrDefault(tag, 0.0);
+        }
+        Candidato candidato = new Candidato(id, documento.tipo(), suma * documento.popularidad());
+        if (mejores.size() < k) {
+            mejores.add(candidato);
+        }
+        else if (candidato.puntuacion() > mejores.peek().puntuacion()) {
+            mejores.poll();
+            mejores.add(candidato);
+        }
+    }
+
+    private void indexar(String id, TipoContenido tipo, Collection<String> tags, double popularidad) {
+        eliminar(id);
+        Set<String> claves = new HashSet<>();
+        if (tags != null) {
+            tags.stream().filter(tag -> tag != null && !tag.isBlank()).map(ContentTagIndex::clave).forEach(claves::add);
+        }
+        if (claves.isEmpty()) {
+            return;
+        }
+        documentos.put(id, new Documento(tipo, Set.copyOf(claves), popularidad, generacion));
+        Posting posting = new Posting(id, popularidad);
+        for (String tag : claves) {
+            if (postings.computeIfAbsent(tag, t -> new ConcurrentSkipListSet<>(ORDEN)).add(posting)) {
+                frecuencias.merge(tag, 1, Integer::sum);
+            }
+        }
+    }
+
+    private void quitarPosting(String tag, Posting posting) {
+        NavigableSet<Posting> lista = postings.get(tag);
+        if (lista != null && lista.remove(posting) && frecuencias.merge(tag, -1, Integer::sum) <= 0) {
+            frecuencias.remove(tag);
+            postings.remove(tag, lista);
+        }
+    }
+}
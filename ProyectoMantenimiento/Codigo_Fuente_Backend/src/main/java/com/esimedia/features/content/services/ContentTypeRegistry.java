@@ -0,0 +1,183 @@
+package com.esimedia.features.content.services;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.stereotype.Component;
+
+import com.esimedia.features.auth.enums.TipoContenido;
+import com.esimedia.features.content.entity.Contenido;
+import com.esimedia.features.content.entity.ContenidoTipo;
+import com.esimedia.features.content.entity.ContenidosAudio;
+import com.esimedia.features.content.entity.ContenidosVideo;
+import com.esimedia.features.content.repository.ContenidoTipoRepository;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+/**
+ * Registro id de contenido → tipo (audio o video), guardado en la colección "contenidoTipos"
+ * y replicado en una caché en memoria. Se actualiza al subir y al borrar contenidos, de modo que
+ * las búsquedas van directamente a la colección correcta en lugar de probar audios y después videos.
+ * Los contenidos anteriores al registro se buscan en ambas colecciones la primera vez y quedan registrados.
+ * Los ids que no son de ningún contenido también se recuerdan durante un minuto, para que las peticiones
+ * repetidas a un id inexistente no recorran registro y colecciones cada vez.
+ */
+@Component
+public class ContentTypeRegistry {
+
+    private static final Logger logger = LoggerFactory.getLogger(ContentTypeRegistry.class);
+    private static final String ID = "_id";
+    private static final long MAX_ENTRADAS = 100_000;
+    // El tipo de un id no cambia; la caducidad solo recoge los borrados hechos por otras instancias
+    private static final long EXPIRACION_MINUTOS = 30;
+    private static final long MAX_INEXISTENTES = 10_000;
+    // Corta: un id inexistente puede aparecer si otra instancia lo sube con ese id
+    private static final long EXPIRACION_INEXISTENTES_MINUTOS = 1;
+
+    private final ContenidoTipoRepository contenidoTipoRepository;
+    private final MongoTemplate mongoTemplate;
+
+    private final Cache<String, TipoContenido> tipos = Caffeine.newBuilder()
+        .maximumSize(MAX_ENTRADAS)
+        .expireAfterWrite(EXPIRACION_MINUTOS, TimeUnit.MINUTES)
+        .build();
+
+    private final Cache<String, Boolean> inexistentes = Caffeine.newBuilder()
+        .maximumSize(MAX_INEXISTENTES)
+        .expireAfterWrite(EXPIRACION_INEXISTENTES_MINUTOS, TimeUnit.MINUTES)
+        .build();
+
+    public ContentTypeRegistry(ContenidoTipoRepository contenidoTipoRepository, MongoTemplate mongoTemplate) {
+        this.contenidoTipoRepository = contenidoTipoRepository;
+        this.mongoTemplate = mongoTemplate;
+    }
+
+    /**
+     * Tipo de un contenido según el registro, sin comprobar que siga existiendo.
+     * @return El tipo, o vacío si el id no es de ningún contenido
+     */
+    public Optional<TipoContenido> tipoDe(String idContenido) {
+        if (idContenido == null) {
+            return Optional.empty();
+        }
+        TipoContenido tipo = tipos.getIfPresent(idContenido);
+        if (tipo != null) {
+            return Optional.of(tipo);
+        }
+        if (inexistentes.getIfPresent(idContenido) != null) {
+            return Optional.empty();
+        }
+        Optional<ContenidoTipo> registrado = contenidoTipoRepository.findById(idContenido);
+        if (registrado.isPresent()) {
+            tipos.put(idContenido, registrado.get().getTipo());
+            return Optional.of(registrado.get().getTipo());
+        }
+        return buscarSinRegistro(List.of(idContenido)).entrySet().stream()
+            .findFirst()
+            .map(Map.Entry::getValue);
+    }
+
+    /**
+     * Tipo de un contenido que existe: una sola consulta a la colección de su tipo.
+     * @return El tipo, o vacío si el contenido no existe
+     */
+    public Optional<TipoContenido> tipoExistente(String idContenido) {
+        Optional<TipoContenido> tipo = tipoDe(idContenido);
+        if (tipo.isEmpty()) {
+            return tipo;
+        }
+        if (mongoTemplate.exists(new Query(Criteria.where(ID).is(idContenido)), claseDe(tipo.get()))) {
+            return tipo;
+        }
+        // Borrado por otra instancia: se olvida para no seguir dándolo por existente
+        tipos.invalidate(idContenido);
+        return Optional.empty();
+    }
+
+    /**
+     * Tipos de varios contenidos: caché, una consulta $in al registro y, para los que falten,
+     * una consulta $in por colección de contenidos.
+     * @return Tipo por id; los ids que no son de ningún contenido no aparecen
+     */
+    public Map<String, TipoContenido> tiposDe(Collection<String> idsContenido) {
+        Map<String, TipoContenido> resultado = new HashMap<>(tipos.getAllPresent(idsContenido));
+        Set<String> pendientes = new HashSet<>(idsContenido);
+        pendientes.removeAll(resultado.keySet());
+        pendientes.removeAll(inexistentes.getAllPresent(pendientes).keySet());
+        if (pendientes.isEmpty()) {
+            return resultado;
+        }
+
+        for (ContenidoTipo registrado : contenidoTipoRepository.findAllById(pendientes)) {
+            tipos.put(registrado.getIdContenido(), registrado.getTipo());
+            resultado.put(registrado.getIdContenido(), registrado.getTipo());
+            pendientes.remove(registrado.getIdContenido());
+        }
+        if (!pendientes.isEmpty()) {
+            resultado.putAll(buscarSinRegistro(pendientes));
+        }
+        return resultado;
+    }
+
+    /**
+     * Registra el tipo de un contenido recién creado.
+     */
+    public void registrar(String idContenido, TipoContenido tipo) {
+        contenidoTipoRepository.save(new ContenidoTipo(idContenido, tipo));
+        tipos.put(idContenido, tipo);
+        inexistentes.invalidate(idContenido);
+    }
+
+    /**
+     * Elimina del registro un contenido borrado.
+     */
+    public void eliminar(String idContenido) {
+        contenidoTipoRepository.deleteById(idContenido);
+        tipos.invalidate(idContenido);
+    }
+
+    public static Class<? extends Contenido> claseDe(TipoContenido tipo) {
+        return tipo == TipoContenido.AUDIO ? ContenidosAudio.class : ContenidosVideo.class;
+    }
+
+    /**
+     * Busca en las colecciones de contenidos los ids que aún no están registrados y los registra.
+     * Los que no aparecen en ninguna se recuerdan como inexistentes.
+     */
+    private Map<String, TipoContenido> buscarSinRegistro(Collection<String> idsContenido) {
+        Map<String, TipoContenido> encontrados = new HashMap<>();
+        Set<String> pendientes = new HashSet<>(idsContenido);
+        for (TipoContenido tipo : List.of(TipoContenido.AUDIO, TipoContenido.VIDEO)) {
+            if (pendientes.isEmpty()) {
+                break;
+            }
+            Query query = new Query(Criteria.where(ID).in(pendientes));
+            query.fields().include(ID);
+            for (Contenido contenido : mongoTemplate.find(query, claseDe(tipo))) {
+                encontrados.put(contenido.getId(), tipo);
+                pendientes.remove(contenido.getId());
+            }
+        }
+        if (!encontrados.isEmpty()) {
+            List<ContenidoTipo> nuevos = new ArrayList<>();
+            encontrados.forEach((id, tipo) -> nuevos.add(new ContenidoTipo(id, tipo)));
+            contenidoTipoRepository.saveAll(nuevos);
+            tipos.putAll(encontrados);
+            logger.debug("Registrados {} contenidos anteriores al registro de tipos", encontrados.size());
+        }
+        pendientes.forEach(id -> inexistentes.put(id, Boolean.TRUE));
+        return encontrados;
+    }
+}
@@ -0,0 +1,157 @@
+package com.esimedia.features.content.services;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+
+import com.esimedia.features.auth.enums.TipoContenido;
+
+/**
+ * Clasificación acotada en memoria: una skip list ordenada por puntuación para el total
+ * y otra por especialidad, cada una con como mucho "capacidad" contenidos.
+ * Las escrituras se serializan; las lecturas recorren la cabeza de la skip list sin bloquear,
+ * por lo que obtener los N primeros cuesta O(N) y no depende del tamaño del catálogo.
+ * El reescalado no toca las listas publicadas: construye listas nuevas y las publica de una vez.
+ * Un contenido que sale de todas sus listas se olvida: si vuelve a recibir eventos empieza de cero.
+ */
+final class Leaderboard {
+
+    // Clave de la clasificación general
+    static final String GLOBAL = "";
+
+    record Entrada(String id, TipoContenido tipo, String especialidad, double puntuacion) { }
+
+    // Mayor puntuación primero; a igualdad, por id para que el orden sea total
+    private static final Comparator<Entrada> ORDEN = Comparator.comparingDouble(Entrada::puntuacion).reversed()
+        .thenComparing(Entrada::id);
+
+    private final int capacidad;
+    private final Map<String, Entrada> entradas = new HashMap<>();
+    private volatile Map<String, NavigableSet<Entrada>> listas = new ConcurrentHashMap<>();
+    // size() de la skip list recorre la lista entera: el tamaño se lleva aparte
+    private final Map<String, Integer> tamanos = new HashMap<>();
+
+    Leaderboard(int capacidad) {
+        this.capacidad = capacidad;
+    }
+
+    /**
+     * Puntuación actual de un contenido, o 0 si no está en la clasificación.
+     */
+    synchronized double puntuacion(String id) {
+        Entrada entrada = entradas.get(id);
+        return entrada != null ? entrada.puntuacion() : 0;
+    }
+
+    /**
+     * Fija la puntuación de un contenido y lo recoloca en la lista general y en la de su especialidad.
+     */
+    synchronized void actualizar(String id, TipoContenido tipo, String especialidad, double puntuacion) {
+        quitar(id);
+        Entrada entrada = new Entrada(id, tipo, especialidad, puntuacion);
+        entradas.put(id, entrada);
+        Entrada fueraGlobal = insertar(GLOBAL, entrada);
+        Entrada fueraEspecialidad = especialidad != null ? insertar(especialidad, entrada) : null;
+        // Solo con las dos listas ya actualizadas se sabe si lo desplazado sigue en alguna: si se comprobase
+        // tras la general, el contenido recién añadido aún no estaría en la de su especialidad
+        olvidarSiFuera(fueraGlobal);
+        olvidarSiFuera(fueraEspecialidad);
+    }
+
+    /**
+     * Suma a la puntuación actual de un contenido.
+     */
+    synchronized void sumar(String id, TipoContenido tipo, String especialidad, double delta) {
+        actualizar(id, tipo, especialidad, puntuacion(id) + delta);
+    }
+
+    synchronized void quitar(String id) {
+        Entrada anterior = entradas.remove(id);
+        if (anterior != null) {
+            retirar(GLOBAL, anterior);
+            if (anterior.especialidad() != null) {
+                retirar(anterior.especialidad(), anterior);
+            }
+        }
+    }
+
+    /**
+     * Multiplica todas las puntuaciones por el mismo factor; el orden no cambia.
+     */
+    synchronized void escalar(double factor) {
+        entradas.replaceAll((id, entrada) ->
+            new Entrada(id, entrada.tipo(), entrada.especialidad(), entrada.puntuacion() * factor));
+        // Mismos contenidos en cada lista, así que los tamaños no cambian
+        Map<String, NavigableSet<Entrada>> escaladas = new ConcurrentHashMap<>();
+        listas.forEach((clave, lista) -> {
+            NavigableSet<Entrada> copia = new ConcurrentSkipListSet<>(ORDEN);
+            lista.forEach(entrada -> copia.add(entradas.get(entrada.id())));
+            escaladas.put(clave, copia);
+        });
+        listas = escaladas;
+    }
+
+    /**
+     * Primeros contenidos de una especialidad, o de la clasificación general si es null.
+     */
+    List<Entrada> top(String especialidad, int n) {
+        NavigableSet<Entrada> lista = listas.get(especialidad != null ? especialidad : GLOBAL);
+        List<Entrada> primeros = new ArrayList<>(Math.min(n, capacidad));
+        if (lista == null) {
+            return primeros;
+        }
+        Iterator<Entrada> iterador = lista.iterator();
+        while (primeros.size() < n && iterador.hasNext()) {
+            primeros.add(iterador.next());
+        }
+        return primeros;
+    }
+
+    /**
+     * Copia de todos los contenidos presentes en alguna lista.
+     */
+    synchronized List<Entrada> entradas() {
+        return new ArrayList<>(entradas.values());
+    }
+
+    /**
+     * Añade la entrada a una lista y, si se pasa de la capacidad, saca la última.
+     * @return La entrada que ha salido de la lista, o null
+     */
+    private Entrada insertar(String clave, Entrada entrada) {
+        NavigableSet<Entrada> lista = lista(clave);
+        if (lista.add(entrada) && tamanos.merge(clave, 1, Integer::sum) > capacidad) {
+            Entrada ultima = lista.pollLast();
+            tamanos.merge(clave, -1, Integer::sum);
+            return ultima;
+        }
+        return null;
+    }
+
+    private void olvidarSiFuera(Entrada desplazada) {
+        if (desplazada != null && !enAlgunaLista(desplazada)) {
+            entradas.remove(desplazada.id(), desplazada);
+        }
+    }
+
+    private void retirar(String clave, Entrada entrada) {
+        if (lista(clave).remove(entrada)) {
+            tamanos.merge(clave, -1, Integer::sum);
+        }
+    }
+
+    private boolean enAlgunaLista(Entrada entrada) {
+        return lista(GLOBAL).contains(entrada)
+            || (entrada.especialidad() != null && lista(entrada.especialidad()).contains(entrada));
+    }
+
+    private NavigableSet<Entrada> lista(String clave) {
+        return listas.computeIfAbsent(clave, k -> new ConcurrentSkipListSet<>(ORDEN));
+    }
+}
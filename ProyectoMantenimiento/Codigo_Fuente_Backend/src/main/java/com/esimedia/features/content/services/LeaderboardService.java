@@ -0,0 +1,346 @@
+package com.esimedia.features.content.services;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jmx.export.annotation.ManagedAttribute;
+import org.springframework.jmx.export.annotation.ManagedResource;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import com.esimedia.features.auth.enums.TipoContenido;
+import com.esimedia.features.content.entity.Clasificacion;
+import com.esimedia.features.content.entity.Contenido;
+import com.esimedia.features.content.entity.ContenidosAudio;
+import com.esimedia.features.content.repository.ClasificacionRepository;
+import com.esimedia.features.content.repository.ContentCatalogRepository;
+import com.esimedia.features.content.services.Leaderboard.Entrada;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Clasificaciones de tendencias y de mejor valorados, general y por especialidad, mantenidas en memoria.
+ * Los eventos (visualizaciones, valoraciones y favoritos) solo se anotan al llegar y se aplican por lotes
+ * cada pocos segundos, resolviendo con una consulta las especialidades que no están en caché.
+ * La tendencia usa decaimiento exponencial hacia delante: cada evento pesa e^(λ·(t - referencia)), de modo que
+ * las puntuaciones nunca hay que envejecerlas y solo se reescalan cuando crecen demasiado.
+ * Ambas clasificaciones se copian periódicamente a MongoDB y se recuperan al arrancar.
+ */
+@Service
+@ManagedResource(objectName = "com.esimedia:type=Leaderboards", description = "Clasificaciones de contenidos")
+public class LeaderboardService {
+
+    private static final Logger logger = LoggerFactory.getLogger(LeaderboardService.class);
+
+    static final String TENDENCIAS = "tendencias";
+    static final String MEJOR_VALORADOS = "mejorValorados";
+
+    // Peso de cada evento en la tendencia; la valoración pesa en proporción a la nota
+    static final double PESO_VISUALIZACION = 1.0;
+    static final double PESO_FAVORITO = 5.0;
+    static final double PESO_VALORACION = 3.0;
+    // Media bayesiana: cada contenido cuenta con PRIOR_NUM valoraciones ficticias de PRIOR_MEDIA
+    static final double PRIOR_MEDIA = 2.5;
+    static final double PRIOR_NUM = 5;
+    // Se reescala antes de que e^(λ·t) se acerque al máximo de un double
+    static final double MAX_EXPONENTE = 500;
+    // Valor del evento cuando el contenido se queda sin valoraciones: sale de mejor valorados
+    private static final double SIN_VALORACIONES = Double.NaN;
+
+    private static final long MAX_ESPECIALIDADES = 100_000;
+    private static final long EXPIRACION_ESPECIALIDAD_HORAS = 1;
+
+    private final ClasificacionRepository clasificacionRepository;
+    private final ContentCatalogRepository catalogRepository;
+    private final int capacidad;
+    // λ en 1/ms
+    private final double lambda;
+
+    private final Leaderboard tendencias;
+    private final Leaderboard mejorValorados;
+    private volatile long referencia = System.currentTimeMillis();
+
+    private final ConcurrentHashMap<String, Evento> pendientes = new ConcurrentHashMap<>();
+    private final Cache<String, String> especialidades = Caffeine.newBuilder()
+        .maximumSize(MAX_ESPECIALIDADES)
+        .expireAfterWrite(EXPIRACION_ESPECIALIDAD_HORAS, TimeUnit.HOURS)
+        .build();
+
+    /**
+     * Eventos de un contenido pendientes de aplicar. Solo se modifica dentro de compute del mapa.
+     */
+    private static final class Evento {
+        private final TipoContenido tipo;
+        private double tendencia;
+        private Double valoracion;
+
+        private Evento(TipoContenido tipo) {
+            this.tipo = tipo;
+        }
+    }
+
+    public LeaderboardService(ClasificacionRepository clasificacionRepository,
+                              ContentCatalogRepository catalogRepository,
+                              @Value("${content.leaderboard.capacidad:500}") int capacidad,
+                              @Value("${content.leaderboard.vida-media-horas:24}") double vidaMediaHoras) {
+        this.clasificacionRepository = clasificacionRepository;
+        this.catalogRepository = catalogRepository;
+        this.capacidad = capacidad;
+        this.lambda = Math.log(2) / (vidaMediaHoras * TimeUnit.HOURS.toMillis(1));
+        this.tendencias = new Leaderboard(capacidad);
+        this.mejorValorados = new Leaderboard(capacidad);
+    }
+
+    public void registrarVisualizacion(Class<? extends Contenido> tipo, String idContenido) {
+        anotar(idContenido, tipoDe(tipo), PESO_VISUALIZACION, null);
+    }
+
+    public void registrarFavorito(TipoContenido tipo, String idContenido) {
+        anotar(idContenido, tipo, PESO_FAVORITO, null);
+    }
+
+    /**
+     * Registra una valoración con los totales del contenido ya actualizados.
+     */
+    public void registrarValoracion(Class<? extends Contenido> tipo, String idContenido, double valoracion,
+                                    double sumaValoraciones, long numValoraciones) {
+        anotar(idContenido, tipoDe(tipo), PESO_VALORACION * valoracion / 5,
+            mediaBayesiana(sumaValoraciones, numValoraciones));
+    }
+
+    /**
+     * Recoloca un contenido en mejor valorados tras un cambio en sus totales que no es una valoración nueva
+     * (la baja de una valoración o un recálculo). No cuenta como actividad para la tendencia.
+     */
+    public void actualizarValoraciones(Class<? extends Contenido> tipo, String idContenido,
+                                       double sumaValoraciones, long numValoraciones) {
+        anotar(idContenido, tipoDe(tipo), 0,
+            numValoraciones > 0 ? mediaBayesiana(sumaValoraciones, numValoraciones) : SIN_VALORACIONES);
+    }
+
+    /**
+     * Saca de ambas clasificaciones un contenido borrado y descarta sus eventos pendientes.
+     * Se serializa con la aplicación de lotes para que un lote en curso no lo vuelva a insertar.
+     */
+    public synchronized void eliminar(String idContenido) {
+        pendientes.remove(idContenido);
+        especialidades.invalidate(idContenido);
+        tendencias.quitar(idContenido);
+        mejorValorados.quitar(idContenido);
+    }
+
+    /**
+     * Contenidos con más actividad reciente.
+     * @param especialidad Especialidad o null para la clasificación general
+     * @param n Número máximo de contenidos
+     */
+    public List<Entrada> tendencias(String especialidad, int n) {
+        return tendencias.top(especialidad, n);
+    }
+
+    /**
+     * Contenidos mejor valorados según la media bayesiana de sus valoraciones.
+     * @param especialidad Especialidad o null para la clasificación general
+     * @param n Número máximo de contenidos
+     */
+    public List<Entrada> mejorValorados(String especialidad, int n) {
+        return mejorValorados.top(especialidad, n);
+    }
+
+    public int getCapacidad() {
+        return capacidad;
+    }
+
+    @ManagedAttribute(description = "Contenidos con eventos pendientes de aplicar")
+    public int getPendientes() {
+        return pendientes.size();
+    }
+
+    @ManagedAttribute(description = "Contenidos en la clasificación de tendencias")
+    public int getEnTendencias() {
+        return tendencias.entradas().size();
+    }
+
+    static double mediaBayesiana(double suma, long num) {
+        return (PRIOR_MEDIA * PRIOR_NUM + suma) / (PRIOR_NUM + num);
+    }
+
+    /**
+     * Aplica a las clasificaciones los eventos anotados desde la última vez.
+     */
+    @Scheduled(fixedDelayString = "${content.leaderboard.aplicar-ms:2000}")
+    public synchronized void aplicarPendientes() {
+        Map<String, Evento> lote = new HashMap<>();
+        for (String id : new ArrayList<>(pendientes.keySet())) {
+            Evento evento = pendientes.remove(id);
+            if (evento != null) {
+                lote.put(id, evento);
+            }
+        }
+        if (lote.isEmpty()) {
+            return;
+        }
+
+        Map<String, String> especialidadPorId = resolverEspecialidades(lote);
+        long ahora = System.currentTimeMillis();
+        reescalarSiHaceFalta(ahora);
+        double peso = Math.exp(lambda * (ahora - referencia));
+        lote.forEach((id, evento) -> {
+            // Sin especialidad el contenido ya no existe
+            String especialidad = especialidadPorId.get(id);
+            if (especialidad == null) {
+                return;
+            }
+            if (evento.tendencia > 0) {
+                tendencias.sumar(id, evento.tipo, especialidad, evento.tendencia * peso);
+            }
+            if (evento.valoracion != null && evento.valoracion.isNaN()) {
+                mejorValorados.quitar(id);
+            }
+            else if (evento.valoracion != null) {
+                mejorValorados.actualizar(id, evento.tipo, especialidad, evento.valoracion);
+            }
+        });
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void cargar() {
+        try {
+            Optional<Clasificacion> copiaTendencias = clasificacionRepository.findById(TENDENCIAS);
+            copiaTendencias.ifPresent(copia -> {
+                referencia = copia.getReferencia() != null ? copia.getReferencia().getTime() : referencia;
+                restaurar(tendencias, copia);
+            });
+            Optional<Clasificacion> copiaValorados = clasificacionRepository.findById(MEJOR_VALORADOS);
+            if (copiaValorados.isPresent()) {
+                restaurar(mejorValorados, copiaValorados.get());
+            }
+            else {
+                inicializarMejorValorados();
+            }
+            logger.info("Clasificaciones cargadas: {} en tendencias, {} en mejor valorados",
+                tendencias.entradas().size(), mejorValorados.entradas().size());
+        }
+        catch (Exception e) {
+            logger.error("Error cargando las clasificaciones: {}", e.getMessage());
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${content.leaderboard.snapshot-ms:60000}",
+        initialDelayString = "${content.leaderboard.snapshot-ms:60000}")
+    public void guardarPeriodico() {
+        guardar();
+    }
+
+    @PreDestroy
+    public void guardarAlParar() {
+        aplicarPendientes();
+        guardar();
+    }
+
+    /**
+     * Copia ambas clasificaciones a MongoDB.
+     */
+    public synchronized void guardar() {
+        try {
+            Date ahora = new Date();
+            clasificacionRepository.saveAll(List.of(
+                new Clasificacion(TENDENCIAS, new Date(referencia), ahora, posiciones(tendencias)),
+                new Clasificacion(MEJOR_VALORADOS, null, ahora, posiciones(mejorValorados))));
+        }
+        catch (Exception e) {
+            logger.error("Error guardando las clasificaciones: {}", e.getMessage());
+        }
+    }
+
+    private void anotar(String idContenido, TipoContenido tipo, double tendencia, Double valoracion) {
+        pendientes.compute(idContenido, (id, evento) -> {
+            Evento actual = evento != null ? evento : new Evento(tipo);
+            actual.tendencia += tendencia;
+            if (valoracion != null) {
+                actual.valoracion = valoracion;
+            }
+            return actual;
+        });
+    }
+
+    /**
+     * Especialidad de cada contenido del lote: caché y, para el resto, una consulta por colección.
+     */
+    private Map<String, String> resolverEspecialidades(Map<String, Evento> lote) {
+        Map<String, String> resultado = new HashMap<>(especialidades.getAllPresent(lote.keySet()));
+        Map<TipoContenido, List<String>> faltantes = new HashMap<>();
+        lote.forEach((id, evento) -> {
+            if (!resultado.containsKey(id)) {
+                faltantes.computeIfAbsent(evento.tipo, tipo -> new ArrayList<>()).add(id);
+            }
+        });
+        faltantes.forEach((tipo, ids) -> {
+            Map<String, String> encontradas = catalogRepository.findEspecialidades(ContentTypeRegistry.claseDe(tipo), ids);
+            especialidades.putAll(encontradas);
+            resultado.putAll(encontradas);
+        });
+        return resultado;
+    }
+
+    private void reescalarSiHaceFalta(long ahora) {
+        double exponente = lambda * (ahora - referencia);
+        if (exponente > MAX_EXPONENTE) {
+            tendencias.escalar(Math.exp(-exponente));
+            referencia = ahora;
+            logger.info("Puntuaciones de tendencia reescaladas");
+        }
+    }
+
+    private void restaurar(Leaderboard clasificacion, Clasificacion copia) {
+        if (copia.getPosiciones() == null) {
+            return;
+        }
+        for (Clasificacion.Posicion posicion : copia.getPosiciones()) {
+            clasificacion.actualizar(posicion.getIdContenido(), posicion.getTipo(), posicion.getEspecialidad(),
+                posicion.getPuntuacion());
+            if (posicion.getEspecialidad() != null) {
+                especialidades.put(posicion.getIdContenido(), posicion.getEspecialidad());
+            }
+        }
+    }
+
+    /**
+     * Primer arranque sin copia: los mejor valorados se calculan a partir de los totales guardados en los contenidos.
+     */
+    private void inicializarMejorValorados() {
+        for (TipoContenido tipo : TipoContenido.values()) {
+            for (Contenido contenido : catalogRepository.findMejorValorados(ContentTypeRegistry.claseDe(tipo), capacidad)) {
+                if (contenido.getNumValoraciones() == null || contenido.getSumaValoraciones() == null) {
+                    continue;
+                }
+                mejorValorados.actualizar(contenido.getId(), tipo, contenido.getEspecialidad(),
+                    mediaBayesiana(contenido.getSumaValoraciones(), contenido.getNumValoraciones()));
+            }
+        }
+    }
+
+    private static List<Clasificacion.Posicion> posiciones(Leaderboard clasificacion) {
+        return clasificacion.entradas().stream()
+            .map(entrada -> new Clasificacion.Posicion(entrada.id(), entrada.tipo(), entrada.especialidad(),
+                entrada.puntuacion()))
+            .toList();
+    }
+
+    private static TipoContenido tipoDe(Class<? extends Contenido> tipo) {
+        return ContenidosAudio.class.isAssignableFrom(tipo) ? TipoContenido.AUDIO : TipoContenido.VIDEO;
+    }
+}
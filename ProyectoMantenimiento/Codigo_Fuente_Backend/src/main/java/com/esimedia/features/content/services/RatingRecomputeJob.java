@@ -0,0 +1,143 @@
+package com.esimedia.features.content.services;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.esimedia.features.auth.enums.TipoContenido;
+import com.esimedia.features.content.entity.TrabajoRecalculo;
+import com.esimedia.features.content.entity.VariacionValoracion;
+import com.esimedia.features.content.enums.FaseRecalculo;
+
+/**
+ * Estado de un recálculo de valoraciones en segundo plano, consultable mientras se ejecuta.
+ * Cada cambio de fase se guarda como {@link TrabajoRecalculo}.
+ */
+public class RatingRecomputeJob {
+
+    private final String id;
+    private final String idUsuario;
+    private final Instant inicio;
+    private final AtomicInteger contenidosActualizados = new AtomicInteger();
+    // Colecciones cuyo bulk ya se ha aplicado
+    private final Set<TipoContenido> tiposAplicados = ConcurrentHashMap.newKeySet();
+    private volatile FaseRecalculo fase = FaseRecalculo.PENDIENTE;
+    private volatile int contenidosAfectados;
+    private volatile Instant fin;
+    private volatile String error;
+    private volatile List<VariacionValoracion> variaciones;
+
+    public RatingRecomputeJob(String id, String idUsuario) {
+        this(id, idUsuario, Instant.now());
+    }
+
+    private RatingRecomputeJob(String id, String idUsuario, Instant inicio) {
+        this.id = id;
+        this.idUsuario = idUsuario;
+        this.inicio = inicio;
+    }
+
+    /**
+     * Reconstruye un trabajo guardado para retomarlo desde la fase en la que se quedó.
+     */
+    static RatingRecomputeJob desde(TrabajoRecalculo guardado) {
+        RatingRecomputeJob trabajo = new RatingRecomputeJob(guardado.getId(), guardado.getIdUsuario(),
+            guardado.getFechaInicio() != null ? guardado.getFechaInicio().toInstant() : Instant.now());
+        trabajo.fase = guardado.getFase();
+        trabajo.contenidosAfectados = guardado.getContenidosAfectados();
+        trabajo.contenidosActualizados.set(guardado.getContenidosActualizados());
+        trabajo.variaciones = guardado.getVariaciones();
+        if (guardado.getTiposAplicados() != null) {
+            trabajo.tiposAplicados.addAll(guardado.getTiposAplicados());
+        }
+        return trabajo;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public String getIdUsuario() {
+        return idUsuario;
+    }
+
+    public Instant getInicio() {
+        return inicio;
+    }
+
+    public FaseRecalculo getFase() {
+        return fase;
+    }
+
+    public int getContenidosAfectados() {
+        return contenidosAfectados;
+    }
+
+    public int getContenidosActualizados() {
+        return contenidosActualizados.get();
+    }
+
+    public Instant getFin() {
+        return fin;
+    }
+
+    public String getError() {
+        return error;
+    }
+
+    public boolean isTerminado() {
+        return fase.isTerminado();
+    }
+
+    /**
+     * Variaciones por contenido, o null si aún no se han calculado.
+     */
+    List<VariacionValoracion> getVariaciones() {
+        return variaciones;
+    }
+
+    boolean isAplicado(TipoContenido tipo) {
+        return tiposAplicados.contains(tipo);
+    }
+
+    /**
+     * Copia del estado actual para guardarla o devolverla en la API.
+     */
+    public TrabajoRecalculo instantanea() {
+        return new TrabajoRecalculo(id, idUsuario, fase, contenidosAfectados, contenidosActualizados.get(),
+            Date.from(inicio), fin != null ? Date.from(fin) : null, error,
+            variaciones != null ? new ArrayList<>(variaciones) : null, new ArrayList<>(tiposAplicados));
+    }
+
+    void avanzar(FaseRecalculo nuevaFase) {
+        this.fase = nuevaFase;
+        if (isTerminado()) {
+            this.fin = Instant.now();
+        }
+    }
+
+    void setContenidosAfectados(int contenidosAfectados) {
+        this.contenidosAfectados = contenidosAfectados;
+    }
+
+    void sumarActualizados(int cantidad) {
+        contenidosActualizados.addAndGet(cantidad);
+    }
+
+    void setVariaciones(List<VariacionValoracion> variaciones) {
+        this.variaciones = variaciones;
+    }
+
+    void marcarAplicado(TipoContenido tipo) {
+        tiposAplicados.add(tipo);
+    }
+
+    void fallar(String error) {
+        this.error = error;
+        avanzar(FaseRecalculo.ERROR);
+    }
+}
@@ -0,0 +1,312 @@
+package com.esimedia.features.content.services;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import com.esimedia.features.auth.enums.TipoContenido;
+import com.esimedia.features.content.entity.Contenido;
+import com.esimedia.features.content.entity.ContenidosAudio;
+import com.esimedia.features.content.entity.TrabajoRecalculo;
+import com.esimedia.features.content.entity.VariacionValoracion;
+import com.esimedia.features.content.enums.FaseRecalculo;
+import com.esimedia.features.content.repository.ContentRatingRepository;
+import com.esimedia.features.content.repository.ContentRatingRepository.GrupoValoraciones;
+import com.esimedia.features.content.repository.RatingTotals;
+import com.esimedia.features.content.repository.TrabajoRecalculoRepository;
+import com.esimedia.features.content.repository.ValoracionContenidoRepository;
+import com.esimedia.shared.config.BackgroundTaskConfig;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+/**
+ * Recalcula en segundo plano los agregados de valoraciones de todos los contenidos afectados por el borrado
+ * de las valoraciones de un usuario.
+ * Todo el trabajo se resuelve con una agregación sobre las valoraciones y un bulk por colección de contenidos,
+ * sin importar cuántos contenidos haya valorado el usuario. El progreso se guarda en el trabajo devuelto
+ * y en MongoDB en cada cambio de fase, así que se puede consultar desde cualquier instancia y tras un reinicio.
+ * Los trabajos sin terminar (interrumpidos por un reinicio o que no cupieron en el ejecutor) se vuelven a lanzar
+ * al arrancar y periódicamente. Las variaciones por contenido se guardan antes de borrar las valoraciones, así que
+ * un trabajo que ya había empezado a borrar se retoma desde ellas; uno interrumpido en mitad del bulk de una colección
+ * lo repite entero.
+ */
+@Service
+public class RatingRecomputeService {
+
+    private static final Logger logger = LoggerFactory.getLogger(RatingRecomputeService.class);
+
+    private final ContentRatingRepository ratingRepository;
+    private final ValoracionContenidoRepository valoracionRepository;
+    private final TrabajoRecalculoRepository trabajoRepository;
+    private final LeaderboardService leaderboardService;
+    private final TaskExecutor executor;
+
+    // Trabajos recientes de esta instancia, con el progreso al momento; el resto se consulta en MongoDB
+    private final Cache<String, RatingRecomputeJob> trabajos = Caffeine.newBuilder()
+        .expireAfterWrite(1, TimeUnit.HOURS)
+        .build();
+
+    // Trabajos entregados al ejecutor de esta instancia, en cola o en ejecución: no se vuelven a lanzar
+    private final Set<String> activos = ConcurrentHashMap.newKeySet();
+
+    public RatingRecomputeService(ContentRatingRepository ratingRepository,
+                                  ValoracionContenidoRepository valoracionRepository,
+                                  TrabajoRecalculoRepository trabajoRepository,
+                                  LeaderboardService leaderboardService,
+                                  @Qualifier(BackgroundTaskConfig.BACKGROUND_EXECUTOR) TaskExecutor executor) {
+        this.ratingRepository = ratingRepository;
+        this.valoracionRepository = valoracionRepository;
+        this.trabajoRepository = trabajoRepository;
+        this.leaderboardService = leaderboardService;
+        this.executor = executor;
+    }
+
+    /**
+     * Programa el borrado de las valoraciones de un usuario y el recálculo de los contenidos afectados.
+     * @return Trabajo programado, para consultar su progreso
+     */
+    public RatingRecomputeJob programarBorradoUsuario(String idUsuario) {
+        RatingRecomputeJob trabajo = new RatingRecomputeJob(UUID.randomUUID().toString(), idUsuario);
+        trabajos.put(trabajo.getId(), trabajo);
+        guardar(trabajo);
+        if (lanzar(trabajo)) {
+            logger.info("Recálculo de valoraciones {} programado para el usuario {}", trabajo.getId(), idUsuario);
+        }
+        else {
+            // El usuario ya se está borrando: el trabajo queda pendiente y se relanza cuando haya sitio
+            logger.warn("Ejecutor en segundo plano lleno: el recálculo {} del usuario {} queda pendiente",
+                trabajo.getId(), idUsuario);
+        }
+        return trabajo;
+    }
+
+    /**
+     * Estado de un recálculo: el de memoria si lo ejecuta esta instancia, si no el último guardado.
+     */
+    public Optional<TrabajoRecalculo> getTrabajo(String id) {
+        RatingRecomputeJob enCurso = trabajos.getIfPresent(id);
+        if (enCurso != null) {
+            return Optional.of(enCurso.instantanea());
+        }
+        return trabajoRepository.findById(id);
+    }
+
+    /**
+     * Retoma los recálculos que no terminaron antes de parar la aplicación. Los que no habían llegado a borrar
+     * se repiten desde el principio; los que estaban borrando o actualizando parten de las variaciones guardadas.
+     * Supone una sola instancia: con varias, una reiniciada recogería trabajos en curso en otra.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void reanudar() {
+        relanzarPendientes();
+    }
+
+    /**
+     * Lanza los recálculos sin terminar que no están en el ejecutor de esta instancia: los que no caben
+     * se quedan como están en MongoDB y se recogen en la siguiente pasada.
+     */
+    @Scheduled(fixedDelayString = "${content.ratings.recompute-requeue-ms:60000}")
+    public void relanzarPendientes() {
+        List<TrabajoRecalculo> pendientes = trabajoRepository.findByFaseNotIn(
+                EnumSet.of(FaseRecalculo.COMPLETADO, FaseRecalculo.ERROR)).stream()
+            .filter(guardado -> !activos.contains(guardado.getId()))
+            .toList();
+        int lanzados = 0;
+        for (TrabajoRecalculo guardado : pendientes) {
+            RatingRecomputeJob trabajo = RatingRecomputeJob.desde(guardado);
+            if (!lanzar(trabajo)) {
+                logger.warn("Ejecutor en segundo plano lleno: {} recálculos quedan pendientes", pendientes.size() - lanzados);
+                break;
+            }
+            trabajos.put(trabajo.getId(), trabajo);
+            lanzados++;
+        }
+        if (lanzados > 0) {
+            logger.info("Recálculos de valoraciones pendientes lanzados: {}", lanzados);
+        }
+    }
+
+    void ejecutar(RatingRecomputeJob trabajo) {
+        String idUsuario = trabajo.getIdUsuario();
+        try {
+            FaseRecalculo desde = trabajo.getFase();
+            boolean borrando = desde == FaseRecalculo.BORRANDO || desde == FaseRecalculo.ACTUALIZANDO;
+            if (borrando && trabajo.getVariaciones() == null) {
+                // Guardado sin variaciones: una vez empezado el borrado ya no se sabe qué descontar
+                throw new IllegalStateException("Interrumpido en la fase " + desde + " sin variaciones guardadas");
+            }
+            if (!borrando) {
+                // Sin borrar nada todavía, agrupar de nuevo es seguro: los agregados inicializados ya cuentan al usuario
+                agrupar(trabajo);
+            }
+
+            if (desde != FaseRecalculo.ACTUALIZANDO) {
+                // Las variaciones quedan guardadas con este cambio de fase, antes del borrado
+                avanzar(trabajo, FaseRecalculo.BORRANDO);
+                valoracionRepository.deleteByIdUsuario(idUsuario);
+            }
+
+            avanzar(trabajo, FaseRecalculo.ACTUALIZANDO);
+            for (Map.Entry<TipoContenido, List<RatingTotals>> lote : porTipo(trabajo.getVariaciones()).entrySet()) {
+                if (trabajo.isAplicado(lote.getKey())) {
+                    continue;
+                }
+                trabajo.sumarActualizados(ratingRepository.aplicarEnBloque(
+                    ContentTypeRegistry.claseDe(lote.getKey()), lote.getValue()));
+                trabajo.marcarAplicado(lote.getKey());
+                guardar(trabajo);
+            }
+            actualizarClasificacion(trabajo.getVariaciones());
+
+            avanzar(trabajo, FaseRecalculo.COMPLETADO);
+            logger.info("Recálculo {} completado: {} contenidos actualizados", trabajo.getId(),
+                trabajo.getContenidosActualizados());
+        }
+        catch (Exception e) {
+            trabajo.fallar(e.getMessage());
+            guardar(trabajo);
+            logger.error("Error en el recálculo de valoraciones {} del usuario {}: {}", trabajo.getId(), idUsuario,
+                e.getMessage());
+        }
+        finally {
+            activos.remove(trabajo.getId());
+        }
+    }
+
+    /**
+     * Calcula la variación de cada contenido valorado por el usuario e inicializa los agregados que faltan.
+     * Las variaciones se dejan en el trabajo, que las guarda en el siguiente cambio de fase.
+     */
+    private void agrupar(RatingRecomputeJob trabajo) {
+        String idUsuario = trabajo.getIdUsuario();
+        avanzar(trabajo, FaseRecalculo.AGRUPANDO);
+        List<Contenido> contenidos = ratingRepository.findAgregados(ratingRepository.findIdsValoradosPor(idUsuario));
+        trabajo.setContenidosAfectados(contenidos.size());
+
+        Map<String, Class<? extends Contenido>> tipos = new HashMap<>();
+        Set<String> sinAgregados = new HashSet<>();
+        for (Contenido contenido : contenidos) {
+            tipos.put(contenido.getId(), contenido.getClass());
+            if (contenido.getNumValoraciones() == null) {
+                sinAgregados.add(contenido.getId());
+            }
+        }
+
+        // Una pasada: las valoraciones del usuario y, para los contenidos sin agregados, todas las demás
+        Map<String, RatingTotals> iniciales = new HashMap<>();
+        Map<String, RatingTotals> variaciones = new HashMap<>();
+        for (GrupoValoraciones grupo : ratingRepository.agruparValoraciones(idUsuario, sinAgregados)) {
+            if (!tipos.containsKey(grupo.idContenido())) {
+                continue;
+            }
+            if (sinAgregados.contains(grupo.idContenido())) {
+                iniciales.computeIfAbsent(grupo.idContenido(), RatingTotals::new).add(grupo.valoracion(), grupo.total());
+            }
+            if (grupo.delUsuario() > 0) {
+                variaciones.computeIfAbsent(grupo.idContenido(), RatingTotals::new)
+                    .add(grupo.valoracion(), -grupo.delUsuario());
+            }
+        }
+        logger.info("Recálculo {}: {} contenidos afectados, {} sin agregados", trabajo.getId(),
+            contenidos.size(), sinAgregados.size());
+
+        // Los agregados se fijan antes del borrado, con las valoraciones del usuario todavía incluidas,
+        // para que el descuento posterior sea correcto aunque otra petición los inicialice a la vez
+        avanzar(trabajo, FaseRecalculo.INICIALIZANDO);
+        Map<Class<? extends Contenido>, List<RatingTotals>> inicialesPorTipo = new HashMap<>();
+        iniciales.forEach((id, total) ->
+            inicialesPorTipo.computeIfAbsent(tipos.get(id), tipo -> new ArrayList<>()).add(total));
+        inicialesPorTipo.forEach(ratingRepository::inicializarEnBloque);
+
+        trabajo.setVariaciones(variaciones.values().stream()
+            .map(variacion -> variacion(variacion, tipos.get(variacion.getIdContenido())))
+            .toList());
+    }
+
+    /**
+     * Recoloca en mejor valorados los contenidos que han perdido valoraciones, con los totales ya actualizados.
+     * Se releen en lugar de calcularlos para que valgan también al retomar un trabajo interrumpido.
+     */
+    private void actualizarClasificacion(List<VariacionValoracion> variaciones) {
+        if (variaciones.isEmpty()) {
+            return;
+        }
+        Set<String> ids = new HashSet<>();
+        variaciones.forEach(variacion -> ids.add(variacion.getIdContenido()));
+        for (Contenido contenido : ratingRepository.findAgregados(ids)) {
+            if (contenido.getNumValoraciones() != null) {
+                leaderboardService.actualizarValoraciones(contenido.getClass(), contenido.getId(),
+                    contenido.getSumaValoraciones(), contenido.getNumValoraciones());
+            }
+        }
+    }
+
+    /**
+     * Entrega un trabajo al ejecutor.
+     * @return false si la cola del ejecutor está llena
+     */
+    private boolean lanzar(RatingRecomputeJob trabajo) {
+        if (!activos.add(trabajo.getId())) {
+            return true;
+        }
+        try {
+            executor.execute(() -> ejecutar(trabajo));
+            return true;
+        }
+        catch (TaskRejectedException e) {
+            activos.remove(trabajo.getId());
+            return false;
+        }
+    }
+
+    private void avanzar(RatingRecomputeJob trabajo, FaseRecalculo fase) {
+        trabajo.avanzar(fase);
+        guardar(trabajo);
+    }
+
+    private void guardar(RatingRecomputeJob trabajo) {
+        try {
+            trabajoRepository.save(trabajo.instantanea());
+        }
+        catch (Exception e) {
+            // El estado es informativo: un fallo al guardarlo no detiene el recálculo
+            logger.warn("No se pudo guardar el estado del recálculo {}: {}", trabajo.getId(), e.getMessage());
+        }
+    }
+
+    private static Map<TipoContenido, List<RatingTotals>> porTipo(List<VariacionValoracion> variaciones) {
+        Map<TipoContenido, List<RatingTotals>> lotes = new EnumMap<>(TipoContenido.class);
+        for (VariacionValoracion variacion : variaciones) {
+            Map<Integer, Long> cubetas = new HashMap<>();
+            variacion.getCubetas().forEach((cubeta, cantidad) -> cubetas.put(Integer.valueOf(cubeta), cantidad));
+            lotes.computeIfAbsent(variacion.getTipo(), tipo -> new ArrayList<>()).add(new RatingTotals(
+                variacion.getIdContenido(), variacion.getSuma(), variacion.getNum(), cubetas));
+        }
+        return lotes;
+    }
+
+    private static VariacionValoracion variacion(RatingTotals totales, Class<? extends Contenido> clase) {
+        TipoContenido tipo = ContenidosAudio.class.equals(clase) ? TipoContenido.AUDIO : TipoContenido.VIDEO;
+        return new VariacionValoracion(totales.getIdContenido(), tipo, totales.getSuma(), totales.getNum(),
+            totales.histogramaDocumento());
+    }
+}
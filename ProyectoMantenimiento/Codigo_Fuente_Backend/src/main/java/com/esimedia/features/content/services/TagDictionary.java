@@ -0,0 +1,132 @@
+package com.esimedia.features.content.services;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.bson.types.ObjectId;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.mongodb.BulkOperationException;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.stereotype.Component;
+
+import com.esimedia.features.content.entity.Tags;
+import com.esimedia.features.content.repository.TagsRepository;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+/**
+ * Diccionario en memoria id ↔ nombre de los tags.
+ * Se precarga al arrancar y resuelve en bloque los nombres o ids que no están en caché
+ * (una consulta $in), creando de una vez los tags que no existen. Los tags no se renombran,
+ * así que las entradas solo caducan para recoger los creados por otras instancias.
+ */
+@Component
+public class TagDictionary {
+
+    private static final Logger logger = LoggerFactory.getLogger(TagDictionary.class);
+    private static final long EXPIRACION_HORAS = 6;
+
+    private final TagsRepository tagsRepository;
+    private final MongoTemplate mongoTemplate;
+
+    private final Cache<String, String> idPorNombre = Caffeine.newBuilder()
+        .expireAfterWrite(EXPIRACION_HORAS, TimeUnit.HOURS)
+        .build();
+    private final Cache<String, String> nombrePorId = Caffeine.newBuilder()
+        .expireAfterWrite(EXPIRACION_HORAS, TimeUnit.HOURS)
+        .build();
+
+    public TagDictionary(TagsRepository tagsRepository, MongoTemplate mongoTemplate) {
+        this.tagsRepository = tagsRepository;
+        this.mongoTemplate = mongoTemplate;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void precargar() {
+        List<Tags> tags = tagsRepository.findAll();
+        tags.forEach(this::registrar);
+        logger.info("Diccionario de tags precargado con {} tags", tags.size());
+    }
+
+    /**
+     * Devuelve el id de cada nombre, creando los tags que todavía no existen.
+     * Es seguro frente a creaciones concurrentes del mismo tag: el índice único sobre el nombre
+     * rechaza el duplicado y se usa el tag que creó la otra petición.
+     * @param nombres Nombres normalizados
+     * @return Mapa nombre → id con todos los nombres pedidos
+     */
+    public Map<String, String> resolverIds(Collection<String> nombres) {
+        Map<String, String> ids = new HashMap<>(idPorNombre.getAllPresent(nombres));
+        List<String> faltantes = nombres.stream().filter(nombre -> !ids.containsKey(nombre)).distinct().toList();
+        if (faltantes.isEmpty()) {
+            return ids;
+        }
+
+        cargarPorNombre(faltantes, ids);
+        List<String> nuevos = faltantes.stream().filter(nombre -> !ids.containsKey(nombre)).toList();
+        if (!nuevos.isEmpty()) {
+            crear(nuevos, ids);
+        }
+        return ids;
+    }
+
+    /**
+     * Devuelve el nombre de cada id. Los ids que no corresponden a ningún tag no aparecen en el mapa.
+     */
+    public Map<String, String> nombres(Collection<String> idsTag) {
+        Map<String, String> nombres = new HashMap<>(nombrePorId.getAllPresent(idsTag));
+        List<String> faltantes = idsTag.stream().filter(id -> !nombres.containsKey(id)).distinct().toList();
+        if (!faltantes.isEmpty()) {
+            for (Tags tag : tagsRepository.findByIdTagIn(faltantes)) {
+                registrar(tag);
+                nombres.put(tag.getIdTag(), tag.getNombre());
+            }
+        }
+        return nombres;
+    }
+
+    private void cargarPorNombre(List<String> nombres, Map<String, String> ids) {
+        for (Tags tag : tagsRepository.findByNombreIn(nombres)) {
+            registrar(tag);
+            ids.put(tag.getNombre(), tag.getIdTag());
+        }
+    }
+
+    private void crear(List<String> nombres, Map<String, String> ids) {
+        // Los ids se asignan aquí para no tener que releer los tags insertados
+        List<Tags> tags = new ArrayList<>();
+        for (String nombre : nombres) {
+            tags.add(new Tags(new ObjectId().toHexString(), nombre));
+        }
+        try {
+            mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, Tags.class).insert(tags).execute();
+            tags.forEach(tag -> {
+                registrar(tag);
+                ids.put(tag.getNombre(), tag.getIdTag());
+            });
+        }
+        catch (BulkOperationException | DuplicateKeyException e) {
+            // Otra petición creó alguno de estos tags a la vez; la inserción desordenada guardó el resto
+            logger.debug("Tags creados concurrentemente, se releen: {}", nombres);
+            cargarPorNombre(nombres, ids);
+            List<String> perdidos = nombres.stream().filter(nombre -> !ids.containsKey(nombre)).toList();
+            if (!perdidos.isEmpty()) {
+                throw new IllegalStateException("No se pudieron crear los tags: " + perdidos, e);
+            }
+        }
+    }
+
+    private void registrar(Tags tag) {
+        idPorNombre.put(tag.getNombre(), tag.getIdTag());
+        nombrePorId.put(tag.getIdTag(), tag.getNombre());
+    }
+}
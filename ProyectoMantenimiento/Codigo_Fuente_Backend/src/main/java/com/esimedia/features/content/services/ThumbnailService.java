@@ -0,0 +1,177 @@
+package com.esimedia.features.content.services;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.EnumMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReader;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.ImageOutputStream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import com.esimedia.features.content.entity.BlobRef;
+import com.esimedia.features.content.enums.TamanoMiniatura;
+import com.esimedia.features.content.storage.BlobStore;
+
+/**
+ * Genera las miniaturas derivadas (96, 320 y 720 px de ancho más un placeholder) a partir
+ * de la imagen subida con el contenido. Se usan únicamente ImageIO y Java2D del JDK.
+ * Las derivadas se guardan como JPEG en el almacén de blobs.
+ */
+@Service
+public class ThumbnailService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ThumbnailService.class);
+
+    public static final String FORMATO_DERIVADO = "image/jpeg";
+    private static final float CALIDAD = 0.85f;
+    private static final float CALIDAD_PLACEHOLDER = 0.3f;
+
+    private final BlobStore blobStore;
+
+    // Píxeles máximos (ancho x alto) que se aceptan decodificar; la cabecera se comprueba antes de leer la imagen
+    @Value("${content.thumbnails.max-pixels:40000000}")
+    private long maxPixeles = 40_000_000L;
+
+    public ThumbnailService(BlobStore blobStore) {
+        this.blobStore = blobStore;
+    }
+
+    /**
+     * Genera y guarda todas las derivadas de una imagen.
+     * Si la imagen no se puede decodificar (formato no soportado por ImageIO, p. ej. webp)
+     * devuelve un mapa vacío y el contenido se sirve con la miniatura original.
+     * @param imagen Bytes de la imagen original
+     * @return Referencias a las derivadas indexadas por el valor del tamaño
+     */
+    public Map<String, BlobRef> generarDerivados(byte[] imagen) {
+        Map<TamanoMiniatura, byte[]> codificadas = codificarDerivados(imagen);
+        Map<String, BlobRef> derivados = new LinkedHashMap<>();
+        // Se guardan solo cuando todas se han generado bien para no dejar blobs sueltos
+        try {
+            codificadas.forEach((tamano, datos) ->
+                derivados.put(tamano.getValor(), blobStore.guardar(datos, FORMATO_DERIVADO)));
+        }
+        catch (RuntimeException e) {
+            derivados.values().forEach(blob -> blobStore.eliminar(blob.getId()));
+            throw e;
+        }
+        return derivados;
+    }
+
+    Map<TamanoMiniatura, byte[]> codificarDerivados(byte[] imagen) {
+        Map<TamanoMiniatura, byte[]> codificadas = new EnumMap<>(TamanoMiniatura.class);
+        try {
+            BufferedImage original = imagen != null ? decodificar(imagen) : null;
+            if (original == null) {
+                logger.warn("No se pudo decodificar la miniatura; no se generan derivadas");
+                return codificadas;
+            }
+            for (TamanoMiniatura tamano : TamanoMiniatura.values()) {
+                float calidad = tamano == TamanoMiniatura.PLACEHOLDER ? CALIDAD_PLACEHOLDER : CALIDAD;
+                codificadas.put(tamano, codificarJpeg(escalar(original, tamano.getAncho()), calidad));
+            }
+            return codificadas;
+        }
+        catch (IOException e) {
+            logger.warn("Error generando miniaturas derivadas: {}", e.getMessage());
+            return new EnumMap<>(TamanoMiniatura.class);
+        }
+    }
+
+    /**
+     * Decodifica la imagen solo si las dimensiones de su cabecera no superan el máximo de píxeles:
+     * un fichero pequeño puede declarar 30000x30000 y ImageIO reservaría el raster completo al leerlo.
+     * @return La imagen, o null si ImageIO no reconoce el formato o es demasiado grande
+     */
+    private BufferedImage decodificar(byte[] imagen) throws IOException {
+        try (ImageInputStream entrada = ImageIO.createImageInputStream(new ByteArrayInputStream(imagen))) {
+            Iterator<ImageReader> readers = ImageIO.getImageReaders(entrada);
+            if (!readers.hasNext()) {
+                return null;
+            }
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(entrada, true, true);
+                long pixeles = (long) reader.getWidth(0) * reader.getHeight(0);
+                if (pixeles > maxPixeles) {
+                    logger.warn("Miniatura de {}x{} px supera el máximo de {} píxeles; no se decodifica",
+                        reader.getWidth(0), reader.getHeight(0), maxPixeles);
+                    return null;
+                }
+                return reader.read(0);
+            }
+            finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    /**
+     * Reduce la imagen al ancho indicado conservando la proporción. Nunca amplía.
+     * Se reduce a la mitad en pasos sucesivos para evitar el aliasing de un único escalado grande.
+     */
+    static BufferedImage escalar(BufferedImage original, int anchoMaximo) {
+        int anchoFinal = Math.min(anchoMaximo, original.getWidth());
+        int altoFinal = Math.max(1, Math.round((float) original.getHeight() * anchoFinal / original.getWidth()));
+
+        BufferedImage actual = original;
+        int ancho = original.getWidth();
+        int alto = original.getHeight();
+        do {
+            ancho = Math.max(anchoFinal, ancho / 2);
+            alto = Math.max(altoFinal, alto / 2);
+            actual = redimensionar(actual, ancho, alto);
+        } while (ancho != anchoFinal || alto != altoFinal);
+        return actual;
+    }
+
+    private static BufferedImage redimensionar(BufferedImage origen, int ancho, int alto) {
+        // JPEG no admite transparencia: se pinta sobre fondo blanco
+        BufferedImage destino = new BufferedImage(ancho, alto, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = destino.createGraphics();
+        try {
+            g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            g.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+            g.setColor(Color.WHITE);
+            g.fillRect(0, 0, ancho, alto);
+            g.drawImage(origen, 0, 0, ancho, alto, null);
+        }
+        finally {
+            g.dispose();
+        }
+        return destino;
+    }
+
+    static byte[] codificarJpeg(BufferedImage imagen, float calidad) throws IOException {
+        ImageWriter writer = ImageIO.getImageWritersByFormatName("jpeg").next();
+        ByteArrayOutputStream salida = new ByteArrayOutputStream();
+        try (ImageOutputStream ios = ImageIO.createImageOutputStream(salida)) {
+            ImageWriteParam param = writer.getDefaultWriteParam();
+            param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+            param.setCompressionQuality(calidad);
+            writer.setOutput(ios);
+            writer.write(null, new IIOImage(imagen, null, null), param);
+        }
+        finally {
+            writer.dispose();
+        }
+        return salida.toByteArray();
+    }
+}
@@ -0,0 +1,283 @@
+package com.esimedia.features.content.services;
+
+import java.io.IOException;
+import java.util.Date;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.web.server.ResponseStatusException;
+
+import com.esimedia.features.auth.enums.Rol;
+import com.esimedia.features.auth.enums.TipoContenido;
+import com.esimedia.features.auth.services.ValidationService;
+import com.esimedia.features.content.dto.ContentAudioUploadDTO;
+import com.esimedia.features.content.dto.ContentVideoUploadDTO;
+import com.esimedia.features.content.dto.UploadJobDTO;
+import com.esimedia.features.content.entity.TrabajoSubida;
+import com.esimedia.features.content.enums.EstadoSubida;
+import com.esimedia.features.content.repository.TrabajoSubidaRepository;
+import com.esimedia.features.content.storage.BlobStore;
+import com.esimedia.shared.config.BackgroundTaskConfig;
+import com.esimedia.shared.util.JwtValidationUtil;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Subidas asíncronas: la petición se valida por encima (token y datos del contenido, sin decodificar
+ * el fichero), se guarda como trabajo y se responde enseguida con su identificador. La decodificación,
+ * el antivirus y el guardado se hacen en el ejecutor de subidas, y el cliente consulta el estado.
+ * La petición se guarda en el BlobStore y el trabajo solo guarda su id.
+ * Los trabajos en cola que no están en el ejecutor (interrumpidos por un reinicio o que no cupieron en la cola)
+ * se vuelven a lanzar al arrancar y periódicamente, así que el procesado es "al menos una vez": una caída
+ * justo después de guardar el contenido lo repetiría.
+ */
+@Service
+public class UploadJobService {
+
+    private static final Logger logger = LoggerFactory.getLogger(UploadJobService.class);
+    static final String SUCCESS_PREFIX = "SUCCESS:";
+    static final String ERROR_INTERNO = "Error interno del servidor";
+    static final String PETICION_NO_DISPONIBLE = "Los datos de la subida ya no están disponibles";
+    private static final String SUBIDA_NO_ENCONTRADA = "Subida no encontrada";
+
+    private final TrabajoSubidaRepository trabajoRepository;
+    private final AudioContentUploadService audioUploadService;
+    private final VideoContentService videoContentService;
+    private final ValidationService validationService;
+    private final JwtValidationUtil jwtValidationService;
+    private final BlobStore blobStore;
+    private final ObjectMapper objectMapper;
+    private final TaskExecutor uploadExecutor;
+    private final long retencionMs;
+
+    // Trabajos entregados al ejecutor de esta instancia que aún no han empezado: no se vuelven a lanzar
+    private final Set<String> enEjecutor = ConcurrentHashMap.newKeySet();
+
+    public UploadJobService(
+        TrabajoSubidaRepository trabajoRepository,
+        AudioContentUploadService audioUploadService,
+        VideoContentService videoContentService,
+        ValidationService validationService,
+        JwtValidationUtil jwtValidationService,
+        BlobStore blobStore,
+        ObjectMapper objectMapper,
+        @Qualifier(BackgroundTaskConfig.UPLOAD_EXECUTOR) TaskExecutor uploadExecutor,
+        @Value("${content.upload.jobs-retention-ms:604800000}") long retencionMs
+    ) {
+        this.trabajoRepository = trabajoRepository;
+        this.audioUploadService = audioUploadService;
+        this.videoContentService = videoContentService;
+        this.validationService = validationService;
+        this.jwtValidationService = jwtValidationService;
+        this.blobStore = blobStore;
+        this.objectMapper = objectMapper;
+        this.uploadExecutor = uploadExecutor;
+        this.retencionMs = retencionMs;
+    }
+
+    /**
+     * Acepta una subida de audio. Solo se comprueban el token, los datos y el tamaño declarado del base64.
+     */
+    public UploadJobDTO encolarAudio(String authHeader, ContentAudioUploadDTO audioDTO) {
+        String username = jwtValidationService.validateContentUpload(authHeader, TipoContenido.AUDIO);
+        rechazarSiInvalido(validationService.validateAudioContent(audioDTO));
+        return encolar(nuevoTrabajo(TipoContenido.AUDIO, username), audioDTO);
+    }
+
+    public UploadJobDTO encolarVideo(String authHeader, ContentVideoUploadDTO videoDTO) {
+        String username = jwtValidationService.validateContentUpload(authHeader, TipoContenido.VIDEO);
+        try {
+            rechazarSiInvalido(validationService.validateVideoContent(videoDTO));
+        }
+        catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage());
+        }
+        return encolar(nuevoTrabajo(TipoContenido.VIDEO, username), videoDTO);
+    }
+
+    /**
+     * Estado de un trabajo. El token se valida antes de buscarlo, para no revelar qué ids existen,
+     * y los trabajos de otros creadores se tratan como inexistentes.
+     */
+    public UploadJobDTO estado(String authHeader, String id) {
+        String username = jwtValidationService.validateJwtWithBusinessRules(authHeader, List.of(Rol.CREADOR), null);
+        return trabajoRepository.findById(id)
+            .filter(trabajo -> trabajo.getIdCreador().equals(username))
+            .map(UploadJobDTO::desde)
+            .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, SUBIDA_NO_ENCONTRADA));
+    }
+
+    /**
+     * Procesa un trabajo en el hilo del ejecutor. Si otro hilo ya lo ha cogido no hace nada.
+     */
+    void ejecutar(String id) {
+        enEjecutor.remove(id);
+        trabajoRepository.reclamar(id).ifPresent(trabajo -> {
+            String peticionBlob = trabajo.getPeticionBlob();
+            String resultado;
+            try {
+                resultado = procesar(trabajo);
+            }
+            catch (Exception e) {
+                logger.error("Error procesando la subida {}: {}", id, e.getMessage());
+                resultado = ERROR_INTERNO;
+            }
+            if (resultado != null && resultado.startsWith(SUCCESS_PREFIX)) {
+                trabajoRepository.terminar(id, EstadoSubida.GUARDADO, resultado.substring(SUCCESS_PREFIX.length()));
+                logger.info("Subida {} de {} guardada", id, trabajo.getIdCreador());
+            }
+            else {
+                trabajoRepository.terminar(id, EstadoSubida.FALLIDO, resultado);
+                logger.warn("Subida {} de {} fallida: {}", id, trabajo.getIdCreador(), resultado);
+            }
+            descartarPeticion(peticionBlob);
+        });
+    }
+
+    private String procesar(TrabajoSubida trabajo) throws IOException {
+        byte[] peticion = trabajo.getPeticionBlob() != null ? blobStore.leer(trabajo.getPeticionBlob()) : null;
+        if (peticion == null) {
+            return PETICION_NO_DISPONIBLE;
+        }
+        return trabajo.getTipo() == TipoContenido.AUDIO
+            ? audioUploadService.uploadAudioContent(trabajo.getIdCreador(),
+                objectMapper.readValue(peticion, ContentAudioUploadDTO.class))
+            : videoContentService.uploadVideoContentAs(trabajo.getIdCreador(),
+                objectMapper.readValue(peticion, ContentVideoUploadDTO.class));
+    }
+
+    /**
+     * Devuelve a la cola las subidas que quedaron a medias al parar la aplicación y lanza las pendientes.
+     * Supone una sola instancia: con varias, una reiniciada recogería trabajos en curso en otra.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void reanudar() {
+        long interrumpidos = trabajoRepository.reiniciarInterrumpidos();
+        if (interrumpidos > 0) {
+            logger.info("Subidas interrumpidas a medias devueltas a la cola: {}", interrumpidos);
+        }
+        relanzarPendientes();
+    }
+
+    /**
+     * Lanza las subidas en cola que no están en el ejecutor de esta instancia: las que no cupieron al reanudar
+     * siguen en la cola de MongoDB y se recogen en la siguiente pasada, cuando el ejecutor tenga sitio.
+     */
+    @Scheduled(fixedDelayString = "${content.upload.jobs-requeue-ms:60000}")
+    public void relanzarPendientes() {
+        List<String> pendientes = trabajoRepository.findIdsEnCola().stream()
+            .filter(id -> !enEjecutor.contains(id))
+            .toList();
+        int lanzados = 0;
+        for (String id : pendientes) {
+            if (!lanzar(id)) {
+                logger.warn("Cola de subidas llena: {} subidas quedan pendientes", pendientes.size() - lanzados);
+                break;
+            }
+            lanzados++;
+        }
+        if (lanzados > 0) {
+            logger.info("Subidas pendientes lanzadas: {}", lanzados);
+        }
+    }
+
+    /**
+     * Borra el estado de las subidas terminadas hace tiempo.
+     */
+    @Scheduled(fixedDelayString = "${content.upload.jobs-cleanup-ms:3600000}")
+    public void limpiarTerminados() {
+        long borrados = trabajoRepository.borrarTerminadosAntesDe(new Date(System.currentTimeMillis() - retencionMs));
+        if (borrados > 0) {
+            logger.info("Subidas terminadas eliminadas: {}", borrados);
+        }
+    }
+
+    private static void rechazarSiInvalido(String error) {
+        if (error != null) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, error);
+        }
+    }
+
+    private static TrabajoSubida nuevoTrabajo(TipoContenido tipo, String username) {
+        Date ahora = new Date();
+        TrabajoSubida trabajo = new TrabajoSubida();
+        trabajo.setId(UUID.randomUUID().toString());
+        trabajo.setTipo(tipo);
+        trabajo.setIdCreador(username);
+        trabajo.setEstado(EstadoSubida.EN_COLA);
+        trabajo.setFechaCreacion(ahora);
+        trabajo.setFechaActualizacion(ahora);
+        return trabajo;
+    }
+
+    private UploadJobDTO encolar(TrabajoSubida trabajo, Object peticion) {
+        try {
+            trabajo.setPeticionBlob(blobStore.guardar(objectMapper.writeValueAsBytes(peticion),
+                MediaType.APPLICATION_JSON_VALUE).getId());
+        }
+        catch (JsonProcessingException e) {
+            logger.error("No se pudo serializar la subida de {}: {}", trabajo.getIdCreador(), e.getMessage());
+            throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR, ERROR_INTERNO);
+        }
+        try {
+            trabajoRepository.guardar(trabajo);
+        }
+        catch (RuntimeException e) {
+            descartarPeticion(trabajo.getPeticionBlob());
+            throw e;
+        }
+        if (!lanzar(trabajo.getId())) {
+            trabajoRepository.deleteById(trabajo.getId());
+            descartarPeticion(trabajo.getPeticionBlob());
+            logger.warn("Cola de subidas llena, subida de {} rechazada", trabajo.getIdCreador());
+            throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE,
+                "Hay demasiadas subidas en proceso, inténtalo de nuevo en unos minutos");
+        }
+        logger.info("Subida {} de {} en cola", trabajo.getId(), trabajo.getIdCreador());
+        return UploadJobDTO.desde(trabajo);
+    }
+
+    /**
+     * Entrega un trabajo al ejecutor.
+     * @return false si la cola del ejecutor está llena
+     */
+    private boolean lanzar(String id) {
+        if (!enEjecutor.add(id)) {
+            return true;
+        }
+        try {
+            uploadExecutor.execute(() -> ejecutar(id));
+            return true;
+        }
+        catch (TaskRejectedException e) {
+            enEjecutor.remove(id);
+            return false;
+        }
+    }
+
+    private void descartarPeticion(String blobId) {
+        if (blobId == null) {
+            return;
+        }
+        try {
+            blobStore.eliminar(blobId);
+        }
+        catch (RuntimeException e) {
+            logger.warn("No se pudo borrar la petición de subida {}: {}", blobId, e.getMessage());
+        }
+    }
+}
@@ -4,29 +4,51 @@ import org.springframework.stereotype.Service;
 import org.springframework.web.server.ResponseStatusException;
 import org.springframework.http.HttpStatus;
 
+import com.esimedia.features.content.dto.ValoracionResumenDTO;
 import com.esimedia.features.content.entity.Contenido;
+import com.esimedia.features.content.entity.TrabajoRecalculo;
 import com.esimedia.features.content.entity.ValoracionContenido;
-import com.esimedia.features.content.repository.ContenidosAudioRepository;
-import com.esimedia.features.content.repository.ContenidosVideoRepository;
+import com.esimedia.features.content.repository.ContentRatingRepository;
+import com.esimedia.features.content.repository.RatingTotals;
 import com.esimedia.features.content.repository.ValoracionContenidoRepository;
 
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.stream.Collectors;
 
+/**
+ * Valoraciones de contenidos.
+ * La media, el número de valoraciones y el histograma se guardan agregados en el documento del contenido
+ * y se actualizan con un update atómico: cada valoración aplica solo su variación, sin releer las demás.
+ * Los contenidos anteriores a estos agregados se inicializan una única vez a partir de sus valoraciones.
+ */
 @Service
 public class ValoracionService {
-    
+
+    // Cubetas de 0.5 entre 0.0 y 5.0
+    static final int NUM_CUBETAS = 11;
+
     private final ValoracionContenidoRepository valoracionRepository;
-    private final ContenidosAudioRepository audioRepository;
-    private final ContenidosVideoRepository videoRepository;
-    
+    private final ContentRatingRepository ratingRepository;
+    private final RatingRecomputeService recomputeService;
+    private final ContentTypeRegistry contentTypeRegistry;
+    private final LeaderboardService leaderboardService;
+
     public ValoracionService(ValoracionContenidoRepository valoracionRepository,
-                           ContenidosAudioRepository audioRepository,
-                           ContenidosVideoRepository videoRepository) {
+                           ContentRatingRepository ratingRepository,
+                           RatingRecomputeService recomputeService,
+                           ContentTypeRegistry contentTypeRegistry,
+                           LeaderboardService leaderboardService) {
         this.valoracionRepository = valoracionRepository;
-        this.audioRepository = audioRepository;
-        this.videoRepository = videoRepository;
+        this.ratingRepository = ratingRepository;
+        this.recomputeService = recomputeService;
+        this.contentTypeRegistry = contentTypeRegistry;
+        this.leaderboardService = leaderboardService;
     }
-    
+
     public void valorarContenido(String idContenido, String idUsuario, double valoracion) {
         if (valoracion < 0 || valoracion > 5) {
             throw new ResponseStatusException(
@@ -42,87 +64,144 @@ public class ValoracionService {
             );
         }
 
-        Contenido contenido = audioRepository.findById(idContenido).orElse(null);
-        if (contenido == null) {
-            contenido = videoRepository.findById(idContenido).orElse(null);
-        }
+        Contenido contenido = cargarAgregados(idContenido);
         if (contenido == null) {
             throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Contenido no encontrado");
         }
+        // Se inicializa antes de guardar la valoración para que esta se cuente solo con el $inc
+        inicializarSiFalta(contenido);
 
+        // El valor anterior sale de la misma operación que guarda el nuevo: dos revaloraciones simultáneas
+        // del mismo usuario no pueden descontar las dos el mismo valor
+        Double anterior = ratingRepository.cambiarValoracion(idContenido, idUsuario, valoracion);
 
-        ValoracionContenido existingValoracion =
-            valoracionRepository.findByIdContenidoAndIdUsuario(idContenido, idUsuario);
+        aplicarCambio(contenido, anterior, valoracion);
+    }
 
-        if (existingValoracion != null) {
-            
-            existingValoracion.setValoracion(valoracion);
-            existingValoracion.setFechaValoracion(new java.util.Date());
-            valoracionRepository.save(existingValoracion);
-        } else {
-            
-            ValoracionContenido nuevaValoracion =
-                new ValoracionContenido(idContenido, idUsuario, valoracion);
-            valoracionRepository.save(nuevaValoracion);
-        }
 
-        actualizarValoracionMedia(idContenido);
+    public double getValoracionMedia(String idContenido) {
+        Contenido contenido = cargarAgregados(idContenido);
+        return contenido != null ? contenido.getValoracionMedia() : 0.0;
     }
 
-    
-    private void actualizarValoracionMedia(String idContenido) {
-        List<ValoracionContenido> valoraciones = valoracionRepository.findByIdContenido(idContenido);
-
-        double media = valoraciones.stream()
-            .mapToDouble(ValoracionContenido::getValoracion)  
-            .average()
-            .orElse(0.0);
-
-        
-        Contenido contenido = audioRepository.findById(idContenido).orElse(null);
-        if (contenido != null) {
-            contenido.setValoracionMedia(media);
-            audioRepository.save((com.esimedia.features.content.entity.ContenidosAudio) contenido);
-        } else {
-            contenido = videoRepository.findById(idContenido).orElse(null);
-            if (contenido != null) {
-                contenido.setValoracionMedia(media);
-                videoRepository.save((com.esimedia.features.content.entity.ContenidosVideo) contenido);
-            }
+    /**
+     * Media, número de valoraciones e histograma de un contenido, leídos de los agregados del documento.
+     */
+    public ValoracionResumenDTO getResumenValoraciones(String idContenido) {
+        Contenido contenido = cargarAgregados(idContenido);
+        if (contenido == null) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Contenido no encontrado");
         }
-    }
+        inicializarSiFalta(contenido);
 
-    
-    public double getValoracionMedia(String idContenido) {
-        Contenido contenido = audioRepository.findById(idContenido).orElse(null);
-        if (contenido == null) {
-            contenido = videoRepository.findById(idContenido).orElse(null);
+        List<Long> histograma = new ArrayList<>();
+        for (int cubeta = 0; cubeta < NUM_CUBETAS; cubeta++) {
+            histograma.add(contenido.getHistogramaValoraciones().getOrDefault(String.valueOf(cubeta), 0L));
         }
-        return contenido != null ? contenido.getValoracionMedia() : 0.0;
+        long num = contenido.getNumValoraciones();
+        return new ValoracionResumenDTO(ContentRatingRepository.media(contenido.getSumaValoraciones(), num), num, histograma);
     }
 
-    
+
     /**
      * Elimina todas las valoraciones de un usuario y actualiza las valoraciones medias
-     * de todos los contenidos afectados.
+     * de todos los contenidos afectados. El trabajo se hace en segundo plano con una agregación
+     * y un bulk por colección; el estado se puede consultar con el trabajo devuelto.
      * @param idUsuario ID del usuario cuyas valoraciones se eliminarán
+     * @return Trabajo de recálculo programado
+     */
+    public RatingRecomputeJob eliminarValoracionesDeUsuario(String idUsuario) {
+        return recomputeService.programarBorradoUsuario(idUsuario);
+    }
+
+    /**
+     * Estado de un recálculo programado con {@link #eliminarValoracionesDeUsuario}.
+     * @param id ID del trabajo devuelto al programarlo
+     * @return Estado guardado o vacío si no existe o ya caducó
      */
-    public void eliminarValoracionesDeUsuario(String idUsuario) {
-        // Obtener todas las valoraciones del usuario antes de eliminarlas
-        List<ValoracionContenido> valoracionesUsuario = valoracionRepository.findByIdUsuario(idUsuario);
-        
-        // Obtener los IDs de contenidos únicos que tienen valoraciones de este usuario
-        List<String> contenidosAfectados = valoracionesUsuario.stream()
-            .map(ValoracionContenido::getIdContenido)
-            .distinct()
+    public Optional<TrabajoRecalculo> getRecalculo(String id) {
+        return recomputeService.getTrabajo(id);
+    }
+
+    /**
+     * Aplica a los agregados del contenido el paso de una valoración de "anterior" a "nueva".
+     * Un valor null indica que la valoración no existía (alta) o deja de existir (baja).
+     */
+    private void aplicarCambio(Contenido contenido, Double anterior, Double nueva) {
+        RatingTotals variacion = new RatingTotals(contenido.getId());
+        if (anterior != null) {
+            variacion.add(anterior, -1);
+        }
+        if (nueva != null) {
+            variacion.add(nueva, 1);
+        }
+        variacion.getCubetas().values().removeIf(delta -> delta == 0);
+        if (variacion.getNum() == 0 && variacion.getCubetas().isEmpty()) {
+            // Misma valoración que antes: los agregados no cambian
+            return;
+        }
+        Contenido actualizado = ratingRepository.aplicar(contenido.getClass(), variacion);
+        if (actualizado == null) {
+            // El contenido se borró mientras tanto
+            return;
+        }
+        double suma = actualizado.getSumaValoraciones();
+        long num = actualizado.getNumValoraciones();
+        if (nueva != null) {
+            leaderboardService.registrarValoracion(contenido.getClass(), contenido.getId(), nueva, suma, num);
+        }
+        else {
+            // La baja no es actividad para la tendencia, pero sí cambia la media
+            leaderboardService.actualizarValoraciones(contenido.getClass(), contenido.getId(), suma, num);
+        }
+    }
+
+    /**
+     * Calcula los agregados a partir de las valoraciones guardadas si el contenido aún no los tiene.
+     * Es la única lectura completa de valoraciones y se hace una sola vez por contenido.
+     */
+    private void inicializarSiFalta(Contenido contenido) {
+        if (contenido.getNumValoraciones() != null) {
+            return;
+        }
+        List<Double> valores = valoracionRepository.findByIdContenido(contenido.getId()).stream()
+            .map(ValoracionContenido::getValoracion)
+            .filter(valor -> valor != null)
             .toList();
-        
-        // Eliminar todas las valoraciones del usuario
-        valoracionRepository.deleteByIdUsuario(idUsuario);
-        
-        // Actualizar la valoración media de cada contenido afectado
-        for (String idContenido : contenidosAfectados) {
-            actualizarValoracionMedia(idContenido);
+        double suma = valores.stream().mapToDouble(Double::doubleValue).sum();
+        Map<String, Long> histograma = valores.stream()
+            .collect(Collectors.groupingBy(valor -> String.valueOf(cubeta(valor)), Collectors.counting()));
+
+        if (!ratingRepository.inicializar(contenido.getClass(), contenido.getId(), suma, valores.size(), histograma)) {
+            // Otra petición los inicializó antes: se releen para trabajar sobre su estado
+            Contenido actual = ratingRepository.findAgregados(contenido.getClass(), contenido.getId());
+            if (actual != null && actual.getNumValoraciones() != null) {
+                suma = actual.getSumaValoraciones();
+                histograma = actual.getHistogramaValoraciones();
+                contenido.setValoracionMedia(actual.getValoracionMedia());
+                contenido.setSumaValoraciones(suma);
+                contenido.setNumValoraciones(actual.getNumValoraciones());
+                contenido.setHistogramaValoraciones(histograma != null ? histograma : new HashMap<>());
+                return;
+            }
         }
+        contenido.setSumaValoraciones(suma);
+        contenido.setNumValoraciones((long) valores.size());
+        contenido.setHistogramaValoraciones(histograma);
+        contenido.setValoracionMedia(ContentRatingRepository.media(suma, valores.size()));
+    }
+
+    /**
+     * Agregados de un contenido, consultando solo la colección que indica el registro de tipos.
+     * @return El contenido o null si no existe
+     */
+    private Contenido cargarAgregados(String idContenido) {
+        return contentTypeRegistry.tipoDe(idContenido)
+            .map(tipo -> ratingRepository.findAgregados(ContentTypeRegistry.claseDe(tipo), idContenido))
+            .orElse(null);
+    }
+
+    private static int cubeta(double valoracion) {
+        return RatingTotals.cubeta(valoracion);
     }
-}
\ No newline at end of file
+}
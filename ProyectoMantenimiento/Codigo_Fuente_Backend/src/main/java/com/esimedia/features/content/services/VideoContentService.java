@@ -5,6 +5,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Service;
 import org.springframework.http.HttpStatus;
+import org.springframework.data.mongodb.core.query.Update;
 import org.springframework.web.server.ResponseStatusException;
 
 import com.esimedia.features.content.enums.Resolucion;
@@ -25,16 +26,19 @@ import com.esimedia.features.content.dto.ContentUpdateDTO;
 import com.esimedia.features.content.dto.ContentVideoUploadDTO;
 import com.esimedia.features.content.entity.ContenidoVideoTag;
 import com.esimedia.features.content.entity.ContenidosVideo;
-import com.esimedia.features.content.entity.Tags;
 import com.esimedia.features.content.entity.ValoracionContenido;
+import com.esimedia.features.content.repository.CatalogFilter;
 import com.esimedia.features.content.repository.ContenidoVideoTagRepository;
 import com.esimedia.features.content.repository.ContenidosVideoRepository;
-import com.esimedia.features.content.repository.TagsRepository;
+import com.esimedia.features.content.repository.ContentCatalogRepository;
 import com.esimedia.features.content.repository.ValoracionContenidoRepository;
+import com.esimedia.features.content.repository.ContentVersionRepository;
+import com.esimedia.features.content.storage.BlobStore;
 import com.esimedia.features.notifications.services.NotificationService;
 
 
 import java.util.List;
+import java.util.Map;
 import java.util.Date;
 
 @Service
@@ -50,60 +54,87 @@ public class VideoContentService {
     private final ContentAuthorizationService contentAuthorizationService;
     private final ContenidosVideoRepository contenidoVideoRepository;
     private final ContenidoVideoTagRepository contenidoVideoTagRepository;
-    private final TagsRepository tagsRepository;
     private final CreadorContenidoRepository creadorContenidoRepository;
     private final ValoracionContenidoRepository valoracionRepository;
     private final UsuarioNormalRepository usuarioNormalRepository;
     private final ContentTagProcessor tagProcessor;
     private final NotificationService notificationService;
-
+    private final ContentBatchLoader batchLoader;
+    private final ContentCatalogRepository catalogRepository;
+    private final BlobStore blobStore;
+    private final ThumbnailService thumbnailService;
+    private final ViewCounterService viewCounterService;
+    private final ContentTypeRegistry contentTypeRegistry;
+    private final ContentTagIndex tagIndex;
+    private final ContentSimilarityIndex similarityIndex;
+    private final LeaderboardService leaderboardService;
+    private final ContentVersionRepository versionRepository;
+    private final ContentMediaUrls mediaUrls;
 
     public VideoContentService(
         ValidationService validationService,
         ContenidosVideoRepository contenidoVideoRepository,
         ContenidoVideoTagRepository contenidoVideoTagRepository,
-        TagsRepository tagRepository,
+        TagDictionary tagDictionary,
         JwtValidationUtil jwtValidationService,
         ContentAuthorizationService contentAuthorizationService,
         CreadorContenidoRepository creadorContenidoRepository,
         ValoracionContenidoRepository valoracionRepository,
         UsuarioNormalRepository usuarioNormalRepository,
-        NotificationService notificationService
+        NotificationService notificationService,
+        ContentBatchLoader batchLoader,
+        ContentCatalogRepository catalogRepository,
+        BlobStore blobStore,
+        ThumbnailService thumbnailService,
+        ViewCounterService viewCounterService,
+        ContentTypeRegistry contentTypeRegistry,
+        ContentTagIndex tagIndex,
+        ContentSimilarityIndex similarityIndex,
+        LeaderboardService leaderboardService,
+        ContentVersionRepository versionRepository,
+        ContentMediaUrls mediaUrls
     ) {
         this.validationService = validationService;
         this.contenidoVideoRepository = contenidoVideoRepository;
         this.contenidoVideoTagRepository = contenidoVideoTagRepository;
-        this.tagsRepository = tagRepository;
         this.jwtValidationService = jwtValidationService;
         this.contentAuthorizationService = contentAuthorizationService;
         this.creadorContenidoRepository = creadorContenidoRepository;
         this.valoracionRepository = valoracionRepository;
         this.usuarioNormalRepository = usuarioNormalRepository;
         this.notificationService = notificationService;
-        this.tagProcessor = new ContentTagProcessor(tagRepository, (contenidoId, tagId) -> {
+        this.batchLoader = batchLoader;
+        this.catalogRepository = catalogRepository;
+        this.blobStore = blobStore;
+        this.thumbnailService = thumbnailService;
+        this.viewCounterService = viewCounterService;
+        this.contentTypeRegistry = contentTypeRegistry;
+        this.tagIndex = tagIndex;
+        this.similarityIndex = similarityIndex;
+        this.leaderboardService = leaderboardService;
+        this.versionRepository = versionRepository;
+        this.mediaUrls = mediaUrls;
+        this.tagProcessor = new ContentTagProcessor(tagDictionary, (contenidoId, tagId) -> {
             ContenidoVideoTag videoTag = new ContenidoVideoTag();
             videoTag.setIdContenido(contenidoId);
             videoTag.setIdTag(tagId);
             return videoTag;
-        });
+        }, tagIndex, similarityIndex, TipoContenido.VIDEO);
     }
 
-    public String uploadVideoContent(String authHeader, ContentVideoUploadDTO videoDTO) {
-        try {
-            // Validar autorización usando servicio centralizado
-            String username = jwtValidationService.validateContentUpload(authHeader, TipoContenido.VIDEO);
-            
-            String validationResult = validationService.validateVideoContent(videoDTO);
-            if (validationResult != null) {
-                return validationResult; 
-            }
-            return processVideoContent(username, videoDTO);
-        } 
-        catch (Exception e) {
-            logger.error("Error procesando contenido de video: {}", e.getMessage());
-            return ERROR_INTERNO_SERVIDOR;
+    /**
+     * Valida y guarda un vídeo de un creador ya autenticado. Lo llama el trabajo de subida en segundo plano,
+     * que valida el token al aceptar la petición.
+     */
+    public String uploadVideoContentAs(String username, ContentVideoUploadDTO videoDTO) {
+        String validationResult = validationService.validateVideoContent(videoDTO);
+        if (validationResult != null) {
+            return validationResult; 
         }
-    }    private String processVideoContent(String userId, ContentVideoUploadDTO videoDTO) {
+        return processVideoContent(username, videoDTO);
+    }
+
+    private String processVideoContent(String userId, ContentVideoUploadDTO videoDTO) {
         try {
             String validationError = validateVideoProcessingInputs(videoDTO);
             if (validationError != null) {
@@ -165,22 +196,36 @@ public class VideoContentService {
             .esVIP(Boolean.TRUE.equals(videoDTO.getEsVIP()))
             .fechaSubida(Date.from(Instant.now()))
             .fechaDisponibleHasta(ContentProcessingUtil.parseFechaExpiracion(videoDTO.getFechaExpiracion()))
-            .miniatura(imagenArchivo)
             .formatoMiniatura(formatoImagen)
             .restriccionEdad(videoDTO.getRestriccionEdad() != null ? 
                 getRestriccionEdadFromValue(videoDTO.getRestriccionEdad()) : null)
             .visibilidad(visible)
+            .tags(ContentTagProcessor.normalizarNombres(videoDTO.getTags()))
             .build();
         
         // Validar reglas de negocio
         contenidoVideo.validar();
-        
-        // Guardar contenido
-        ContenidosVideo savedContent = contenidoVideoRepository.save(contenidoVideo);
+
+        // La miniatura se guarda en GridFS; el documento solo guarda la referencia.
+        // Si el documento no se llega a guardar se eliminan los blobs ya escritos.
+        ContenidosVideo savedContent;
+        try {
+            if (imagenArchivo != null) {
+                contenidoVideo.setMiniaturaBlob(blobStore.guardar(imagenArchivo, formatoImagen));
+                contenidoVideo.setMiniaturasDerivadas(thumbnailService.generarDerivados(imagenArchivo));
+            }
+            ContentVersionRepository.versionar(contenidoVideo, versionRepository.avanzar());
+            savedContent = contenidoVideoRepository.save(contenidoVideo);
+        }
+        catch (RuntimeException e) {
+            blobStore.descartarBlobs(contenidoVideo, e);
+            throw e;
+        }
+        contentTypeRegistry.registrar(savedContent.getId(), TipoContenido.VIDEO);
         
         // Procesar tags
         tagProcessor.processContentTags(savedContent.getId(), videoDTO.getTags(), 
-            relation -> contenidoVideoTagRepository.save((ContenidoVideoTag) relation));
+            relaciones -> contenidoVideoTagRepository.insert(relaciones.stream().map(ContenidoVideoTag.class::cast).toList()));
         // Crear notificaciones para nuevos contenidos
         notificationService.createNotificationsForNewContent(savedContent);
 
@@ -255,13 +300,11 @@ public class VideoContentService {
         Integer userAge = getUserAge(username, userRole);
         logger.debug("Usuario NORMAL encontrado: {}, edad calculada: {}", userRole == Rol.NORMAL, userAge);
         
-        List<ContenidosVideo> videos = contenidoVideoRepository.findAll();
-        // Actualizar visibilidad si expirado
-        updateExpiredVideos(videos);
-        return videos.stream()
-            .filter(video -> isVideoAccessible(video, userRole, userAge))
-            .map(video -> mapVideoToDTO(video, username))
-            .toList();
+        // Solo metadatos: la miniatura se sirve desde su endpoint binario.
+        // Visibilidad, caducidad y edad se filtran en MongoDB
+        List<ContenidosVideo> accesibles = catalogRepository.findAllVisible(ContenidosVideo.class,
+            CatalogFilter.forUser(userRole, userAge));
+        return mapVideosToDTO(accesibles, username);
     }
 
     private Integer getUserAge(String username, Rol userRole) {
@@ -270,23 +313,20 @@ public class VideoContentService {
         return (user != null && user.getFechaNacimiento() != null) ? validationService.calculateAge(user.getFechaNacimiento()) : null;
     }
 
-    private void updateExpiredVideos(List<ContenidosVideo> videos) {
-        videos.forEach(video -> {
-            if (video.getFechaDisponibleHasta() != null && video.getFechaDisponibleHasta().before(new Date())) {
-                video.setVisibilidad(false);
-                contenidoVideoRepository.save(video);
-            }
-        });
-    }
+    /**
+     * Convierte una lista de videos en DTOs cargando tags y valoraciones del usuario en bloque.
+     */
+    List<ContentVideoUploadDTO> mapVideosToDTO(List<ContenidosVideo> videos, String username) {
+        List<String> ids = videos.stream().map(ContenidosVideo::getId).toList();
+        Map<String, Double> valoraciones = batchLoader.cargarValoracionesUsuario(username, ids);
+        Map<String, List<String>> tags = ContentBatchLoader.resolverTags(videos, batchLoader::cargarTagsVideos);
 
-    private boolean isVideoAccessible(ContenidosVideo video, Rol userRole, Integer userAge) {
-        if (userRole != Rol.NORMAL) return true;
-        if (!video.isVisibilidad()) return false;
-        if (video.getRestriccionEdad() != null && userAge != null && userAge < video.getRestriccionEdad().getValor()) return false;
-        return true;
+        return videos.stream()
+            .map(video -> mapVideoToDTO(video, valoraciones.get(video.getId()), tags.getOrDefault(video.getId(), List.of())))
+            .toList();
     }
 
-    private ContentVideoUploadDTO mapVideoToDTO(ContenidosVideo video, String username) {
+    private ContentVideoUploadDTO mapVideoToDTO(ContenidosVideo video, Double valoracionUsuario, List<String> tagNames) {
         ContentVideoUploadDTO dto = new ContentVideoUploadDTO();
         dto.setId(video.getId());
         dto.setTitulo(video.getTitulo());
@@ -300,9 +340,7 @@ public class VideoContentService {
         dto.setValoracionMedia(video.getValoracionMedia());
         dto.setVisualizaciones(video.getVisualizaciones());
 
-        // Obtener valoración del usuario
-        ValoracionContenido userRating = valoracionRepository.findByIdContenidoAndIdUsuario(video.getId(), username);
-        dto.setValoracionUsuario(userRating != null ? userRating.getValoracion() : null);
+        dto.setValoracionUsuario(valoracionUsuario);
 
         // Formatear fechas en formato yyyy-MM-dd (consistente con fecha de expiración)
         if (video.getFechaSubida() != null) {
@@ -317,24 +355,17 @@ public class VideoContentService {
             dto.setFechaExpiracion(ContentProcessingUtil.formatDate(video.getFechaDisponibleHasta()));
         }
 
-        // Obtener tags del contenido
-        List<ContenidoVideoTag> videoTags = contenidoVideoTagRepository.findByIdContenido(video.getId());
-        List<String> tagIds = videoTags.stream()
-            .map(ContenidoVideoTag::getIdTag)
-            .toList();
-        
-        List<Tags> tags = tagsRepository.findByIdTagIn(tagIds);
-        List<String> tagNames = tags.stream()
-            .map(Tags::getNombre)
-            .toList();
         dto.setTags(tagNames);
 
-        // Convertir miniatura binaria a data URI
+        // Convertir miniatura binaria a data URI (solo si se cargó con el documento completo)
         String miniaturaDataUri = ContentUtil.createDataUri(video.getMiniatura(), video.getFormatoMiniatura());
         dto.setMiniatura(miniaturaDataUri);
         dto.setFormatoMiniatura(video.getFormatoMiniatura());
+        dto.setMiniaturaUrl(mediaUrls.miniatura(video.getId(), video.getFormatoMiniatura()));
+        dto.setMiniaturas(mediaUrls.miniaturasDerivadas(video.getId(), video.getMiniaturasDerivadas()));
         
-        dto.setVisibilidad(video.isVisibilidad());
+        // Un contenido caducado se muestra oculto aunque el barrido aún no lo haya persistido
+        dto.setVisibilidad(video.isVisibilidad() && !ContentProcessingUtil.isCaducado(video.getFechaDisponibleHasta()));
 
         return dto;
     }
@@ -352,52 +383,11 @@ public class VideoContentService {
         if (video == null) {
             return null;
         }
-
-        ContentVideoUploadDTO dto = new ContentVideoUploadDTO();
-        dto.setId(video.getId());
-        dto.setTitulo(video.getTitulo());
-        dto.setDescripcion(video.getDescripcion());
-        dto.setRestriccionEdad(video.getRestriccionEdad() != null ? video.getRestriccionEdad().getValor() : null);
-        dto.setDuracion(video.getDuracion());
-        dto.setUrlArchivo(video.getUrlArchivo());
-        dto.setResolucion(video.getResolucion().toString());
-        dto.setEsVIP(video.isEsVIP());
-        dto.setEspecialidad(video.getEspecialidad());
-        dto.setValoracionMedia(video.getValoracionMedia());
-        dto.setVisualizaciones(video.getVisualizaciones());
-
-        // Obtener valoración del usuario
-        ValoracionContenido userRating = valoracionRepository.findByIdContenidoAndIdUsuario(id, username);
-        dto.setValoracionUsuario(userRating != null ? userRating.getValoracion() : null);
-
-        // Formatear fechas en formato yyyy-MM-dd (consistente con fecha de expiración)
-        dto.setFechaSubida(ContentProcessingUtil.formatDate(video.getFechaSubida()));
-
-        if (video.getFechaDisponibleHasta() != null) {
-            dto.setFechaExpiracion(ContentProcessingUtil.formatDate(video.getFechaDisponibleHasta()));
+        // Compatibilidad con el data URI de este endpoint para miniaturas ya movidas a GridFS
+        if (video.getMiniatura() == null && video.getMiniaturaBlob() != null) {
+            video.setMiniatura(blobStore.leer(video.getMiniaturaBlob().getId()));
         }
-
-        // Obtener tags del contenido
-        List<ContenidoVideoTag> videoTags = contenidoVideoTagRepository.findByIdContenido(id);
-
-        // Extraer los IDs de las tags
-        List<String> tagIds = videoTags.stream()
-            .map(ContenidoVideoTag::getIdTag)
-            .toList();
-        
-        // Buscar las tags por sus IDs y extraer los nombres
-        List<Tags> tags = tagsRepository.findByIdTagIn(tagIds);
-        List<String> tagNames = tags.stream()
-            .map(Tags::getNombre)
-            .toList();
-        dto.setTags(tagNames);
-
-        // Convertir miniatura binaria a data URI
-        String miniaturaDataUri = ContentUtil.createDataUri(video.getMiniatura(), video.getFormatoMiniatura());
-        dto.setMiniatura(miniaturaDataUri);
-        dto.setFormatoMiniatura(video.getFormatoMiniatura());
-        
-        return dto;
+        return mapVideosToDTO(List.of(video), username).get(0);
     }
 
     /**
@@ -430,42 +420,49 @@ public class VideoContentService {
                 return validationResult;
             }
 
-            // Actualizar campos
+            // Actualizar campos (solo los editados, con $set)
+            Update update = new Update();
             if (updateDTO.getTitulo() != null) {
-                existingContent.setTitulo(updateDTO.getTitulo());
+                update.set(ContentCatalogRepository.TITULO, updateDTO.getTitulo());
             }
             if (updateDTO.getDescripcion() != null) {
-                existingContent.setDescripcion(updateDTO.getDescripcion());
+                update.set(ContentCatalogRepository.DESCRIPCION, updateDTO.getDescripcion());
             }
             if (updateDTO.getEsVIP() != null) {
-                existingContent.setEsVIP(updateDTO.getEsVIP());
+                update.set(ContentCatalogRepository.ES_VIP, updateDTO.getEsVIP());
             }
             // Si se cambia flagVip a false y la resolución era 4K, cambiarla a 1080 por defecto
             if (updateDTO.getEsVIP() != null && !updateDTO.getEsVIP() && existingContent.getResolucion() == Resolucion.UHD_2160) {
-                existingContent.setResolucion(Resolucion.FHD_1080);
+                update.set(ContentCatalogRepository.RESOLUCION, Resolucion.FHD_1080);
             }
             if (updateDTO.getVisibilidad() != null) {
-                existingContent.setVisibilidad(updateDTO.getVisibilidad());
+                update.set(ContentCatalogRepository.VISIBILIDAD, updateDTO.getVisibilidad());
             }
             if (updateDTO.getFechaExpiracion() != null) {
-                existingContent.setFechaDisponibleHasta(ContentProcessingUtil.parseFechaExpiracion(updateDTO.getFechaExpiracion()));
+                update.set(ContentCatalogRepository.FECHA_DISPONIBLE_HASTA,
+                    ContentProcessingUtil.parseFechaExpiracion(updateDTO.getFechaExpiracion()));
             }
             if (updateDTO.getRestriccionEdad() != null) {
-                existingContent.setRestriccionEdad(getRestriccionEdadFromValue(updateDTO.getRestriccionEdad()));
+                update.set(ContentCatalogRepository.RESTRICCION_EDAD, getRestriccionEdadFromValue(updateDTO.getRestriccionEdad()));
             }
 
             // Actualizar tags
-            tagProcessor.updateContentTags(
+            // Los nombres se desnormalizan en el documento para leerlos sin pasar por las relaciones
+            update.set(ContentCatalogRepository.TAGS, tagProcessor.updateContentTags(
                 contentId,
                 updateDTO.getTags(),
                 () -> contenidoVideoTagRepository.findByIdContenido(contentId)
                          .stream().map(ContenidoVideoTag::getIdTag).toList(),
-                tagId -> contenidoVideoTagRepository.deleteByIdContenidoAndIdTag(contentId, tagId),
-                relation -> contenidoVideoTagRepository.save((ContenidoVideoTag) relation)
-            );
-
-            // Guardar cambios
-            contenidoVideoRepository.save(existingContent);
+                tagIds -> contenidoVideoTagRepository.deleteByIdContenidoAndIdTagIn(contentId, tagIds),
+                relaciones -> contenidoVideoTagRepository.insert(relaciones.stream().map(ContenidoVideoTag.class::cast).toList())
+            ));
+
+            // Guardar cambios: un save del documento completo pisaría las visualizaciones y valoraciones
+            // que se incrementen con $inc mientras tanto
+            ContentVersionRepository.versionar(update, versionRepository.avanzar());
+            if (!catalogRepository.actualizar(ContenidosVideo.class, contentId, update)) {
+                throw new ResponseStatusException(HttpStatus.NOT_FOUND, CONTENIDO_VIDEO_NO_ENCONTRADO);
+            }
 
             logger.info("Contenido de video {} actualizado exitosamente por {}", contentId, username);
             return "SUCCESS:Contenido de video actualizado exitosamente";
@@ -482,11 +479,12 @@ public class VideoContentService {
 
     public void incrementarVisualizaciones(String contentId) {
         try {
-            ContenidosVideo content = contenidoVideoRepository.findById(contentId).orElseThrow(() -> 
-                new ResponseStatusException(HttpStatus.NOT_FOUND, CONTENIDO_VIDEO_NO_ENCONTRADO));
-            content.setVisualizaciones(content.getVisualizaciones() + 1);
-            contenidoVideoRepository.save(content);
-            logger.info("Visualizaciones incrementadas para video {}", contentId);
+            if (!contenidoVideoRepository.existsById(contentId)) {
+                throw new ResponseStatusException(HttpStatus.NOT_FOUND, CONTENIDO_VIDEO_NO_ENCONTRADO);
+            }
+            // El incremento se acumula en memoria y se escribe con $inc en el siguiente volcado
+            viewCounterService.registrar(ContenidosVideo.class, contentId);
+            logger.debug("Visualización registrada para video {}", contentId);
         } 
         catch (Exception e) {
             logger.error("Error incrementando visualizaciones para video {}: {}", contentId, e.getMessage());
@@ -505,7 +503,7 @@ public class VideoContentService {
             contentAuthorizationService.validateContentDeletion(authHeader, contentId);
             
             // Verificar que el contenido existe (lanzar NOT_FOUND si no existe)
-            contenidoVideoRepository.findById(contentId).orElseThrow(() -> 
+            ContenidosVideo video = contenidoVideoRepository.findById(contentId).orElseThrow(() -> 
                 new ResponseStatusException(HttpStatus.NOT_FOUND, CONTENIDO_VIDEO_NO_ENCONTRADO));
             
             // Eliminar relaciones con tags
@@ -515,8 +513,14 @@ public class VideoContentService {
             List<ValoracionContenido> valoraciones = valoracionRepository.findByIdContenido(contentId);
             valoracionRepository.deleteAll(valoraciones);
             
-            // Eliminar el contenido
+            // Eliminar el contenido y su miniatura en GridFS
             contenidoVideoRepository.deleteById(contentId);
+            versionRepository.avanzar();
+            contentTypeRegistry.eliminar(contentId);
+            tagIndex.eliminar(contentId);
+            similarityIndex.eliminar(contentId);
+            leaderboardService.eliminar(contentId);
+            blobStore.eliminarBlobs(video);
             
             logger.info("Contenido de video {} eliminado exitosamente", contentId);
         } 
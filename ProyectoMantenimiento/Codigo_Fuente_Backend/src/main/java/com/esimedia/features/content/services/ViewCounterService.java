@@ -0,0 +1,162 @@
+package com.esimedia.features.content.services;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.mongodb.BulkOperationException;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.data.mongodb.core.query.UpdateDefinition;
+import org.springframework.data.util.Pair;
+import org.springframework.jmx.export.annotation.ManagedAttribute;
+import org.springframework.jmx.export.annotation.ManagedResource;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import com.esimedia.features.content.entity.Contenido;
+import com.esimedia.features.content.entity.ContenidosAudio;
+import com.esimedia.features.content.entity.ContenidosVideo;
+import com.esimedia.features.content.repository.ContentVersionRepository;
+
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Contadores de visualizaciones con escritura diferida.
+ * Cada reproducción solo incrementa un LongAdder en memoria (sin tocar la base de datos) y
+ * periódicamente los incrementos acumulados se vuelcan con un único bulk de $inc por colección.
+ * El $inc es atómico en MongoDB, así que no se pierden visualizaciones entre instancias.
+ * Los contadores no se retiran al quedar a cero: un registro concurrente podría incrementar un
+ * LongAdder ya retirado y perderse. Hay como mucho uno por contenido visto, así que la memoria
+ * está acotada por el tamaño del catálogo. Al parar la aplicación se hace un último volcado.
+ */
+@Service
+@ManagedResource(objectName = "com.esimedia:type=ViewCounter", description = "Contadores de visualizaciones")
+public class ViewCounterService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ViewCounterService.class);
+    private static final String ID = "_id";
+    private static final String VISUALIZACIONES = "visualizaciones";
+
+    private final MongoTemplate mongoTemplate;
+    private final LeaderboardService leaderboardService;
+    private final ContentVersionRepository versionRepository;
+
+    private final Map<Class<? extends Contenido>, ConcurrentHashMap<String, LongAdder>> pendientes = Map.of(
+        ContenidosAudio.class, new ConcurrentHashMap<>(),
+        ContenidosVideo.class, new ConcurrentHashMap<>()
+    );
+
+    public ViewCounterService(MongoTemplate mongoTemplate, LeaderboardService leaderboardService,
+                              ContentVersionRepository versionRepository) {
+        this.mongoTemplate = mongoTemplate;
+        this.leaderboardService = leaderboardService;
+        this.versionRepository = versionRepository;
+    }
+
+    /**
+     * Registra una visualización. No bloquea ni accede a la base de datos.
+     * @param tipo Clase del contenido (audio o video)
+     * @param contentId ID del contenido
+     */
+    public void registrar(Class<? extends Contenido> tipo, String contentId) {
+        contadores(tipo).computeIfAbsent(contentId, id -> new LongAdder()).increment();
+        leaderboardService.registrarVisualizacion(tipo, contentId);
+    }
+
+    /**
+     * Visualizaciones registradas que todavía no se han escrito en la base de datos.
+     */
+    @ManagedAttribute(description = "Visualizaciones pendientes de volcar")
+    public long getPendientes() {
+        return pendientes.values().stream()
+            .flatMap(contadores -> contadores.values().stream())
+            .mapToLong(LongAdder::sum)
+            .sum();
+    }
+
+    @Scheduled(fixedDelayString = "${content.view-counter.flush-ms:5000}")
+    public void volcarPeriodico() {
+        volcar();
+    }
+
+    @PreDestroy
+    public void volcarAlParar() {
+        long escritos = volcar();
+        logger.info("Volcado final de visualizaciones al parar: {}", escritos);
+    }
+
+    /**
+     * Escribe los incrementos acumulados con un bulk de $inc por colección.
+     * Si la escritura falla, los incrementos se devuelven a los contadores para el siguiente volcado.
+     * @return Número de visualizaciones escritas
+     */
+    public synchronized long volcar() {
+        long total = 0;
+        for (Map.Entry<Class<? extends Contenido>, ConcurrentHashMap<String, LongAdder>> entrada : pendientes.entrySet()) {
+            total += volcar(entrada.getKey(), entrada.getValue());
+        }
+        return total;
+    }
+
+    private long volcar(Class<? extends Contenido> tipo, ConcurrentHashMap<String, LongAdder> contadores) {
+        List<Pair<String, Long>> deltas = new ArrayList<>();
+        contadores.forEach((id, contador) -> {
+            // sumThenReset no pierde incrementos concurrentes: lo que llegue después queda para el siguiente volcado
+            long delta = contador.sumThenReset();
+            if (delta > 0) {
+                deltas.add(Pair.of(id, delta));
+            }
+        });
+        if (deltas.isEmpty()) {
+            return 0;
+        }
+
+        try {
+            // Una versión del catálogo por volcado, no por visualización
+            ContentVersionRepository.Version version = versionRepository.avanzar();
+            List<Pair<Query, UpdateDefinition>> updates = deltas.stream()
+                .map(delta -> Pair.<Query, UpdateDefinition>of(
+                    new Query(Criteria.where(ID).is(delta.getFirst())),
+                    ContentVersionRepository.versionar(new Update().inc(VISUALIZACIONES, delta.getSecond()), version)))
+                .toList();
+            mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, tipo).updateOne(updates).execute();
+        }
+        catch (BulkOperationException e) {
+            // Bulk desordenado: solo se reintentan las operaciones que fallaron
+            List<Pair<String, Long>> fallidos = e.getErrors().stream().map(error -> deltas.get(error.getIndex())).toList();
+            logger.error("Error volcando {} contadores de {}: {}", fallidos.size(), tipo.getSimpleName(), e.getMessage());
+            devolver(contadores, fallidos);
+            return sumar(deltas) - sumar(fallidos);
+        }
+        catch (Exception e) {
+            logger.error("Error volcando visualizaciones de {}: {}", tipo.getSimpleName(), e.getMessage());
+            devolver(contadores, deltas);
+            return 0;
+        }
+        return sumar(deltas);
+    }
+
+    private static void devolver(ConcurrentHashMap<String, LongAdder> contadores, List<Pair<String, Long>> deltas) {
+        deltas.forEach(delta -> contadores.computeIfAbsent(delta.getFirst(), id -> new LongAdder()).add(delta.getSecond()));
+    }
+
+    private static long sumar(List<Pair<String, Long>> deltas) {
+        return deltas.stream().mapToLong(Pair::getSecond).sum();
+    }
+
+    private ConcurrentHashMap<String, LongAdder> contadores(Class<? extends Contenido> tipo) {
+        ConcurrentHashMap<String, LongAdder> contadores = pendientes.get(tipo);
+        if (contadores == null) {
+            throw new IllegalArgumentException("Tipo de contenido no soportado: " + tipo.getSimpleName());
+        }
+        return contadores;
+    }
+}
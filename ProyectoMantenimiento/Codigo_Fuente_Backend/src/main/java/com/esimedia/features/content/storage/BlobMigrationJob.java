@@ -0,0 +1,145 @@
+package com.esimedia.features.content.storage;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.bson.Document;
+import org.bson.types.Binary;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import com.esimedia.features.content.entity.BlobRef;
+import com.esimedia.features.content.entity.Contenido;
+import com.esimedia.features.content.entity.ContenidosAudio;
+import com.esimedia.features.content.entity.ContenidosVideo;
+import com.esimedia.features.content.repository.ContentCatalogRepository;
+import com.esimedia.features.content.repository.ContentVersionRepository;
+
+/**
+ * Migración en caliente de los binarios embebidos (fichero e imagen) a GridFS.
+ * Procesa lotes pequeños periódicamente mientras la aplicación sigue sirviendo tráfico:
+ * los lectores aceptan tanto el campo embebido como la referencia a blob, y cada documento
+ * se actualiza de forma condicional (solo si todavía conserva el binario embebido) y con la versión
+ * del catálogo avanzada, para que las respuestas en caché no sigan apuntando al binario embebido.
+ * Se activa con content.blob-migration.enabled=true.
+ */
+@Component
+@ConditionalOnProperty(name = "content.blob-migration.enabled", havingValue = "true")
+public class BlobMigrationJob {
+
+    private static final Logger logger = LoggerFactory.getLogger(BlobMigrationJob.class);
+    private static final String ID = "_id";
+    // Tipo BSON de los datos binarios
+    private static final int BSON_BINARIO = 5;
+
+    private final MongoTemplate mongoTemplate;
+    private final BlobStore blobStore;
+    private final ContentVersionRepository versionRepository;
+    // Colecciones y campos cuyos valores no binarios ya se han avisado en el log
+    private final Set<String> avisados = ConcurrentHashMap.newKeySet();
+
+    @Value("${content.blob-migration.batch-size:50}")
+    private int batchSize = 50;
+
+    public BlobMigrationJob(MongoTemplate mongoTemplate, BlobStore blobStore, ContentVersionRepository versionRepository) {
+        this.mongoTemplate = mongoTemplate;
+        this.blobStore = blobStore;
+        this.versionRepository = versionRepository;
+    }
+
+    /**
+     * Migra un lote de cada campo binario. Cuando ya no quedan documentos embebidos no hace nada.
+     */
+    @Scheduled(fixedDelayString = "${content.blob-migration.delay-ms:60000}")
+    public void migrarLote() {
+        int ficheros = migrar(ContenidosAudio.class, ContentCatalogRepository.FICHERO,
+            ContentCatalogRepository.FICHERO_EXTENSION, ContentCatalogRepository.FICHERO_BLOB);
+        int imagenesAudio = migrar(ContenidosAudio.class, ContentCatalogRepository.IMAGEN,
+            ContentCatalogRepository.FORMATO_IMAGEN, ContentCatalogRepository.IMAGEN_BLOB);
+        int imagenesVideo = migrar(ContenidosVideo.class, ContentCatalogRepository.IMAGEN,
+            ContentCatalogRepository.FORMATO_IMAGEN, ContentCatalogRepository.IMAGEN_BLOB);
+
+        if (ficheros + imagenesAudio + imagenesVideo > 0) {
+            logger.info("Migración a GridFS: {} ficheros de audio, {} miniaturas de audio, {} miniaturas de video",
+                ficheros, imagenesAudio, imagenesVideo);
+        }
+    }
+
+    /**
+     * Mueve a GridFS un lote de binarios embebidos de una colección.
+     * @return Número de documentos migrados
+     */
+    int migrar(Class<? extends Contenido> tipo, String campoBinario, String campoTipo, String campoBlob) {
+        String coleccion = mongoTemplate.getCollectionName(tipo);
+        avisarNoBinarios(coleccion, campoBinario, campoBlob);
+
+        // Solo binarios BSON: un valor de otro tipo no se puede migrar y volvería a salir en cada lote
+        Query pendientes = new Query(Criteria.where(campoBinario).type(BSON_BINARIO).and(campoBlob).exists(false))
+            .limit(batchSize);
+        pendientes.fields().include(campoBinario, campoTipo);
+
+        List<Document> documentos = mongoTemplate.find(pendientes, Document.class, coleccion);
+        int migrados = 0;
+        // Una versión por lote, solo si hay algo que migrar
+        ContentVersionRepository.Version version = null;
+        for (Document documento : documentos) {
+            byte[] datos = leerBinario(documento.get(campoBinario));
+            if (datos == null) {
+                logger.warn("Migración a GridFS: {}.{} del documento {} no es binario, se omite",
+                    coleccion, campoBinario, documento.get(ID));
+                continue;
+            }
+            BlobRef blob = blobStore.guardar(datos, documento.getString(campoTipo));
+
+            // Solo se actualiza si el documento sigue teniendo el binario embebido
+            Query mismoDocumento = new Query(Criteria.where(ID).is(documento.get(ID)).and(campoBinario).exists(true));
+            if (version == null) {
+                version = versionRepository.avanzar();
+            }
+            Update update = ContentVersionRepository.versionar(new Update().set(campoBlob, blob).unset(campoBinario), version);
+            if (mongoTemplate.updateFirst(mismoDocumento, update, tipo).getModifiedCount() == 0) {
+                // El documento se borró o cambió mientras tanto: el blob queda huérfano
+                blobStore.eliminar(blob.getId());
+                continue;
+            }
+            migrados++;
+        }
+        return migrados;
+    }
+
+    /**
+     * Avisa una sola vez por colección y campo de los documentos cuyo valor embebido no es binario:
+     * quedan fuera de la migración y hay que revisarlos a mano.
+     */
+    private void avisarNoBinarios(String coleccion, String campoBinario, String campoBlob) {
+        if (!avisados.add(coleccion + "." + campoBinario)) {
+            return;
+        }
+        Query noBinarios = new Query(Criteria.where(campoBinario).ne(null).not().type(BSON_BINARIO)
+            .and(campoBlob).exists(false));
+        long total = mongoTemplate.count(noBinarios, coleccion);
+        if (total > 0) {
+            logger.warn("Migración a GridFS: {} documentos de {} tienen {} con un valor no binario y no se migrarán",
+                total, coleccion, campoBinario);
+        }
+    }
+
+    private static byte[] leerBinario(Object valor) {
+        if (valor instanceof Binary binario) {
+            return binario.getData();
+        }
+        if (valor instanceof byte[] bytes) {
+            return bytes;
+        }
+        return null;
+    }
+}
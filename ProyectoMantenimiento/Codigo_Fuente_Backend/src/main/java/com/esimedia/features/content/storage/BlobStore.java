@@ -0,0 +1,94 @@
+package com.esimedia.features.content.storage;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.Optional;
+
+import org.springframework.core.io.Resource;
+
+import com.esimedia.features.content.entity.BlobRef;
+import com.esimedia.features.content.entity.Contenido;
+import com.esimedia.features.content.entity.ContenidosAudio;
+import com.esimedia.shared.util.ContentUtil;
+
+/**
+ * Almacén de ficheros binarios de los contenidos (audios y miniaturas).
+ * Los documentos de contenido guardan solo la {@link BlobRef}; los bytes viven fuera del documento.
+ */
+public interface BlobStore {
+
+    /**
+     * Guarda un binario y devuelve su referencia.
+     * @param datos Bytes a guardar
+     * @param contentType Tipo MIME del binario (puede ser null)
+     * @return Referencia con id, tamaño y hash SHA-256
+     */
+    default BlobRef guardar(byte[] datos, String contentType) {
+        return guardar(datos, contentType, ContentUtil.sha256Hex(datos));
+    }
+
+    /**
+     * Guarda un binario cuyo SHA-256 ya se conoce, sin volver a recorrerlo.
+     * @param sha256 SHA-256 de los datos en hexadecimal
+     */
+    BlobRef guardar(byte[] datos, String contentType, String sha256);
+
+    /**
+     * Abre un binario para leerlo por bloques.
+     * @param blobId Id devuelto por {@link #guardar}
+     * @return Recurso con el contenido o vacío si no existe
+     */
+    Optional<Resource> abrir(String blobId);
+
+    /**
+     * Elimina un binario. No falla si no existe.
+     */
+    void eliminar(String blobId);
+
+    /**
+     * Elimina todos los binarios referenciados por un contenido: fichero de audio, miniatura y derivadas.
+     */
+    default void eliminarBlobs(Contenido contenido) {
+        if (contenido instanceof ContenidosAudio audio && audio.getFicheroBlob() != null) {
+            eliminar(audio.getFicheroBlob().getId());
+        }
+        if (contenido.getMiniaturaBlob() != null) {
+            eliminar(contenido.getMiniaturaBlob().getId());
+        }
+        if (contenido.getMiniaturasDerivadas() != null) {
+            contenido.getMiniaturasDerivadas().values().forEach(blob -> eliminar(blob.getId()));
+        }
+    }
+
+    /**
+     * Elimina los binarios de un contenido cuyo documento no se llegó a guardar, para no dejarlos huérfanos.
+     * Los errores de la limpieza se añaden como suprimidos a la causa original, que es la que se propaga.
+     * @param causa Error que impidió guardar el documento
+     */
+    default void descartarBlobs(Contenido contenido, RuntimeException causa) {
+        try {
+            eliminarBlobs(contenido);
+        }
+        catch (RuntimeException e) {
+            causa.addSuppressed(e);
+        }
+    }
+
+    /**
+     * Lee un binario completo en memoria. Solo para los endpoints heredados que devuelven data URIs.
+     * @return Bytes del binario o null si no existe
+     */
+    default byte[] leer(String blobId) {
+        Optional<Resource> recurso = abrir(blobId);
+        if (recurso.isEmpty()) {
+            return null;
+        }
+        try (InputStream in = recurso.get().getInputStream()) {
+            return in.readAllBytes();
+        }
+        catch (IOException e) {
+            throw new UncheckedIOException("Error leyendo blob " + blobId, e);
+        }
+    }
+}
@@ -0,0 +1,56 @@
+package com.esimedia.features.content.storage;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+import org.springframework.core.io.AbstractResource;
+import org.springframework.data.mongodb.gridfs.GridFsTemplate;
+
+import com.mongodb.client.gridfs.model.GridFSFile;
+
+/**
+ * Fichero de GridFS que abre un stream de descarga nuevo en cada {@link #getInputStream()}.
+ * El GridFsResource de Spring Data es un InputStreamResource que solo se puede leer una vez, y las
+ * respuestas con varios rangos (Range: bytes=0-99,200-299) abren el recurso una vez por tramo.
+ * El tamaño y la fecha se toman de los metadatos del fichero, sin leerlo.
+ */
+public class GridFsBlobResource extends AbstractResource {
+
+    private final GridFSFile fichero;
+    private final GridFsTemplate gridFsTemplate;
+
+    public GridFsBlobResource(GridFSFile fichero, GridFsTemplate gridFsTemplate) {
+        this.fichero = fichero;
+        this.gridFsTemplate = gridFsTemplate;
+    }
+
+    @Override
+    public InputStream getInputStream() throws IOException {
+        return gridFsTemplate.getResource(fichero).getInputStream();
+    }
+
+    @Override
+    public boolean exists() {
+        return true;
+    }
+
+    @Override
+    public long contentLength() {
+        return fichero.getLength();
+    }
+
+    @Override
+    public long lastModified() {
+        return fichero.getUploadDate() != null ? fichero.getUploadDate().getTime() : 0;
+    }
+
+    @Override
+    public String getFilename() {
+        return fichero.getFilename();
+    }
+
+    @Override
+    public String getDescription() {
+        return "GridFS blob [" + fichero.getId() + "]";
+    }
+}
@@ -0,0 +1,67 @@
+package com.esimedia.features.content.storage;
+
+import java.io.ByteArrayInputStream;
+import java.util.Optional;
+
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.core.io.Resource;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.gridfs.GridFsTemplate;
+import org.springframework.stereotype.Component;
+
+import com.esimedia.features.content.entity.BlobRef;
+import com.mongodb.client.gridfs.model.GridFSFile;
+
+/**
+ * Implementación de {@link BlobStore} sobre GridFS.
+ * GridFS trocea cada fichero en chunks de 255KB, por lo que el tamaño ya no está limitado
+ * por el máximo de 16MB de un documento y la lectura se hace por bloques.
+ */
+@Component
+public class GridFsBlobStore implements BlobStore {
+
+    private static final Logger logger = LoggerFactory.getLogger(GridFsBlobStore.class);
+    static final String METADATA_SHA256 = "sha256";
+
+    private final GridFsTemplate gridFsTemplate;
+
+    public GridFsBlobStore(GridFsTemplate gridFsTemplate) {
+        this.gridFsTemplate = gridFsTemplate;
+    }
+
+    @Override
+    public BlobRef guardar(byte[] datos, String contentType, String sha256) {
+        Document metadata = new Document(METADATA_SHA256, sha256);
+        ObjectId id = gridFsTemplate.store(new ByteArrayInputStream(datos), sha256, contentType, metadata);
+        logger.debug("Blob {} guardado en GridFS ({} bytes)", id, datos.length);
+        return new BlobRef(id.toHexString(), datos.length, sha256);
+    }
+
+    @Override
+    public Optional<Resource> abrir(String blobId) {
+        if (!ObjectId.isValid(blobId)) {
+            return Optional.empty();
+        }
+        GridFSFile fichero = gridFsTemplate.findOne(porId(blobId));
+        if (fichero == null) {
+            return Optional.empty();
+        }
+        // Se puede abrir varias veces: una por tramo en las respuestas con varios rangos
+        return Optional.of(new GridFsBlobResource(fichero, gridFsTemplate));
+    }
+
+    @Override
+    public void eliminar(String blobId) {
+        if (ObjectId.isValid(blobId)) {
+            gridFsTemplate.delete(porId(blobId));
+        }
+    }
+
+    private static Query porId(String blobId) {
+        return new Query(Criteria.where("_id").is(new ObjectId(blobId)));
+    }
+}
@@ -11,8 +11,9 @@ import org.springframework.http.HttpStatus;
 
 import com.esimedia.features.favoritos.entity.ContenidoFavorito;
 import com.esimedia.features.favoritos.repository.ContenidoFavoritoRepository;
-import com.esimedia.features.content.repository.ContenidosVideoRepository;
-import com.esimedia.features.content.repository.ContenidosAudioRepository;
+import com.esimedia.features.auth.enums.TipoContenido;
+import com.esimedia.features.content.services.ContentTypeRegistry;
+import com.esimedia.features.content.services.LeaderboardService;
 import com.esimedia.features.favoritos.dto.FavoritoDTO;
 
 @Service
@@ -21,15 +22,15 @@ public class FavoritoService {
     private static final Logger logger = LoggerFactory.getLogger(FavoritoService.class);
 
     private final ContenidoFavoritoRepository favoritoRepository;
-    private final ContenidosVideoRepository videoRepository;
-    private final ContenidosAudioRepository audioRepository;
+    private final ContentTypeRegistry contentTypeRegistry;
+    private final LeaderboardService leaderboardService;
 
     public FavoritoService(ContenidoFavoritoRepository favoritoRepository,
-                           ContenidosVideoRepository videoRepository,
-                           ContenidosAudioRepository audioRepository) {
+                           ContentTypeRegistry contentTypeRegistry,
+                           LeaderboardService leaderboardService) {
         this.favoritoRepository = favoritoRepository;
-        this.videoRepository = videoRepository;
-        this.audioRepository = audioRepository;
+        this.contentTypeRegistry = contentTypeRegistry;
+        this.leaderboardService = leaderboardService;
     }
 
     /**
@@ -40,8 +41,8 @@ public class FavoritoService {
             logger.info("Intentando agregar favorito: usuario={}, contenido={}",
                     idUsuario, favoritoDTO.getIdContenido());
             
-            if (!videoRepository.existsById(favoritoDTO.getIdContenido()) &&
-                        !audioRepository.existsById(favoritoDTO.getIdContenido())) {
+            Optional<TipoContenido> tipo = contentTypeRegistry.tipoExistente(favoritoDTO.getIdContenido());
+            if (tipo.isEmpty()) {
                 throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Contenido no encontrado");
             }
 
@@ -56,6 +57,7 @@ public class FavoritoService {
                 .build();
 
             favoritoRepository.save(nuevoFavorito);
+            leaderboardService.registrarFavorito(tipo.get(), favoritoDTO.getIdContenido());
 
             logger.info("Favorito agregado correctamente para usuario {}", idUsuario);
             return "SUCCESS: Contenido agregado a favoritos";
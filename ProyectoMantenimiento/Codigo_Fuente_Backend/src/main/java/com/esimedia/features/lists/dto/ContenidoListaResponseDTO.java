@@ -6,6 +6,7 @@ import lombok.Data;
 import lombok.NoArgsConstructor;
 
 import java.util.List;
+import java.util.Map;
 
 /**
  * DTO para representar un contenido dentro de una lista
@@ -29,6 +30,7 @@ public class ContenidoListaResponseDTO {
     private boolean esVIP;
     private String miniatura;
     private String formatoMiniatura;
+    private String miniaturaUrl;
     private String fechaSubida;
     private String fechaExpiracion;
     private Double valoracionMedia;
@@ -41,4 +43,8 @@ public class ContenidoListaResponseDTO {
     // Para audios
     private String fichero;
     private String ficheroExtension;
+    private String ficheroUrl;
+
+    // URLs de las miniaturas derivadas por tamaño (96, 320, 720 y placeholder)
+    private Map<String, String> miniaturas;
 }
@@ -4,60 +4,75 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Component;
 
-import com.esimedia.features.content.entity.ContenidoAudioTag;
-import com.esimedia.features.content.entity.ContenidoVideoTag;
 import com.esimedia.features.content.entity.ContenidosAudio;
 import com.esimedia.features.content.entity.ContenidosVideo;
-import com.esimedia.features.content.entity.Tags;
-import com.esimedia.features.content.repository.ContenidoAudioTagRepository;
-import com.esimedia.features.content.repository.ContenidoVideoTagRepository;
-import com.esimedia.features.content.repository.ContenidosAudioRepository;
-import com.esimedia.features.content.repository.ContenidosVideoRepository;
-import com.esimedia.features.content.repository.TagsRepository;
+import com.esimedia.features.content.repository.ContentCatalogRepository;
+import com.esimedia.features.auth.enums.TipoContenido;
+import com.esimedia.features.content.services.ContentBatchLoader;
+import com.esimedia.features.content.services.ContentMediaUrls;
+import com.esimedia.features.content.services.ContentTypeRegistry;
 import com.esimedia.features.lists.dto.ContenidoListaResponseDTO;
 import com.esimedia.shared.util.ContentProcessingUtil;
 import com.esimedia.shared.util.ContentUtil;
 
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
-import java.util.Optional;
+import java.util.Map;
 
 @Component
 public class PublicListHelper {
 
     private static final Logger logger = LoggerFactory.getLogger(PublicListHelper.class);
 
-    private final ContenidosAudioRepository contenidoAudioRepository;
-    private final ContenidosVideoRepository contenidoVideoRepository;
-    private final ContenidoAudioTagRepository contenidoAudioTagRepository;
-    private final ContenidoVideoTagRepository contenidoVideoTagRepository;
-    private final TagsRepository tagsRepository;
+    private final ContentCatalogRepository catalogRepository;
+    private final ContentBatchLoader batchLoader;
+    private final ContentTypeRegistry contentTypeRegistry;
+    private final ContentMediaUrls mediaUrls;
 
     public PublicListHelper(
-            ContenidosAudioRepository contenidoAudioRepository,
-            ContenidosVideoRepository contenidoVideoRepository,
-            ContenidoAudioTagRepository contenidoAudioTagRepository,
-            ContenidoVideoTagRepository contenidoVideoTagRepository,
-            TagsRepository tagsRepository) {
-        this.contenidoAudioRepository = contenidoAudioRepository;
-        this.contenidoVideoRepository = contenidoVideoRepository;
-        this.contenidoAudioTagRepository = contenidoAudioTagRepository;
-        this.contenidoVideoTagRepository = contenidoVideoTagRepository;
-        this.tagsRepository = tagsRepository;
+            ContentCatalogRepository catalogRepository,
+            ContentBatchLoader batchLoader,
+            ContentTypeRegistry contentTypeRegistry,
+            ContentMediaUrls mediaUrls) {
+        this.catalogRepository = catalogRepository;
+        this.batchLoader = batchLoader;
+        this.contentTypeRegistry = contentTypeRegistry;
+        this.mediaUrls = mediaUrls;
     }
 
     /**
-     * Método auxiliar para obtener contenidos completos (audios y videos) con tags
+     * Método auxiliar para obtener contenidos completos (audios y videos) con tags.
+     * Los contenidos (solo metadatos, sin binarios) y sus tags se cargan en bloque
+     * y el resultado respeta el orden de la lista.
      */
     public List<ContenidoListaResponseDTO> obtenerContenidosCompletos(List<String> idsContenidos) {
+        if (idsContenidos.isEmpty()) {
+            return new ArrayList<>();
+        }
+
+        // El registro de tipos reparte los ids: cada colección solo recibe los suyos
+        Map<String, TipoContenido> tipos = contentTypeRegistry.tiposDe(idsContenidos);
+        List<String> idsAudios = idsPorTipo(idsContenidos, tipos, TipoContenido.AUDIO);
+        List<String> idsVideos = idsPorTipo(idsContenidos, tipos, TipoContenido.VIDEO);
+
+        Map<String, ContenidoListaResponseDTO> dtosPorId = new HashMap<>();
+        if (!idsAudios.isEmpty()) {
+            List<ContenidosAudio> audios = catalogRepository.findMetadataByIds(ContenidosAudio.class, idsAudios);
+            Map<String, List<String>> tagsAudios = ContentBatchLoader.resolverTags(audios, batchLoader::cargarTagsAudios);
+            audios.forEach(audio -> dtosPorId.put(audio.getId(),
+                construirDTOAudio(audio, tagsAudios.getOrDefault(audio.getId(), List.of()))));
+        }
+        if (!idsVideos.isEmpty()) {
+            List<ContenidosVideo> videos = catalogRepository.findMetadataByIds(ContenidosVideo.class, idsVideos);
+            Map<String, List<String>> tagsVideos = ContentBatchLoader.resolverTags(videos, batchLoader::cargarTagsVideos);
+            videos.forEach(video -> dtosPorId.put(video.getId(),
+                construirDTOVideo(video, tagsVideos.getOrDefault(video.getId(), List.of()))));
+        }
+
         List<ContenidoListaResponseDTO> contenidosCompletos = new ArrayList<>();
-        
         for (String idContenido : idsContenidos) {
-            logger.info("Buscando contenido con ID: {}", idContenido);
-            
-            ContenidoListaResponseDTO dto = buscarAudio(idContenido)
-                .orElseGet(() -> buscarVideo(idContenido).orElse(null));
-            
+            ContenidoListaResponseDTO dto = dtosPorId.get(idContenido);
             if (dto != null) {
                 contenidosCompletos.add(dto);
             }
@@ -65,54 +80,16 @@ public class PublicListHelper {
                 logger.debug("No encontrado en audios ni videos para ID: {}", idContenido);
             }
         }
-        
+
         logger.info("Contenidos encontrados: {}", contenidosCompletos.size());
         return contenidosCompletos;
     }
 
-    /**
-     * Busca un contenido de audio por ID y lo convierte a DTO
-     */
-    private Optional<ContenidoListaResponseDTO> buscarAudio(String idContenido) {
-        return contenidoAudioRepository.findById(idContenido)
-            .map(audio -> {
-                logger.info("Encontrado audio con ID: {}", idContenido);
-                List<String> tagNames = obtenerTagsNombres(
-                    contenidoAudioTagRepository.findByIdContenido(idContenido)
-                        .stream()
-                        .map(ContenidoAudioTag::getIdTag)
-                        .toList()
-                );
-                
-                return construirDTOAudio(audio, tagNames);
-            });
-    }
-
-    /**
-     * Busca un contenido de video por ID y lo convierte a DTO
-     */
-    private Optional<ContenidoListaResponseDTO> buscarVideo(String idContenido) {
-        return contenidoVideoRepository.findById(idContenido)
-            .map(video -> {
-                logger.debug("Encontrado video con ID: {}", idContenido);
-                List<String> tagNames = obtenerTagsNombres(
-                    contenidoVideoTagRepository.findByIdContenido(idContenido)
-                        .stream()
-                        .map(ContenidoVideoTag::getIdTag)
-                        .toList()
-                );
-                
-                return construirDTOVideo(video, tagNames);
-            });
-    }
-
-    /**
-     * Obtiene los nombres de los tags a partir de sus IDs
-     */
-    private List<String> obtenerTagsNombres(List<String> tagIds) {
-        return tagsRepository.findByIdTagIn(tagIds)
-            .stream()
-            .map(Tags::getNombre)
+    private static List<String> idsPorTipo(List<String> idsContenidos, Map<String, TipoContenido> tipos,
+                                            TipoContenido tipo) {
+        return idsContenidos.stream()
+            .filter(id -> tipos.get(id) == tipo)
+            .distinct()
             .toList();
     }
 
@@ -133,6 +110,8 @@ public class PublicListHelper {
             .esVIP(audio.isEsVIP())
             .miniatura(miniaturaDataUri)
             .formatoMiniatura(audio.getFormatoMiniatura())
+            .miniaturaUrl(mediaUrls.miniatura(audio.getId(), audio.getFormatoMiniatura()))
+            .miniaturas(mediaUrls.miniaturasDerivadas(audio.getId(), audio.getMiniaturasDerivadas()))
             .fechaSubida(ContentProcessingUtil.formatDate(audio.getFechaSubida()))
             .fechaExpiracion(ContentProcessingUtil.formatDate(audio.getFechaDisponibleHasta()))
             .valoracionMedia(audio.getValoracionMedia())
@@ -140,6 +119,7 @@ public class PublicListHelper {
             .tags(tagNames)
             .fichero(ficheroDataUri)
             .ficheroExtension(audio.getFicheroExtension())
+            .ficheroUrl(ContentMediaUrls.ficheroAudio(audio.getId()))
             .build();
     }
 
@@ -159,6 +139,8 @@ public class PublicListHelper {
             .esVIP(video.isEsVIP())
             .miniatura(miniaturaDataUri)
             .formatoMiniatura(video.getFormatoMiniatura())
+            .miniaturaUrl(mediaUrls.miniatura(video.getId(), video.getFormatoMiniatura()))
+            .miniaturas(mediaUrls.miniaturasDerivadas(video.getId(), video.getMiniaturasDerivadas()))
             .fechaSubida(ContentProcessingUtil.formatDate(video.getFechaSubida()))
             .fechaExpiracion(ContentProcessingUtil.formatDate(video.getFechaDisponibleHasta()))
             .valoracionMedia(video.getValoracionMedia())
@@ -564,7 +564,8 @@ public class ManagementController {
 
     /**
      * GDPR Hard-Delete: Usuario normal se elimina a sÃ­ mismo
-     * Solo usuarios normales pueden usar este endpoint
+     * Solo usuarios normales pueden usar este endpoint. Las valoraciones del usuario se descuentan en
+     * segundo plano; el estado de ese recálculo solo lo pueden consultar los administradores.
      */
     @DeleteMapping("/user/delete/self")
     public ResponseEntity<String> deleteUserSelf(@RequestHeader("Authorization") String authHeader) {
@@ -572,7 +573,8 @@ public class ManagementController {
         try {
             // Solo usuarios normales
             String userId = jwtValidationService.validarGenerico(authHeader); 
-            managementService.deleteUserSelf(userId);
+            String idRecalculo = managementService.deleteUserSelf(userId);
+            logger.info("Recálculo de valoraciones {} programado por la auto-eliminación", idRecalculo);
             return ResponseEntity.ok(USUARIO_ELIMINADO_EXITOSAMENTE);
         }
         catch (RuntimeException e) {
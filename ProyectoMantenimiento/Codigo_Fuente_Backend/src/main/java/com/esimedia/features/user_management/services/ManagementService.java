@@ -426,15 +426,16 @@ public class ManagementService {
     /**
      * GDPR Hard-Delete: Usuario normal se elimina a sí mismo
      * Elimina completamente datos personales y sesiones
+     * @return ID del recálculo de valoraciones programado, consultable en /content/ratings/jobs/{id}
      */
-    public void deleteUserSelf(String userId) {
+    public String deleteUserSelf(String userId) {
         logger.info("[HARD-DELETE-SELF] Usuario auto-eliminación: {}", userId);
         
         UsuarioNormal usuario = usuarioNormalRepository.findById(userId)
             .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, USUARIO_NO_ENCONTRADO));
         
-        // Eliminar valoraciones del usuario y actualizar valoraciones medias
-        valoracionService.eliminarValoracionesDeUsuario(userId);
+        // Eliminar valoraciones del usuario y actualizar valoraciones medias (en segundo plano)
+        String idRecalculo = valoracionService.eliminarValoracionesDeUsuario(userId).getId();
         
         // Eliminar sesiones del usuario
         sesionRepository.deleteByIdUsuario(userId);
@@ -446,6 +447,7 @@ public class ManagementService {
         usuarioNormalRepository.delete(usuario);
         
         logger.info("[HARD-DELETE-SELF] Usuario auto-eliminado exitosamente: {}", userId);
+        return idRecalculo;
     }
 
     // ================================
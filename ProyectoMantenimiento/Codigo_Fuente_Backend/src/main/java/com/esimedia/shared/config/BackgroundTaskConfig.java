@@ -0,0 +1,50 @@
+package com.esimedia.shared.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+/**
+ * Ejecutor para tareas largas que no deben bloquear el hilo de la petición
+ * (recálculos en bloque, procesados de ficheros...).
+ * Al parar la aplicación espera a que terminen las tareas en curso.
+ */
+@Configuration
+public class BackgroundTaskConfig {
+
+    public static final String BACKGROUND_EXECUTOR = "backgroundExecutor";
+    public static final String UPLOAD_EXECUTOR = "uploadExecutor";
+
+    @Bean(name = BACKGROUND_EXECUTOR)
+    public ThreadPoolTaskExecutor backgroundExecutor(
+            @Value("${background.executor.pool-size:2}") int poolSize,
+            @Value("${background.executor.queue-capacity:100}") int queueCapacity) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(poolSize);
+        executor.setMaxPoolSize(poolSize);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix("esimedia-bg-");
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        executor.setAwaitTerminationSeconds(30);
+        return executor;
+    }
+
+    /**
+     * Ejecutor propio de las subidas, para que un pico de subidas no retrase los recálculos y viceversa.
+     * La cola es acotada: con la cola llena las subidas nuevas se rechazan en vez de acumularse en memoria.
+     */
+    @Bean(name = UPLOAD_EXECUTOR)
+    public ThreadPoolTaskExecutor uploadExecutor(
+            @Value("${upload.executor.pool-size:2}") int poolSize,
+            @Value("${upload.executor.queue-capacity:50}") int queueCapacity) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(poolSize);
+        executor.setMaxPoolSize(poolSize);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix("esimedia-upload-");
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        executor.setAwaitTerminationSeconds(30);
+        return executor;
+    }
+}
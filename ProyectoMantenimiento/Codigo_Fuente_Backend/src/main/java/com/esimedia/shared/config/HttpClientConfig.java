@@ -1,6 +1,7 @@
 package com.esimedia.shared.config;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.module.blackbird.BlackbirdModule;
 import org.springframework.boot.web.client.RestTemplateBuilder;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
@@ -32,11 +33,12 @@ public class HttpClientConfig {
     
     /**
      * Configura ObjectMapper para serialización JSON.
-     * Se usa para parsear respuestas de APIs externas.
+     * Se usa para parsear respuestas de APIs externas y para escribir las respuestas de la API;
+     * Blackbird sustituye la reflexión por accesores generados para getters, setters y constructores.
      */
     @Bean
     public ObjectMapper objectMapper() {
-        return new ObjectMapper();
+        return new ObjectMapper().registerModule(new BlackbirdModule());
     }
 }
 
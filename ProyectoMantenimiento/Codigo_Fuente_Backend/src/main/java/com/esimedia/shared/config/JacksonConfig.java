@@ -0,0 +1,83 @@
+package com.esimedia.shared.config;
+
+import java.util.List;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.event.EventListener;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.converter.cbor.MappingJackson2CborHttpMessageConverter;
+import org.springframework.http.converter.smile.MappingJackson2SmileHttpMessageConverter;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import com.esimedia.features.content.dto.ContentAudioUploadDTO;
+import com.esimedia.features.content.dto.ContentCatalogPageDTO;
+import com.esimedia.features.content.dto.ContentSearchPageDTO;
+import com.esimedia.features.content.dto.ContentUploadDTO;
+import com.esimedia.features.content.dto.ContentVideoUploadDTO;
+import com.esimedia.features.lists.dto.ListaPrivadaResponseDTO;
+import com.esimedia.features.lists.dto.ListaResponseDTO;
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.type.TypeFactory;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+
+/**
+ * Codificaciones binarias de las respuestas de la API.
+ * Además de JSON, el cliente puede pedir con Accept application/x-jackson-smile o application/cbor:
+ * mismos campos y configuración que el JSON, sin repetir los nombres de campo en texto.
+ * Los convertidores se añaden al final para que JSON siga siendo la respuesta por defecto.
+ */
+@Configuration
+public class JacksonConfig implements WebMvcConfigurer {
+
+    private static final Logger logger = LoggerFactory.getLogger(JacksonConfig.class);
+
+    private final ObjectMapper objectMapper;
+    private final ObjectMapper smileMapper;
+    private final ObjectMapper cborMapper;
+
+    public JacksonConfig(ObjectMapper objectMapper) {
+        this.objectMapper = objectMapper;
+        // Copias del mapper de la aplicación: conservan sus módulos y opciones
+        this.smileMapper = objectMapper.copyWith(new SmileFactory());
+        this.cborMapper = objectMapper.copyWith(new CBORFactory());
+    }
+
+    @Override
+    public void extendMessageConverters(List<HttpMessageConverter<?>> converters) {
+        converters.add(new MappingJackson2SmileHttpMessageConverter(smileMapper));
+        converters.add(new MappingJackson2CborHttpMessageConverter(cborMapper));
+    }
+
+    /**
+     * Construye al arrancar los serializadores de las respuestas del catálogo y las listas,
+     * para que la primera petición no pague la introspección de los DTO.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void precalentarSerializadores() {
+        long inicio = System.nanoTime();
+        for (ObjectMapper mapper : List.of(objectMapper, smileMapper, cborMapper)) {
+            for (JavaType tipo : tiposRespuesta(mapper.getTypeFactory())) {
+                // Con EAGER_SERIALIZER_FETCH el writer resuelve y deja en caché el serializador del tipo
+                mapper.writerFor(tipo);
+            }
+        }
+        logger.info("Serializadores de respuestas precargados en {} ms", (System.nanoTime() - inicio) / 1_000_000);
+    }
+
+    static List<JavaType> tiposRespuesta(TypeFactory tipos) {
+        return List.of(
+            tipos.constructType(ContentUploadDTO.class),
+            tipos.constructType(ContentCatalogPageDTO.class),
+            tipos.constructType(ContentSearchPageDTO.class),
+            tipos.constructCollectionType(List.class, ContentUploadDTO.class),
+            tipos.constructCollectionType(List.class, ContentAudioUploadDTO.class),
+            tipos.constructCollectionType(List.class, ContentVideoUploadDTO.class),
+            tipos.constructCollectionType(List.class, ListaResponseDTO.class),
+            tipos.constructCollectionType(List.class, ListaPrivadaResponseDTO.class));
+    }
+}
@@ -0,0 +1,17 @@
+package com.esimedia.shared.security;
+
+/**
+ * Foto del pool de conexiones con ClamAV y de la latencia de los escaneos.
+ * @param maxConexiones Tamaño máximo del pool
+ * @param conexionesAbiertas Sesiones abiertas con clamd, libres o en uso
+ * @param conexionesEnUso Sesiones prestadas a un escaneo en este momento
+ * @param hilosEsperando Escaneos esperando una conexión libre
+ * @param esperasPoolLleno Escaneos que encontraron el pool lleno y tuvieron que esperar
+ * @param timeoutsPool Escaneos rechazados por no conseguir conexión a tiempo
+ * @param escaneos Escaneos completados
+ * @param latenciaMediaMs Latencia media de un escaneo (envío y respuesta), en milisegundos
+ * @param latenciaMaxMs Latencia del escaneo más lento, en milisegundos
+ */
+public record ClamAVMetricas(int maxConexiones, int conexionesAbiertas, int conexionesEnUso, int hilosEsperando,
+        long esperasPoolLleno, long timeoutsPool, long escaneos, double latenciaMediaMs, double latenciaMaxMs) {
+}
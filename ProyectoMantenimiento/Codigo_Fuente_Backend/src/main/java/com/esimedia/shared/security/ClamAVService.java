@@ -3,37 +3,96 @@ package com.esimedia.shared.security;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jmx.export.annotation.ManagedAttribute;
+import org.springframework.jmx.export.annotation.ManagedResource;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
 import org.springframework.stereotype.Service;
 
+import jakarta.annotation.PreDestroy;
+
 import java.io.*;
 import java.net.Socket;
+import java.util.Deque;
+import java.util.Map;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.ArrayList;
+import java.util.List;
 
 /**
  * Servicio de integración con ClamAV para análisis de virus en archivos.
  * Utiliza el protocolo INSTREAM de ClamAV para escanear archivos antes de guardarlos.
+ * Las conexiones se abren en modo IDSESSION y se reutilizan desde un pool acotado, así que un escaneo
+ * no paga la conexión TCP; los ficheros se envían en bloques grandes y varios ficheros se escanean a la vez.
+ * El estado del pool y la latencia se publican por JMX.
  */
 @Service
+@ManagedResource(objectName = "com.esimedia:type=ClamAV", description = "Pool de conexiones y latencia del antivirus")
 public class ClamAVService {
 
     private static final Logger logger = LoggerFactory.getLogger(ClamAVService.class);
     
-    private static final byte[] INSTREAM_CMD = "zINSTREAM\0".getBytes();
     private static final byte[] PING_CMD = "zPING\0".getBytes();
-    private static final int CHUNK_SIZE = 4096;
     private static final String VIRUS_DETECTED = "FOUND";
     private static final String SCAN_OK = "OK";
 
-    @Value("${antivirus.enabled:false}")
-    private boolean antivirusEnabled;
+    private final boolean antivirusEnabled;
+    private final String clamavHost;
+    private final int clamavPort;
+    private final int timeoutMs;
+    private final int chunkSize;
+    private final int maxConexiones;
+    private final long esperaConexionMs;
+    private final long inactividadMaxMs;
+    private final int paralelismo;
 
-    @Value("${antivirus.clamav.host:localhost}")
-    private String clamavHost;
+    // Sesiones libres, la última devuelta primero: es la que menos riesgo tiene de haber caducado en clamd
+    private final Deque<ClamdConnection> libres = new ConcurrentLinkedDeque<>();
+    private final Semaphore permisos;
+    private final ExecutorService escaneosParalelos;
 
-    @Value("${antivirus.clamav.port:3310}")
-    private int clamavPort;
+    private final AtomicInteger conexionesAbiertas = new AtomicInteger();
+    private final LongAdder esperasPoolLleno = new LongAdder();
+    private final LongAdder timeoutsPool = new LongAdder();
+    private final LongAdder escaneos = new LongAdder();
+    private final LongAdder latenciaTotalNs = new LongAdder();
+    private final AtomicLong latenciaMaxNs = new AtomicLong();
 
-    @Value("${antivirus.clamav.timeout:30}")
-    private int clamavTimeout;
+    public ClamAVService(
+        @Value("${antivirus.enabled:false}") boolean antivirusEnabled,
+        @Value("${antivirus.clamav.host:localhost}") String clamavHost,
+        @Value("${antivirus.clamav.port:3310}") int clamavPort,
+        @Value("${antivirus.clamav.timeout:30}") int clamavTimeout,
+        @Value("${antivirus.clamav.chunk-size:262144}") int chunkSize,
+        @Value("${antivirus.clamav.pool.max-connections:8}") int maxConexiones,
+        @Value("${antivirus.clamav.pool.acquire-timeout-ms:10000}") long esperaConexionMs,
+        @Value("${antivirus.clamav.pool.idle-timeout-ms:20000}") long inactividadMaxMs,
+        @Value("${antivirus.clamav.parallelism:4}") int paralelismo
+    ) {
+        this.antivirusEnabled = antivirusEnabled;
+        this.clamavHost = clamavHost;
+        this.clamavPort = clamavPort;
+        this.timeoutMs = clamavTimeout * 1000;
+        this.chunkSize = chunkSize;
+        this.maxConexiones = maxConexiones;
+        this.esperaConexionMs = esperaConexionMs;
+        this.inactividadMaxMs = inactividadMaxMs;
+        this.paralelismo = paralelismo;
+        this.permisos = new Semaphore(maxConexiones, true);
+        CustomizableThreadFactory hilos = new CustomizableThreadFactory("esimedia-clamav-");
+        hilos.setDaemon(true);
+        this.escaneosParalelos = Executors.newFixedThreadPool(paralelismo, hilos);
+    }
 
     /**
      * Escanea un archivo usando ClamAV.
@@ -61,6 +120,9 @@ public class ClamAVService {
             logger.error("Error de conexión con ClamAV al escanear {}: {}", filename, e.getMessage());
             throw new AntivirusException("Error conectando con el antivirus: " + e.getMessage(), e);
         } 
+        catch (AntivirusException e) {
+            throw e;
+        }
         catch (Exception e) {
             logger.error("Error inesperado escaneando archivo {} con ClamAV: {}", filename, e.getMessage());
             throw new AntivirusException("Error escaneando el archivo: " + e.getMessage(), e);
@@ -86,6 +148,124 @@ public class ClamAVService {
         }
     }
 
+    /**
+     * Escanea múltiples archivos a la vez, hasta antivirus.clamav.parallelism en paralelo.
+     * En cuanto uno da positivo se cancelan los que quedan.
+     * 
+     * @param files Mapa de nombre de archivo a contenido
+     * @return true si todos los archivos son seguros
+     * @throws AntivirusException si hay error de conexión con ClamAV
+     */
+    public boolean scanFiles(Map<String, byte[]> files) throws AntivirusException {
+        if (files.size() <= 1 || paralelismo <= 1) {
+            for (var entry : files.entrySet()) {
+                if (!scanFile(entry.getValue(), entry.getKey())) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        CompletionService<Boolean> resultados = new ExecutorCompletionService<>(escaneosParalelos);
+        List<Future<Boolean>> pendientes = new ArrayList<>(files.size());
+        files.forEach((nombre, contenido) -> pendientes.add(resultados.submit(() -> scanFile(contenido, nombre))));
+        try {
+            for (int i = 0; i < pendientes.size(); i++) {
+                if (!resultados.take().get()) {
+                    return false;
+                }
+            }
+            return true;
+        }
+        catch (ExecutionException e) {
+            if (e.getCause() instanceof AntivirusException antivirusException) {
+                throw antivirusException;
+            }
+            throw new AntivirusException("Error escaneando los archivos: " + e.getCause().getMessage(), e.getCause());
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new AntivirusException("Escaneo interrumpido", e);
+        }
+        finally {
+            pendientes.forEach(pendiente -> pendiente.cancel(true));
+        }
+    }
+
+    /**
+     * Estado del pool de conexiones y latencia de los escaneos.
+     */
+    public ClamAVMetricas getMetricas() {
+        long total = escaneos.sum();
+        return new ClamAVMetricas(
+            maxConexiones,
+            getConexionesAbiertas(),
+            getConexionesEnUso(),
+            getHilosEsperando(),
+            getEsperasPoolLleno(),
+            getTimeoutsPool(),
+            total,
+            total == 0 ? 0 : latenciaTotalNs.sum() / (double) total / 1_000_000,
+            getLatenciaMaxMs());
+    }
+
+    @ManagedAttribute(description = "Tamaño máximo del pool de conexiones")
+    public int getMaxConexiones() {
+        return maxConexiones;
+    }
+
+    @ManagedAttribute(description = "Sesiones abiertas con clamd, libres o en uso")
+    public int getConexionesAbiertas() {
+        return conexionesAbiertas.get();
+    }
+
+    @ManagedAttribute(description = "Sesiones prestadas a un escaneo")
+    public int getConexionesEnUso() {
+        return maxConexiones - permisos.availablePermits();
+    }
+
+    @ManagedAttribute(description = "Escaneos esperando una conexión libre")
+    public int getHilosEsperando() {
+        return permisos.getQueueLength();
+    }
+
+    @ManagedAttribute(description = "Escaneos que encontraron el pool lleno")
+    public long getEsperasPoolLleno() {
+        return esperasPoolLleno.sum();
+    }
+
+    @ManagedAttribute(description = "Escaneos rechazados por no conseguir conexión a tiempo")
+    public long getTimeoutsPool() {
+        return timeoutsPool.sum();
+    }
+
+    @ManagedAttribute(description = "Escaneos completados")
+    public long getEscaneos() {
+        return escaneos.sum();
+    }
+
+    @ManagedAttribute(description = "Latencia media de un escaneo (ms)")
+    public double getLatenciaMediaMs() {
+        return getMetricas().latenciaMediaMs();
+    }
+
+    @ManagedAttribute(description = "Latencia del escaneo más lento (ms)")
+    public double getLatenciaMaxMs() {
+        return latenciaMaxNs.get() / 1_000_000.0;
+    }
+
+    /**
+     * Cierra las sesiones abiertas con clamd al parar la aplicación.
+     */
+    @PreDestroy
+    public void cerrar() {
+        escaneosParalelos.shutdownNow();
+        ClamdConnection conexion;
+        while ((conexion = libres.poll()) != null) {
+            descartar(conexion);
+        }
+    }
+
     /**
      * Realiza un PING a ClamAV para verificar su disponibilidad.
      * 
@@ -110,7 +290,8 @@ public class ClamAVService {
     }
 
     /**
-     * Realiza el escaneo del archivo usando el protocolo INSTREAM.
+     * Realiza el escaneo del archivo por INSTREAM sobre una sesión del pool.
+     * Si una sesión reutilizada falla (clamd la cierra tras su IdleTimeout) se repite una vez con una nueva.
      * 
      * @param fileContent Contenido del archivo
      * @param filename    Nombre del archivo
@@ -118,72 +299,116 @@ public class ClamAVService {
      * @throws IOException si hay error de comunicación
      */
     private boolean performScan(byte[] fileContent, String filename) throws IOException {
-        try (Socket socket = createSocket();
-             DataOutputStream dos = new DataOutputStream(socket.getOutputStream());
-             BufferedReader reader = new BufferedReader(new InputStreamReader(socket.getInputStream()))) {
-
-            // Enviar comando INSTREAM
-            dos.write(INSTREAM_CMD);
-            dos.flush();
-            logger.info("Comando INSTREAM enviado al servicio ClamAV para: {}", filename);
-
-            // Enviar tamaño del archivo seguido del contenido en chunks
-            sendFileInChunks(dos, fileContent);
-
-            // Enviar 0x00000000 para indicar fin del stream
-            dos.writeInt(0);
-            dos.flush();
-            logger.info("Fin del stream enviado para: {}", filename);
-
-            // Leer la respuesta
-            String response = reader.readLine();
-            logger.debug("ClamAV response para {}: {}", filename, response);
-
-            if (response == null) {
-                logger.warn("No se recibió respuesta de ClamAV para: {}", filename);
-                throw new IOException("No se recibió respuesta de ClamAV");
-            }
+        String response;
+        try {
+            response = escanearEnSesion(fileContent, true);
+        }
+        catch (ConexionReutilizadaException e) {
+            logger.debug("Sesión de ClamAV caducada, reintentando {} con una nueva: {}", filename, e.getMessage());
+            response = escanearEnSesion(fileContent, false);
+        }
+        logger.debug("ClamAV response para {}: {}", filename, response);
 
-            // Verificar si se detectó un virus
-            if (response.contains(VIRUS_DETECTED)) {
-                logger.warn("¡VIRUS DETECTADO en archivo {}! Respuesta: {}", filename, response);
-                return false;
-            }
+        // Verificar si se detectó un virus
+        if (response.contains(VIRUS_DETECTED)) {
+            logger.warn("¡VIRUS DETECTADO en archivo {}! Respuesta: {}", filename, response);
+            return false;
+        }
 
-            if (response.contains(SCAN_OK)) {
-                logger.info("Archivo {} pasó el escaneo de ClamAV correctamente", filename);
-                return true;
-            }
+        if (response.endsWith(SCAN_OK)) {
+            logger.info("Archivo {} pasó el escaneo de ClamAV correctamente", filename);
+            return true;
+        }
 
-            logger.warn("Respuesta inesperada de ClamAV para {}: {}", filename, response);
-            return false;
+        logger.warn("Respuesta inesperada de ClamAV para {}: {}", filename, response);
+        return false;
+    }
 
+    private String escanearEnSesion(byte[] fileContent, boolean reutilizar) throws IOException {
+        obtenerPermiso();
+        ClamdConnection conexion = null;
+        boolean reutilizada = false;
+        try {
+            conexion = reutilizar ? sesionLibre() : null;
+            reutilizada = conexion != null;
+            if (conexion == null) {
+                conexion = abrir();
+            }
+            long inicio = System.nanoTime();
+            String response = conexion.instream(fileContent);
+            registrarLatencia(System.nanoTime() - inicio);
+            // Tras un error clamd cierra la sesión (p. ej. al superar StreamMaxLength)
+            if (!response.contains(VIRUS_DETECTED) && !response.endsWith(SCAN_OK)) {
+                descartar(conexion);
+            }
+            else {
+                libres.push(conexion);
+            }
+            return response;
+        }
+        catch (IOException e) {
+            if (conexion != null) {
+                descartar(conexion);
+            }
+            if (reutilizada) {
+                throw new ConexionReutilizadaException(e);
+            }
+            throw e;
+        }
+        finally {
+            permisos.release();
+        }
+    }
+
+    private void obtenerPermiso() {
+        if (permisos.tryAcquire()) {
+            return;
+        }
+        esperasPoolLleno.increment();
+        try {
+            if (!permisos.tryAcquire(esperaConexionMs, TimeUnit.MILLISECONDS)) {
+                timeoutsPool.increment();
+                logger.warn("Pool de ClamAV saturado: {} conexiones en uso", maxConexiones);
+                throw new AntivirusException("El antivirus está saturado, inténtalo de nuevo más tarde");
+            }
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new AntivirusException("Escaneo interrumpido", e);
         }
     }
 
     /**
-     * Envía el contenido del archivo en chunks al servicio ClamAV.
-     * 
-     * @param dos         DataOutputStream para escribir
-     * @param fileContent Contenido del archivo
-     * @throws IOException si hay error escribiendo
+     * Sesión libre que no lleve demasiado tiempo parada; las caducadas se cierran por el camino.
      */
-    private void sendFileInChunks(DataOutputStream dos, byte[] fileContent) throws IOException {
-        int offset = 0;
-        
-        while (offset < fileContent.length) {
-            int chunkLength = Math.min(CHUNK_SIZE, fileContent.length - offset);
-            
-            // Escribir longitud del chunk en big-endian (4 bytes)
-            dos.writeInt(chunkLength);
-            
-            // Escribir datos del chunk
-            dos.write(fileContent, offset, chunkLength);
-            dos.flush();
-            
-            offset += chunkLength;
-            logger.debug("Chunk de {} bytes enviado. Total: {}/{}", chunkLength, offset, fileContent.length);
+    private ClamdConnection sesionLibre() {
+        long limite = System.currentTimeMillis() - inactividadMaxMs;
+        ClamdConnection conexion;
+        while ((conexion = libres.poll()) != null) {
+            if (conexion.getUltimoUso() >= limite) {
+                return conexion;
+            }
+            descartar(conexion);
         }
+        return null;
+    }
+
+    private ClamdConnection abrir() throws IOException {
+        ClamdConnection conexion = new ClamdConnection(clamavHost, clamavPort, timeoutMs, chunkSize);
+        conexionesAbiertas.incrementAndGet();
+        logger.debug("Sesión con ClamAV abierta en {}:{} ({} abiertas)", clamavHost, clamavPort, conexionesAbiertas.get());
+        return conexion;
+    }
+
+    private void descartar(ClamdConnection conexion) {
+        conexion.close();
+        conexionesAbiertas.decrementAndGet();
+    }
+
+    private void registrarLatencia(long nanos) {
+        escaneos.increment();
+        latenciaTotalNs.add(nanos);
+        latenciaMaxNs.accumulateAndGet(nanos, Math::max);
     }
 
     /**
@@ -197,9 +422,9 @@ public class ClamAVService {
         boolean success = false;
         try {
             // connect with a timeout (milliseconds)
-            socket.connect(new java.net.InetSocketAddress(clamavHost, clamavPort), clamavTimeout * 1000);
-            socket.setSoTimeout(clamavTimeout * 1000);
-            logger.debug("Socket conectado a ClamAV en {}:{} con timeout {}s", clamavHost, clamavPort, clamavTimeout);
+            socket.connect(new java.net.InetSocketAddress(clamavHost, clamavPort), timeoutMs);
+            socket.setSoTimeout(timeoutMs);
+            logger.debug("Socket conectado a ClamAV en {}:{} con timeout {}ms", clamavHost, clamavPort, timeoutMs);
             success = true;
             return socket;
         }
@@ -217,18 +442,12 @@ public class ClamAVService {
     }
 
     /**
-     * Escanea múltiples archivos.
-     * 
-     * @param files Mapa de nombre de archivo a contenido
-     * @return true si todos los archivos son seguros
-     * @throws AntivirusException si algún archivo contiene un virus o hay error de conexión
+     * Fallo en una sesión que venía del pool: se puede repetir con una conexión nueva.
      */
-    public boolean scanFiles(java.util.Map<String, byte[]> files) throws AntivirusException {
-        for (var entry : files.entrySet()) {
-            if (!scanFile(entry.getValue(), entry.getKey())) {
-                return false;
-            }
+    private static class ConexionReutilizadaException extends IOException {
+
+        ConexionReutilizadaException(IOException causa) {
+            super(causa.getMessage(), causa);
         }
-        return true;
     }
 }
@@ -0,0 +1,123 @@
+package com.esimedia.shared.security;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Conexión con clamd en modo IDSESSION: se abre una vez y admite muchos INSTREAM seguidos.
+ * Cada respuesta llega prefijada con el número de orden del comando dentro de la sesión ("3: stream: OK"),
+ * que se comprueba para no confundir la respuesta de un comando con la de otro.
+ * No es segura entre hilos: el pool la presta a un único escaneo cada vez.
+ */
+class ClamdConnection implements Closeable {
+
+    private static final byte[] IDSESSION_CMD = "zIDSESSION\0".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] INSTREAM_CMD = "zINSTREAM\0".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] END_CMD = "zEND\0".getBytes(StandardCharsets.US_ASCII);
+    private static final int MAX_RESPUESTA = 4096;
+
+    private final Socket socket;
+    private final DataOutputStream salida;
+    private final InputStream entrada;
+    private final int chunkSize;
+    private int siguienteId = 1;
+    private long ultimoUso;
+
+    ClamdConnection(String host, int port, int timeoutMs, int chunkSize) throws IOException {
+        Socket nuevo = new Socket();
+        try {
+            nuevo.connect(new InetSocketAddress(host, port), timeoutMs);
+            nuevo.setSoTimeout(timeoutMs);
+            nuevo.setTcpNoDelay(true);
+            this.socket = nuevo;
+            // El buffer solo agrupa comando y cabeceras: los bloques de datos, más grandes, van directos al socket
+            this.salida = new DataOutputStream(new BufferedOutputStream(nuevo.getOutputStream()));
+            this.entrada = new BufferedInputStream(nuevo.getInputStream());
+            this.chunkSize = chunkSize;
+            salida.write(IDSESSION_CMD);
+            salida.flush();
+            this.ultimoUso = System.currentTimeMillis();
+        }
+        catch (IOException e) {
+            nuevo.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Envía el contenido con INSTREAM en bloques de chunkSize, vaciando el buffer una sola vez al final.
+     * @return Respuesta de clamd sin el prefijo de la sesión ("stream: OK", "stream: Eicar FOUND"...)
+     */
+    String instream(byte[] contenido) throws IOException {
+        int id = siguienteId++;
+        salida.write(INSTREAM_CMD);
+        for (int offset = 0; offset < contenido.length; offset += chunkSize) {
+            int longitud = Math.min(chunkSize, contenido.length - offset);
+            salida.writeInt(longitud);
+            salida.write(contenido, offset, longitud);
+        }
+        salida.writeInt(0);
+        salida.flush();
+        String respuesta = leerRespuesta();
+        ultimoUso = System.currentTimeMillis();
+        String prefijo = id + ": ";
+        if (!respuesta.startsWith(prefijo)) {
+            throw new IOException("Respuesta de ClamAV fuera de orden: " + respuesta);
+        }
+        return respuesta.substring(prefijo.length());
+    }
+
+    long getUltimoUso() {
+        return ultimoUso;
+    }
+
+    /**
+     * Cierra la sesión con END y después el socket.
+     */
+    @Override
+    public void close() {
+        try {
+            if (!socket.isClosed()) {
+                salida.write(END_CMD);
+                salida.flush();
+            }
+        }
+        catch (IOException e) {
+            // clamd puede haber cerrado ya la sesión por inactividad
+        }
+        finally {
+            try {
+                socket.close();
+            }
+            catch (IOException e) {
+                // Nada más que liberar
+            }
+        }
+    }
+
+    /**
+     * Lee una respuesta terminada en '\0' (comandos con prefijo 'z').
+     */
+    private String leerRespuesta() throws IOException {
+        ByteArrayOutputStream respuesta = new ByteArrayOutputStream(64);
+        int b;
+        while ((b = entrada.read()) > 0) {
+            if (respuesta.size() >= MAX_RESPUESTA) {
+                throw new IOException("Respuesta de ClamAV demasiado larga");
+            }
+            respuesta.write(b);
+        }
+        if (b < 0) {
+            throw new IOException("ClamAV cerró la conexión");
+        }
+        return respuesta.toString(StandardCharsets.US_ASCII).trim();
+    }
+}
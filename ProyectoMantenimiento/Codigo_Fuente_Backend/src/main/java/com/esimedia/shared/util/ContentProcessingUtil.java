@@ -38,6 +38,16 @@ public class ContentProcessingUtil {
         return null;
     }
 
+    /**
+     * Indica si un contenido ha superado su fecha de disponibilidad.
+     * Sirve para mostrar la visibilidad efectiva sin esperar al barrido que la persiste.
+     * @param fechaDisponibleHasta Fecha límite del contenido (null si no caduca).
+     * @return true si la fecha ya ha pasado.
+     */
+    public static boolean isCaducado(Date fechaDisponibleHasta) {
+        return fechaDisponibleHasta != null && fechaDisponibleHasta.before(new Date());
+    }
+
     /**
      * Formatea una fecha en formato yyyy-MM-dd para las respuestas de la API.
      * @param date La fecha a formatear.
@@ -1,51 +1,87 @@
 package com.esimedia.shared.util;
 
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.function.BiFunction;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
 
-import com.esimedia.features.content.entity.Tags;
-import com.esimedia.features.content.repository.TagsRepository;
+import com.esimedia.features.auth.enums.TipoContenido;
+import com.esimedia.features.content.services.ContentSimilarityIndex;
+import com.esimedia.features.content.services.ContentTagIndex;
+import com.esimedia.features.content.services.TagDictionary;
 
 /**
  * Procesador genérico para tags de contenido multimedia.
  * Permite reutilizar la lógica de procesamiento de tags para diferentes tipos de contenido.
+ * Los tags se resuelven en bloque con el diccionario en caché y las relaciones se escriben
+ * con una sola operación por contenido, sin importar cuántos tags tenga.
+ * Cada cambio de tags se refleja también en el índice invertido de recomendaciones y en el de similitud.
  */
 public class ContentTagProcessor {
 
-    private final TagsRepository tagRepository;
+    private final TagDictionary tagDictionary;
     private final BiFunction<String, String, Object> tagRelationFactory;
+    private final ContentTagIndex tagIndex;
+    private final ContentSimilarityIndex similarityIndex;
+    private final TipoContenido tipo;
 
     /**
-     * Constructor que recibe el repositorio de tags y una fábrica para crear relaciones contenido-tag.
-     * @param tagRepository Repositorio para buscar/crear tags.
+     * Constructor que recibe el diccionario de tags y una fábrica para crear relaciones contenido-tag.
+     * @param tagDictionary Diccionario para buscar/crear tags.
      * @param tagRelationFactory Función que crea la relación (contenidoId, tagId) -> relación entity.
+     * @param tagIndex Índice invertido de tags que se mantiene al día.
+     * @param similarityIndex Índice de contenidos parecidos que se mantiene al día.
+     * @param tipo Tipo de los contenidos que procesa.
      */
-    public ContentTagProcessor(TagsRepository tagRepository, BiFunction<String, String, Object> tagRelationFactory) {
-        this.tagRepository = tagRepository;
+    public ContentTagProcessor(TagDictionary tagDictionary, BiFunction<String, String, Object> tagRelationFactory,
+                               ContentTagIndex tagIndex, ContentSimilarityIndex similarityIndex, TipoContenido tipo) {
+        this.tagDictionary = tagDictionary;
         this.tagRelationFactory = tagRelationFactory;
+        this.tagIndex = tagIndex;
+        this.similarityIndex = similarityIndex;
+        this.tipo = tipo;
+    }
+
+    /**
+     * Normaliza los nombres de tags tal y como se guardan: sin espacios extremos y sin repetidos.
+     * Es la lista que se desnormaliza en el campo tags del documento de contenido.
+     * @param tagNames Nombres recibidos (puede ser null).
+     * @return Nombres normalizados conservando el orden.
+     */
+    public static List<String> normalizarNombres(List<String> tagNames) {
+        if (tagNames == null) {
+            return new ArrayList<>();
+        }
+        return new ArrayList<>(tagNames.stream()
+            .map(String::trim)
+            .collect(Collectors.toCollection(LinkedHashSet::new)));
     }
 
     /**
      * Procesa una lista de nombres de tags para un contenido específico.
-     * Busca o crea cada tag y crea la relación correspondiente.
+     * Busca o crea los tags en bloque y guarda todas las relaciones de una vez.
      * @param contenidoId ID del contenido.
      * @param tagNames Lista de nombres de tags.
-     * @param relationSaver Función para guardar la relación (debe manejar el tipo específico).
+     * @param relationsSaver Función para insertar las relaciones (debe manejar el tipo específico).
+     * @return Nombres de tags del contenido, para desnormalizarlos en el documento.
      */
-    public void processContentTags(String contenidoId, List<String> tagNames, java.util.function.Consumer<Object> relationSaver) {
-
-        for (String tagName : tagNames) {
-            // Buscar o crear tag
-            Tags tag = tagRepository.findByNombre(tagName.trim())
-                    .orElseGet(() -> {
-                        Tags newTag = new Tags(tagName.trim());
-                        return tagRepository.save(newTag);
-                    });
+    public List<String> processContentTags(String contenidoId, List<String> tagNames, Consumer<List<Object>> relationsSaver) {
+        List<String> nombres = normalizarNombres(tagNames);
+        Map<String, String> ids = tagDictionary.resolverIds(nombres);
 
-            // Crear relación contenido-tag
-            Object relation = tagRelationFactory.apply(contenidoId, tag.getIdTag());
-            relationSaver.accept(relation);
+        List<Object> relaciones = nombres.stream()
+            .map(nombre -> tagRelationFactory.apply(contenidoId, ids.get(nombre)))
+            .toList();
+        if (!relaciones.isEmpty()) {
+            relationsSaver.accept(relaciones);
         }
+        tagIndex.actualizar(contenidoId, tipo, nombres);
+        similarityIndex.actualizar(contenidoId, tipo, nombres);
+        return nombres;
     }
 
     /**
@@ -54,29 +90,22 @@ public class ContentTagProcessor {
      * @param contenidoId ID del contenido.
      * @param newTagNames Lista de nombres de tags nuevos.
      * @param currentTagIdsGetter Función que devuelve la lista de tagIds actuales.
-     * @param relationDeleter Función que elimina la relación para un tagId dado.
-     * @param relationSaver Función para guardar nuevas relaciones.
+     * @param relationsDeleter Función que elimina de una vez las relaciones de los tagIds dados.
+     * @param relationsSaver Función para insertar las nuevas relaciones.
+     * @return Nombres de tags del contenido tras la actualización, para desnormalizarlos en el documento.
      */
-    public void updateContentTags(String contenidoId, List<String> newTagNames, 
-                                  java.util.function.Supplier<List<String>> currentTagIdsGetter,
-                                  java.util.function.Consumer<String> relationDeleter,
-                                  java.util.function.Consumer<Object> relationSaver) {
-        if (newTagNames == null) {
-            newTagNames = List.of();
-        } 
+    public List<String> updateContentTags(String contenidoId, List<String> newTagNames,
+                                          Supplier<List<String>> currentTagIdsGetter,
+                                          Consumer<List<String>> relationsDeleter,
+                                          Consumer<List<Object>> relationsSaver) {
+        List<String> nombres = normalizarNombres(newTagNames);
 
         // Obtener tagIds actuales
         List<String> currentTagIds = currentTagIdsGetter.get();
 
         // Mapear nuevos tagNames a tagIds, creando tags si no existen
-        List<String> newTagIds = newTagNames.stream()
-            .map(tagName -> tagRepository.findByNombre(tagName.trim())
-                    .orElseGet(() -> {
-                        Tags newTag = new Tags(tagName.trim());
-                        return tagRepository.save(newTag);
-                    }))
-            .map(Tags::getIdTag)
-            .toList();
+        Map<String, String> ids = tagDictionary.resolverIds(nombres);
+        List<String> newTagIds = nombres.stream().map(ids::get).toList();
 
         // Tags a eliminar: actuales que no están en nuevos
         List<String> tagsToRemove = currentTagIds.stream()
@@ -84,17 +113,19 @@ public class ContentTagProcessor {
             .toList();
 
         // Tags a añadir: nuevos que no están en actuales
-        List<String> tagsToAdd = newTagIds.stream()
+        List<Object> relationsToAdd = newTagIds.stream()
             .filter(tagId -> !currentTagIds.contains(tagId))
+            .map(tagId -> tagRelationFactory.apply(contenidoId, tagId))
             .toList();
 
-        // Eliminar relaciones obsoletas
-        tagsToRemove.forEach(relationDeleter);
-
-        // Añadir nuevas relaciones
-        tagsToAdd.forEach(tagId -> {
-            Object relation = tagRelationFactory.apply(contenidoId, tagId);
-            relationSaver.accept(relation);
-        });
+        if (!tagsToRemove.isEmpty()) {
+            relationsDeleter.accept(tagsToRemove);
+        }
+        if (!relationsToAdd.isEmpty()) {
+            relationsSaver.accept(relationsToAdd);
+        }
+        tagIndex.actualizar(contenidoId, tipo, nombres);
+        similarityIndex.actualizar(contenidoId, tipo, nombres);
+        return nombres;
     }
-}
\ No newline at end of file
+}
@@ -1,6 +1,9 @@
 package com.esimedia.shared.util;
 
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.Base64;
+import java.util.HexFormat;
 
 public class ContentUtil {
     
@@ -159,4 +162,18 @@ public class ContentUtil {
             return false;
         }
     }
-}
\ No newline at end of file
+
+    /**
+     * Calcula el hash SHA-256 de un binario.
+     * @param datos Bytes a resumir
+     * @return Hash en hexadecimal
+     */
+    public static String sha256Hex(byte[] datos) {
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(datos));
+        }
+        catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 no disponible", e);
+        }
+    }
+}
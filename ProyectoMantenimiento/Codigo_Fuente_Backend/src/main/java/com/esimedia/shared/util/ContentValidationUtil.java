@@ -4,8 +4,7 @@ import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Component;
 import org.springframework.web.server.ResponseStatusException;
 
-import com.esimedia.features.content.repository.ContenidosAudioRepository;
-import com.esimedia.features.content.repository.ContenidosVideoRepository;
+import com.esimedia.features.content.services.ContentTypeRegistry;
 
 /**
  * Utilidad para validaciones comunes de contenido
@@ -13,13 +12,10 @@ import com.esimedia.features.content.repository.ContenidosVideoRepository;
 @Component
 public class ContentValidationUtil {
 
-    private final ContenidosAudioRepository contenidoAudioRepository;
-    private final ContenidosVideoRepository contenidoVideoRepository;
+    private final ContentTypeRegistry contentTypeRegistry;
 
-    public ContentValidationUtil(ContenidosAudioRepository contenidoAudioRepository,
-                                ContenidosVideoRepository contenidoVideoRepository) {
-        this.contenidoAudioRepository = contenidoAudioRepository;
-        this.contenidoVideoRepository = contenidoVideoRepository;
+    public ContentValidationUtil(ContentTypeRegistry contentTypeRegistry) {
+        this.contentTypeRegistry = contentTypeRegistry;
     }
 
     /**
@@ -28,8 +24,7 @@ public class ContentValidationUtil {
      * @throws ResponseStatusException si el contenido no existe
      */
     public void validarContenidoExistente(String idContenido) {
-        if (!contenidoAudioRepository.existsById(idContenido) &&
-            !contenidoVideoRepository.existsById(idContenido)) {
+        if (contentTypeRegistry.tipoExistente(idContenido).isEmpty()) {
             throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Contenido no encontrado");
         }
     }
@@ -0,0 +1,112 @@
+package com.esimedia.shared.util;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+import java.util.HexFormat;
+
+import org.apache.tika.Tika;
+
+/**
+ * Fichero subido, decodificado una sola vez.
+ * Al decodificar se calculan a la vez el tamaño, el SHA-256 y el tipo MIME, y el mismo buffer pasa
+ * después por la validación, el antivirus y el almacén de blobs sin volver a decodificarse ni a recorrerse.
+ * @param datos Bytes del fichero
+ * @param sha256 SHA-256 en hexadecimal
+ * @param mimeType Tipo MIME detectado por la cabecera del fichero
+ */
+public record FicheroSubido(byte[] datos, String sha256, String mimeType) {
+
+    // Los detectores de Tika solo miran los bytes mágicos del principio del fichero
+    static final int CABECERA_DETECCION = 8 * 1024;
+    private static final int BLOQUE = 64 * 1024;
+
+    // Tika es seguro entre hilos: cargar su registro de tipos en cada subida cuesta más que la propia detección
+    private static final Tika TIKA = new Tika();
+
+    public long tamano() {
+        return datos.length;
+    }
+
+    /**
+     * Decodifica un base64 puro por bloques directamente al buffer final, calculando el SHA-256 sobre la marcha.
+     * @throws IllegalArgumentException si el base64 no es válido
+     */
+    public static FicheroSubido desdeBase64(String base64) {
+        long tamano = tamanoBase64(base64);
+        if (tamano < 0 || tamano > Integer.MAX_VALUE - 8) {
+            throw new IllegalArgumentException("Contenido base64 inválido");
+        }
+        byte[] datos = new byte[(int) tamano];
+        MessageDigest digest = nuevoDigest();
+        String texto = base64.trim();
+        try (InputStream in = Base64.getDecoder().wrap(new ByteArrayInputStream(texto.getBytes(StandardCharsets.ISO_8859_1)))) {
+            int total = 0;
+            while (total < datos.length) {
+                int leidos = in.read(datos, total, Math.min(BLOQUE, datos.length - total));
+                if (leidos < 0) {
+                    break;
+                }
+                digest.update(datos, total, leidos);
+                total += leidos;
+            }
+            if (total != datos.length || in.read() != -1) {
+                throw new IllegalArgumentException("Contenido base64 inválido");
+            }
+        }
+        catch (IOException e) {
+            throw new IllegalArgumentException("Contenido base64 inválido", e);
+        }
+        return new FicheroSubido(datos, HexFormat.of().formatHex(digest.digest()), detectarMime(datos));
+    }
+
+    /**
+     * Fichero recibido ya en binario (subida por fragmentos).
+     */
+    public static FicheroSubido desdeBytes(byte[] datos) {
+        return new FicheroSubido(datos, ContentUtil.sha256Hex(datos), detectarMime(datos));
+    }
+
+    /**
+     * Tamaño en bytes del base64 una vez decodificado, calculado sin decodificarlo.
+     * Permite rechazar ficheros demasiado grandes antes de reservar memoria para ellos.
+     * @return Tamaño decodificado, 0 si está vacío o -1 si la longitud no corresponde a un base64 válido
+     */
+    public static long tamanoBase64(String base64) {
+        if (base64 == null || base64.isBlank()) {
+            return 0;
+        }
+        String texto = base64.trim();
+        int longitud = texto.length();
+        if (longitud % 4 == 1) {
+            return -1;
+        }
+        int relleno = texto.endsWith("==") ? 2 : texto.endsWith("=") ? 1 : 0;
+        return (long) longitud / 4 * 3 + (longitud % 4 == 0 ? 0 : longitud % 4 - 1) - relleno;
+    }
+
+    /**
+     * Tipo MIME a partir de la cabecera del fichero.
+     */
+    public static String detectarMime(byte[] datos) {
+        try {
+            return TIKA.detect(new ByteArrayInputStream(datos, 0, Math.min(datos.length, CABECERA_DETECCION)));
+        }
+        catch (IOException e) {
+            throw new IllegalStateException("Error detectando el tipo del fichero", e);
+        }
+    }
+
+    private static MessageDigest nuevoDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        }
+        catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 no disponible", e);
+        }
+    }
+}
@@ -17,13 +17,10 @@ import org.springframework.http.HttpStatus;
 import org.springframework.web.server.ResponseStatusException;
 
 import com.esimedia.features.auth.entity.CreadorContenido;
-import com.esimedia.features.content.entity.ContenidosAudio;
-import com.esimedia.features.content.entity.ContenidosVideo;
 import com.esimedia.features.auth.enums.Rol;
 import com.esimedia.features.auth.enums.TipoContenido;
 import com.esimedia.features.auth.repository.CreadorContenidoRepository;
-import com.esimedia.features.content.repository.ContenidosAudioRepository;
-import com.esimedia.features.content.repository.ContenidosVideoRepository;
+import com.esimedia.features.content.services.ContentTypeRegistry;
 import com.esimedia.shared.util.JwtValidationUtil;
 
 @ExtendWith(MockitoExtension.class)
@@ -34,16 +31,12 @@ class ContentAuthorizationServiceTest {
     @Mock
     private CreadorContenidoRepository creadorContenidoRepository;
     @Mock
-    private ContenidosAudioRepository audioRepository;
-    @Mock
-    private ContenidosVideoRepository videoRepository;
+    private ContentTypeRegistry contentTypeRegistry;
 
     @InjectMocks
     private ContentAuthorizationService contentAuthorizationService;
 
     private CreadorContenido creador;
-    private ContenidosAudio audio;
-    private ContenidosVideo video;
     private String authHeader;
 
     @BeforeEach
@@ -55,14 +48,6 @@ class ContentAuthorizationServiceTest {
         creador.setValidado(true);
         creador.setBloqueado(false);
 
-        audio = new ContenidosAudio();
-        audio.setId("audio123");
-        audio.setTitulo("Test Audio");
-
-        video = new ContenidosVideo();
-        video.setId("video123");
-        video.setTitulo("Test Video");
-
         authHeader = "Bearer jwt-token-123";
     }
 
@@ -209,31 +194,27 @@ class ContentAuthorizationServiceTest {
 
     @Test
     void testGetTipoContenidoById_Audio_Success() {
-        when(audioRepository.findById("audio123")).thenReturn(Optional.of(audio));
+        when(contentTypeRegistry.tipoExistente("audio123")).thenReturn(Optional.of(TipoContenido.AUDIO));
 
         TipoContenido result = contentAuthorizationService.getTipoContenidoById("audio123");
 
         assertEquals(TipoContenido.AUDIO, result);
-        verify(audioRepository).findById("audio123");
-        verify(videoRepository, never()).findById(anyString());
+        verify(contentTypeRegistry).tipoExistente("audio123");
     }
 
     @Test
     void testGetTipoContenidoById_Video_Success() {
-        when(audioRepository.findById("video123")).thenReturn(Optional.empty());
-        when(videoRepository.findById("video123")).thenReturn(Optional.of(video));
+        when(contentTypeRegistry.tipoExistente("video123")).thenReturn(Optional.of(TipoContenido.VIDEO));
 
         TipoContenido result = contentAuthorizationService.getTipoContenidoById("video123");
 
         assertEquals(TipoContenido.VIDEO, result);
-        verify(audioRepository).findById("video123");
-        verify(videoRepository).findById("video123");
+        verify(contentTypeRegistry).tipoExistente("video123");
     }
 
     @Test
     void testGetTipoContenidoById_NotFound() {
-        when(audioRepository.findById("unknown")).thenReturn(Optional.empty());
-        when(videoRepository.findById("unknown")).thenReturn(Optional.empty());
+        when(contentTypeRegistry.tipoExistente("unknown")).thenReturn(Optional.empty());
 
         ResponseStatusException exception = assertThrows(
             ResponseStatusException.class,
@@ -248,7 +229,7 @@ class ContentAuthorizationServiceTest {
 
     @Test
     void testValidateContentAccessById_Audio_Success() {
-        when(audioRepository.findById("audio123")).thenReturn(Optional.of(audio));
+        when(contentTypeRegistry.tipoExistente("audio123")).thenReturn(Optional.of(TipoContenido.AUDIO));
         when(jwtValidationService.validateContentAccess(authHeader, TipoContenido.AUDIO))
             .thenReturn("username");
 
@@ -256,14 +237,13 @@ class ContentAuthorizationServiceTest {
             contentAuthorizationService.validateContentAccessById(authHeader, "audio123")
         );
 
-        verify(audioRepository).findById("audio123");
+        verify(contentTypeRegistry).tipoExistente("audio123");
         verify(jwtValidationService).validateContentAccess(authHeader, TipoContenido.AUDIO);
     }
 
     @Test
     void testValidateContentAccessById_Video_Success() {
-        when(audioRepository.findById("video123")).thenReturn(Optional.empty());
-        when(videoRepository.findById("video123")).thenReturn(Optional.of(video));
+        when(contentTypeRegistry.tipoExistente("video123")).thenReturn(Optional.of(TipoContenido.VIDEO));
         when(jwtValidationService.validateContentAccess(authHeader, TipoContenido.VIDEO))
             .thenReturn("username");
 
@@ -271,15 +251,13 @@ class ContentAuthorizationServiceTest {
             contentAuthorizationService.validateContentAccessById(authHeader, "video123")
         );
 
-        verify(audioRepository).findById("video123");
-        verify(videoRepository).findById("video123");
+        verify(contentTypeRegistry).tipoExistente("video123");
         verify(jwtValidationService).validateContentAccess(authHeader, TipoContenido.VIDEO);
     }
 
     @Test
     void testValidateContentAccessById_ContentNotFound() {
-        when(audioRepository.findById("unknown")).thenReturn(Optional.empty());
-        when(videoRepository.findById("unknown")).thenReturn(Optional.empty());
+        when(contentTypeRegistry.tipoExistente("unknown")).thenReturn(Optional.empty());
 
         ResponseStatusException exception = assertThrows(
             ResponseStatusException.class,
@@ -292,7 +270,7 @@ class ContentAuthorizationServiceTest {
 
     @Test
     void testValidateContentAccessById_UnauthorizedAfterFindingContent() {
-        when(audioRepository.findById("audio123")).thenReturn(Optional.of(audio));
+        when(contentTypeRegistry.tipoExistente("audio123")).thenReturn(Optional.of(TipoContenido.AUDIO));
         when(jwtValidationService.validateContentAccess(authHeader, TipoContenido.AUDIO))
             .thenThrow(new ResponseStatusException(HttpStatus.UNAUTHORIZED, "Unauthorized"));
 
@@ -347,16 +325,15 @@ class ContentAuthorizationServiceTest {
     }
 
     @Test
-    void testGetTipoContenidoById_ChecksAudioFirst() {
-        // Verificar que siempre busca primero en audio
-        when(audioRepository.findById("content123")).thenReturn(Optional.of(audio));
+    void testGetTipoContenidoById_UsaElRegistroDeTipos() {
+        // El tipo sale del registro: una única consulta, sin probar audios y después videos
+        when(contentTypeRegistry.tipoExistente("content123")).thenReturn(Optional.of(TipoContenido.AUDIO));
 
         TipoContenido result = contentAuthorizationService.getTipoContenidoById("content123");
 
         assertEquals(TipoContenido.AUDIO, result);
-        verify(audioRepository).findById("content123");
-        // No debería buscar en video si lo encuentra en audio
-        verify(videoRepository, never()).findById(anyString());
+        verify(contentTypeRegistry).tipoExistente("content123");
+        verifyNoMoreInteractions(contentTypeRegistry);
     }
 
     @Test
@@ -6,6 +6,7 @@ import com.esimedia.features.auth.repository.AdminRepository;
 import com.esimedia.features.auth.repository.CreadorContenidoRepository;
 import com.esimedia.features.auth.repository.UsuarioNormalRepository;
 import com.esimedia.features.content.dto.*;
+import com.esimedia.shared.util.FicheroSubido;
 
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -254,11 +255,28 @@ class ValidationServiceTest {
         audioDTO.setMiniatura("data:image/png;base64,abcd");
         audioDTO.setTags(Collections.singletonList("tag1"));
 
-        // Mock parcial: forzamos que esAudioSoportado devuelva true
-        ValidationService spyService = spy(validationService);
-        doReturn(true).when(spyService).esAudioSoportado(any());
+        // El formato ya no se comprueba aquí, sino sobre el fichero decodificado
+        assertNull(validationService.validateAudioContent(audioDTO));
+    }
+
+    @Test
+    void testValidateAudioContent_base64InvalidoSinDecodificar() {
+        ContentAudioUploadDTO audioDTO = new ContentAudioUploadDTO();
+        audioDTO.setFichero("abcde");
+        audioDTO.setTags(Collections.singletonList("tag1"));
+
+        assertEquals("El archivo de audio debe estar en formato base64 válido", validationService.validateAudioContent(audioDTO));
+    }
+
+    @Test
+    void testValidateAudioFile_formatoDetectadoPorCabecera() {
+        byte[] wav = new byte[64];
+        System.arraycopy("RIFF".getBytes(), 0, wav, 0, 4);
+        System.arraycopy("WAVEfmt ".getBytes(), 0, wav, 8, 8);
 
-        assertNull(spyService.validateAudioContent(audioDTO));
+        assertNull(validationService.validateAudioFile(FicheroSubido.desdeBytes(wav)));
+        assertEquals("Formato de audio no soportado", validationService.validateAudioFile(FicheroSubido.desdeBytes("hola".getBytes())));
+        assertEquals("Error al procesar el archivo de audio", validationService.validateAudioFile(null));
     }
 
     // ====================== VIDEO CONTENT ======================
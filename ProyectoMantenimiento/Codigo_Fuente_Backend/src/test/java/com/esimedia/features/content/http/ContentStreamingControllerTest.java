@@ -0,0 +1,278 @@
+package com.esimedia.features.content.http;
+
+import static org.hamcrest.Matchers.startsWith;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Date;
+
+import org.bson.BsonObjectId;
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.data.mongodb.gridfs.GridFsResource;
+import org.springframework.data.mongodb.gridfs.GridFsTemplate;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import org.springframework.web.server.ResponseStatusException;
+
+import com.esimedia.features.auth.enums.TipoContenido;
+import com.esimedia.features.auth.services.SesionService;
+import com.esimedia.features.auth.services.SessionTimeoutService;
+import com.esimedia.features.content.dto.BinaryContentDTO;
+import com.esimedia.features.content.dto.ContentAudioUploadDTO;
+import com.esimedia.features.content.dto.ContentVersionDTO;
+import com.esimedia.features.content.enums.FormatoCatalogo;
+import com.esimedia.features.content.services.AudioContentService;
+import com.esimedia.features.content.services.ContentCatalogService;
+import com.esimedia.features.content.services.ContentMediaService;
+import com.esimedia.features.content.services.UploadJobService;
+import com.esimedia.features.content.services.ValoracionService;
+import com.esimedia.features.content.services.VideoContentService;
+import com.esimedia.features.content.storage.GridFsBlobResource;
+import com.esimedia.features.user_management.services.UserRetrievalService;
+import com.esimedia.shared.util.JwtUtil;
+import com.esimedia.shared.util.JwtValidationUtil;
+import com.mongodb.client.gridfs.model.GridFSFile;
+
+@WebMvcTest(controllers = ContentController.class)
+@AutoConfigureMockMvc
+@TestPropertySource(properties = {
+    "spring.autoconfigure.exclude=" +
+    "org.springframework.boot.autoconfigure.security.servlet.SecurityAutoConfiguration," +
+    "org.springframework.boot.autoconfigure.security.servlet.SecurityFilterAutoConfiguration," +
+    "org.springframework.boot.autoconfigure.security.oauth2.client.servlet.OAuth2ClientWebSecurityAutoConfiguration," +
+    "org.springframework.boot.autoconfigure.security.oauth2.resource.servlet.OAuth2ResourceServerAutoConfiguration"
+})
+@DisplayName("Tests del Controlador de Contenidos - Streaming de audio")
+@SuppressWarnings({"removal"})
+class ContentStreamingControllerTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @MockBean private AudioContentService audioContentService;
+    @MockBean private VideoContentService videoContentService;
+    @MockBean private ValoracionService valoracionService;
+    @MockBean private JwtValidationUtil jwtValidationService;
+    @MockBean private ContentCatalogService contentCatalogService;
+    @MockBean private ContentMediaService contentMediaService;
+    @MockBean private UploadJobService uploadJobService;
+    @MockBean private SesionService sesionService;
+    @MockBean private UserRetrievalService userRetrievalService;
+    @MockBean private SessionTimeoutService sessionTimeoutService;
+    @MockBean private JwtUtil jwtUtil;
+
+    private static final String TOKEN = "Bearer test-token";
+    private static final String AUDIO_ID = "audio123";
+    private static final byte[] FICHERO = {0, 1, 2, 3, 4, 5, 6, 7, 8, 9};
+
+    @BeforeEach
+    void setUp() {
+        when(jwtUtil.getUserIdFromToken(TOKEN)).thenReturn("user123");
+        when(sessionTimeoutService.isSessionValid("user123")).thenReturn(true);
+        when(contentMediaService.getFicheroAudio(TOKEN, AUDIO_ID))
+            .thenReturn(new BinaryContentDTO(new ByteArrayResource(FICHERO), "audio/mpeg"));
+    }
+
+    @Test
+    @DisplayName("Sin Range devuelve el fichero completo y anuncia Accept-Ranges")
+    void testStream_SinRange() throws Exception {
+        mockMvc.perform(get("/content/audio/{id}/stream", AUDIO_ID).header("Authorization", TOKEN))
+            .andExpect(status().isOk())
+            .andExpect(header().string(HttpHeaders.CONTENT_TYPE, "audio/mpeg"))
+            .andExpect(header().string(HttpHeaders.ACCEPT_RANGES, "bytes"))
+            .andExpect(header().longValue(HttpHeaders.CONTENT_LENGTH, FICHERO.length))
+            .andExpect(content().bytes(FICHERO));
+    }
+
+    @Test
+    @DisplayName("Con Range devuelve 206 y solo el tramo pedido")
+    void testStream_ConRange() throws Exception {
+        mockMvc.perform(get("/content/audio/{id}/stream", AUDIO_ID)
+                .header("Authorization", TOKEN)
+                .header(HttpHeaders.RANGE, "bytes=2-5"))
+            .andExpect(status().isPartialContent())
+            .andExpect(header().string(HttpHeaders.CONTENT_RANGE, "bytes 2-5/10"))
+            .andExpect(header().longValue(HttpHeaders.CONTENT_LENGTH, 4))
+            .andExpect(content().bytes(new byte[] {2, 3, 4, 5}));
+    }
+
+    @Test
+    @DisplayName("Range fuera del fichero devuelve 416")
+    void testStream_RangeNoSatisfacible() throws Exception {
+        mockMvc.perform(get("/content/audio/{id}/stream", AUDIO_ID)
+                .header("Authorization", TOKEN)
+                .header(HttpHeaders.RANGE, "bytes=50-60"))
+            .andExpect(status().isRequestedRangeNotSatisfiable())
+            .andExpect(header().string(HttpHeaders.CONTENT_RANGE, "bytes */10"));
+    }
+
+    @Test
+    @DisplayName("Varios rangos desordenados sobre un audio en GridFS devuelven 206 multipart con cada tramo")
+    void testStream_VariosRangosEnGridFs() throws Exception {
+        GridFSFile fichero = new GridFSFile(new BsonObjectId(new ObjectId()), "hash", FICHERO.length,
+            255 * 1024, new Date(), null);
+        GridFsTemplate gridFsTemplate = mock(GridFsTemplate.class);
+        // Como en GridFS, cada GridFsResource solo se puede leer una vez
+        when(gridFsTemplate.getResource(fichero)).thenAnswer(invocation ->
+            new GridFsResource(fichero, new ByteArrayInputStream(FICHERO)));
+        when(contentMediaService.getFicheroAudio(TOKEN, AUDIO_ID))
+            .thenReturn(new BinaryContentDTO(new GridFsBlobResource(fichero, gridFsTemplate), "audio/mpeg"));
+
+        MvcResult result = mockMvc.perform(get("/content/audio/{id}/stream", AUDIO_ID)
+                .header("Authorization", TOKEN)
+                .header(HttpHeaders.RANGE, "bytes=4-5,0-1"))
+            .andExpect(status().isPartialContent())
+            .andExpect(header().string(HttpHeaders.CONTENT_TYPE, startsWith("multipart/byteranges")))
+            .andReturn();
+
+        String cuerpo = result.getResponse().getContentAsString(StandardCharsets.ISO_8859_1);
+        assertTrue(cuerpo.contains("Content-Range: bytes 0-1/10"));
+        assertTrue(cuerpo.contains("Content-Range: bytes 4-5/10"));
+        assertTrue(cuerpo.contains(new String(new byte[] {4, 5}, StandardCharsets.ISO_8859_1)));
+        // El segundo tramo va antes del primero: hay que volver a abrir el fichero
+        verify(gridFsTemplate, times(2)).getResource(fichero);
+    }
+
+    @Test
+    @DisplayName("Audio inexistente devuelve 404")
+    void testStream_NoEncontrado() throws Exception {
+        when(contentMediaService.getFicheroAudio(TOKEN, "missing"))
+            .thenThrow(new ResponseStatusException(HttpStatus.NOT_FOUND, "Fichero de audio no encontrado"));
+
+        mockMvc.perform(get("/content/audio/{id}/stream", "missing").header("Authorization", TOKEN))
+            .andExpect(status().isNotFound());
+    }
+
+    @Test
+    @DisplayName("Thumbnail con ETag fuerte y Cache-Control largo; If-None-Match devuelve 304")
+    void testThumbnail_ETagYCache() throws Exception {
+        when(contentMediaService.getThumbnail(TOKEN, AUDIO_ID, "96", null))
+            .thenReturn(new BinaryContentDTO(new ByteArrayResource(new byte[] {1, 2}), "image/jpeg", "abc123"));
+
+        mockMvc.perform(get("/content/{id}/thumbnail", AUDIO_ID).param("size", "96").header("Authorization", TOKEN))
+            .andExpect(status().isOk())
+            .andExpect(header().string(HttpHeaders.ETAG, "\"abc123\""))
+            .andExpect(header().string(HttpHeaders.CACHE_CONTROL, "max-age=31536000, private"))
+            .andExpect(content().bytes(new byte[] {1, 2}));
+
+        mockMvc.perform(get("/content/{id}/thumbnail", AUDIO_ID).param("size", "96")
+                .header("Authorization", TOKEN)
+                .header(HttpHeaders.IF_NONE_MATCH, "\"abc123\""))
+            .andExpect(status().isNotModified());
+    }
+
+    @Test
+    @DisplayName("getAllContent escribe el catálogo en streaming y admite NDJSON")
+    void testGetAllContent_Streaming() throws Exception {
+        StreamingResponseBody body = salida -> salida.write("{\"id\":\"a1\"}\n".getBytes());
+        when(contentCatalogService.streamCatalog(TOKEN, FormatoCatalogo.NDJSON)).thenReturn(body);
+
+        MvcResult resultado = mockMvc.perform(get("/content/getAllContent")
+                .header("Authorization", TOKEN)
+                .accept(MediaType.APPLICATION_NDJSON))
+            .andExpect(request().asyncStarted())
+            .andReturn();
+
+        mockMvc.perform(asyncDispatch(resultado))
+            .andExpect(status().isOk())
+            .andExpect(header().string(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_NDJSON_VALUE))
+            .andExpect(header().string(HttpHeaders.VARY, HttpHeaders.ACCEPT))
+            .andExpect(content().string("{\"id\":\"a1\"}\n"));
+    }
+
+    @Test
+    @DisplayName("getAllContent negocia Smile por calidad de Accept")
+    void testGetAllContent_Smile() throws Exception {
+        StreamingResponseBody body = salida -> salida.write(new byte[] {':', ')', '\n'});
+        when(contentCatalogService.streamCatalog(TOKEN, FormatoCatalogo.SMILE)).thenReturn(body);
+
+        MvcResult resultado = mockMvc.perform(get("/content/getAllContent")
+                .header("Authorization", TOKEN)
+                .header(HttpHeaders.ACCEPT, "application/json;q=0.5, application/x-jackson-smile"))
+            .andExpect(request().asyncStarted())
+            .andReturn();
+
+        mockMvc.perform(asyncDispatch(resultado))
+            .andExpect(status().isOk())
+            .andExpect(header().string(HttpHeaders.CONTENT_TYPE, "application/x-jackson-smile"));
+    }
+
+    @Test
+    @DisplayName("getAllContent responde 406 si no acepta ningún formato del catálogo")
+    void testGetAllContent_FormatoNoAceptable() throws Exception {
+        mockMvc.perform(get("/content/getAllContent")
+                .header("Authorization", TOKEN)
+                .accept(MediaType.APPLICATION_XML))
+            .andExpect(status().isNotAcceptable())
+            .andExpect(header().string(HttpHeaders.VARY, HttpHeaders.ACCEPT));
+
+        verifyNoInteractions(contentCatalogService);
+    }
+
+    @Test
+    @DisplayName("getAllContent con el ETag del catálogo actual devuelve 304 sin generar el catálogo")
+    void testGetAllContent_NoModificado() throws Exception {
+        when(contentCatalogService.getVersionCatalogo(TOKEN, FormatoCatalogo.JSON))
+            .thenReturn(new ContentVersionDTO("W/\"42-abc\"", 1_700_000_000_000L));
+
+        mockMvc.perform(get("/content/getAllContent")
+                .header("Authorization", TOKEN)
+                .header(HttpHeaders.IF_NONE_MATCH, "W/\"42-abc\""))
+            .andExpect(status().isNotModified())
+            .andExpect(header().string(HttpHeaders.ETAG, "W/\"42-abc\""))
+            .andExpect(header().string(HttpHeaders.VARY, HttpHeaders.ACCEPT));
+
+        verify(contentCatalogService, never()).streamCatalog(anyString(), any());
+    }
+
+    @Test
+    @DisplayName("getAudio devuelve ETag y Last-Modified y responde 304 a If-Modified-Since sin cargar el audio")
+    void testGetAudio_Condicional() throws Exception {
+        when(contentCatalogService.getVersionContenido(TOKEN, TipoContenido.AUDIO, AUDIO_ID))
+            .thenReturn(new ContentVersionDTO("W/\"7-abc\"", 1_700_000_000_000L));
+        ContentAudioUploadDTO audio = new ContentAudioUploadDTO();
+        audio.setId(AUDIO_ID);
+        when(audioContentService.getAudioByIdAsDTO(TOKEN, AUDIO_ID)).thenReturn(audio);
+
+        MvcResult resultado = mockMvc.perform(get("/content/getAudio/{id}", AUDIO_ID).header("Authorization", TOKEN))
+            .andExpect(status().isOk())
+            .andExpect(header().string(HttpHeaders.ETAG, "W/\"7-abc\""))
+            .andExpect(header().string(HttpHeaders.CACHE_CONTROL, "no-cache, private"))
+            .andReturn();
+
+        mockMvc.perform(get("/content/getAudio/{id}", AUDIO_ID)
+                .header("Authorization", TOKEN)
+                .header(HttpHeaders.IF_MODIFIED_SINCE, resultado.getResponse().getHeader(HttpHeaders.LAST_MODIFIED)))
+            .andExpect(status().isNotModified());
+
+        verify(audioContentService, times(1)).getAudioByIdAsDTO(TOKEN, AUDIO_ID);
+    }
+
+    @Test
+    @DisplayName("getAllContent sin acceso devuelve 401 sin empezar el streaming")
+    void testGetAllContent_NoAutorizado() throws Exception {
+        when(contentCatalogService.streamCatalog(TOKEN, FormatoCatalogo.JSON))
+            .thenThrow(new ResponseStatusException(HttpStatus.FORBIDDEN, "Sin acceso"));
+
+        mockMvc.perform(get("/content/getAllContent").header("Authorization", TOKEN))
+            .andExpect(status().isUnauthorized());
+    }
+}
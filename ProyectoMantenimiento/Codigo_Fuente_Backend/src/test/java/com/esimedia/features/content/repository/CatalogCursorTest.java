@@ -0,0 +1,142 @@
+package com.esimedia.features.content.repository;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+import org.bson.Document;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.mongodb.core.query.Criteria;
+
+import com.esimedia.features.auth.enums.Rol;
+import com.esimedia.features.content.entity.Contenido;
+import com.esimedia.features.content.entity.ContenidosAudio;
+import com.esimedia.features.content.enums.Resolucion;
+
+class CatalogCursorTest {
+
+    @Test
+    void testEncodeDecode_RoundTrip() {
+        CatalogCursor cursor = new CatalogCursor(new Date(1700000000000L), "65a1b2c3d4e5f60718293a4b");
+
+        CatalogCursor decoded = CatalogCursor.decode(cursor.encode());
+
+        assertEquals(cursor.getId(), decoded.getId());
+        assertEquals(cursor.getFechaSubida(), decoded.getFechaSubida());
+    }
+
+    @Test
+    void testEncodeDecode_SinFecha() {
+        CatalogCursor decoded = CatalogCursor.decode(new CatalogCursor(null, "abc").encode());
+
+        assertNull(decoded.getFechaSubida());
+        assertEquals("abc", decoded.getId());
+    }
+
+    @Test
+    void testDecode_EmptyToken() {
+        assertNull(CatalogCursor.decode(null));
+        assertNull(CatalogCursor.decode("  "));
+    }
+
+    @Test
+    void testDecode_InvalidToken() {
+        assertThrows(IllegalArgumentException.class, () -> CatalogCursor.decode("no-es-base64!"));
+        assertThrows(IllegalArgumentException.class, () -> CatalogCursor.decode("c2luc2VwYXJhZG9y"));
+    }
+
+    @Test
+    void testOrdenCatalogo_NewestFirstAndNullDatesLast() {
+        List<Contenido> contenidos = new ArrayList<>(List.of(
+            ContenidosAudio.builder().id("a").fechaSubida(new Date(1000)).build(),
+            ContenidosAudio.builder().id("b").fechaSubida(null).build(),
+            ContenidosAudio.builder().id("c").fechaSubida(new Date(2000)).build(),
+            ContenidosAudio.builder().id("d").fechaSubida(new Date(1000)).build()
+        ));
+
+        contenidos.sort(CatalogCursor.ORDEN_CATALOGO);
+
+        assertEquals(List.of("c", "d", "a", "b"), contenidos.stream().map(Contenido::getId).toList());
+    }
+
+    @Test
+    void testEncodeDecode_OtraOrdenacion() {
+        CatalogCursor decoded = CatalogCursor.decode(new CatalogCursor(CatalogSort.VALORACION, 4.25, "abc").encode());
+        CatalogCursor sinValor = CatalogCursor.decode(new CatalogCursor(CatalogSort.VISUALIZACIONES, null, "def").encode());
+
+        assertEquals(CatalogSort.VALORACION, decoded.getOrden());
+        assertEquals(4.25, decoded.getValor());
+        assertNull(decoded.getFechaSubida());
+        assertEquals(CatalogSort.VISUALIZACIONES, sinValor.getOrden());
+        assertNull(sinValor.getValor());
+        assertEquals("def", sinValor.getId());
+    }
+
+    @Test
+    void testOrdenValoracion_MejorValoradosPrimeroYDesempatePorId() {
+        ContenidosAudio a = ContenidosAudio.builder().id("a").build();
+        a.setValoracionMedia(4.0);
+        ContenidosAudio b = ContenidosAudio.builder().id("b").build();
+        b.setValoracionMedia(4.0);
+        ContenidosAudio c = ContenidosAudio.builder().id("c").build();
+        c.setValoracionMedia(2.0);
+        List<Contenido> contenidos = new ArrayList<>(List.of(c, a, b));
+
+        contenidos.sort(CatalogSort.VALORACION.getComparador());
+
+        assertEquals(List.of("b", "a", "c"), contenidos.stream().map(Contenido::getId).toList());
+    }
+
+    @Test
+    void testCatalogFilter_AnadeFacetas() {
+        CatalogFacets facetas = CatalogFacets.builder()
+            .resolucion(Resolucion.HD_720).duracionMin(60).duracionMax(600).build();
+
+        List<Criteria> criterios = CatalogFilter.forUser(Rol.ADMINISTRADOR, null).conFacetas(facetas).toCriteria();
+
+        assertEquals(2, criterios.size());
+        assertEquals("HD_720", criterios.get(0).getCriteriaObject().get("resolucion"));
+        assertEquals(4, CatalogFilter.forUser(Rol.NORMAL, null).conFacetas(facetas).toCriteria().size());
+    }
+
+    @Test
+    void testEtapasFaceta_CadaFacetaSeCuentaSinSuPropioFiltro() {
+        CatalogFacets facetas = CatalogFacets.builder()
+            .especialidad("rock").esVIP(true).duracionMin(60).build();
+        Document agrupacion = new Document("$group", new Document("_id", "$especialidad"));
+
+        List<Document> especialidad = ContentCatalogRepository.etapasFaceta(facetas, CatalogFacets.ESPECIALIDAD, agrupacion);
+        List<Document> duracion = ContentCatalogRepository.etapasFaceta(facetas, CatalogFacets.DURACION, agrupacion);
+
+        String filtroEspecialidad = especialidad.get(0).toJson();
+        assertFalse(filtroEspecialidad.contains("rock"));
+        assertTrue(filtroEspecialidad.contains("esVIP"));
+        assertTrue(filtroEspecialidad.contains("duracion"));
+        String filtroDuracion = duracion.get(0).toJson();
+        assertTrue(filtroDuracion.contains("rock"));
+        assertFalse(filtroDuracion.contains("duracion"));
+        assertSame(agrupacion, especialidad.get(1));
+        // Sin más facetas que la propia no hay $match
+        assertEquals(List.of(agrupacion), ContentCatalogRepository.etapasFaceta(
+            CatalogFacets.builder().especialidad("rock").build(), CatalogFacets.ESPECIALIDAD, agrupacion));
+    }
+
+    @Test
+    void testCatalogFilter_VisibilidadSinFacetas() {
+        CatalogFacets facetas = CatalogFacets.builder().especialidad("rock").build();
+
+        assertEquals(3, CatalogFilter.forUser(Rol.NORMAL, 14).conFacetas(facetas).toCriteriaVisibilidad().size());
+        assertEquals(4, CatalogFilter.forUser(Rol.NORMAL, 14).conFacetas(facetas).toCriteria().size());
+    }
+
+    @Test
+    void testCatalogFilter_OnlyRestrictsNormalUsers() {
+        assertTrue(CatalogFilter.forUser(Rol.ADMINISTRADOR, 30).toCriteria().isEmpty());
+        assertEquals(2, CatalogFilter.forUser(Rol.NORMAL, null).toCriteria().size());
+        assertEquals(3, CatalogFilter.forUser(Rol.NORMAL, 14).toCriteria().size());
+        assertEquals(List.of("ESCOLARES", "INFANTIL", "PREESCOLAR"),
+            CatalogFilter.restriccionesPermitidas(14).subList(1, 4));
+    }
+}
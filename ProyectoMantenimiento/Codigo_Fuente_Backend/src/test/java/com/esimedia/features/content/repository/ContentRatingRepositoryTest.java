@@ -0,0 +1,62 @@
+package com.esimedia.features.content.repository;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+import java.util.Date;
+
+import org.bson.Document;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.AggregationUpdate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.UpdateDefinition;
+
+import com.esimedia.features.content.entity.ContenidosAudio;
+import com.esimedia.features.content.entity.ValoracionContenido;
+
+class ContentRatingRepositoryTest {
+
+    private final MongoTemplate mongoTemplate = mock(MongoTemplate.class);
+    private final ContentVersionRepository versionRepository = mock(ContentVersionRepository.class);
+    private final ContentRatingRepository repository = new ContentRatingRepository(mongoTemplate, versionRepository);
+
+    @Test
+    void testCambiarValoracion_UpsertDevuelveElValorAnterior() {
+        when(mongoTemplate.findAndModify(any(Query.class), any(UpdateDefinition.class), any(FindAndModifyOptions.class),
+            eq(ValoracionContenido.class))).thenReturn(new ValoracionContenido("c1", "u1", 3.0));
+
+        assertEquals(3.0, repository.cambiarValoracion("c1", "u1", 4.5));
+
+        ArgumentCaptor<Query> query = ArgumentCaptor.forClass(Query.class);
+        ArgumentCaptor<FindAndModifyOptions> opciones = ArgumentCaptor.forClass(FindAndModifyOptions.class);
+        verify(mongoTemplate).findAndModify(query.capture(), any(UpdateDefinition.class), opciones.capture(),
+            eq(ValoracionContenido.class));
+        assertEquals(new Document("idContenido", "c1").append("idUsuario", "u1"), query.getValue().getQueryObject());
+        assertTrue(opciones.getValue().isUpsert());
+        assertFalse(opciones.getValue().isReturnNew());
+    }
+
+    @Test
+    void testCambiarValoracion_PrimeraValoracionDevuelveNull() {
+        assertNull(repository.cambiarValoracion("c1", "u1", 4.5));
+    }
+
+    @Test
+    void testAplicar_UsaElPipelineQueRecalculaLaMedia() {
+        when(versionRepository.avanzar()).thenReturn(new ContentVersionRepository.Version(7, new Date(7000)));
+
+        repository.aplicar(ContenidosAudio.class, new RatingTotals("c1").add(3.0, -1).add(5.0, 1));
+
+        ArgumentCaptor<UpdateDefinition> update = ArgumentCaptor.forClass(UpdateDefinition.class);
+        ArgumentCaptor<FindAndModifyOptions> opciones = ArgumentCaptor.forClass(FindAndModifyOptions.class);
+        verify(mongoTemplate).findAndModify(any(Query.class), update.capture(), opciones.capture(), eq(ContenidosAudio.class));
+        assertInstanceOf(AggregationUpdate.class, update.getValue());
+        assertTrue(opciones.getValue().isReturnNew());
+        // Un único update: la media no se escribe aparte
+        verify(mongoTemplate, never()).updateFirst(any(Query.class), any(UpdateDefinition.class), any(Class.class));
+    }
+}
@@ -0,0 +1,41 @@
+package com.esimedia.features.content.repository;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+import java.util.List;
+
+import org.bson.Document;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+
+import com.esimedia.features.auth.enums.Rol;
+
+class ContentSearchRepositoryTest {
+
+    private final ContentSearchRepository repository = new ContentSearchRepository(mock(MongoTemplate.class));
+
+    private List<Document> pipeline(Rol rol) {
+        return repository.buildAgregacion("rock", CatalogFilter.forUser(rol, 15), 10)
+            .toPipeline(Aggregation.DEFAULT_CONTEXT);
+    }
+
+    @Test
+    void testAgregacion_TextoYVisibilidadEnLaPrimeraEtapa() {
+        Document match = pipeline(Rol.NORMAL).get(0).get("$match", Document.class);
+
+        assertEquals("rock", match.get("$text", Document.class).getString("$search"));
+        assertEquals(3, match.getList("$and", Object.class).size());
+    }
+
+    @Test
+    void testAgregacion_SinRestriccionesParaOtrosRoles() {
+        List<Document> etapas = pipeline(Rol.ADMINISTRADOR);
+
+        assertFalse(etapas.get(0).get("$match", Document.class).containsKey("$and"));
+        assertEquals(new Document(ContentSearchRepository.PUNTUACION, -1).append("_id", -1),
+            etapas.get(2).get("$sort", Document.class));
+        assertEquals(10, etapas.get(3).getInteger("$limit"));
+    }
+}
@@ -0,0 +1,42 @@
+package com.esimedia.features.content.scheduler;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+import java.util.Date;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import com.esimedia.features.content.entity.ContenidosAudio;
+import com.esimedia.features.content.entity.ContenidosVideo;
+import com.esimedia.features.content.repository.ContentCatalogRepository;
+
+@ExtendWith(MockitoExtension.class)
+class ExpiredContentSweeperTest {
+
+    @Mock private ContentCatalogRepository catalogRepository;
+
+    @InjectMocks
+    private ExpiredContentSweeper sweeper;
+
+    @Test
+    void testOcultarCaducados_UnaActualizacionPorColeccionConLaMismaFecha() {
+        when(catalogRepository.ocultarCaducados(eq(ContenidosAudio.class), any())).thenReturn(2L);
+        when(catalogRepository.ocultarCaducados(eq(ContenidosVideo.class), any())).thenReturn(0L);
+
+        sweeper.ocultarCaducados();
+
+        ArgumentCaptor<Date> audioFecha = ArgumentCaptor.forClass(Date.class);
+        ArgumentCaptor<Date> videoFecha = ArgumentCaptor.forClass(Date.class);
+        verify(catalogRepository).ocultarCaducados(eq(ContenidosAudio.class), audioFecha.capture());
+        verify(catalogRepository).ocultarCaducados(eq(ContenidosVideo.class), videoFecha.capture());
+        assertSame(audioFecha.getValue(), videoFecha.getValue());
+        verifyNoMoreInteractions(catalogRepository);
+    }
+}
@@ -0,0 +1,90 @@
+package com.esimedia.features.content.scheduler;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+
+import org.bson.Document;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.UpdateDefinition;
+import org.springframework.data.util.Pair;
+
+import com.esimedia.features.content.entity.ContenidosAudio;
+import com.esimedia.features.content.repository.ContentVersionRepository;
+import com.esimedia.features.content.services.ContentBatchLoader;
+
+@ExtendWith(MockitoExtension.class)
+@SuppressWarnings("unchecked")
+class TagBackfillJobTest {
+
+    @Mock private MongoTemplate mongoTemplate;
+    @Mock private ContentBatchLoader batchLoader;
+    @Mock private BulkOperations bulk;
+    @Mock private ContentVersionRepository versionRepository;
+
+    @InjectMocks
+    private TagBackfillJob job;
+
+    @BeforeEach
+    void setUp() {
+        when(mongoTemplate.getCollectionName(ContenidosAudio.class)).thenReturn("contenidosAudio");
+    }
+
+    private int rellenarAudios() {
+        return job.rellenar(ContenidosAudio.class, batchLoader::cargarTagsAudios);
+    }
+
+    @Test
+    void testRellenar_EscribeNombresEnUnaOperacionBulk() {
+        when(mongoTemplate.find(any(Query.class), eq(Document.class), eq("contenidosAudio")))
+            .thenReturn(List.of(new Document("_id", "a1"), new Document("_id", "a2")));
+        when(batchLoader.cargarTagsAudios(List.of("a1", "a2"))).thenReturn(Map.of("a1", List.of("rock")));
+        when(mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, ContenidosAudio.class)).thenReturn(bulk);
+        when(bulk.updateOne(anyList())).thenReturn(bulk);
+        when(versionRepository.avanzar()).thenReturn(new ContentVersionRepository.Version(9, new Date(9000)));
+
+        assertEquals(1, rellenarAudios());
+
+        ArgumentCaptor<List<Pair<Query, UpdateDefinition>>> cambios = ArgumentCaptor.forClass(List.class);
+        verify(bulk).updateOne(cambios.capture());
+        assertEquals(1, cambios.getValue().size());
+        Pair<Query, UpdateDefinition> cambio = cambios.getValue().get(0);
+        assertEquals("a1", cambio.getFirst().getQueryObject().get("_id"));
+        assertEquals(List.of("rock"), cambio.getSecond().getUpdateObject().get("$set", Document.class).get("tags"));
+        // Los tags salen en las respuestas en caché: el lote avanza la versión del catálogo una sola vez
+        assertEquals(9L, cambio.getSecond().getUpdateObject().get("$max", Document.class).get("version"));
+        verify(versionRepository, times(1)).avanzar();
+        verify(bulk).execute();
+    }
+
+    @Test
+    void testRellenar_ContinuaDesdeElUltimoIdYTerminaSinVolverAConsultar() {
+        when(mongoTemplate.find(any(Query.class), eq(Document.class), eq("contenidosAudio")))
+            .thenReturn(List.of(new Document("_id", "a1")))
+            .thenReturn(List.of());
+        when(batchLoader.cargarTagsAudios(anyList())).thenReturn(Map.of());
+
+        assertEquals(0, rellenarAudios());
+        assertEquals(0, rellenarAudios());
+        assertEquals(0, rellenarAudios());
+
+        ArgumentCaptor<Query> consultas = ArgumentCaptor.forClass(Query.class);
+        verify(mongoTemplate, times(2)).find(consultas.capture(), eq(Document.class), eq("contenidosAudio"));
+        assertEquals(new Document("$gt", "a1"), consultas.getAllValues().get(1).getQueryObject().get("_id"));
+        verify(mongoTemplate, never()).bulkOps(any(BulkOperations.BulkMode.class), any(Class.class));
+        verifyNoInteractions(versionRepository);
+    }
+}
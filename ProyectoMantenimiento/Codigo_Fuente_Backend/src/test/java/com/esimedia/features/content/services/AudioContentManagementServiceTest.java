@@ -6,12 +6,15 @@ import static org.mockito.Mockito.*;
 
 import java.util.*;
 
+import org.bson.Document;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.mongodb.core.query.Update;
 import org.springframework.web.server.ResponseStatusException;
 
 import com.esimedia.features.auth.entity.CreadorContenido;
@@ -22,6 +25,8 @@ import com.esimedia.features.auth.services.ValidationService;
 import com.esimedia.features.content.dto.ContentUpdateDTO;
 import com.esimedia.features.content.entity.*;
 import com.esimedia.features.content.repository.*;
+import com.esimedia.features.content.storage.BlobStore;
+import com.esimedia.features.content.repository.ContentVersionRepository;
 import com.esimedia.shared.util.JwtValidationUtil;
 
 @ExtendWith(MockitoExtension.class)
@@ -32,9 +37,17 @@ public class AudioContentManagementServiceTest {
     @Mock private ValidationService validationService;
     @Mock private ContenidosAudioRepository contenidoAudioRepository;
     @Mock private ContenidoAudioTagRepository contenidoAudioTagRepository;
-    @Mock private TagsRepository tagsRepository;
+    @Mock private TagDictionary tagDictionary;
+    @Mock private ViewCounterService viewCounterService;
     @Mock private ValoracionContenidoRepository valoracionRepository;
     @Mock private ContentAuthorizationService contentAuthorizationService;
+    @Mock private BlobStore blobStore;
+    @Mock private ContentTypeRegistry contentTypeRegistry;
+    @Mock private ContentTagIndex tagIndex;
+    @Mock private ContentSimilarityIndex similarityIndex;
+    @Mock private LeaderboardService leaderboardService;
+    @Mock private ContentVersionRepository versionRepository;
+    @Mock private ContentCatalogRepository catalogRepository;
 
     @InjectMocks
     private AudioContentManagementService audioContentManagementService;
@@ -48,6 +61,8 @@ public class AudioContentManagementServiceTest {
 
     @BeforeEach
     void setUp() {
+        // Cada alta, edición o borrado avanza la versión del catálogo
+        lenient().when(versionRepository.avanzar()).thenReturn(new ContentVersionRepository.Version(7, new Date(7000)));
         audio = ContenidosAudio.builder()
             .id(AUDIO_ID)
             .titulo("Test Audio")
@@ -80,11 +95,87 @@ public class AudioContentManagementServiceTest {
         when(creadorContenidoRepository.findById(USER_ID)).thenReturn(Optional.of(creador));
         when(contenidoAudioRepository.findById(AUDIO_ID)).thenReturn(Optional.of(audio));
         when(validationService.validateContentUpdate(updateDTO)).thenReturn(null);
-        when(contenidoAudioRepository.save(any())).thenReturn(audio);
+        when(catalogRepository.actualizar(eq(ContenidosAudio.class), eq(AUDIO_ID), any())).thenReturn(true);
 
         String result = audioContentManagementService.updateAudioContent(AUTH_HEADER, AUDIO_ID, updateDTO);
 
         assertTrue(result.contains("SUCCESS"));
+        Document update = actualizacion().getUpdateObject();
+        assertEquals("New Title", ((Document) update.get("$set")).get("titulo"));
+        assertEquals("New Desc", ((Document) update.get("$set")).get("descripcion"));
+        // La edición se guarda con la nueva versión del catálogo
+        assertEquals(7L, ((Document) update.get("$max")).get("version"));
+        assertEquals(new Date(7000), ((Document) update.get("$max")).get("modificado"));
+        verify(contenidoAudioRepository, never()).save(any());
+    }
+
+    @Test
+    void testUpdateAudioContent_NoPisaVisualizacionesIncrementadasDuranteLaEdicion() {
+        ContentUpdateDTO updateDTO = new ContentUpdateDTO();
+        updateDTO.setTitulo("New Title");
+        Document almacenado = new Document("_id", AUDIO_ID).append("titulo", "Test Audio").append("visualizaciones", 10);
+
+        when(jwtValidationService.validateContentUpload(AUTH_HEADER, TipoContenido.AUDIO)).thenReturn(USER_ID);
+        when(creadorContenidoRepository.findById(USER_ID)).thenReturn(Optional.of(creador));
+        when(contenidoAudioRepository.findById(AUDIO_ID)).thenAnswer(inv -> {
+            Optional<ContenidosAudio> cargado = Optional.of(audio);
+            // Un volcado de visualizaciones ($inc) llega entre la lectura y la escritura de la edición
+            almacenado.put("visualizaciones", almacenado.getInteger("visualizaciones") + 5);
+            return cargado;
+        });
+        when(validationService.validateContentUpdate(updateDTO)).thenReturn(null);
+        when(catalogRepository.actualizar(eq(ContenidosAudio.class), eq(AUDIO_ID), any())).thenAnswer(inv -> {
+            Update update = inv.getArgument(2);
+            almacenado.putAll((Document) update.getUpdateObject().get("$set"));
+            return true;
+        });
+
+        audioContentManagementService.updateAudioContent(AUTH_HEADER, AUDIO_ID, updateDTO);
+
+        assertEquals("New Title", almacenado.get("titulo"));
+        assertEquals(15, almacenado.get("visualizaciones"));
+    }
+
+    @Test
+    void testUpdateAudioContent_BorradoDuranteLaEdicion() {
+        ContentUpdateDTO updateDTO = new ContentUpdateDTO();
+        updateDTO.setTitulo("New Title");
+
+        when(jwtValidationService.validateContentUpload(AUTH_HEADER, TipoContenido.AUDIO)).thenReturn(USER_ID);
+        when(creadorContenidoRepository.findById(USER_ID)).thenReturn(Optional.of(creador));
+        when(contenidoAudioRepository.findById(AUDIO_ID)).thenReturn(Optional.of(audio));
+        when(validationService.validateContentUpdate(updateDTO)).thenReturn(null);
+        when(catalogRepository.actualizar(eq(ContenidosAudio.class), eq(AUDIO_ID), any())).thenReturn(false);
+
+        ResponseStatusException ex = assertThrows(ResponseStatusException.class,
+            () -> audioContentManagementService.updateAudioContent(AUTH_HEADER, AUDIO_ID, updateDTO));
+
+        assertEquals(404, ex.getStatusCode().value());
+    }
+
+    private Update actualizacion() {
+        ArgumentCaptor<Update> update = ArgumentCaptor.forClass(Update.class);
+        verify(catalogRepository).actualizar(eq(ContenidosAudio.class), eq(AUDIO_ID), update.capture());
+        return update.getValue();
+    }
+
+    @Test
+    void testUpdateAudioContent_DesnormalizaNombresDeTags() {
+        ContentUpdateDTO updateDTO = new ContentUpdateDTO();
+        updateDTO.setTags(List.of(" rock ", "jazz", "rock"));
+
+        when(jwtValidationService.validateContentUpload(AUTH_HEADER, TipoContenido.AUDIO)).thenReturn(USER_ID);
+        when(creadorContenidoRepository.findById(USER_ID)).thenReturn(Optional.of(creador));
+        when(contenidoAudioRepository.findById(AUDIO_ID)).thenReturn(Optional.of(audio));
+        when(validationService.validateContentUpdate(updateDTO)).thenReturn(null);
+        when(tagDictionary.resolverIds(List.of("rock", "jazz"))).thenReturn(Map.of("rock", "id-rock", "jazz", "id-jazz"));
+        when(catalogRepository.actualizar(eq(ContenidosAudio.class), eq(AUDIO_ID), any())).thenReturn(true);
+
+        audioContentManagementService.updateAudioContent(AUTH_HEADER, AUDIO_ID, updateDTO);
+
+        assertEquals(List.of("rock", "jazz"), ((Document) actualizacion().getUpdateObject().get("$set")).get("tags"));
+        verify(contenidoAudioTagRepository).insert(List.of(
+            new ContenidoAudioTag(AUDIO_ID, "id-rock"), new ContenidoAudioTag(AUDIO_ID, "id-jazz")));
     }
 
     @Test
@@ -164,6 +255,25 @@ public class AudioContentManagementServiceTest {
 
         verify(contenidoAudioTagRepository).deleteByIdContenido(AUDIO_ID);
         verify(contenidoAudioRepository).deleteById(AUDIO_ID);
+        verify(contentTypeRegistry).eliminar(AUDIO_ID);
+        verify(tagIndex).eliminar(AUDIO_ID);
+        verify(similarityIndex).eliminar(AUDIO_ID);
+        verify(leaderboardService).eliminar(AUDIO_ID);
+        verify(versionRepository).avanzar();
+    }
+
+    @Test
+    void testDeleteAudioContent_EliminaBlobsEnGridFs() {
+        audio.setFicheroBlob(new BlobRef("blob-fichero", 100, "hash"));
+        audio.setMiniaturaBlob(new BlobRef("blob-miniatura", 10, "hash"));
+        when(contenidoAudioRepository.findById(AUDIO_ID)).thenReturn(Optional.of(audio));
+        when(valoracionRepository.findByIdContenido(AUDIO_ID)).thenReturn(Collections.emptyList());
+        doCallRealMethod().when(blobStore).eliminarBlobs(any());
+
+        audioContentManagementService.deleteAudioContent(AUTH_HEADER, AUDIO_ID);
+
+        verify(blobStore).eliminar("blob-fichero");
+        verify(blobStore).eliminar("blob-miniatura");
     }
 
     @Test
@@ -198,17 +308,17 @@ public class AudioContentManagementServiceTest {
 
     @Test
     void testIncrementarVisualizaciones_Success() {
-        when(contenidoAudioRepository.findById(AUDIO_ID)).thenReturn(Optional.of(audio));
-        when(contenidoAudioRepository.save(any())).thenReturn(audio);
+        when(contenidoAudioRepository.existsById(AUDIO_ID)).thenReturn(true);
 
         audioContentManagementService.incrementarVisualizaciones(AUDIO_ID);
 
-        verify(contenidoAudioRepository).save(argThat(a -> a.getVisualizaciones() == 1));
+        verify(viewCounterService).registrar(ContenidosAudio.class, AUDIO_ID);
+        verify(contenidoAudioRepository, never()).save(any());
     }
 
     @Test
     void testIncrementarVisualizaciones_NotFound() {
-        when(contenidoAudioRepository.findById(AUDIO_ID)).thenReturn(Optional.empty());
+        when(contenidoAudioRepository.existsById(AUDIO_ID)).thenReturn(false);
 
         assertThrows(ResponseStatusException.class, () ->
             audioContentManagementService.incrementarVisualizaciones(AUDIO_ID));
@@ -216,8 +326,7 @@ public class AudioContentManagementServiceTest {
 
     @Test
     void testIncrementarVisualizaciones_Exception() {
-        when(contenidoAudioRepository.findById(AUDIO_ID)).thenReturn(Optional.of(audio));
-        when(contenidoAudioRepository.save(any())).thenThrow(new RuntimeException("Error"));
+        when(contenidoAudioRepository.existsById(AUDIO_ID)).thenThrow(new RuntimeException("Error"));
 
         assertThrows(ResponseStatusException.class, () ->
             audioContentManagementService.incrementarVisualizaciones(AUDIO_ID));
@@ -9,8 +9,10 @@ import java.util.*;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
 
 import com.esimedia.features.auth.entity.UsuarioNormal;
@@ -22,6 +24,7 @@ import com.esimedia.features.content.dto.ContentAudioUploadDTO;
 import com.esimedia.features.content.entity.*;
 import com.esimedia.features.content.enums.RestriccionEdad;
 import com.esimedia.features.content.repository.*;
+import com.esimedia.features.content.storage.BlobStore;
 import com.esimedia.shared.util.JwtValidationUtil;
 
 @ExtendWith(MockitoExtension.class)
@@ -31,9 +34,10 @@ public class AudioContentRetrievalServiceTest {
     @Mock private UsuarioNormalRepository usuarioNormalRepository;
     @Mock private ValidationService validationService;
     @Mock private ContenidosAudioRepository contenidoAudioRepository;
-    @Mock private ContenidoAudioTagRepository contenidoAudioTagRepository;
-    @Mock private TagsRepository tagsRepository;
-    @Mock private ValoracionContenidoRepository valoracionRepository;
+    @Mock private ContentBatchLoader batchLoader;
+    @Mock private ContentCatalogRepository catalogRepository;
+    @Mock private BlobStore blobStore;
+    @Spy private ContentMediaUrls mediaUrls = new ContentMediaUrls("secreto-de-prueba");
 
     @InjectMocks
     private AudioContentRetrievalService audioContentRetrievalService;
@@ -62,6 +66,11 @@ public class AudioContentRetrievalServiceTest {
             .build();
     }
 
+    private String firma() {
+        String url = mediaUrls.miniatura(AUDIO_ID, "image/png");
+        return url.substring(url.indexOf("firma=") + "firma=".length());
+    }
+
     // ========== getAllAudiosAsDTO - Rol branches ==========
 
     @Test
@@ -75,8 +84,7 @@ public class AudioContentRetrievalServiceTest {
         when(jwtValidationService.getRolFromToken(AUTH_HEADER)).thenReturn(Rol.NORMAL);
         when(usuarioNormalRepository.findById(USER_ID)).thenReturn(Optional.of(user));
         when(validationService.calculateAge(any())).thenReturn(20);
-        when(contenidoAudioRepository.findAll()).thenReturn(Arrays.asList(audio));
-        when(contenidoAudioTagRepository.findByIdContenido(any())).thenReturn(Collections.emptyList());
+        when(catalogRepository.findAllVisible(eq(ContenidosAudio.class), any())).thenReturn(Arrays.asList(audio));
 
         List<ContentAudioUploadDTO> result = audioContentRetrievalService.getAllAudiosAsDTO(AUTH_HEADER);
 
@@ -94,11 +102,15 @@ public class AudioContentRetrievalServiceTest {
         when(jwtValidationService.getRolFromToken(AUTH_HEADER)).thenReturn(Rol.NORMAL);
         when(usuarioNormalRepository.findById(USER_ID)).thenReturn(Optional.of(user));
         when(validationService.calculateAge(any())).thenReturn(10);
-        when(contenidoAudioRepository.findAll()).thenReturn(Arrays.asList(audio));
+        // El filtro se aplica en MongoDB: el repositorio no devuelve el contenido
+        when(catalogRepository.findAllVisible(eq(ContenidosAudio.class), any())).thenReturn(List.of());
 
         List<ContentAudioUploadDTO> result = audioContentRetrievalService.getAllAudiosAsDTO(AUTH_HEADER);
 
         assertTrue(result.isEmpty());
+        ArgumentCaptor<CatalogFilter> filter = ArgumentCaptor.forClass(CatalogFilter.class);
+        verify(catalogRepository).findAllVisible(eq(ContenidosAudio.class), filter.capture());
+        assertEquals(10, filter.getValue().getEdadUsuario());
     }
 
     @Test
@@ -108,19 +120,22 @@ public class AudioContentRetrievalServiceTest {
         when(jwtValidationService.validateContentAccess(AUTH_HEADER, TipoContenido.AUDIO)).thenReturn(USER_ID);
         when(jwtValidationService.getRolFromToken(AUTH_HEADER)).thenReturn(Rol.NORMAL);
         when(usuarioNormalRepository.findById(USER_ID)).thenReturn(Optional.of(new UsuarioNormal()));
-        when(contenidoAudioRepository.findAll()).thenReturn(Arrays.asList(audio));
+        // El filtro se aplica en MongoDB: el repositorio no devuelve el contenido
+        when(catalogRepository.findAllVisible(eq(ContenidosAudio.class), any())).thenReturn(List.of());
 
         List<ContentAudioUploadDTO> result = audioContentRetrievalService.getAllAudiosAsDTO(AUTH_HEADER);
 
         assertTrue(result.isEmpty());
+        ArgumentCaptor<CatalogFilter> filter = ArgumentCaptor.forClass(CatalogFilter.class);
+        verify(catalogRepository).findAllVisible(eq(ContenidosAudio.class), filter.capture());
+        assertTrue(filter.getValue().isSoloVisibles());
     }
 
     @Test
     void testGetAllAudiosAsDTO_RolCreador() {
         when(jwtValidationService.validateContentAccess(AUTH_HEADER, TipoContenido.AUDIO)).thenReturn(USER_ID);
         when(jwtValidationService.getRolFromToken(AUTH_HEADER)).thenReturn(Rol.CREADOR);
-        when(contenidoAudioRepository.findAll()).thenReturn(Arrays.asList(audio));
-        when(contenidoAudioTagRepository.findByIdContenido(any())).thenReturn(Collections.emptyList());
+        when(catalogRepository.findAllVisible(eq(ContenidosAudio.class), any())).thenReturn(Arrays.asList(audio));
 
         List<ContentAudioUploadDTO> result = audioContentRetrievalService.getAllAudiosAsDTO(AUTH_HEADER);
 
@@ -133,27 +148,22 @@ public class AudioContentRetrievalServiceTest {
         
         when(jwtValidationService.validateContentAccess(AUTH_HEADER, TipoContenido.AUDIO)).thenReturn(USER_ID);
         when(jwtValidationService.getRolFromToken(AUTH_HEADER)).thenReturn(Rol.ADMINISTRADOR);
-        when(contenidoAudioRepository.findAll()).thenReturn(Arrays.asList(audio));
-        when(contenidoAudioRepository.save(any())).thenReturn(audio);
-        when(contenidoAudioTagRepository.findByIdContenido(any())).thenReturn(Collections.emptyList());
+        when(catalogRepository.findAllVisible(eq(ContenidosAudio.class), any())).thenReturn(Arrays.asList(audio));
 
-        audioContentRetrievalService.getAllAudiosAsDTO(AUTH_HEADER);
+        List<ContentAudioUploadDTO> result = audioContentRetrievalService.getAllAudiosAsDTO(AUTH_HEADER);
 
-        verify(contenidoAudioRepository).save(any());
+        // La lectura no escribe: el barrido programado persiste la caducidad
+        verify(catalogRepository, never()).ocultarCaducados(any(), any());
+        verify(contenidoAudioRepository, never()).save(any());
+        assertFalse(result.get(0).getVisibilidad());
     }
 
     @Test
     void testGetAllAudiosAsDTO_WithTags() {
-        ContenidoAudioTag tag = new ContenidoAudioTag();
-        tag.setIdTag("tag1");
-        Tags tagEntity = new Tags();
-        tagEntity.setNombre("TestTag");
-        
         when(jwtValidationService.validateContentAccess(AUTH_HEADER, TipoContenido.AUDIO)).thenReturn(USER_ID);
         when(jwtValidationService.getRolFromToken(AUTH_HEADER)).thenReturn(Rol.ADMINISTRADOR);
-        when(contenidoAudioRepository.findAll()).thenReturn(Arrays.asList(audio));
-        when(contenidoAudioTagRepository.findByIdContenido(any())).thenReturn(Arrays.asList(tag));
-        when(tagsRepository.findByIdTagIn(any())).thenReturn(Arrays.asList(tagEntity));
+        when(catalogRepository.findAllVisible(eq(ContenidosAudio.class), any())).thenReturn(Arrays.asList(audio));
+        when(batchLoader.cargarTagsAudios(List.of(AUDIO_ID))).thenReturn(Map.of(AUDIO_ID, List.of("TestTag")));
 
         List<ContentAudioUploadDTO> result = audioContentRetrievalService.getAllAudiosAsDTO(AUTH_HEADER);
 
@@ -161,13 +171,65 @@ public class AudioContentRetrievalServiceTest {
         assertFalse(result.get(0).getTags().isEmpty());
     }
 
+    @Test
+    void testGetAllAudiosAsDTO_ReturnsMediaUrlsInsteadOfBinaries() {
+        audio.setFichero(null);
+        audio.setFormatoMiniatura("image/png");
+
+        when(jwtValidationService.validateContentAccess(AUTH_HEADER, TipoContenido.AUDIO)).thenReturn(USER_ID);
+        when(jwtValidationService.getRolFromToken(AUTH_HEADER)).thenReturn(Rol.ADMINISTRADOR);
+        when(catalogRepository.findAllVisible(eq(ContenidosAudio.class), any())).thenReturn(Arrays.asList(audio));
+
+        ContentAudioUploadDTO dto = audioContentRetrievalService.getAllAudiosAsDTO(AUTH_HEADER).get(0);
+
+        assertNull(dto.getFichero());
+        assertNull(dto.getMiniatura());
+        assertEquals("/content/audio/" + AUDIO_ID + "/stream", dto.getFicheroUrl());
+        assertEquals("/content/" + AUDIO_ID + "/miniatura?firma=" + firma(), dto.getMiniaturaUrl());
+        // Sin derivadas generadas no se anuncia ningún tamaño
+        assertNull(dto.getMiniaturas());
+    }
+
+    @Test
+    void testGetAllAudiosAsDTO_SoloAnunciaLasDerivadasQueExisten() {
+        audio.setFormatoMiniatura("image/png");
+        audio.setMiniaturasDerivadas(Map.of(
+            "96", new BlobRef("b96", 10, "h96"),
+            "placeholder", new BlobRef("bph", 1, "hph")));
+
+        when(jwtValidationService.validateContentAccess(AUTH_HEADER, TipoContenido.AUDIO)).thenReturn(USER_ID);
+        when(jwtValidationService.getRolFromToken(AUTH_HEADER)).thenReturn(Rol.ADMINISTRADOR);
+        when(catalogRepository.findAllVisible(eq(ContenidosAudio.class), any())).thenReturn(Arrays.asList(audio));
+
+        Map<String, String> miniaturas = audioContentRetrievalService.getAllAudiosAsDTO(AUTH_HEADER).get(0).getMiniaturas();
+
+        assertEquals(List.of("96", "placeholder"), List.copyOf(miniaturas.keySet()));
+        assertEquals("/content/" + AUDIO_ID + "/thumbnail?size=96&firma=" + firma(), miniaturas.get("96"));
+    }
+
+    @Test
+    void testGetAllAudiosAsDTO_BatchLoadsRatingsOnce() {
+        ContenidosAudio otro = ContenidosAudio.builder().id("audio789").titulo("Otro").fechaSubida(new Date()).build();
+
+        when(jwtValidationService.validateContentAccess(AUTH_HEADER, TipoContenido.AUDIO)).thenReturn(USER_ID);
+        when(jwtValidationService.getRolFromToken(AUTH_HEADER)).thenReturn(Rol.ADMINISTRADOR);
+        when(catalogRepository.findAllVisible(eq(ContenidosAudio.class), any())).thenReturn(Arrays.asList(audio, otro));
+        when(batchLoader.cargarValoracionesUsuario(USER_ID, List.of(AUDIO_ID, "audio789"))).thenReturn(Map.of("audio789", 4.5));
+
+        List<ContentAudioUploadDTO> result = audioContentRetrievalService.getAllAudiosAsDTO(AUTH_HEADER);
+
+        assertNull(result.get(0).getValoracionUsuario());
+        assertEquals(4.5, result.get(1).getValoracionUsuario());
+        verify(batchLoader, times(1)).cargarValoracionesUsuario(anyString(), anyList());
+        verify(batchLoader, times(1)).cargarTagsAudios(anyList());
+    }
+
     @Test
     void testGetAllAudiosAsDTO_UserNotFound() {
         when(jwtValidationService.validateContentAccess(AUTH_HEADER, TipoContenido.AUDIO)).thenReturn(USER_ID);
         when(jwtValidationService.getRolFromToken(AUTH_HEADER)).thenReturn(Rol.NORMAL);
         when(usuarioNormalRepository.findById(USER_ID)).thenReturn(Optional.empty());
-        when(contenidoAudioRepository.findAll()).thenReturn(Arrays.asList(audio));
-        when(contenidoAudioTagRepository.findByIdContenido(any())).thenReturn(Collections.emptyList());
+        when(catalogRepository.findAllVisible(eq(ContenidosAudio.class), any())).thenReturn(Arrays.asList(audio));
 
         List<ContentAudioUploadDTO> result = audioContentRetrievalService.getAllAudiosAsDTO(AUTH_HEADER);
 
@@ -182,8 +244,7 @@ public class AudioContentRetrievalServiceTest {
         when(jwtValidationService.validateContentAccess(AUTH_HEADER, TipoContenido.AUDIO)).thenReturn(USER_ID);
         when(jwtValidationService.getRolFromToken(AUTH_HEADER)).thenReturn(Rol.NORMAL);
         when(usuarioNormalRepository.findById(USER_ID)).thenReturn(Optional.of(user));
-        when(contenidoAudioRepository.findAll()).thenReturn(Arrays.asList(audio));
-        when(contenidoAudioTagRepository.findByIdContenido(any())).thenReturn(Collections.emptyList());
+        when(catalogRepository.findAllVisible(eq(ContenidosAudio.class), any())).thenReturn(Arrays.asList(audio));
 
         List<ContentAudioUploadDTO> result = audioContentRetrievalService.getAllAudiosAsDTO(AUTH_HEADER);
 
@@ -201,8 +262,7 @@ public class AudioContentRetrievalServiceTest {
         when(jwtValidationService.getRolFromToken(AUTH_HEADER)).thenReturn(Rol.NORMAL);
         when(usuarioNormalRepository.findById(USER_ID)).thenReturn(Optional.of(user));
         when(validationService.calculateAge(any())).thenReturn(15);
-        when(contenidoAudioRepository.findAll()).thenReturn(Arrays.asList(audio));
-        when(contenidoAudioTagRepository.findByIdContenido(any())).thenReturn(Collections.emptyList());
+        when(catalogRepository.findAllVisible(eq(ContenidosAudio.class), any())).thenReturn(Arrays.asList(audio));
 
         List<ContentAudioUploadDTO> result = audioContentRetrievalService.getAllAudiosAsDTO(AUTH_HEADER);
 
@@ -235,13 +295,26 @@ public class AudioContentRetrievalServiceTest {
     void testGetAudioByIdAsDTO_Success() {
         when(jwtValidationService.validateContentAccess(AUTH_HEADER, TipoContenido.AUDIO)).thenReturn(USER_ID);
         when(contenidoAudioRepository.findById(AUDIO_ID)).thenReturn(Optional.of(audio));
-        when(contenidoAudioTagRepository.findByIdContenido(any())).thenReturn(Collections.emptyList());
 
         ContentAudioUploadDTO result = audioContentRetrievalService.getAudioByIdAsDTO(AUTH_HEADER, AUDIO_ID);
 
         assertNotNull(result);
     }
 
+    @Test
+    void testGetAudioByIdAsDTO_CargaFicheroDesdeGridFs() {
+        audio.setFichero(null);
+        audio.setFicheroBlob(new BlobRef("blob-fichero", 3, "hash"));
+        when(jwtValidationService.validateContentAccess(AUTH_HEADER, TipoContenido.AUDIO)).thenReturn(USER_ID);
+        when(contenidoAudioRepository.findById(AUDIO_ID)).thenReturn(Optional.of(audio));
+        when(blobStore.leer("blob-fichero")).thenReturn(new byte[]{1, 2, 3});
+
+        ContentAudioUploadDTO result = audioContentRetrievalService.getAudioByIdAsDTO(AUTH_HEADER, AUDIO_ID);
+
+        assertNotNull(result.getFichero());
+        verify(blobStore).leer("blob-fichero");
+    }
+
     @Test
     void testGetAudioByIdAsDTO_NotFound() {
         when(jwtValidationService.validateContentAccess(AUTH_HEADER, TipoContenido.AUDIO)).thenReturn(USER_ID);
@@ -260,8 +333,7 @@ public class AudioContentRetrievalServiceTest {
         
         when(jwtValidationService.validateContentAccess(AUTH_HEADER, TipoContenido.AUDIO)).thenReturn(USER_ID);
         when(jwtValidationService.getRolFromToken(AUTH_HEADER)).thenReturn(Rol.ADMINISTRADOR);
-        when(contenidoAudioRepository.findAll()).thenReturn(Arrays.asList(audio));
-        when(contenidoAudioTagRepository.findByIdContenido(any())).thenReturn(Collections.emptyList());
+        when(catalogRepository.findAllVisible(eq(ContenidosAudio.class), any())).thenReturn(Arrays.asList(audio));
 
         List<ContentAudioUploadDTO> result = audioContentRetrievalService.getAllAudiosAsDTO(AUTH_HEADER);
 
@@ -274,8 +346,7 @@ public class AudioContentRetrievalServiceTest {
         
         when(jwtValidationService.validateContentAccess(AUTH_HEADER, TipoContenido.AUDIO)).thenReturn(USER_ID);
         when(jwtValidationService.getRolFromToken(AUTH_HEADER)).thenReturn(Rol.ADMINISTRADOR);
-        when(contenidoAudioRepository.findAll()).thenReturn(Arrays.asList(audio));
-        when(contenidoAudioTagRepository.findByIdContenido(any())).thenReturn(Collections.emptyList());
+        when(catalogRepository.findAllVisible(eq(ContenidosAudio.class), any())).thenReturn(Arrays.asList(audio));
 
         List<ContentAudioUploadDTO> result = audioContentRetrievalService.getAllAudiosAsDTO(AUTH_HEADER);
 
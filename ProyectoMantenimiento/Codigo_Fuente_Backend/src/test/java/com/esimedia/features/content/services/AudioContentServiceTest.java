@@ -12,13 +12,11 @@ import com.esimedia.features.content.dto.ContentAudioUploadDTO;
 import com.esimedia.features.content.entity.ContenidosAudio;
 import com.esimedia.features.content.entity.ContenidoAudioTag;
 import com.esimedia.features.content.entity.Tags;
-import com.esimedia.features.auth.enums.TipoContenido;
 import com.esimedia.features.content.repository.ContenidosAudioRepository;
 import com.esimedia.features.content.repository.ContenidoAudioTagRepository;
 import com.esimedia.features.content.repository.TagsRepository;
 import com.esimedia.features.content.repository.ValoracionContenidoRepository;
 import com.esimedia.shared.util.ContentUtil;
-import com.esimedia.shared.util.JwtValidationUtil;
 import com.esimedia.shared.util.ContentTagProcessor;
 
 import com.esimedia.features.auth.services.ValidationService;
@@ -32,12 +30,6 @@ import static org.mockito.Mockito.*;
 @DisplayName("AudioContentService Tests")
 class AudioContentServiceTest {
 
-    @Mock
-    private JwtValidationUtil jwtValidationService;
-
-    @Mock
-    private AudioContentUploadService uploadService;
-
     @Mock
     private AudioContentRetrievalService retrievalService;
 
@@ -89,34 +81,6 @@ class AudioContentServiceTest {
         when(contenidosAudio.getFechaSubida()).thenReturn(new Date());
     }
 
-    // ==================== uploadAudioContent ====================
-
-    @Test
-    @DisplayName("uploadAudioContent - Validación fallida")
-    void testUploadAudioContentValidationFails() {
-        when(jwtValidationService.validateContentUpload(authHeader, TipoContenido.AUDIO))
-            .thenReturn(userId);
-        when(uploadService.uploadAudioContent(userId, audioDTO))
-            .thenReturn("Error de validación");
-
-        String result = audioContentService.uploadAudioContent(authHeader, audioDTO);
-
-        assertEquals("Error de validación", result);
-        verify(jwtValidationService).validateContentUpload(authHeader, TipoContenido.AUDIO);
-        verify(uploadService).uploadAudioContent(userId, audioDTO);
-    }
-
-    @Test
-    @DisplayName("uploadAudioContent - Excepción en JWT")
-    void testUploadAudioContentJwtValidationError() {
-        when(jwtValidationService.validateContentUpload(authHeader, TipoContenido.AUDIO))
-            .thenThrow(new RuntimeException("Token inválido"));
-
-        String result = audioContentService.uploadAudioContent(authHeader, audioDTO);
-
-        assertEquals("Error interno del servidor", result);
-    }
-
     // ==================== getAllAudiosAsDTO ====================
 
     @Test
@@ -7,17 +7,26 @@ import static org.mockito.Mockito.*;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.AdditionalMatchers;
+import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 
 import com.esimedia.features.auth.entity.CreadorContenido;
+import com.esimedia.features.auth.enums.TipoContenido;
 import com.esimedia.features.auth.repository.CreadorContenidoRepository;
 import com.esimedia.features.auth.services.ValidationService;
 import com.esimedia.features.content.dto.ContentAudioUploadDTO;
+import com.esimedia.features.content.entity.BlobRef;
 import com.esimedia.features.content.entity.ContenidosAudio;
 import com.esimedia.features.content.repository.*;
+import com.esimedia.features.content.storage.BlobStore;
+import com.esimedia.features.content.repository.ContentVersionRepository;
+import com.esimedia.features.notifications.services.NotificationService;
 import com.esimedia.shared.security.ClamAVService;
+import com.esimedia.shared.util.ContentUtil;
+import com.esimedia.shared.util.FicheroSubido;
 
 import java.util.*;
 
@@ -28,8 +37,15 @@ public class AudioContentUploadServiceTest {
     @Mock private ClamAVService clamavService;
     @Mock private ContenidosAudioRepository contenidoAudioRepository;
     @Mock private ContenidoAudioTagRepository contenidoAudioTagRepository;
-    @Mock private TagsRepository tagsRepository;
+    @Mock private TagDictionary tagDictionary;
     @Mock private CreadorContenidoRepository creadorContenidoRepository;
+    @Mock private NotificationService notificationService;
+    @Mock private BlobStore blobStore;
+    @Mock private ContentTypeRegistry contentTypeRegistry;
+    @Mock private ThumbnailService thumbnailService;
+    @Mock private ContentTagIndex tagIndex;
+    @Mock private ContentSimilarityIndex similarityIndex;
+    @Mock private ContentVersionRepository versionRepository;
 
     @InjectMocks
     private AudioContentUploadService audioContentUploadService;
@@ -42,6 +58,8 @@ public class AudioContentUploadServiceTest {
 
     @BeforeEach
     void setUp() {
+        // Cada alta, edición o borrado avanza la versión del catálogo
+        lenient().when(versionRepository.avanzar()).thenReturn(new ContentVersionRepository.Version(7, new Date(7000)));
         audioDTO = new ContentAudioUploadDTO();
         audioDTO.setTitulo("Test Audio");
         audioDTO.setDescripcion("Description");
@@ -78,7 +96,7 @@ public class AudioContentUploadServiceTest {
     @Test
     void testProcessAudioContent_CreadorNotFound() {
         lenient().when(validationService.validateAudioContent(audioDTO)).thenReturn(null);
-        lenient().when(clamavService.scanFile(any(), anyString())).thenReturn(true);
+        lenient().when(clamavService.scanFiles(anyMap())).thenReturn(true);
         lenient().when(creadorContenidoRepository.findById(USER_ID)).thenReturn(Optional.empty());
 
         String result = audioContentUploadService.uploadAudioContent(USER_ID, audioDTO);
@@ -86,12 +104,98 @@ public class AudioContentUploadServiceTest {
         assertTrue(result.contains("Error interno"));
     }
 
+    @Test
+    void testProcessAudioContent_GuardaBinariosEnGridFs() {
+        audioDTO.setFichero("AAECAw==");
+        audioDTO.setTags(List.of());
+        BlobRef blob = new BlobRef("blob-fichero", 4, "hash");
+        when(validationService.validateAudioContent(audioDTO)).thenReturn(null);
+        when(clamavService.scanFiles(anyMap())).thenReturn(true);
+        when(creadorContenidoRepository.findById(USER_ID)).thenReturn(Optional.of(creador));
+        // Se guarda el mismo buffer decodificado, con el hash calculado al decodificar
+        when(blobStore.guardar(AdditionalMatchers.aryEq(new byte[] {0, 1, 2, 3}), eq("mp3"),
+            eq(ContentUtil.sha256Hex(new byte[] {0, 1, 2, 3})))).thenReturn(blob);
+        when(contenidoAudioRepository.save(any())).thenReturn(audio);
+
+        String result = audioContentUploadService.uploadAudioContent(USER_ID, audioDTO);
+
+        assertTrue(result.startsWith("SUCCESS"));
+        ArgumentCaptor<ContenidosAudio> captor = ArgumentCaptor.forClass(ContenidosAudio.class);
+        verify(contenidoAudioRepository).save(captor.capture());
+        assertSame(blob, captor.getValue().getFicheroBlob());
+        assertNull(captor.getValue().getFichero());
+        verify(contentTypeRegistry).registrar(audio.getId(), TipoContenido.AUDIO);
+    }
+
+    @Test
+    void testProcessAudioContent_FalloAlGuardarEliminaLosBlobs() {
+        audioDTO.setFichero("AAECAw==");
+        when(validationService.validateAudioContent(audioDTO)).thenReturn(null);
+        when(clamavService.scanFiles(anyMap())).thenReturn(true);
+        when(creadorContenidoRepository.findById(USER_ID)).thenReturn(Optional.of(creador));
+        when(blobStore.guardar(any(), eq("mp3"), anyString())).thenReturn(new BlobRef("blob-fichero", 4, "hash"));
+        when(contenidoAudioRepository.save(any())).thenThrow(new IllegalStateException("Mongo no disponible"));
+        doCallRealMethod().when(blobStore).descartarBlobs(any(), any());
+        doCallRealMethod().when(blobStore).eliminarBlobs(any());
+
+        String result = audioContentUploadService.uploadAudioContent(USER_ID, audioDTO);
+
+        assertTrue(result.contains("Error"));
+        verify(blobStore).eliminar("blob-fichero");
+        verify(contentTypeRegistry, never()).registrar(any(), any());
+    }
+
+    @Test
+    void testUploadAudioContent_FicheroEnsambladoPasaPorValidacionYAntivirus() {
+        FicheroSubido fichero = FicheroSubido.desdeBytes(new byte[] {0, 1, 2, 3});
+        audioDTO.setFichero(null);
+        when(validationService.validateContentUpload(audioDTO)).thenReturn(null);
+        when(validationService.validateAudioFile(fichero)).thenReturn(null);
+        when(clamavService.scanFiles(Map.of("Test Audio", fichero.datos()))).thenReturn(false);
+
+        String result = audioContentUploadService.uploadAudioContent(USER_ID, audioDTO, fichero);
+
+        assertTrue(result.contains("virus"));
+        verify(contenidoAudioRepository, never()).save(any());
+        verifyNoInteractions(blobStore);
+    }
+
+    @Test
+    void testProcessAudioContent_AnalizaAudioYMiniaturaJuntos() {
+        audioDTO.setFichero("AAECAw==");
+        audioDTO.setMiniatura("BAUG");
+        audioDTO.setFormatoMiniatura("image/png");
+        when(validationService.validateAudioContent(audioDTO)).thenReturn(null);
+        when(clamavService.scanFiles(anyMap())).thenReturn(false);
+
+        String result = audioContentUploadService.uploadAudioContent(USER_ID, audioDTO);
+
+        assertTrue(result.contains("virus"));
+        ArgumentCaptor<Map<String, byte[]>> ficheros = ArgumentCaptor.forClass(Map.class);
+        verify(clamavService).scanFiles(ficheros.capture());
+        assertArrayEquals(new byte[] {0, 1, 2, 3}, ficheros.getValue().get("Test Audio"));
+        assertArrayEquals(new byte[] {4, 5, 6}, ficheros.getValue().get("Test Audio (miniatura)"));
+        verifyNoInteractions(blobStore);
+    }
+
+    @Test
+    void testUploadAudioContent_FicheroEnsambladoNoSoportado() {
+        FicheroSubido fichero = FicheroSubido.desdeBytes(new byte[] {0, 1, 2, 3});
+        when(validationService.validateContentUpload(audioDTO)).thenReturn(null);
+        when(validationService.validateAudioFile(fichero)).thenReturn("Formato de audio no soportado");
+
+        String result = audioContentUploadService.uploadAudioContent(USER_ID, audioDTO, fichero);
+
+        assertEquals("Formato de audio no soportado", result);
+        verifyNoInteractions(clamavService);
+    }
+
     @Test
     void testGetRestriccionEdadFromValue_Invalid() {
         audioDTO.setRestriccionEdad(999);
         
         lenient().when(validationService.validateAudioContent(audioDTO)).thenReturn(null);
-        lenient().when(clamavService.scanFile(any(), anyString())).thenReturn(true);
+        lenient().when(clamavService.scanFiles(anyMap())).thenReturn(true);
         lenient().when(creadorContenidoRepository.findById(USER_ID)).thenReturn(Optional.of(creador));
 
         String result = audioContentUploadService.uploadAudioContent(USER_ID, audioDTO);
@@ -102,7 +206,7 @@ public class AudioContentUploadServiceTest {
     @Test
     void testProcessAudioContent_GenericException() {
         lenient().when(validationService.validateAudioContent(audioDTO)).thenReturn(null);
-        lenient().when(clamavService.scanFile(any(), anyString()))
+        lenient().when(clamavService.scanFiles(anyMap()))
                 .thenThrow(new RuntimeException("Error"));
 
         String result = audioContentUploadService.uploadAudioContent(USER_ID, audioDTO);
@@ -0,0 +1,216 @@
+package com.esimedia.features.content.services;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+import com.esimedia.features.auth.enums.TipoContenido;
+import com.esimedia.features.auth.services.ValidationService;
+import com.esimedia.features.content.dto.AudioUploadInitDTO;
+import com.esimedia.features.content.dto.AudioUploadSessionDTO;
+import com.esimedia.features.content.dto.ContentAudioUploadDTO;
+import com.esimedia.features.content.entity.SesionSubida;
+import com.esimedia.features.content.repository.SesionSubidaRepository;
+import com.esimedia.shared.util.ContentUtil;
+import com.esimedia.shared.util.JwtValidationUtil;
+
+@ExtendWith(MockitoExtension.class)
+class AudioUploadSessionServiceTest {
+
+    private static final String TOKEN = "Bearer token";
+    private static final String CREADOR = "creador1";
+    private static final byte[] AUDIO = {1, 2, 3, 4, 5, 6, 7, 8, 9, 10};
+
+    @Mock private SesionSubidaRepository sesionRepository;
+    @Mock private AudioContentUploadService uploadService;
+    @Mock private ValidationService validationService;
+    @Mock private JwtValidationUtil jwtValidationService;
+
+    @TempDir
+    Path directorio;
+
+    private final Map<String, SesionSubida> sesiones = new HashMap<>();
+    private AudioUploadSessionService uploadSessionService;
+
+    @BeforeEach
+    void setUp() {
+        uploadSessionService = new AudioUploadSessionService(sesionRepository, uploadService, validationService,
+            jwtValidationService, directorio.toString(), 60_000);
+        lenient().when(jwtValidationService.validateContentUpload(TOKEN, TipoContenido.AUDIO)).thenReturn(CREADOR);
+        lenient().when(validationService.getMaxAudioSize()).thenReturn(1000L);
+        lenient().when(sesionRepository.save(any())).thenAnswer(invocation -> {
+            SesionSubida sesion = invocation.getArgument(0);
+            sesiones.put(sesion.getId(), sesion);
+            return sesion;
+        });
+        lenient().when(sesionRepository.findById(anyString()))
+            .thenAnswer(invocation -> Optional.ofNullable(sesiones.get(invocation.<String>getArgument(0))));
+        lenient().doAnswer(invocation -> sesiones.remove(invocation.<String>getArgument(0)))
+            .when(sesionRepository).deleteById(anyString());
+    }
+
+    private AudioUploadSessionDTO iniciar(long tamano) {
+        AudioUploadInitDTO datos = new AudioUploadInitDTO();
+        datos.setTitulo("Audio");
+        datos.setTags(List.of("rock"));
+        datos.setFicheroExtension("audio/mpeg");
+        datos.setTamano(tamano);
+        return uploadSessionService.iniciar(TOKEN, datos);
+    }
+
+    private AudioUploadSessionDTO enviar(String id, long offset, int desde, int hasta) {
+        return uploadSessionService.escribirFragmento(TOKEN, id, offset,
+            new ByteArrayInputStream(Arrays.copyOfRange(AUDIO, desde, hasta)));
+    }
+
+    private static HttpStatus estado(ResponseStatusException e) {
+        return HttpStatus.valueOf(e.getStatusCode().value());
+    }
+
+    @Test
+    void testSubidaPorFragmentos_ReanudaYEntregaElFicheroEnsamblado() {
+        when(uploadService.uploadAudioContent(eq(CREADOR), any(), argThat(fichero -> Arrays.equals(fichero.datos(), AUDIO))))
+            .thenReturn("SUCCESS:Contenido de audio subido exitosamente");
+        String id = iniciar(AUDIO.length).id();
+
+        assertEquals(4, enviar(id, 0, 0, 4).recibido());
+        // Un fragmento repetido tras un corte no se vuelve a escribir: el cliente consulta el estado y continúa
+        ResponseStatusException repetido = assertThrows(ResponseStatusException.class, () -> enviar(id, 0, 0, 4));
+        assertEquals(HttpStatus.CONFLICT, estado(repetido));
+        assertEquals(4, uploadSessionService.estado(TOKEN, id).recibido());
+        assertEquals(AUDIO.length, enviar(id, 4, 4, AUDIO.length).recibido());
+
+        String resultado = uploadSessionService.completar(TOKEN, id, ContentUtil.sha256Hex(AUDIO).toUpperCase());
+
+        assertTrue(resultado.startsWith("SUCCESS"));
+        ArgumentCaptor<ContentAudioUploadDTO> metadatos = ArgumentCaptor.forClass(ContentAudioUploadDTO.class);
+        verify(uploadService).uploadAudioContent(eq(CREADOR), metadatos.capture(), any());
+        assertEquals("Audio", metadatos.getValue().getTitulo());
+        assertEquals("audio/mpeg", metadatos.getValue().getFicheroExtension());
+        assertTrue(sesiones.isEmpty());
+        assertFalse(Files.exists(directorio.resolve(id + ".part")));
+    }
+
+    @Test
+    void testCompletar_IncompletaOConChecksumDistinto() {
+        String id = iniciar(AUDIO.length).id();
+        enviar(id, 0, 0, 4);
+
+        ResponseStatusException incompleta = assertThrows(ResponseStatusException.class,
+            () -> uploadSessionService.completar(TOKEN, id, ContentUtil.sha256Hex(AUDIO)));
+        assertEquals(HttpStatus.CONFLICT, estado(incompleta));
+
+        enviar(id, 4, 4, AUDIO.length);
+        ResponseStatusException checksum = assertThrows(ResponseStatusException.class,
+            () -> uploadSessionService.completar(TOKEN, id, ContentUtil.sha256Hex(new byte[] {0})));
+
+        assertEquals(HttpStatus.BAD_REQUEST, estado(checksum));
+        assertTrue(sesiones.isEmpty());
+        verifyNoInteractions(uploadService);
+    }
+
+    @Test
+    void testEscribirFragmento_NoSuperaElTamanoDeclarado() {
+        String id = iniciar(6).id();
+        enviar(id, 0, 0, 4);
+
+        ResponseStatusException exceso = assertThrows(ResponseStatusException.class, () -> enviar(id, 4, 4, 8));
+
+        assertEquals(HttpStatus.BAD_REQUEST, estado(exceso));
+        assertEquals(4, uploadSessionService.estado(TOKEN, id).recibido());
+    }
+
+    @Test
+    void testIniciar_TamanoMaximoYSubidasDeOtroUsuario() {
+        ResponseStatusException grande = assertThrows(ResponseStatusException.class, () -> iniciar(1001));
+        assertEquals(HttpStatus.PAYLOAD_TOO_LARGE, estado(grande));
+
+        String id = iniciar(AUDIO.length).id();
+        when(jwtValidationService.validateContentUpload("Bearer otro", TipoContenido.AUDIO)).thenReturn("otro");
+
+        ResponseStatusException ajena = assertThrows(ResponseStatusException.class,
+            () -> uploadSessionService.estado("Bearer otro", id));
+        assertEquals(HttpStatus.NOT_FOUND, estado(ajena));
+    }
+
+    @Test
+    void testLimpiarCaducadas_BorraSesionYFichero() {
+        String id = iniciar(AUDIO.length).id();
+        when(sesionRepository.findByFechaCaducidadBefore(any())).thenReturn(List.of(sesiones.get(id)));
+
+        uploadSessionService.limpiarCaducadas();
+
+        assertTrue(sesiones.isEmpty());
+        assertFalse(Files.exists(directorio.resolve(id + ".part")));
+    }
+
+    @Test
+    void testLimpiarCaducadas_NoBorraUnaSubidaConUnFragmentoEnCurso() {
+        String id = iniciar(AUDIO.length).id();
+        when(sesionRepository.findByFechaCaducidadBefore(any())).thenReturn(List.of(sesiones.get(id)));
+        // La limpieza se ejecuta mientras el fragmento todavía se está leyendo
+        InputStream fragmento = new ByteArrayInputStream(Arrays.copyOfRange(AUDIO, 0, 4)) {
+            @Override
+            public synchronized int read(byte[] buffer, int desde, int longitud) {
+                uploadSessionService.limpiarCaducadas();
+                return super.read(buffer, desde, longitud);
+            }
+        };
+
+        assertEquals(4, uploadSessionService.escribirFragmento(TOKEN, id, 0, fragmento).recibido());
+
+        assertTrue(sesiones.containsKey(id));
+        assertTrue(Files.exists(directorio.resolve(id + ".part")));
+    }
+
+    @Test
+    void testSesionCaducada_NoAdmiteFragmentos() {
+        String id = iniciar(AUDIO.length).id();
+        sesiones.get(id).setFechaCaducidad(new Date(System.currentTimeMillis() - 1000));
+
+        ResponseStatusException caducada = assertThrows(ResponseStatusException.class, () -> enviar(id, 0, 0, 4));
+
+        assertEquals(HttpStatus.GONE, estado(caducada));
+        assertEquals(0, directorio.resolve(id + ".part").toFile().length());
+    }
+
+    @Test
+    void testIniciar_SinFicheroTemporalNoQuedaSesion() throws Exception {
+        Path noDirectorio = Files.createFile(directorio.resolve("fichero"));
+        uploadSessionService = new AudioUploadSessionService(sesionRepository, uploadService, validationService,
+            jwtValidationService, noDirectorio.toString(), 60_000);
+
+        ResponseStatusException error = assertThrows(ResponseStatusException.class, () -> iniciar(AUDIO.length));
+
+        assertEquals(HttpStatus.INTERNAL_SERVER_ERROR, estado(error));
+        assertTrue(sesiones.isEmpty());
+    }
+
+    @Test
+    void testIniciar_SiFallaElGuardadoNoCreaElFichero() throws Exception {
+        doThrow(new IllegalStateException("Mongo no disponible")).when(sesionRepository).save(any());
+
+        assertThrows(IllegalStateException.class, () -> iniciar(AUDIO.length));
+
+        try (Stream<Path> ficheros = Files.list(directorio)) {
+            assertEquals(0, ficheros.count());
+        }
+    }
+}
@@ -0,0 +1,107 @@
+package com.esimedia.features.content.services;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+import java.util.*;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import com.esimedia.features.content.entity.ContenidoAudioTag;
+import com.esimedia.features.content.entity.ContenidosAudio;
+import com.esimedia.features.content.entity.ContenidoVideoTag;
+import com.esimedia.features.content.entity.ValoracionContenido;
+import com.esimedia.features.content.repository.ContenidoAudioTagRepository;
+import com.esimedia.features.content.repository.ContenidoVideoTagRepository;
+import com.esimedia.features.content.repository.ValoracionContenidoRepository;
+
+@ExtendWith(MockitoExtension.class)
+class ContentBatchLoaderTest {
+
+    @Mock private ContenidoAudioTagRepository contenidoAudioTagRepository;
+    @Mock private ContenidoVideoTagRepository contenidoVideoTagRepository;
+    @Mock private TagDictionary tagDictionary;
+    @Mock private ValoracionContenidoRepository valoracionRepository;
+
+    @InjectMocks
+    private ContentBatchLoader batchLoader;
+
+    @Test
+    void testCargarTagsAudios_UnaConsultaPorColeccion() {
+        List<String> ids = List.of("a1", "a2", "a3");
+        when(contenidoAudioTagRepository.findByIdContenidoIn(ids)).thenReturn(List.of(
+            new ContenidoAudioTag("a1", "t1"),
+            new ContenidoAudioTag("a1", "t2"),
+            new ContenidoAudioTag("a2", "t1")
+        ));
+        when(tagDictionary.nombres(List.of("t1", "t2"))).thenReturn(Map.of("t1", "Rock", "t2", "Jazz"));
+
+        Map<String, List<String>> resultado = batchLoader.cargarTagsAudios(ids);
+
+        assertEquals(List.of("Rock", "Jazz"), resultado.get("a1"));
+        assertEquals(List.of("Rock"), resultado.get("a2"));
+        assertFalse(resultado.containsKey("a3"));
+        verify(contenidoAudioTagRepository, times(1)).findByIdContenidoIn(anyList());
+        verify(tagDictionary, times(1)).nombres(anyList());
+    }
+
+    @Test
+    void testCargarTagsVideos_IgnoraTagsInexistentes() {
+        ContenidoVideoTag relacion = new ContenidoVideoTag();
+        relacion.setIdContenido("v1");
+        relacion.setIdTag("borrado");
+        when(contenidoVideoTagRepository.findByIdContenidoIn(List.of("v1"))).thenReturn(List.of(relacion));
+        when(tagDictionary.nombres(List.of("borrado"))).thenReturn(Map.of());
+
+        Map<String, List<String>> resultado = batchLoader.cargarTagsVideos(List.of("v1"));
+
+        assertTrue(resultado.isEmpty());
+    }
+
+    @Test
+    void testCargarTags_SinRelacionesNoConsultaTags() {
+        when(contenidoAudioTagRepository.findByIdContenidoIn(List.of("a1"))).thenReturn(List.of());
+
+        assertTrue(batchLoader.cargarTagsAudios(List.of("a1")).isEmpty());
+        verifyNoInteractions(tagDictionary);
+    }
+
+    @Test
+    void testCargar_ListaVaciaNoConsulta() {
+        assertTrue(batchLoader.cargarTagsAudios(List.of()).isEmpty());
+        assertTrue(batchLoader.cargarTagsVideos(List.of()).isEmpty());
+        assertTrue(batchLoader.cargarValoracionesUsuario("user", List.of()).isEmpty());
+        verifyNoInteractions(contenidoAudioTagRepository, contenidoVideoTagRepository, tagDictionary, valoracionRepository);
+    }
+
+    @Test
+    void testCargarValoracionesUsuario() {
+        when(valoracionRepository.findByIdUsuarioAndIdContenidoIn("user", List.of("a1", "v1")))
+            .thenReturn(List.of(new ValoracionContenido("a1", "user", 4.0)));
+
+        Map<String, Double> resultado = batchLoader.cargarValoracionesUsuario("user", List.of("a1", "v1"));
+
+        assertEquals(Map.of("a1", 4.0), resultado);
+    }
+
+    @Test
+    void testResolverTags_UsaNombresDesnormalizadosYSoloCargaPendientes() {
+        ContenidosAudio conTags = ContenidosAudio.builder().id("a1").tags(List.of("rock")).build();
+        ContenidosAudio sinTags = ContenidosAudio.builder().id("a2").build();
+        List<List<String>> consultados = new ArrayList<>();
+
+        Map<String, List<String>> tags = ContentBatchLoader.resolverTags(List.of(conTags, sinTags), ids -> {
+            consultados.add(ids);
+            return Map.of("a2", List.of("jazz"));
+        });
+
+        assertEquals(List.of(List.of("a2")), consultados);
+        assertEquals(List.of("rock"), tags.get("a1"));
+        assertEquals(List.of("jazz"), tags.get("a2"));
+    }
+}
@@ -0,0 +1,592 @@
+package com.esimedia.features.content.services;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+import com.esimedia.features.auth.entity.UsuarioNormal;
+import com.esimedia.features.auth.enums.Rol;
+import com.esimedia.features.auth.enums.TipoContenido;
+import com.esimedia.features.auth.repository.UsuarioNormalRepository;
+import com.esimedia.features.auth.services.ValidationService;
+import com.esimedia.features.content.dto.ContentAudioUploadDTO;
+import com.esimedia.features.content.dto.ContentCatalogPageDTO;
+import com.esimedia.features.content.dto.ContentSearchPageDTO;
+import com.esimedia.features.content.dto.ContentVersionDTO;
+import com.esimedia.features.content.dto.ContentVideoUploadDTO;
+import com.esimedia.features.content.entity.ContenidosAudio;
+import com.esimedia.features.content.entity.ContenidosVideo;
+import com.esimedia.features.content.enums.FormatoCatalogo;
+import com.esimedia.features.content.enums.Resolucion;
+import com.esimedia.features.content.enums.RestriccionEdad;
+import com.esimedia.features.content.repository.CatalogCursor;
+import com.esimedia.features.content.repository.CatalogFacets;
+import com.esimedia.features.content.repository.CatalogFilter;
+import com.esimedia.features.content.repository.CatalogSort;
+import com.esimedia.features.content.repository.ContentCatalogRepository;
+import com.esimedia.features.content.repository.ContentSearchRepository;
+import com.esimedia.features.content.repository.ContentSearchRepository.Resultado;
+import com.esimedia.features.content.repository.ContentVersionRepository;
+import com.esimedia.shared.util.JwtValidationUtil;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+
+@ExtendWith(MockitoExtension.class)
+class ContentCatalogServiceTest {
+
+    @Mock private JwtValidationUtil jwtValidationService;
+    @Mock private UsuarioNormalRepository usuarioNormalRepository;
+    @Mock private ValidationService validationService;
+    @Mock private ContentCatalogRepository catalogRepository;
+    @Mock private ContentSearchRepository searchRepository;
+    @Mock private LeaderboardService leaderboardService;
+    @Mock private ContentTagIndex tagIndex;
+    @Mock private ContentSimilarityIndex similarityIndex;
+    @Mock private ContentVersionRepository versionRepository;
+    @Mock private AudioContentRetrievalService audioRetrievalService;
+    @Mock private VideoContentService videoContentService;
+    @Spy private ObjectMapper objectMapper = new ObjectMapper();
+
+    @InjectMocks
+    private ContentCatalogService contentCatalogService;
+
+    private static final String AUTH_HEADER = "Bearer token";
+    private static final String USER_ID = "user123";
+
+    private ContenidosAudio audio(String id, long fecha) {
+        return ContenidosAudio.builder().id(id).titulo("Audio " + id).fechaSubida(new Date(fecha)).build();
+    }
+
+    private ContenidosVideo video(String id, long fecha) {
+        return ContenidosVideo.builder().id(id).titulo("Video " + id).fechaSubida(new Date(fecha)).build();
+    }
+
+    private void mockDtoMapping() {
+        lenient().when(audioRetrievalService.mapAudiosToDTO(anyList(), eq(USER_ID))).thenAnswer(inv ->
+            inv.<List<ContenidosAudio>>getArgument(0).stream().map(audio -> {
+                ContentAudioUploadDTO dto = new ContentAudioUploadDTO();
+                dto.setId(audio.getId());
+                return dto;
+            }).toList());
+        lenient().when(videoContentService.mapVideosToDTO(anyList(), eq(USER_ID))).thenAnswer(inv ->
+            inv.<List<ContenidosVideo>>getArgument(0).stream().map(video -> {
+                ContentVideoUploadDTO dto = new ContentVideoUploadDTO();
+                dto.setId(video.getId());
+                return dto;
+            }).toList());
+    }
+
+    @Test
+    void testGetCatalogPage_MergesAudioAndVideoByFechaSubida() {
+        when(jwtValidationService.validateContentAccess(AUTH_HEADER, TipoContenido.AUDIO)).thenReturn(USER_ID);
+        when(jwtValidationService.getRolFromToken(AUTH_HEADER)).thenReturn(Rol.ADMINISTRADOR);
+        when(catalogRepository.findPage(eq(ContenidosAudio.class), any(), eq(CatalogSort.RECIENTES), isNull(), eq(3)))
+            .thenReturn(List.of(audio("a3", 3000), audio("a1", 1000)));
+        when(catalogRepository.findPage(eq(ContenidosVideo.class), any(), eq(CatalogSort.RECIENTES), isNull(), eq(3)))
+            .thenReturn(List.of(video("v4", 4000), video("v2", 2000)));
+        mockDtoMapping();
+
+        ContentCatalogPageDTO page = contentCatalogService.getCatalogPage(AUTH_HEADER, null, 2, null);
+
+        assertEquals(List.of("v4", "a3"), page.getItems().stream().map(dto -> dto.getId()).toList());
+        assertTrue(page.isHasMore());
+        CatalogCursor cursor = CatalogCursor.decode(page.getNextCursor());
+        assertEquals("a3", cursor.getId());
+        assertEquals(3000, cursor.getFechaSubida().getTime());
+    }
+
+    @Test
+    void testGetCatalogPage_LastPageHasNoCursor() {
+        when(jwtValidationService.validateContentAccess(AUTH_HEADER, TipoContenido.AUDIO)).thenReturn(USER_ID);
+        when(jwtValidationService.getRolFromToken(AUTH_HEADER)).thenReturn(Rol.CREADOR);
+        when(catalogRepository.findPage(eq(ContenidosAudio.class), any(), eq(CatalogSort.RECIENTES), any(), anyInt()))
+            .thenReturn(List.of(audio("a1", 1000)));
+        mockDtoMapping();
+
+        ContentCatalogPageDTO page = contentCatalogService.getCatalogPage(AUTH_HEADER, null, null, "audio");
+
+        assertEquals(1, page.getItems().size());
+        assertFalse(page.isHasMore());
+        assertNull(page.getNextCursor());
+        verify(catalogRepository, never()).findPage(eq(ContenidosVideo.class), any(), eq(CatalogSort.RECIENTES), any(), anyInt());
+    }
+
+    @Test
+    void testGetCatalogPage_PassesCursorAndUserFilter() {
+        UsuarioNormal user = new UsuarioNormal();
+        user.setFechaNacimiento(new Date());
+        String token = new CatalogCursor(new Date(5000), "v9").encode();
+
+        when(jwtValidationService.validateContentAccess(AUTH_HEADER, TipoContenido.VIDEO)).thenReturn(USER_ID);
+        when(jwtValidationService.getRolFromToken(AUTH_HEADER)).thenReturn(Rol.NORMAL);
+        when(usuarioNormalRepository.findById(USER_ID)).thenReturn(Optional.of(user));
+        when(validationService.calculateAge(any())).thenReturn(15);
+        when(catalogRepository.findPage(eq(ContenidosVideo.class), any(), eq(CatalogSort.RECIENTES), any(), eq(ContentCatalogService.DEFAULT_LIMIT + 1)))
+            .thenReturn(Collections.emptyList());
+
+        ContentCatalogPageDTO page = contentCatalogService.getCatalogPage(AUTH_HEADER, token, null, "VIDEO");
+
+        ArgumentCaptor<CatalogFilter> filterCaptor = ArgumentCaptor.forClass(CatalogFilter.class);
+        ArgumentCaptor<CatalogCursor> cursorCaptor = ArgumentCaptor.forClass(CatalogCursor.class);
+        verify(catalogRepository).findPage(eq(ContenidosVideo.class), filterCaptor.capture(), eq(CatalogSort.RECIENTES), cursorCaptor.capture(), anyInt());
+        assertTrue(filterCaptor.getValue().isSoloVisibles());
+        assertEquals(15, filterCaptor.getValue().getEdadUsuario());
+        assertEquals("v9", cursorCaptor.getValue().getId());
+        assertTrue(page.getItems().isEmpty());
+    }
+
+    @Test
+    void testGetCatalogPage_LimitIsCapped() {
+        when(jwtValidationService.validateContentAccess(AUTH_HEADER, TipoContenido.AUDIO)).thenReturn(USER_ID);
+        when(jwtValidationService.getRolFromToken(AUTH_HEADER)).thenReturn(Rol.ADMINISTRADOR);
+
+        contentCatalogService.getCatalogPage(AUTH_HEADER, null, 5000, "AUDIO");
+
+        verify(catalogRepository).findPage(eq(ContenidosAudio.class), any(), eq(CatalogSort.RECIENTES), isNull(), eq(ContentCatalogService.MAX_LIMIT + 1));
+    }
+
+    @Test
+    void testGetCatalogPage_OrdenPorValoracionConFacetas() {
+        ContenidosVideo mejor = video("v1", 1000);
+        mejor.setValoracionMedia(4.5);
+        ContenidosVideo peor = video("v2", 2000);
+        peor.setValoracionMedia(3.0);
+        CatalogFacets facetas = contentCatalogService.parseFacetas("Rock", "720", null, null, null, null);
+        when(jwtValidationService.validateContentAccess(AUTH_HEADER, TipoContenido.AUDIO)).thenReturn(USER_ID);
+        when(jwtValidationService.getRolFromToken(AUTH_HEADER)).thenReturn(Rol.ADMINISTRADOR);
+        when(catalogRepository.findPage(eq(ContenidosVideo.class), any(), eq(CatalogSort.VALORACION), isNull(), eq(2)))
+            .thenReturn(List.of(mejor, peor));
+        when(catalogRepository.contarFacetas(eq(ContenidosVideo.class), any()))
+            .thenReturn(Map.of("especialidad", Map.of("Rock", 2L)));
+        mockDtoMapping();
+
+        ContentCatalogPageDTO page = contentCatalogService.getCatalogPage(AUTH_HEADER, null, 1, null, "valoracion", facetas);
+
+        assertEquals(List.of("v1"), page.getItems().stream().map(dto -> dto.getId()).toList());
+        CatalogCursor cursor = CatalogCursor.decode(page.getNextCursor());
+        assertEquals(CatalogSort.VALORACION, cursor.getOrden());
+        assertEquals(4.5, cursor.getValor());
+        assertEquals(Map.of("especialidad", Map.of("Rock", 2L)), page.getFacetas());
+        // La resolución solo existe en vídeos: los audios no se consultan
+        verify(catalogRepository, never()).findPage(eq(ContenidosAudio.class), any(), any(), any(), anyInt());
+        ArgumentCaptor<CatalogFilter> filterCaptor = ArgumentCaptor.forClass(CatalogFilter.class);
+        verify(catalogRepository).findPage(eq(ContenidosVideo.class), filterCaptor.capture(), any(), any(), anyInt());
+        assertEquals("Rock", filterCaptor.getValue().getFacetas().getEspecialidad());
+        assertEquals(Resolucion.HD_720, filterCaptor.getValue().getFacetas().getResolucion());
+    }
+
+    @Test
+    void testGetCatalogPage_SumaFacetasDeAudiosYVideosSoloEnLaPrimeraPagina() {
+        when(jwtValidationService.validateContentAccess(AUTH_HEADER, TipoContenido.AUDIO)).thenReturn(USER_ID);
+        when(jwtValidationService.getRolFromToken(AUTH_HEADER)).thenReturn(Rol.ADMINISTRADOR);
+        when(catalogRepository.contarFacetas(eq(ContenidosAudio.class), any()))
+            .thenReturn(Map.of("esVIP", Map.of("true", 1L, "false", 2L)));
+        when(catalogRepository.contarFacetas(eq(ContenidosVideo.class), any()))
+            .thenReturn(Map.of("esVIP", Map.of("false", 3L)));
+
+        ContentCatalogPageDTO primera = contentCatalogService.getCatalogPage(AUTH_HEADER, null, null, null);
+        ContentCatalogPageDTO siguiente = contentCatalogService.getCatalogPage(AUTH_HEADER,
+            new CatalogCursor(new Date(5000), "v9").encode(), null, null);
+
+        assertEquals(Map.of("esVIP", Map.of("true", 1L, "false", 5L)), primera.getFacetas());
+        assertNull(siguiente.getFacetas());
+        verify(catalogRepository, times(1)).contarFacetas(eq(ContenidosAudio.class), any());
+    }
+
+    @Test
+    void testGetCatalogPage_CursorDeOtraOrdenacion() {
+        String token = new CatalogCursor(new Date(5000), "v9").encode();
+
+        ResponseStatusException ex = assertThrows(ResponseStatusException.class,
+            () -> contentCatalogService.getCatalogPage(AUTH_HEADER, token, null, null, "VISUALIZACIONES", CatalogFacets.NINGUNA));
+
+        assertEquals(HttpStatus.BAD_REQUEST, ex.getStatusCode());
+        verifyNoInteractions(catalogRepository);
+    }
+
+    @Test
+    void testParseFacetas() {
+        CatalogFacets facetas = contentCatalogService.parseFacetas(" Jazz ", "FHD_1080", true, "18", 60, 600);
+
+        assertEquals("Jazz", facetas.getEspecialidad());
+        assertEquals(Resolucion.FHD_1080, facetas.getResolucion());
+        assertEquals(RestriccionEdad.ADULTOS, facetas.getRestriccionEdad());
+        assertEquals(HttpStatus.BAD_REQUEST, assertThrows(ResponseStatusException.class,
+            () -> contentCatalogService.parseFacetas(null, "480", null, null, null, null)).getStatusCode());
+        assertEquals(HttpStatus.BAD_REQUEST, assertThrows(ResponseStatusException.class,
+            () -> contentCatalogService.parseFacetas(null, null, null, null, 600, 60)).getStatusCode());
+        assertEquals(HttpStatus.BAD_REQUEST, assertThrows(ResponseStatusException.class,
+            () -> contentCatalogService.getCatalogPage(AUTH_HEADER, null, null, null, "popular", facetas)).getStatusCode());
+    }
+
+    @Test
+    void testGetCatalogPage_InvalidCursor() {
+        ResponseStatusException ex = assertThrows(ResponseStatusException.class,
+            () -> contentCatalogService.getCatalogPage(AUTH_HEADER, "%%%", null, null));
+
+        assertEquals(HttpStatus.BAD_REQUEST, ex.getStatusCode());
+        verifyNoInteractions(catalogRepository);
+    }
+
+    @Test
+    void testGetCatalogPage_InvalidTipo() {
+        ResponseStatusException ex = assertThrows(ResponseStatusException.class,
+            () -> contentCatalogService.getCatalogPage(AUTH_HEADER, null, null, "PODCAST"));
+
+        assertEquals(HttpStatus.BAD_REQUEST, ex.getStatusCode());
+    }
+
+    private void mockStreamAccess(Rol rol) {
+        when(jwtValidationService.validateContentAccess(AUTH_HEADER, TipoContenido.AUDIO)).thenReturn(USER_ID);
+        when(jwtValidationService.validateContentAccess(AUTH_HEADER, TipoContenido.VIDEO)).thenReturn(USER_ID);
+        when(jwtValidationService.getRolFromToken(AUTH_HEADER)).thenReturn(rol);
+    }
+
+    private String volcar(FormatoCatalogo formato) throws Exception {
+        return new String(volcarBytes(formato), StandardCharsets.UTF_8);
+    }
+
+    private byte[] volcarBytes(FormatoCatalogo formato) throws Exception {
+        ByteArrayOutputStream salida = new ByteArrayOutputStream();
+        contentCatalogService.streamCatalog(AUTH_HEADER, formato).writeTo(salida);
+        return salida.toByteArray();
+    }
+
+    @Test
+    void testStreamCatalog_JsonArrayConAudiosYVideos() throws Exception {
+        mockStreamAccess(Rol.ADMINISTRADOR);
+        when(catalogRepository.streamVisible(eq(ContenidosAudio.class), any()))
+            .thenReturn(Stream.of(audio("a1", 2000)));
+        when(catalogRepository.streamVisible(eq(ContenidosVideo.class), any()))
+            .thenReturn(Stream.of(video("v1", 3000)));
+        mockDtoMapping();
+
+        JsonNode array = objectMapper.readTree(volcar(FormatoCatalogo.JSON));
+
+        assertTrue(array.isArray());
+        assertEquals(2, array.size());
+        assertEquals("a1", array.get(0).get("id").asText());
+        assertEquals("v1", array.get(1).get("id").asText());
+    }
+
+    @Test
+    void testStreamCatalog_NdjsonUnaLineaPorContenido() throws Exception {
+        mockStreamAccess(Rol.ADMINISTRADOR);
+        when(catalogRepository.streamVisible(eq(ContenidosAudio.class), any()))
+            .thenReturn(Stream.of(audio("a1", 2000), audio("a2", 1000)));
+        when(catalogRepository.streamVisible(eq(ContenidosVideo.class), any()))
+            .thenReturn(Stream.empty());
+        mockDtoMapping();
+
+        String[] lineas = volcar(FormatoCatalogo.NDJSON).split("\n");
+
+        assertEquals(2, lineas.length);
+        assertEquals("a1", objectMapper.readTree(lineas[0]).get("id").asText());
+        assertEquals("a2", objectMapper.readTree(lineas[1]).get("id").asText());
+    }
+
+    @Test
+    void testStreamCatalog_SmileYCborEscribenElArrayEnBinario() throws Exception {
+        mockStreamAccess(Rol.ADMINISTRADOR);
+        when(catalogRepository.streamVisible(eq(ContenidosAudio.class), any()))
+            .thenAnswer(inv -> Stream.of(audio("a1", 2000)));
+        when(catalogRepository.streamVisible(eq(ContenidosVideo.class), any()))
+            .thenAnswer(inv -> Stream.of(video("v1", 3000)));
+        mockDtoMapping();
+
+        JsonNode smile = new ObjectMapper(new SmileFactory()).readTree(volcarBytes(FormatoCatalogo.SMILE));
+        JsonNode cbor = new ObjectMapper(new CBORFactory()).readTree(volcarBytes(FormatoCatalogo.CBOR));
+
+        for (JsonNode array : List.of(smile, cbor)) {
+            assertTrue(array.isArray());
+            assertEquals(2, array.size());
+            assertEquals("a1", array.get(0).get("id").asText());
+            assertEquals("v1", array.get(1).get("id").asText());
+        }
+    }
+
+    @Test
+    void testStreamCatalog_ConvierteEnLotesAcotados() throws Exception {
+        mockStreamAccess(Rol.ADMINISTRADOR);
+        int total = ContentCatalogService.STREAM_LOTE * 2 + 5;
+        when(catalogRepository.streamVisible(eq(ContenidosAudio.class), any()))
+            .thenReturn(IntStream.range(0, total).mapToObj(i -> audio("a" + i, i)));
+        when(catalogRepository.streamVisible(eq(ContenidosVideo.class), any()))
+            .thenReturn(Stream.empty());
+        List<Integer> tamanosLote = new ArrayList<>();
+        when(audioRetrievalService.mapAudiosToDTO(anyList(), eq(USER_ID))).thenAnswer(inv -> {
+            List<ContenidosAudio> lote = inv.getArgument(0);
+            tamanosLote.add(lote.size());
+            return lote.stream().map(audio -> new ContentAudioUploadDTO()).toList();
+        });
+
+        assertEquals(total, objectMapper.readTree(volcar(FormatoCatalogo.JSON)).size());
+        assertEquals(List.of(ContentCatalogService.STREAM_LOTE, ContentCatalogService.STREAM_LOTE, 5), tamanosLote);
+    }
+
+    @Test
+    void testStreamCatalog_FiltraPorUsuarioNormal() throws Exception {
+        mockStreamAccess(Rol.NORMAL);
+        UsuarioNormal user = new UsuarioNormal();
+        user.setFechaNacimiento(new Date());
+        when(usuarioNormalRepository.findById(USER_ID)).thenReturn(Optional.of(user));
+        when(validationService.calculateAge(any())).thenReturn(15);
+        when(catalogRepository.streamVisible(any(), any())).thenAnswer(inv -> Stream.empty());
+
+        assertEquals("[]", volcar(FormatoCatalogo.JSON));
+
+        ArgumentCaptor<CatalogFilter> filterCaptor = ArgumentCaptor.forClass(CatalogFilter.class);
+        verify(catalogRepository).streamVisible(eq(ContenidosAudio.class), filterCaptor.capture());
+        assertTrue(filterCaptor.getValue().isSoloVisibles());
+        assertEquals(15, filterCaptor.getValue().getEdadUsuario());
+        verifyNoInteractions(audioRetrievalService, videoContentService);
+    }
+
+    @Test
+    void testStreamCatalog_SinAccesoFallaAntesDeEscribir() {
+        when(jwtValidationService.validateContentAccess(AUTH_HEADER, TipoContenido.AUDIO))
+            .thenThrow(new ResponseStatusException(HttpStatus.FORBIDDEN, "Sin acceso"));
+
+        assertThrows(ResponseStatusException.class, () -> contentCatalogService.streamCatalog(AUTH_HEADER, FormatoCatalogo.JSON));
+        verifyNoInteractions(catalogRepository);
+    }
+
+    // ========== buscar ==========
+
+    @Test
+    void testGetTendencias_OrdenDeLaClasificacionSinLosNoVisibles() {
+        when(jwtValidationService.validateContentAccess(AUTH_HEADER, TipoContenido.AUDIO)).thenReturn(USER_ID);
+        when(jwtValidationService.getRolFromToken(AUTH_HEADER)).thenReturn(Rol.ADMINISTRADOR);
+        when(leaderboardService.getCapacidad()).thenReturn(500);
+        when(leaderboardService.tendencias("Rock", 2 * ContentCatalogService.MARGEN_CLASIFICACION)).thenReturn(List.of(
+            new Leaderboard.Entrada("v1", TipoContenido.VIDEO, "Rock", 9),
+            new Leaderboard.Entrada("a1", TipoContenido.AUDIO, "Rock", 7),
+            new Leaderboard.Entrada("a2", TipoContenido.AUDIO, "Rock", 5),
+            new Leaderboard.Entrada("v2", TipoContenido.VIDEO, "Rock", 3)));
+        // a1 ya no es visible para el usuario
+        when(catalogRepository.findVisibleByIds(eq(ContenidosAudio.class), any(), eq(List.of("a1", "a2"))))
+            .thenReturn(List.of(audio("a2", 1000)));
+        when(catalogRepository.findVisibleByIds(eq(ContenidosVideo.class), any(), eq(List.of("v1", "v2"))))
+            .thenReturn(List.of(video("v2", 2000), video("v1", 1000)));
+        mockDtoMapping();
+
+        List<String> ids = contentCatalogService.getTendencias(AUTH_HEADER, " Rock ", 2).stream()
+            .map(dto -> dto.getId()).toList();
+
+        assertEquals(List.of("v1", "a2"), ids);
+    }
+
+    @Test
+    void testGetRecomendados_OrdenDelIndiceSinLosNoVisibles() {
+        when(jwtValidationService.validateContentAccess(AUTH_HEADER, TipoContenido.AUDIO)).thenReturn(USER_ID);
+        when(jwtValidationService.getRolFromToken(AUTH_HEADER)).thenReturn(Rol.NORMAL);
+        UsuarioNormal user = new UsuarioNormal();
+        user.setGustosTags(new ArrayList<>(List.of("rock", "jazz")));
+        when(usuarioNormalRepository.findById(USER_ID)).thenReturn(Optional.of(user));
+        when(tagIndex.recomendar(user.getGustosTags(), 2 * ContentCatalogService.MARGEN_CLASIFICACION)).thenReturn(List.of(
+            new ContentTagIndex.Candidato("a1", TipoContenido.AUDIO, 8),
+            new ContentTagIndex.Candidato("v1", TipoContenido.VIDEO, 6),
+            new ContentTagIndex.Candidato("a2", TipoContenido.AUDIO, 4)));
+        // v1 está restringido para el usuario
+        when(catalogRepository.findVisibleByIds(eq(ContenidosAudio.class), any(), eq(List.of("a1", "a2"))))
+            .thenReturn(List.of(audio("a2", 2000), audio("a1", 1000)));
+        when(catalogRepository.findVisibleByIds(eq(ContenidosVideo.class), any(), eq(List.of("v1"))))
+            .thenReturn(List.of());
+        mockDtoMapping();
+
+        List<String> ids = contentCatalogService.getRecomendados(AUTH_HEADER, 2).stream()
+            .map(dto -> dto.getId()).toList();
+
+        assertEquals(List.of("a1", "a2"), ids);
+        verifyNoInteractions(leaderboardService);
+    }
+
+    @Test
+    void testGetRecomendados_SinGustosDevuelveTendencias() {
+        when(jwtValidationService.validateContentAccess(AUTH_HEADER, TipoContenido.AUDIO)).thenReturn(USER_ID);
+        when(jwtValidationService.getRolFromToken(AUTH_HEADER)).thenReturn(Rol.NORMAL);
+        when(usuarioNormalRepository.findById(USER_ID)).thenReturn(Optional.of(new UsuarioNormal()));
+        when(leaderboardService.getCapacidad()).thenReturn(500);
+        when(leaderboardService.tendencias(null, 2 * ContentCatalogService.MARGEN_CLASIFICACION)).thenReturn(List.of(
+            new Leaderboard.Entrada("v1", TipoContenido.VIDEO, "Rock", 9)));
+        when(catalogRepository.findVisibleByIds(eq(ContenidosVideo.class), any(), eq(List.of("v1"))))
+            .thenReturn(List.of(video("v1", 1000)));
+        mockDtoMapping();
+
+        List<String> ids = contentCatalogService.getRecomendados(AUTH_HEADER, 2).stream()
+            .map(dto -> dto.getId()).toList();
+
+        assertEquals(List.of("v1"), ids);
+        verifyNoInteractions(tagIndex);
+    }
+
+    @Test
+    void testGetRelacionados_OrdenDeSimilitudSinLosNoVisibles() {
+        when(jwtValidationService.validateContentAccess(AUTH_HEADER, TipoContenido.AUDIO)).thenReturn(USER_ID);
+        when(jwtValidationService.getRolFromToken(AUTH_HEADER)).thenReturn(Rol.ADMINISTRADOR);
+        when(similarityIndex.tipoDe("a0")).thenReturn(Optional.of(TipoContenido.AUDIO));
+        when(catalogRepository.existeVisible(eq(ContenidosAudio.class), any(), eq("a0"))).thenReturn(true);
+        when(similarityIndex.relacionados("a0", 2 * ContentCatalogService.MARGEN_CLASIFICACION)).thenReturn(List.of(
+            new ContentSimilarityIndex.Relacionado("v1", TipoContenido.VIDEO, 0.9),
+            new ContentSimilarityIndex.Relacionado("a1", TipoContenido.AUDIO, 0.7),
+            new ContentSimilarityIndex.Relacionado("a2", TipoContenido.AUDIO, 0.5)));
+        // v1 ya no es visible para el usuario
+        when(catalogRepository.findVisibleByIds(eq(ContenidosVideo.class), any(), eq(List.of("v1"))))
+            .thenReturn(List.of());
+        when(catalogRepository.findVisibleByIds(eq(ContenidosAudio.class), any(), eq(List.of("a1", "a2"))))
+            .thenReturn(List.of(audio("a2", 2000), audio("a1", 1000)));
+        mockDtoMapping();
+
+        List<String> ids = contentCatalogService.getRelacionados(AUTH_HEADER, "a0", 2).stream()
+            .map(dto -> dto.getId()).toList();
+
+        assertEquals(List.of("a1", "a2"), ids);
+    }
+
+    @Test
+    void testGetRelacionados_ReferenciaNoVisibleDevuelve404() {
+        when(jwtValidationService.validateContentAccess(AUTH_HEADER, TipoContenido.AUDIO)).thenReturn(USER_ID);
+        when(jwtValidationService.getRolFromToken(AUTH_HEADER)).thenReturn(Rol.ADMINISTRADOR);
+        when(similarityIndex.tipoDe("oculto")).thenReturn(Optional.of(TipoContenido.VIDEO));
+        when(catalogRepository.existeVisible(eq(ContenidosVideo.class), any(), eq("oculto"))).thenReturn(false);
+
+        ResponseStatusException ex = assertThrows(ResponseStatusException.class,
+            () -> contentCatalogService.getRelacionados(AUTH_HEADER, "oculto", 2));
+
+        assertEquals(HttpStatus.NOT_FOUND, ex.getStatusCode());
+        verify(similarityIndex, never()).relacionados(anyString(), anyInt());
+    }
+
+    @Test
+    void testGetRelacionados_SinFirmaDevuelveVacia() {
+        when(jwtValidationService.validateContentAccess(AUTH_HEADER, TipoContenido.AUDIO)).thenReturn(USER_ID);
+        when(jwtValidationService.getRolFromToken(AUTH_HEADER)).thenReturn(Rol.ADMINISTRADOR);
+        when(similarityIndex.tipoDe("sinTags")).thenReturn(Optional.empty());
+
+        assertTrue(contentCatalogService.getRelacionados(AUTH_HEADER, "sinTags", 2).isEmpty());
+        verifyNoInteractions(catalogRepository);
+    }
+
+    @Test
+    void testGetVersionCatalogo_SoloLeeLaVersion() {
+        when(jwtValidationService.validateContentAccess(AUTH_HEADER, TipoContenido.AUDIO)).thenReturn(USER_ID);
+        when(jwtValidationService.getRolFromToken(AUTH_HEADER)).thenReturn(Rol.ADMINISTRADOR);
+        when(versionRepository.actual()).thenReturn(new ContentVersionRepository.Version(42, new Date(5000)));
+
+        ContentVersionDTO json = contentCatalogService.getVersionCatalogo(AUTH_HEADER, FormatoCatalogo.JSON);
+
+        assertTrue(json.etag().startsWith("W/\"42-"));
+        assertEquals(5000, json.ultimaModificacion());
+        Set<String> etags = new HashSet<>();
+        for (FormatoCatalogo formato : FormatoCatalogo.values()) {
+            etags.add(contentCatalogService.getVersionCatalogo(AUTH_HEADER, formato).etag());
+        }
+        assertEquals(FormatoCatalogo.values().length, etags.size());
+        verifyNoInteractions(catalogRepository);
+    }
+
+    @Test
+    void testGetVersionContenido_SinModificarUsaLaFechaDeSubida() {
+        when(jwtValidationService.validateContentAccess(AUTH_HEADER, TipoContenido.VIDEO)).thenReturn(USER_ID);
+        ContenidosVideo modificado = video("v1", 1000);
+        modificado.setVersion(9);
+        modificado.setModificado(new Date(8000));
+        when(catalogRepository.findFields(eq(ContenidosVideo.class), anyString(), eq(ContentVersionRepository.VERSION),
+                eq(ContentVersionRepository.MODIFICADO), eq(ContentCatalogRepository.FECHA_SUBIDA)))
+            .thenAnswer(inv -> switch (inv.<String>getArgument(1)) {
+                case "v1" -> modificado;
+                case "v2" -> video("v2", 3000);
+                default -> null;
+            });
+
+        ContentVersionDTO v1 = contentCatalogService.getVersionContenido(AUTH_HEADER, TipoContenido.VIDEO, "v1");
+        ContentVersionDTO v2 = contentCatalogService.getVersionContenido(AUTH_HEADER, TipoContenido.VIDEO, "v2");
+
+        assertTrue(v1.etag().startsWith("W/\"9-"));
+        assertEquals(8000, v1.ultimaModificacion());
+        assertTrue(v2.etag().startsWith("W/\"0-"));
+        assertEquals(3000, v2.ultimaModificacion());
+        assertNull(contentCatalogService.getVersionContenido(AUTH_HEADER, TipoContenido.VIDEO, "borrado"));
+    }
+
+    @Test
+    void testBuscar_MezclaAudiosYVideosPorPuntuacion() {
+        when(jwtValidationService.validateContentAccess(AUTH_HEADER, TipoContenido.AUDIO)).thenReturn(USER_ID);
+        when(jwtValidationService.getRolFromToken(AUTH_HEADER)).thenReturn(Rol.ADMINISTRADOR);
+        when(searchRepository.buscar(eq(ContenidosAudio.class), eq("rock"), any(), eq(3)))
+            .thenReturn(List.of(new Resultado<>(audio("a1", 1000), 5.0), new Resultado<>(audio("a2", 2000), 1.0)));
+        when(searchRepository.buscar(eq(ContenidosVideo.class), eq("rock"), any(), eq(3)))
+            .thenReturn(List.of(new Resultado<>(video("v1", 3000), 3.0)));
+        mockDtoMapping();
+
+        ContentSearchPageDTO page = contentCatalogService.buscar(AUTH_HEADER, "  rock ", null, 2, null);
+
+        assertEquals(List.of("a1", "v1"), page.getItems().stream().map(dto -> dto.getId()).toList());
+        assertEquals(0, page.getPage());
+        assertTrue(page.isHasMore());
+    }
+
+    @Test
+    void testBuscar_SegundaPaginaPideResultadosHastaSuFinal() {
+        when(jwtValidationService.validateContentAccess(AUTH_HEADER, TipoContenido.VIDEO)).thenReturn(USER_ID);
+        when(jwtValidationService.getRolFromToken(AUTH_HEADER)).thenReturn(Rol.CREADOR);
+        when(searchRepository.buscar(eq(ContenidosVideo.class), eq("jazz"), any(), eq(5)))
+            .thenReturn(List.of(new Resultado<>(video("v1", 1), 4.0), new Resultado<>(video("v2", 2), 3.0),
+                new Resultado<>(video("v3", 3), 2.0)));
+        mockDtoMapping();
+
+        ContentSearchPageDTO page = contentCatalogService.buscar(AUTH_HEADER, "jazz", 1, 2, "video");
+
+        assertEquals(List.of("v3"), page.getItems().stream().map(dto -> dto.getId()).toList());
+        assertFalse(page.isHasMore());
+        verify(searchRepository, never()).buscar(eq(ContenidosAudio.class), anyString(), any(), anyInt());
+    }
+
+    @Test
+    void testBuscar_AplicaElFiltroDelUsuarioNormal() {
+        UsuarioNormal user = new UsuarioNormal();
+        user.setFechaNacimiento(new Date());
+        when(jwtValidationService.validateContentAccess(AUTH_HEADER, TipoContenido.AUDIO)).thenReturn(USER_ID);
+        when(jwtValidationService.getRolFromToken(AUTH_HEADER)).thenReturn(Rol.NORMAL);
+        when(usuarioNormalRepository.findById(USER_ID)).thenReturn(Optional.of(user));
+        when(validationService.calculateAge(any())).thenReturn(15);
+        when(searchRepository.buscar(any(), anyString(), any(), anyInt())).thenReturn(List.of());
+        mockDtoMapping();
+
+        contentCatalogService.buscar(AUTH_HEADER, "rock", null, null, "audio");
+
+        ArgumentCaptor<CatalogFilter> filterCaptor = ArgumentCaptor.forClass(CatalogFilter.class);
+        verify(searchRepository).buscar(eq(ContenidosAudio.class), eq("rock"), filterCaptor.capture(), anyInt());
+        assertTrue(filterCaptor.getValue().isSoloVisibles());
+        assertEquals(15, filterCaptor.getValue().getEdadUsuario());
+    }
+
+    @Test
+    void testBuscar_ParametrosInvalidos() {
+        assertThrows(ResponseStatusException.class, () -> contentCatalogService.buscar(AUTH_HEADER, " ", null, null, null));
+        assertThrows(ResponseStatusException.class,
+            () -> contentCatalogService.buscar(AUTH_HEADER, "a".repeat(101), null, null, null));
+        assertThrows(ResponseStatusException.class, () -> contentCatalogService.buscar(AUTH_HEADER, "rock", -1, null, null));
+        assertThrows(ResponseStatusException.class,
+            () -> contentCatalogService.buscar(AUTH_HEADER, "rock", ContentCatalogService.MAX_RESULTADOS_BUSQUEDA, 1, null));
+        verifyNoInteractions(jwtValidationService, searchRepository);
+    }
+}
@@ -0,0 +1,211 @@
+package com.esimedia.features.content.services;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+import java.util.Map;
+import java.util.Optional;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+import com.esimedia.features.auth.enums.TipoContenido;
+import com.esimedia.features.content.dto.BinaryContentDTO;
+import com.esimedia.features.content.entity.BlobRef;
+import com.esimedia.features.content.entity.Contenido;
+import com.esimedia.features.content.entity.ContenidosAudio;
+import com.esimedia.features.content.entity.ContenidosVideo;
+import com.esimedia.features.content.repository.ContentCatalogRepository;
+import com.esimedia.features.content.storage.BlobStore;
+import com.esimedia.shared.util.ContentUtil;
+import com.esimedia.shared.util.JwtValidationUtil;
+
+@ExtendWith(MockitoExtension.class)
+class ContentMediaServiceTest {
+
+    @Mock private JwtValidationUtil jwtValidationService;
+    @Mock private ContentCatalogRepository catalogRepository;
+    @Mock private BlobStore blobStore;
+    @Mock private ContentTypeRegistry contentTypeRegistry;
+    @Spy private ContentMediaUrls mediaUrls = new ContentMediaUrls("secreto-de-prueba");
+
+    @InjectMocks
+    private ContentMediaService contentMediaService;
+
+    private static final String AUTH_HEADER = "Bearer token";
+    private static final String CONTENT_ID = "content123";
+    private static final String BLOB_ID = "652f1c0e8b3e4a2d9c1b0a01";
+
+    private void mockFichero(ContenidosAudio audio) {
+        when(catalogRepository.findFields(ContenidosAudio.class, CONTENT_ID, ContentCatalogRepository.FICHERO,
+            ContentCatalogRepository.FICHERO_EXTENSION, ContentCatalogRepository.FICHERO_BLOB)).thenReturn(audio);
+    }
+
+    private <T extends Contenido> void mockMiniatura(Class<T> tipo, T contenido) {
+        when(catalogRepository.findFields(tipo, CONTENT_ID, ContentCatalogRepository.IMAGEN,
+            ContentCatalogRepository.FORMATO_IMAGEN, ContentCatalogRepository.IMAGEN_BLOB)).thenReturn(contenido);
+    }
+
+    @Test
+    void testGetFicheroAudio_Embebido() throws Exception {
+        mockFichero(ContenidosAudio.builder()
+            .id(CONTENT_ID).fichero(new byte[] {1, 2, 3}).ficheroExtension("audio/mpeg").build());
+
+        BinaryContentDTO resultado = contentMediaService.getFicheroAudio(AUTH_HEADER, CONTENT_ID);
+
+        assertArrayEquals(new byte[] {1, 2, 3}, resultado.recurso().getContentAsByteArray());
+        assertEquals("audio/mpeg", resultado.mimeType());
+        verify(jwtValidationService).validateContentAccess(AUTH_HEADER, TipoContenido.AUDIO);
+        verifyNoInteractions(blobStore);
+    }
+
+    @Test
+    void testGetFicheroAudio_DesdeGridFs() {
+        ByteArrayResource recurso = new ByteArrayResource(new byte[] {4, 5});
+        mockFichero(ContenidosAudio.builder()
+            .id(CONTENT_ID).ficheroBlob(new BlobRef(BLOB_ID, 2, "hash")).ficheroExtension("audio/ogg").build());
+        when(blobStore.abrir(BLOB_ID)).thenReturn(Optional.of(recurso));
+
+        BinaryContentDTO resultado = contentMediaService.getFicheroAudio(AUTH_HEADER, CONTENT_ID);
+
+        assertSame(recurso, resultado.recurso());
+        assertEquals("audio/ogg", resultado.mimeType());
+    }
+
+    @Test
+    void testGetFicheroAudio_BlobInexistente() {
+        mockFichero(ContenidosAudio.builder().id(CONTENT_ID).ficheroBlob(new BlobRef(BLOB_ID, 2, "hash")).build());
+        when(blobStore.abrir(BLOB_ID)).thenReturn(Optional.empty());
+
+        ResponseStatusException ex = assertThrows(ResponseStatusException.class,
+            () -> contentMediaService.getFicheroAudio(AUTH_HEADER, CONTENT_ID));
+
+        assertEquals(HttpStatus.NOT_FOUND, ex.getStatusCode());
+    }
+
+    @Test
+    void testGetFicheroAudio_NoEncontrado() {
+        ResponseStatusException ex = assertThrows(ResponseStatusException.class,
+            () -> contentMediaService.getFicheroAudio(AUTH_HEADER, CONTENT_ID));
+
+        assertEquals(HttpStatus.NOT_FOUND, ex.getStatusCode());
+    }
+
+    @Test
+    void testGetMiniatura_ConsultaSoloLaColeccionDeSuTipo() throws Exception {
+        when(contentTypeRegistry.tipoDe(CONTENT_ID)).thenReturn(Optional.of(TipoContenido.VIDEO));
+        mockMiniatura(ContenidosVideo.class, ContenidosVideo.builder()
+            .id(CONTENT_ID).miniatura(new byte[] {9}).formatoMiniatura("image/png").build());
+
+        BinaryContentDTO resultado = contentMediaService.getMiniatura(AUTH_HEADER, CONTENT_ID, null);
+
+        assertArrayEquals(new byte[] {9}, resultado.recurso().getContentAsByteArray());
+        assertEquals("image/png", resultado.mimeType());
+        verify(jwtValidationService).validarGenerico(AUTH_HEADER);
+        verify(catalogRepository, never()).findFields(eq(ContenidosAudio.class), any(), any(String[].class));
+    }
+
+    @Test
+    void testGetMiniatura_IdInexistenteNoConsultaElCatalogo() {
+        when(contentTypeRegistry.tipoDe(CONTENT_ID)).thenReturn(Optional.empty());
+
+        ResponseStatusException ex = assertThrows(ResponseStatusException.class,
+            () -> contentMediaService.getMiniatura(AUTH_HEADER, CONTENT_ID, null));
+
+        assertEquals(HttpStatus.NOT_FOUND, ex.getStatusCode());
+        verifyNoInteractions(catalogRepository);
+    }
+
+    @Test
+    void testGetMiniatura_SinImagen() {
+        when(contentTypeRegistry.tipoDe(CONTENT_ID)).thenReturn(Optional.of(TipoContenido.AUDIO));
+        mockMiniatura(ContenidosAudio.class, ContenidosAudio.builder().id(CONTENT_ID).build());
+
+        ResponseStatusException ex = assertThrows(ResponseStatusException.class,
+            () -> contentMediaService.getMiniatura(AUTH_HEADER, CONTENT_ID, null));
+
+        assertEquals(HttpStatus.NOT_FOUND, ex.getStatusCode());
+        verify(catalogRepository, never()).findFields(eq(ContenidosVideo.class), any(), any(String[].class));
+    }
+
+    private <T extends Contenido> void mockThumbnail(Class<T> tipo, T contenido) {
+        when(catalogRepository.findFields(tipo, CONTENT_ID, ContentCatalogRepository.IMAGEN_DERIVADOS,
+            ContentCatalogRepository.IMAGEN, ContentCatalogRepository.FORMATO_IMAGEN,
+            ContentCatalogRepository.IMAGEN_BLOB)).thenReturn(contenido);
+    }
+
+    @Test
+    void testGetThumbnail_SirveDerivadaConSuHash() {
+        ByteArrayResource recurso = new ByteArrayResource(new byte[] {7});
+        when(contentTypeRegistry.tipoDe(CONTENT_ID)).thenReturn(Optional.of(TipoContenido.AUDIO));
+        mockThumbnail(ContenidosAudio.class, ContenidosAudio.builder().id(CONTENT_ID)
+            .miniaturasDerivadas(Map.of("96", new BlobRef(BLOB_ID, 1, "hash96"))).build());
+        when(blobStore.abrir(BLOB_ID)).thenReturn(Optional.of(recurso));
+
+        BinaryContentDTO resultado = contentMediaService.getThumbnail(AUTH_HEADER, CONTENT_ID, "96", null);
+
+        assertSame(recurso, resultado.recurso());
+        assertEquals(ThumbnailService.FORMATO_DERIVADO, resultado.mimeType());
+        assertEquals("hash96", resultado.etag());
+    }
+
+    @Test
+    void testGetThumbnail_SinDerivadasSirveOriginal() throws Exception {
+        when(contentTypeRegistry.tipoDe(CONTENT_ID)).thenReturn(Optional.of(TipoContenido.VIDEO));
+        mockThumbnail(ContenidosVideo.class, ContenidosVideo.builder().id(CONTENT_ID)
+            .miniatura(new byte[] {1}).formatoMiniatura("image/webp").build());
+
+        BinaryContentDTO resultado = contentMediaService.getThumbnail(AUTH_HEADER, CONTENT_ID, null, null);
+
+        assertArrayEquals(new byte[] {1}, resultado.recurso().getContentAsByteArray());
+        assertEquals("image/webp", resultado.mimeType());
+        assertEquals(ContentUtil.sha256Hex(new byte[] {1}), resultado.etag());
+    }
+
+    private String firmaDe(String url) {
+        return url.substring(url.indexOf("firma=") + "firma=".length());
+    }
+
+    @Test
+    void testGetMiniatura_UrlFirmadaNoNecesitaJwt() throws Exception {
+        when(contentTypeRegistry.tipoDe(CONTENT_ID)).thenReturn(Optional.of(TipoContenido.AUDIO));
+        mockMiniatura(ContenidosAudio.class, ContenidosAudio.builder()
+            .id(CONTENT_ID).miniatura(new byte[] {3}).formatoMiniatura("image/png").build());
+        String firma = firmaDe(mediaUrls.miniatura(CONTENT_ID, "image/png"));
+
+        BinaryContentDTO resultado = contentMediaService.getMiniatura(null, CONTENT_ID, firma);
+
+        assertArrayEquals(new byte[] {3}, resultado.recurso().getContentAsByteArray());
+        verifyNoInteractions(jwtValidationService);
+    }
+
+    @Test
+    void testGetThumbnail_FirmaDeOtroContenidoExigeJwt() {
+        String firmaAjena = firmaDe(mediaUrls.miniatura("otro", "image/png"));
+        when(jwtValidationService.validarGenerico(null))
+            .thenThrow(new ResponseStatusException(HttpStatus.UNAUTHORIZED, "Token requerido"));
+
+        ResponseStatusException ex = assertThrows(ResponseStatusException.class,
+            () -> contentMediaService.getThumbnail(null, CONTENT_ID, "96", firmaAjena));
+
+        assertEquals(HttpStatus.UNAUTHORIZED, ex.getStatusCode());
+        verifyNoInteractions(catalogRepository);
+    }
+
+    @Test
+    void testGetThumbnail_TamanoNoValido() {
+        ResponseStatusException ex = assertThrows(ResponseStatusException.class,
+            () -> contentMediaService.getThumbnail(AUTH_HEADER, CONTENT_ID, "1024", null));
+
+        assertEquals(HttpStatus.BAD_REQUEST, ex.getStatusCode());
+        verifyNoInteractions(catalogRepository);
+    }
+}
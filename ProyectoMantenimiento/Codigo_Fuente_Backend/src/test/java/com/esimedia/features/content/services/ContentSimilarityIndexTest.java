@@ -0,0 +1,152 @@
+package com.esimedia.features.content.services;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+import java.util.*;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import com.esimedia.features.auth.enums.TipoContenido;
+import com.esimedia.features.content.entity.ContenidosAudio;
+import com.esimedia.features.content.entity.ContenidosVideo;
+import com.esimedia.features.content.entity.FirmaContenido;
+import com.esimedia.features.content.repository.ContentCatalogRepository;
+import com.esimedia.features.content.repository.FirmaContenidoRepository;
+
+@ExtendWith(MockitoExtension.class)
+class ContentSimilarityIndexTest {
+
+    @Mock private FirmaContenidoRepository firmaRepository;
+    @Mock private ContentCatalogRepository catalogRepository;
+
+    private ContentSimilarityIndex similarityIndex;
+
+    @BeforeEach
+    void setUp() {
+        similarityIndex = new ContentSimilarityIndex(firmaRepository, catalogRepository);
+    }
+
+    private static List<String> ids(List<ContentSimilarityIndex.Relacionado> relacionados) {
+        return relacionados.stream().map(ContentSimilarityIndex.Relacionado::id).toList();
+    }
+
+    private static List<String> tags(String prefijo, int desde, int hasta) {
+        List<String> tags = new ArrayList<>();
+        for (int i = desde; i < hasta; i++) {
+            tags.add(prefijo + i);
+        }
+        return tags;
+    }
+
+    private ContenidosAudio audio(String id, List<String> tags) {
+        ContenidosAudio audio = ContenidosAudio.builder().id(id).build();
+        audio.setTags(new ArrayList<>(tags));
+        return audio;
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<FirmaContenido> guardadas() {
+        ArgumentCaptor<List<FirmaContenido>> copias = ArgumentCaptor.forClass(List.class);
+        verify(firmaRepository).saveAll(copias.capture());
+        return copias.getValue();
+    }
+
+    @Test
+    void testFirma_EstimaLaSimilitudDeJaccard() {
+        // Jaccard real: 30 comunes de 50 distintos = 0,6
+        int[] a = ContentSimilarityIndex.firmar(new HashSet<>(tags("t", 0, 40)));
+        int[] b = ContentSimilarityIndex.firmar(new HashSet<>(tags("t", 10, 50)));
+
+        assertEquals(0.6, ContentSimilarityIndex.similitud(a, b), 0.2);
+        assertEquals(1.0, ContentSimilarityIndex.similitud(a, ContentSimilarityIndex.firmar(new HashSet<>(tags("t", 0, 40)))));
+    }
+
+    @Test
+    void testRelacionados_OrdenDeSimilitudSinElPropioNiLosDistintos() {
+        similarityIndex.actualizar("a1", TipoContenido.AUDIO, tags("t", 0, 10));
+        similarityIndex.actualizar("v1", TipoContenido.VIDEO, tags("T", 0, 10));
+        similarityIndex.actualizar("a2", TipoContenido.AUDIO, tags("t", 0, 8));
+        similarityIndex.actualizar("a3", TipoContenido.AUDIO, tags("otro", 0, 10));
+
+        List<ContentSimilarityIndex.Relacionado> relacionados = similarityIndex.relacionados("a1", 10);
+
+        // Los tags se comparan sin distinguir mayúsculas: v1 es idéntico
+        assertEquals(List.of("v1", "a2"), ids(relacionados));
+        assertEquals(TipoContenido.VIDEO, relacionados.get(0).tipo());
+        assertEquals(1.0, relacionados.get(0).similitud());
+        assertEquals(List.of("v1"), ids(similarityIndex.relacionados("a1", 1)));
+        assertTrue(similarityIndex.relacionados("desconocido", 10).isEmpty());
+    }
+
+    @Test
+    void testActualizarYEliminar_MantienenLasBandas() {
+        similarityIndex.actualizar("a1", TipoContenido.AUDIO, tags("t", 0, 10));
+        similarityIndex.actualizar("a2", TipoContenido.AUDIO, tags("t", 0, 10));
+        similarityIndex.actualizar("a2", TipoContenido.AUDIO, tags("otro", 0, 10));
+
+        assertTrue(similarityIndex.relacionados("a1", 10).isEmpty());
+
+        similarityIndex.actualizar("a3", TipoContenido.AUDIO, tags("t", 0, 10));
+        similarityIndex.eliminar("a3");
+
+        assertTrue(similarityIndex.relacionados("a1", 10).isEmpty());
+    }
+
+    @Test
+    void testHuella_Sha256IndependienteDelOrden() {
+        String huella = ContentSimilarityIndex.huella(new HashSet<>(List.of("rock", "jazz")));
+
+        assertEquals(64, huella.length());
+        assertEquals(huella, ContentSimilarityIndex.huella(new LinkedHashSet<>(List.of("jazz", "rock"))));
+        // Conjuntos cuya concatenación coincidiría sin la longitud de cada tag
+        assertNotEquals(ContentSimilarityIndex.huella(Set.of("ab", "c")), ContentSimilarityIndex.huella(Set.of("a", "bc")));
+        // Set.hashCode() colisiona en estos dos ("Aa" y "BB" tienen el mismo hashCode)
+        assertNotEquals(ContentSimilarityIndex.huella(Set.of("Aa")), ContentSimilarityIndex.huella(Set.of("BB")));
+    }
+
+    @Test
+    void testGuardar_SoloLosCambiosPendientes() {
+        similarityIndex.actualizar("a1", TipoContenido.AUDIO, tags("t", 0, 10));
+        similarityIndex.actualizar("a2", TipoContenido.AUDIO, tags("t", 0, 10));
+        similarityIndex.eliminar("a2");
+
+        similarityIndex.guardar();
+
+        assertEquals(List.of("a1"), guardadas().stream().map(FirmaContenido::getIdContenido).toList());
+        verify(firmaRepository).deleteAllById(List.of("a2"));
+
+        similarityIndex.guardar();
+
+        verifyNoMoreInteractions(firmaRepository);
+    }
+
+    @Test
+    void testCargar_ReutilizaLasFirmasGuardadasConLosMismosTags() {
+        Set<String> igual = new HashSet<>(tags("t", 0, 10));
+        int[] firmaGuardada = ContentSimilarityIndex.firmar(igual);
+        when(firmaRepository.findAll()).thenReturn(List.of(
+            new FirmaContenido("a1", TipoContenido.AUDIO, ContentSimilarityIndex.huella(igual), firmaGuardada, new Date()),
+            new FirmaContenido("a2", TipoContenido.AUDIO, "huella-antigua", new int[ContentSimilarityIndex.NUM_HASHES], new Date()),
+            new FirmaContenido("borrado", TipoContenido.AUDIO, "huella-antigua", new int[ContentSimilarityIndex.NUM_HASHES], new Date())));
+        when(catalogRepository.streamTags(ContenidosAudio.class)).thenReturn(Stream.of(
+            audio("a1", tags("t", 0, 10)), audio("a2", tags("t", 0, 10)), audio("a3", tags("t", 0, 10))));
+        when(catalogRepository.streamTags(ContenidosVideo.class)).thenReturn(Stream.empty());
+
+        similarityIndex.cargar();
+
+        // Solo se firman de nuevo a2 (tags cambiados) y a3 (sin firma guardada)
+        assertEquals(Set.of("a2", "a3"),
+            new HashSet<>(guardadas().stream().map(FirmaContenido::getIdContenido).toList()));
+        verify(firmaRepository).deleteAllById(List.of("borrado"));
+        assertEquals(List.of("a2", "a3"), ids(similarityIndex.relacionados("a1", 10)));
+        verify(firmaRepository, never()).deleteAll(anyIterable());
+    }
+}
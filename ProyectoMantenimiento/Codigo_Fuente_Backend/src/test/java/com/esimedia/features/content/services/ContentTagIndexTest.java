@@ -0,0 +1,112 @@
+package com.esimedia.features.content.services;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+import java.util.*;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import com.esimedia.features.auth.enums.TipoContenido;
+import com.esimedia.features.content.entity.ContenidosAudio;
+import com.esimedia.features.content.entity.ContenidosVideo;
+import com.esimedia.features.content.repository.ContentCatalogRepository;
+
+@ExtendWith(MockitoExtension.class)
+class ContentTagIndexTest {
+
+    @Mock private ContentCatalogRepository catalogRepository;
+
+    private ContentTagIndex tagIndex;
+
+    @BeforeEach
+    void setUp() {
+        tagIndex = new ContentTagIndex(catalogRepository);
+    }
+
+    private static List<String> ids(List<ContentTagIndex.Candidato> candidatos) {
+        return candidatos.stream().map(ContentTagIndex.Candidato::id).toList();
+    }
+
+    private ContenidosAudio audio(String id, int visualizaciones, String... tags) {
+        ContenidosAudio audio = ContenidosAudio.builder().id(id).build();
+        audio.setVisualizaciones(visualizaciones);
+        audio.setTags(new ArrayList<>(List.of(tags)));
+        return audio;
+    }
+
+    @Test
+    void testRecomendar_MasGustosCumplidosPuntuanMas() {
+        tagIndex.actualizar("a1", TipoContenido.AUDIO, List.of("Rock"));
+        tagIndex.actualizar("a2", TipoContenido.AUDIO, List.of("rock", "Jazz"));
+        tagIndex.actualizar("v1", TipoContenido.VIDEO, List.of("Pop"));
+
+        List<ContentTagIndex.Candidato> candidatos = tagIndex.recomendar(List.of(" ROCK", "jazz"), 10);
+
+        assertEquals(List.of("a2", "a1"), ids(candidatos));
+        assertEquals(TipoContenido.AUDIO, candidatos.get(0).tipo());
+        assertTrue(tagIndex.recomendar(List.of("clasica"), 10).isEmpty());
+    }
+
+    @Test
+    void testRecomendar_IgualQueRecorrerTodoElCatalogo() {
+        Random random = new Random(42);
+        List<String> tags = List.of("rock", "jazz", "pop", "blues", "folk", "metal");
+        List<ContenidosAudio> audios = new ArrayList<>();
+        for (int i = 0; i < 300; i++) {
+            audios.add(audio("a" + i, random.nextInt(10_000),
+                tags.get(random.nextInt(tags.size())), tags.get(random.nextInt(tags.size()))));
+        }
+        when(catalogRepository.streamTags(ContenidosAudio.class)).thenReturn(audios.stream());
+        when(catalogRepository.streamTags(ContenidosVideo.class)).thenReturn(Stream.empty());
+        tagIndex.reconstruir();
+
+        List<ContentTagIndex.Candidato> candidatos = tagIndex.recomendar(List.of("rock", "folk"), 5);
+
+        // Puntuación por fuerza bruta con los mismos pesos
+        Map<String, Long> df = new HashMap<>();
+        audios.forEach(audio -> new HashSet<>(audio.getTags()).forEach(tag -> df.merge(tag, 1L, Long::sum)));
+        List<String> esperado = audios.stream()
+            .filter(audio -> audio.getTags().contains("rock") || audio.getTags().contains("folk"))
+            .sorted(Comparator.comparingDouble((ContenidosAudio audio) -> -new HashSet<>(audio.getTags()).stream()
+                    .filter(tag -> tag.equals("rock") || tag.equals("folk"))
+                    .mapToDouble(tag -> Math.log(1 + 300.0 / df.get(tag)))
+                    .sum() * ContentTagIndex.popularidad(audio.getVisualizaciones(), 0))
+                .thenComparing(ContenidosAudio::getId))
+            .limit(5)
+            .map(ContenidosAudio::getId)
+            .toList();
+        assertEquals(esperado, ids(candidatos));
+    }
+
+    @Test
+    void testActualizarYEliminar_MantienenElIndice() {
+        tagIndex.actualizar("a1", TipoContenido.AUDIO, List.of("rock"));
+        tagIndex.actualizar("a1", TipoContenido.AUDIO, List.of("jazz"));
+
+        assertTrue(tagIndex.recomendar(List.of("rock"), 10).isEmpty());
+        assertEquals(List.of("a1"), ids(tagIndex.recomendar(List.of("jazz"), 10)));
+
+        tagIndex.eliminar("a1");
+
+        assertTrue(tagIndex.recomendar(List.of("jazz"), 10).isEmpty());
+    }
+
+    @Test
+    void testReconstruir_RefrescaPopularidadYRetiraLosBorrados() {
+        tagIndex.actualizar("a1", TipoContenido.AUDIO, List.of("rock"));
+        tagIndex.actualizar("borrado", TipoContenido.AUDIO, List.of("rock"));
+        when(catalogRepository.streamTags(ContenidosAudio.class))
+            .thenReturn(Stream.of(audio("a1", 10, "rock"), audio("a2", 1000, "rock")));
+        when(catalogRepository.streamTags(ContenidosVideo.class)).thenReturn(Stream.empty());
+
+        tagIndex.reconstruir();
+
+        assertEquals(List.of("a2", "a1"), ids(tagIndex.recomendar(List.of("rock"), 10)));
+    }
+}
@@ -0,0 +1,124 @@
+package com.esimedia.features.content.services;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+import java.util.*;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+
+import com.esimedia.features.auth.enums.TipoContenido;
+import com.esimedia.features.content.entity.ContenidoTipo;
+import com.esimedia.features.content.entity.ContenidosAudio;
+import com.esimedia.features.content.entity.ContenidosVideo;
+import com.esimedia.features.content.repository.ContenidoTipoRepository;
+
+@ExtendWith(MockitoExtension.class)
+class ContentTypeRegistryTest {
+
+    @Mock private ContenidoTipoRepository contenidoTipoRepository;
+    @Mock private MongoTemplate mongoTemplate;
+
+    @InjectMocks
+    private ContentTypeRegistry registry;
+
+    @Test
+    void testTipoDe_RegistradoSeSirveDesdeCache() {
+        registry.registrar("a1", TipoContenido.AUDIO);
+
+        assertEquals(Optional.of(TipoContenido.AUDIO), registry.tipoDe("a1"));
+        verify(contenidoTipoRepository).save(new ContenidoTipo("a1", TipoContenido.AUDIO));
+        verify(contenidoTipoRepository, never()).findById(anyString());
+        verifyNoInteractions(mongoTemplate);
+    }
+
+    @Test
+    void testTipoDe_LeeDelRegistroUnaSolaVez() {
+        when(contenidoTipoRepository.findById("v1"))
+            .thenReturn(Optional.of(new ContenidoTipo("v1", TipoContenido.VIDEO)));
+
+        assertEquals(Optional.of(TipoContenido.VIDEO), registry.tipoDe("v1"));
+        assertEquals(Optional.of(TipoContenido.VIDEO), registry.tipoDe("v1"));
+        verify(contenidoTipoRepository, times(1)).findById("v1");
+        verifyNoInteractions(mongoTemplate);
+    }
+
+    @Test
+    void testTipoDe_ContenidoAnteriorSeBuscaYQuedaRegistrado() {
+        ContenidosVideo video = new ContenidosVideo();
+        video.setId("v1");
+        when(contenidoTipoRepository.findById("v1")).thenReturn(Optional.empty());
+        when(mongoTemplate.find(any(Query.class), eq(ContenidosAudio.class))).thenReturn(List.of());
+        when(mongoTemplate.find(any(Query.class), eq(ContenidosVideo.class))).thenReturn(List.of(video));
+
+        assertEquals(Optional.of(TipoContenido.VIDEO), registry.tipoDe("v1"));
+        verify(contenidoTipoRepository).saveAll(List.of(new ContenidoTipo("v1", TipoContenido.VIDEO)));
+    }
+
+    @Test
+    void testTipoExistente_BorradoEnOtraInstanciaSeOlvida() {
+        registry.registrar("a1", TipoContenido.AUDIO);
+        when(mongoTemplate.exists(any(Query.class), eq(ContenidosAudio.class))).thenReturn(false);
+        when(contenidoTipoRepository.findById("a1")).thenReturn(Optional.empty());
+        when(mongoTemplate.find(any(Query.class), any(Class.class))).thenReturn(List.of());
+
+        assertTrue(registry.tipoExistente("a1").isEmpty());
+        // La caché ya no lo tiene: la siguiente consulta vuelve al registro
+        assertTrue(registry.tipoDe("a1").isEmpty());
+        verify(contenidoTipoRepository).findById("a1");
+    }
+
+    @Test
+    void testTiposDe_CacheRegistroYColecciones() {
+        registry.registrar("a1", TipoContenido.AUDIO);
+        ContenidosAudio audio = new ContenidosAudio();
+        audio.setId("a2");
+        when(contenidoTipoRepository.findAllById(Set.of("v1", "a2", "x")))
+            .thenReturn(List.of(new ContenidoTipo("v1", TipoContenido.VIDEO)));
+        when(mongoTemplate.find(any(Query.class), eq(ContenidosAudio.class))).thenReturn(List.of(audio));
+        when(mongoTemplate.find(any(Query.class), eq(ContenidosVideo.class))).thenReturn(List.of());
+
+        Map<String, TipoContenido> tipos = registry.tiposDe(List.of("a1", "v1", "a2", "x"));
+
+        assertEquals(Map.of(
+            "a1", TipoContenido.AUDIO,
+            "v1", TipoContenido.VIDEO,
+            "a2", TipoContenido.AUDIO), tipos);
+    }
+
+    @Test
+    void testEliminar_BorraDelRegistroYDeLaCache() {
+        registry.registrar("a1", TipoContenido.AUDIO);
+        when(contenidoTipoRepository.findById("a1")).thenReturn(Optional.empty());
+        when(mongoTemplate.find(any(Query.class), any(Class.class))).thenReturn(List.of());
+
+        registry.eliminar("a1");
+
+        verify(contenidoTipoRepository).deleteById("a1");
+        assertTrue(registry.tipoDe("a1").isEmpty());
+    }
+
+    @Test
+    void testTipoDe_InexistenteSeRecuerdaHastaQueSeRegistra() {
+        when(contenidoTipoRepository.findById("x")).thenReturn(Optional.empty());
+        when(mongoTemplate.find(any(Query.class), any(Class.class))).thenReturn(List.of());
+
+        assertTrue(registry.tipoDe("x").isEmpty());
+        assertTrue(registry.tipoDe("x").isEmpty());
+        assertTrue(registry.tiposDe(List.of("x")).isEmpty());
+        verify(contenidoTipoRepository, times(1)).findById("x");
+        verify(contenidoTipoRepository, never()).findAllById(any());
+        verify(mongoTemplate, times(2)).find(any(Query.class), any(Class.class));
+
+        registry.registrar("x", TipoContenido.AUDIO);
+
+        assertEquals(Optional.of(TipoContenido.AUDIO), registry.tipoDe("x"));
+    }
+}
@@ -0,0 +1,234 @@
+package com.esimedia.features.content.services;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+import java.util.*;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import com.esimedia.features.auth.enums.TipoContenido;
+import com.esimedia.features.content.entity.Clasificacion;
+import com.esimedia.features.content.entity.ContenidosAudio;
+import com.esimedia.features.content.entity.ContenidosVideo;
+import com.esimedia.features.content.repository.ClasificacionRepository;
+import com.esimedia.features.content.repository.ContentCatalogRepository;
+
+@ExtendWith(MockitoExtension.class)
+class LeaderboardServiceTest {
+
+    @Mock private ClasificacionRepository clasificacionRepository;
+    @Mock private ContentCatalogRepository catalogRepository;
+
+    private LeaderboardService leaderboardService;
+
+    @BeforeEach
+    void setUp() {
+        leaderboardService = new LeaderboardService(clasificacionRepository, catalogRepository, 2, 24);
+    }
+
+    private static List<String> ids(List<Leaderboard.Entrada> entradas) {
+        return entradas.stream().map(Leaderboard.Entrada::id).toList();
+    }
+
+    @Test
+    void testTendencias_EventosAplicadosPorLotesYPorEspecialidad() {
+        when(catalogRepository.findEspecialidades(eq(ContenidosAudio.class), anyCollection()))
+            .thenReturn(Map.of("a1", "Rock", "a2", "Jazz"));
+        when(catalogRepository.findEspecialidades(eq(ContenidosVideo.class), anyCollection()))
+            .thenReturn(Map.of("v1", "Rock"));
+
+        leaderboardService.registrarVisualizacion(ContenidosAudio.class, "a1");
+        leaderboardService.registrarVisualizacion(ContenidosAudio.class, "a2");
+        leaderboardService.registrarVisualizacion(ContenidosAudio.class, "a2");
+        leaderboardService.registrarFavorito(TipoContenido.VIDEO, "v1");
+        // Nada cambia hasta aplicar los eventos
+        assertTrue(leaderboardService.tendencias(null, 10).isEmpty());
+        assertEquals(3, leaderboardService.getPendientes());
+
+        leaderboardService.aplicarPendientes();
+
+        assertEquals(List.of("v1", "a2"), ids(leaderboardService.tendencias(null, 10)));
+        assertEquals(List.of("v1", "a1"), ids(leaderboardService.tendencias("Rock", 10)));
+        assertEquals(List.of("v1"), ids(leaderboardService.tendencias("Rock", 1)));
+    }
+
+    @Test
+    void testTendencias_EspecialidadEnCacheYContenidoBorrado() {
+        when(catalogRepository.findEspecialidades(eq(ContenidosAudio.class), anyCollection()))
+            .thenReturn(Map.of("a1", "Rock"));
+        leaderboardService.registrarVisualizacion(ContenidosAudio.class, "a1");
+        leaderboardService.registrarVisualizacion(ContenidosAudio.class, "borrado");
+        leaderboardService.aplicarPendientes();
+
+        leaderboardService.registrarVisualizacion(ContenidosAudio.class, "a1");
+        leaderboardService.aplicarPendientes();
+
+        assertEquals(List.of("a1"), ids(leaderboardService.tendencias(null, 10)));
+        verify(catalogRepository, times(1)).findEspecialidades(eq(ContenidosAudio.class), anyCollection());
+    }
+
+    @Test
+    void testMejorValorados_MediaBayesiana() {
+        when(catalogRepository.findEspecialidades(eq(ContenidosAudio.class), anyCollection()))
+            .thenReturn(Map.of("muchas", "Rock", "una", "Rock"));
+
+        // Una sola valoración de 5 pesa menos que muchas de 4.5
+        leaderboardService.registrarValoracion(ContenidosAudio.class, "una", 5.0, 5.0, 1);
+        leaderboardService.registrarValoracion(ContenidosAudio.class, "muchas", 4.5, 450.0, 100);
+        leaderboardService.aplicarPendientes();
+
+        assertEquals(List.of("muchas", "una"), ids(leaderboardService.mejorValorados("Rock", 10)));
+        assertEquals(LeaderboardService.mediaBayesiana(450.0, 100),
+            leaderboardService.mejorValorados(null, 1).get(0).puntuacion());
+    }
+
+    @Test
+    void testActualizarValoraciones_BajaRecolocaSinContarComoTendencia() {
+        when(catalogRepository.findEspecialidades(eq(ContenidosAudio.class), anyCollection()))
+            .thenReturn(Map.of("a1", "Rock", "a2", "Rock"));
+        leaderboardService.registrarValoracion(ContenidosAudio.class, "a1", 5.0, 50.0, 10);
+        leaderboardService.registrarValoracion(ContenidosAudio.class, "a2", 4.0, 40.0, 10);
+        leaderboardService.aplicarPendientes();
+
+        // a1 pierde sus valoraciones altas y a2 se queda sin ninguna
+        leaderboardService.actualizarValoraciones(ContenidosAudio.class, "a1", 10.0, 5);
+        leaderboardService.actualizarValoraciones(ContenidosAudio.class, "a2", 0.0, 0);
+        leaderboardService.aplicarPendientes();
+
+        assertEquals(List.of("a1"), ids(leaderboardService.mejorValorados("Rock", 10)));
+        assertEquals(LeaderboardService.mediaBayesiana(10.0, 5),
+            leaderboardService.mejorValorados(null, 1).get(0).puntuacion());
+        double tendencia = leaderboardService.tendencias(null, 1).get(0).puntuacion();
+        assertEquals(LeaderboardService.PESO_VALORACION, tendencia, 0.01);
+    }
+
+    @Test
+    void testEliminar_SaleDeAmbasClasificacionesYDescartaPendientes() {
+        when(catalogRepository.findEspecialidades(eq(ContenidosAudio.class), anyCollection()))
+            .thenReturn(Map.of("a1", "Rock"));
+        leaderboardService.registrarValoracion(ContenidosAudio.class, "a1", 5.0, 5.0, 1);
+        leaderboardService.aplicarPendientes();
+        leaderboardService.registrarVisualizacion(ContenidosAudio.class, "a1");
+
+        leaderboardService.eliminar("a1");
+        leaderboardService.aplicarPendientes();
+
+        assertTrue(leaderboardService.tendencias(null, 10).isEmpty());
+        assertTrue(leaderboardService.mejorValorados("Rock", 10).isEmpty());
+        assertEquals(0, leaderboardService.getPendientes());
+    }
+
+    @Test
+    void testLeaderboard_EscalarPublicaListasNuevas() {
+        Leaderboard clasificacion = new Leaderboard(2);
+        clasificacion.actualizar("a", TipoContenido.AUDIO, "Rock", 2);
+        clasificacion.actualizar("b", TipoContenido.AUDIO, "Rock", 4);
+        List<Leaderboard.Entrada> antes = clasificacion.top("Rock", 10);
+
+        clasificacion.escalar(0.5);
+
+        assertEquals(List.of("b", "a"), ids(clasificacion.top("Rock", 10)));
+        assertEquals(2.0, clasificacion.top(null, 1).get(0).puntuacion());
+        assertEquals(1.0, clasificacion.puntuacion("a"));
+        assertEquals(4.0, antes.get(0).puntuacion());
+        // Los tamaños se conservan: la capacidad se sigue respetando tras el reescalado
+        clasificacion.actualizar("c", TipoContenido.AUDIO, "Rock", 3);
+        assertEquals(List.of("c", "b"), ids(clasificacion.top("Rock", 10)));
+        assertEquals(0, clasificacion.puntuacion("a"));
+    }
+
+    @Test
+    void testLeaderboard_AcotadaALaCapacidad() {
+        Leaderboard clasificacion = new Leaderboard(2);
+        clasificacion.actualizar("a", TipoContenido.AUDIO, "Rock", 1);
+        clasificacion.actualizar("b", TipoContenido.AUDIO, "Rock", 3);
+        clasificacion.actualizar("c", TipoContenido.AUDIO, "Jazz", 2);
+
+        assertEquals(List.of("b", "c"), ids(clasificacion.top(null, 10)));
+        // "a" sigue entre los dos primeros de su especialidad
+        assertEquals(List.of("b", "a"), ids(clasificacion.top("Rock", 10)));
+
+        clasificacion.actualizar("d", TipoContenido.AUDIO, "Rock", 4);
+        clasificacion.sumar("c", TipoContenido.AUDIO, "Jazz", 5);
+
+        assertEquals(List.of("c", "d"), ids(clasificacion.top(null, 10)));
+        assertEquals(List.of("d", "b"), ids(clasificacion.top("Rock", 10)));
+        // "a" ha salido de todas sus listas y se olvida
+        assertEquals(0, clasificacion.puntuacion("a"));
+        assertEquals(3, clasificacion.entradas().size());
+    }
+
+    @Test
+    void testLeaderboard_EntradaQueNoCabeEnLaGeneralSePuedeQuitar() {
+        Leaderboard clasificacion = new Leaderboard(2);
+        clasificacion.actualizar("a", TipoContenido.AUDIO, "Rock", 5);
+        clasificacion.actualizar("b", TipoContenido.AUDIO, "Rock", 4);
+        // La general está llena: "c" sale de ella nada más entrar, pero cabe en su especialidad
+        clasificacion.actualizar("c", TipoContenido.AUDIO, "Z", 1);
+
+        assertEquals(List.of("a", "b"), ids(clasificacion.top(null, 10)));
+        assertEquals(List.of("c"), ids(clasificacion.top("Z", 10)));
+        assertEquals(1, clasificacion.puntuacion("c"));
+
+        // Sigue registrada, así que las sumas parten de su puntuación y no se duplica
+        clasificacion.sumar("c", TipoContenido.AUDIO, "Z", 1);
+        assertEquals(List.of("c"), ids(clasificacion.top("Z", 10)));
+        assertEquals(2, clasificacion.top("Z", 10).get(0).puntuacion());
+
+        clasificacion.quitar("c");
+
+        assertTrue(clasificacion.top("Z", 10).isEmpty());
+        assertEquals(2, clasificacion.entradas().size());
+    }
+
+    @Test
+    void testGuardarYCargar_RecuperaLasClasificaciones() {
+        when(catalogRepository.findEspecialidades(eq(ContenidosVideo.class), anyCollection()))
+            .thenReturn(Map.of("v1", "Rock"));
+        leaderboardService.registrarFavorito(TipoContenido.VIDEO, "v1");
+        leaderboardService.aplicarPendientes();
+
+        leaderboardService.guardar();
+
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<List<Clasificacion>> copias = ArgumentCaptor.forClass(List.class);
+        verify(clasificacionRepository).saveAll(copias.capture());
+        Map<String, Clasificacion> porNombre = new HashMap<>();
+        copias.getValue().forEach(copia -> porNombre.put(copia.getNombre(), copia));
+
+        LeaderboardService reiniciado = new LeaderboardService(clasificacionRepository, catalogRepository, 2, 24);
+        when(clasificacionRepository.findById(LeaderboardService.TENDENCIAS))
+            .thenReturn(Optional.of(porNombre.get(LeaderboardService.TENDENCIAS)));
+        when(clasificacionRepository.findById(LeaderboardService.MEJOR_VALORADOS))
+            .thenReturn(Optional.of(porNombre.get(LeaderboardService.MEJOR_VALORADOS)));
+
+        reiniciado.cargar();
+
+        assertEquals(List.of("v1"), ids(reiniciado.tendencias("Rock", 10)));
+        assertEquals(leaderboardService.tendencias(null, 1).get(0).puntuacion(),
+            reiniciado.tendencias(null, 1).get(0).puntuacion());
+        verify(catalogRepository, never()).findMejorValorados(any(), anyInt());
+    }
+
+    @Test
+    void testCargar_SinCopiaCalculaLosMejorValoradosDesdeMongo() {
+        ContenidosAudio audio = ContenidosAudio.builder().id("a1").especialidad("Jazz")
+            .sumaValoraciones(20.0).numValoraciones(5L).build();
+        when(clasificacionRepository.findById(anyString())).thenReturn(Optional.empty());
+        when(catalogRepository.findMejorValorados(ContenidosAudio.class, 2)).thenReturn(List.of(audio));
+        when(catalogRepository.findMejorValorados(ContenidosVideo.class, 2)).thenReturn(List.of());
+
+        leaderboardService.cargar();
+
+        assertEquals(List.of("a1"), ids(leaderboardService.mejorValorados("Jazz", 10)));
+        assertEquals(LeaderboardService.mediaBayesiana(20.0, 5),
+            leaderboardService.mejorValorados(null, 1).get(0).puntuacion());
+    }
+}
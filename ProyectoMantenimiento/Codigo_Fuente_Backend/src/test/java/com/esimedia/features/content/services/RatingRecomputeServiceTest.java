@@ -0,0 +1,232 @@
+package com.esimedia.features.content.services;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+import java.util.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.core.task.TaskRejectedException;
+
+import com.esimedia.features.auth.enums.TipoContenido;
+import com.esimedia.features.content.entity.ContenidosAudio;
+import com.esimedia.features.content.entity.ContenidosVideo;
+import com.esimedia.features.content.entity.TrabajoRecalculo;
+import com.esimedia.features.content.entity.VariacionValoracion;
+import com.esimedia.features.content.enums.FaseRecalculo;
+import com.esimedia.features.content.repository.ContentRatingRepository;
+import com.esimedia.features.content.repository.ContentRatingRepository.GrupoValoraciones;
+import com.esimedia.features.content.repository.RatingTotals;
+import com.esimedia.features.content.repository.TrabajoRecalculoRepository;
+import com.esimedia.features.content.repository.ValoracionContenidoRepository;
+
+@ExtendWith(MockitoExtension.class)
+class RatingRecomputeServiceTest {
+
+    @Mock private ContentRatingRepository ratingRepository;
+    @Mock private ValoracionContenidoRepository valoracionRepository;
+    @Mock private TrabajoRecalculoRepository trabajoRepository;
+    @Mock private LeaderboardService leaderboardService;
+
+    private RatingRecomputeService recomputeService;
+    private final AtomicBoolean ejecutorLleno = new AtomicBoolean();
+
+    private static final String USER_ID = "user1";
+    private static final EnumSet<FaseRecalculo> TERMINADAS = EnumSet.of(FaseRecalculo.COMPLETADO, FaseRecalculo.ERROR);
+
+    @BeforeEach
+    void setUp() {
+        // Ejecutor síncrono: el trabajo termina antes de devolver el control
+        recomputeService = new RatingRecomputeService(ratingRepository, valoracionRepository, trabajoRepository, leaderboardService,
+            tarea -> {
+                if (ejecutorLleno.get()) {
+                    throw new TaskRejectedException("Cola llena");
+                }
+                tarea.run();
+            });
+    }
+
+    private static TrabajoRecalculo guardado(FaseRecalculo fase, List<VariacionValoracion> variaciones,
+                                             List<TipoContenido> tiposAplicados) {
+        return new TrabajoRecalculo("t1", USER_ID, fase, 2, 0, new Date(), null, null, variaciones, tiposAplicados);
+    }
+
+    private static List<VariacionValoracion> variacionesGuardadas() {
+        return List.of(
+            new VariacionValoracion("a1", TipoContenido.AUDIO, -4.0, -1, Map.of("8", -1L)),
+            new VariacionValoracion("v1", TipoContenido.VIDEO, -5.0, -1, Map.of("10", -1L)));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testBorradoUsuario_UnaAgregacionYUnBulkPorColeccion() {
+        ContenidosAudio conAgregados = ContenidosAudio.builder().id("a1").numValoraciones(3L).sumaValoraciones(12.0).build();
+        ContenidosVideo antiguo = ContenidosVideo.builder().id("v1").build();
+        when(ratingRepository.findIdsValoradosPor(USER_ID)).thenReturn(List.of("a1", "v1", "borrado"));
+        when(ratingRepository.findAgregados(List.of("a1", "v1", "borrado"))).thenReturn(List.of(conAgregados, antiguo));
+        when(ratingRepository.agruparValoraciones(USER_ID, Set.of("v1"))).thenReturn(List.of(
+            new GrupoValoraciones("a1", 4.0, 1, 1),
+            new GrupoValoraciones("v1", 5.0, 2, 1),
+            new GrupoValoraciones("v1", 3.0, 1, 0),
+            new GrupoValoraciones("borrado", 2.0, 1, 1)));
+        when(ratingRepository.aplicarEnBloque(any(), anyList())).thenReturn(1);
+        when(ratingRepository.findAgregados(Set.of("a1", "v1"))).thenReturn(List.of(
+            ContenidosAudio.builder().id("a1").numValoraciones(2L).sumaValoraciones(8.0).build(),
+            ContenidosVideo.builder().id("v1").numValoraciones(2L).sumaValoraciones(8.0).build()));
+
+        RatingRecomputeJob trabajo = recomputeService.programarBorradoUsuario(USER_ID);
+
+        InOrder orden = inOrder(ratingRepository, valoracionRepository);
+        ArgumentCaptor<List<RatingTotals>> iniciales = ArgumentCaptor.forClass(List.class);
+        orden.verify(ratingRepository).inicializarEnBloque(eq(ContenidosVideo.class), iniciales.capture());
+        orden.verify(valoracionRepository).deleteByIdUsuario(USER_ID);
+
+        // El video sin agregados se inicializa con todas sus valoraciones, la del usuario incluida
+        RatingTotals inicialVideo = iniciales.getValue().get(0);
+        assertEquals(13.0, inicialVideo.getSuma());
+        assertEquals(3, inicialVideo.getNum());
+
+        ArgumentCaptor<List<RatingTotals>> variacionesAudio = ArgumentCaptor.forClass(List.class);
+        ArgumentCaptor<List<RatingTotals>> variacionesVideo = ArgumentCaptor.forClass(List.class);
+        verify(ratingRepository).aplicarEnBloque(eq(ContenidosAudio.class), variacionesAudio.capture());
+        verify(ratingRepository).aplicarEnBloque(eq(ContenidosVideo.class), variacionesVideo.capture());
+        RatingTotals audio = variacionesAudio.getValue().get(0);
+        assertEquals(-4.0, audio.getSuma());
+        assertEquals(-1, audio.getNum());
+        assertEquals(Map.of(8, -1L), audio.getCubetas());
+        assertEquals(-5.0, variacionesVideo.getValue().get(0).getSuma());
+        // Mejor valorados se recoloca con los totales ya actualizados
+        verify(leaderboardService).actualizarValoraciones(ContenidosAudio.class, "a1", 8.0, 2);
+        verify(leaderboardService).actualizarValoraciones(ContenidosVideo.class, "v1", 8.0, 2);
+        verifyNoMoreInteractions(leaderboardService);
+
+        assertEquals(FaseRecalculo.COMPLETADO, trabajo.getFase());
+        assertEquals(2, trabajo.getContenidosAfectados());
+        assertEquals(2, trabajo.getContenidosActualizados());
+        TrabajoRecalculo estado = recomputeService.getTrabajo(trabajo.getId()).orElseThrow();
+        assertEquals(FaseRecalculo.COMPLETADO, estado.getFase());
+        assertEquals(2, estado.getContenidosActualizados());
+        // Se guarda al programarlo, en cada una de las cinco fases y tras el bulk de cada colección
+        ArgumentCaptor<TrabajoRecalculo> guardados = ArgumentCaptor.forClass(TrabajoRecalculo.class);
+        verify(trabajoRepository, times(8)).save(guardados.capture());
+        assertEquals(FaseRecalculo.PENDIENTE, guardados.getAllValues().get(0).getFase());
+        // Las variaciones quedan guardadas antes del borrado
+        TrabajoRecalculo borrando = guardados.getAllValues().get(3);
+        assertEquals(FaseRecalculo.BORRANDO, borrando.getFase());
+        assertEquals(2, borrando.getVariaciones().size());
+        assertEquals(FaseRecalculo.COMPLETADO, guardados.getValue().getFase());
+        assertNotNull(guardados.getValue().getFechaFin());
+        verify(valoracionRepository, never()).findByIdContenido(anyString());
+    }
+
+    @Test
+    void testBorradoUsuario_ErrorQuedaEnElTrabajo() {
+        when(ratingRepository.findIdsValoradosPor(USER_ID)).thenThrow(new RuntimeException("Mongo caído"));
+
+        RatingRecomputeJob trabajo = recomputeService.programarBorradoUsuario(USER_ID);
+
+        assertEquals(FaseRecalculo.ERROR, trabajo.getFase());
+        assertEquals("Mongo caído", trabajo.getError());
+        assertNotNull(trabajo.getFin());
+        verify(valoracionRepository, never()).deleteByIdUsuario(anyString());
+        verifyNoInteractions(leaderboardService);
+    }
+
+    @Test
+    void testGetTrabajo_DeOtraInstanciaSeLeeDeMongo() {
+        TrabajoRecalculo guardado = new TrabajoRecalculo("otro", USER_ID, FaseRecalculo.ACTUALIZANDO, 4, 1,
+            new Date(), null, null, null, null);
+        when(trabajoRepository.findById("otro")).thenReturn(Optional.of(guardado));
+
+        assertSame(guardado, recomputeService.getTrabajo("otro").orElseThrow());
+    }
+
+    @Test
+    void testBorradoUsuario_EjecutorLlenoQuedaPendienteYSeRelanza() {
+        ejecutorLleno.set(true);
+
+        RatingRecomputeJob trabajo = recomputeService.programarBorradoUsuario(USER_ID);
+
+        assertEquals(FaseRecalculo.PENDIENTE, trabajo.getFase());
+        verifyNoInteractions(ratingRepository, valoracionRepository);
+
+        ejecutorLleno.set(false);
+        when(trabajoRepository.findByFaseNotIn(TERMINADAS)).thenReturn(List.of(trabajo.instantanea()));
+        recomputeService.relanzarPendientes();
+
+        verify(valoracionRepository).deleteByIdUsuario(USER_ID);
+        assertEquals(FaseRecalculo.COMPLETADO, recomputeService.getTrabajo(trabajo.getId()).orElseThrow().getFase());
+    }
+
+    @Test
+    void testReanudar_SinBorrarSeRepiteDesdeElPrincipio() {
+        when(trabajoRepository.findByFaseNotIn(TERMINADAS))
+            .thenReturn(List.of(guardado(FaseRecalculo.INICIALIZANDO, null, List.of())));
+
+        recomputeService.reanudar();
+
+        InOrder orden = inOrder(ratingRepository, valoracionRepository);
+        orden.verify(ratingRepository).findIdsValoradosPor(USER_ID);
+        orden.verify(valoracionRepository).deleteByIdUsuario(USER_ID);
+        assertEquals(FaseRecalculo.COMPLETADO, recomputeService.getTrabajo("t1").orElseThrow().getFase());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testReanudar_ActualizandoRetomaLasVariacionesPendientes() {
+        when(trabajoRepository.findByFaseNotIn(TERMINADAS)).thenReturn(List.of(
+            guardado(FaseRecalculo.ACTUALIZANDO, variacionesGuardadas(), List.of(TipoContenido.AUDIO))));
+        when(ratingRepository.aplicarEnBloque(eq(ContenidosVideo.class), anyList())).thenReturn(1);
+
+        recomputeService.reanudar();
+
+        // Ni se vuelve a agrupar (ya no hay valoraciones del usuario) ni se repite el bulk de audio
+        verify(ratingRepository, never()).agruparValoraciones(anyString(), any());
+        verify(valoracionRepository, never()).deleteByIdUsuario(anyString());
+        verify(ratingRepository, never()).aplicarEnBloque(eq(ContenidosAudio.class), anyList());
+        ArgumentCaptor<List<RatingTotals>> video = ArgumentCaptor.forClass(List.class);
+        verify(ratingRepository).aplicarEnBloque(eq(ContenidosVideo.class), video.capture());
+        RatingTotals variacion = video.getValue().get(0);
+        assertEquals(-5.0, variacion.getSuma());
+        assertEquals(-1, variacion.getNum());
+        assertEquals(Map.of(10, -1L), variacion.getCubetas());
+        TrabajoRecalculo estado = recomputeService.getTrabajo("t1").orElseThrow();
+        assertEquals(FaseRecalculo.COMPLETADO, estado.getFase());
+        assertEquals(1, estado.getContenidosActualizados());
+    }
+
+    @Test
+    void testReanudar_BorrandoVuelveABorrarConLasVariacionesGuardadas() {
+        when(trabajoRepository.findByFaseNotIn(TERMINADAS))
+            .thenReturn(List.of(guardado(FaseRecalculo.BORRANDO, variacionesGuardadas(), List.of())));
+
+        recomputeService.reanudar();
+
+        verify(ratingRepository, never()).findIdsValoradosPor(anyString());
+        verify(valoracionRepository).deleteByIdUsuario(USER_ID);
+        verify(ratingRepository).aplicarEnBloque(eq(ContenidosAudio.class), anyList());
+        verify(ratingRepository).aplicarEnBloque(eq(ContenidosVideo.class), anyList());
+    }
+
+    @Test
+    void testReanudar_BorrandoSinVariacionesFalla() {
+        when(trabajoRepository.findByFaseNotIn(TERMINADAS))
+            .thenReturn(List.of(guardado(FaseRecalculo.BORRANDO, null, null)));
+
+        recomputeService.reanudar();
+
+        TrabajoRecalculo estado = recomputeService.getTrabajo("t1").orElseThrow();
+        assertEquals(FaseRecalculo.ERROR, estado.getFase());
+        assertTrue(estado.getError().contains("BORRANDO"));
+        assertNotNull(estado.getFechaFin());
+        verifyNoInteractions(valoracionRepository);
+    }
+}
@@ -0,0 +1,87 @@
+package com.esimedia.features.content.services;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+import java.util.*;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+
+import com.esimedia.features.content.entity.Tags;
+import com.esimedia.features.content.repository.TagsRepository;
+
+@ExtendWith(MockitoExtension.class)
+class TagDictionaryTest {
+
+    @Mock private TagsRepository tagsRepository;
+    @Mock private MongoTemplate mongoTemplate;
+    @Mock private BulkOperations bulkOperations;
+
+    @InjectMocks
+    private TagDictionary tagDictionary;
+
+    @Test
+    void testResolverIds_PrecargadosNoConsultan() {
+        when(tagsRepository.findAll()).thenReturn(List.of(new Tags("t1", "rock")));
+        tagDictionary.precargar();
+
+        assertEquals(Map.of("rock", "t1"), tagDictionary.resolverIds(List.of("rock")));
+        assertEquals(Map.of("t1", "rock"), tagDictionary.nombres(List.of("t1")));
+        verify(tagsRepository, never()).findByNombreIn(anyCollection());
+        verify(tagsRepository, never()).findByIdTagIn(anyList());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testResolverIds_CreaEnBloqueLosQueFaltan() {
+        when(tagsRepository.findByNombreIn(List.of("rock", "jazz"))).thenReturn(List.of(new Tags("t1", "rock")));
+        when(mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, Tags.class)).thenReturn(bulkOperations);
+        when(bulkOperations.insert(anyList())).thenReturn(bulkOperations);
+
+        Map<String, String> ids = tagDictionary.resolverIds(List.of("rock", "jazz"));
+
+        ArgumentCaptor<List<Tags>> insertados = ArgumentCaptor.forClass(List.class);
+        verify(bulkOperations).insert(insertados.capture());
+        verify(bulkOperations).execute();
+        assertEquals(1, insertados.getValue().size());
+        assertEquals("jazz", insertados.getValue().get(0).getNombre());
+        assertEquals("t1", ids.get("rock"));
+        assertEquals(insertados.getValue().get(0).getIdTag(), ids.get("jazz"));
+
+        // La segunda vez se resuelve desde la caché
+        tagDictionary.resolverIds(List.of("rock", "jazz"));
+        verify(tagsRepository, times(1)).findByNombreIn(anyCollection());
+    }
+
+    @Test
+    void testResolverIds_CreacionConcurrenteReleeElTagExistente() {
+        when(tagsRepository.findByNombreIn(List.of("rock")))
+            .thenReturn(List.of())
+            .thenReturn(List.of(new Tags("otro", "rock")));
+        when(mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, Tags.class)).thenReturn(bulkOperations);
+        when(bulkOperations.insert(anyList())).thenReturn(bulkOperations);
+        when(bulkOperations.execute()).thenThrow(new DuplicateKeyException("E11000"));
+
+        assertEquals(Map.of("rock", "otro"), tagDictionary.resolverIds(List.of("rock")));
+    }
+
+    @Test
+    void testResolverIds_SinTagNoSeCreaLanzaExcepcion() {
+        when(tagsRepository.findByNombreIn(List.of("rock"))).thenReturn(List.of());
+        when(mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, Tags.class)).thenReturn(bulkOperations);
+        when(bulkOperations.insert(anyList())).thenReturn(bulkOperations);
+        when(bulkOperations.execute()).thenThrow(new DuplicateKeyException("E11000"));
+
+        List<String> nombres = List.of("rock");
+        assertThrows(IllegalStateException.class, () -> tagDictionary.resolverIds(nombres));
+    }
+}
@@ -0,0 +1,108 @@
+package com.esimedia.features.content.services;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.Map;
+
+import javax.imageio.ImageIO;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.esimedia.features.content.entity.BlobRef;
+import com.esimedia.features.content.enums.TamanoMiniatura;
+import com.esimedia.features.content.storage.BlobStore;
+
+@ExtendWith(MockitoExtension.class)
+class ThumbnailServiceTest {
+
+    @Mock private BlobStore blobStore;
+
+    @InjectMocks
+    private ThumbnailService thumbnailService;
+
+    private static byte[] png(int ancho, int alto) throws Exception {
+        ByteArrayOutputStream salida = new ByteArrayOutputStream();
+        ImageIO.write(new BufferedImage(ancho, alto, BufferedImage.TYPE_INT_ARGB), "png", salida);
+        return salida.toByteArray();
+    }
+
+    @Test
+    void testCodificarDerivados_ConservaProporcion() throws Exception {
+        Map<TamanoMiniatura, byte[]> derivados = thumbnailService.codificarDerivados(png(1000, 500));
+
+        assertEquals(TamanoMiniatura.values().length, derivados.size());
+        BufferedImage mediana = ImageIO.read(new ByteArrayInputStream(derivados.get(TamanoMiniatura.MEDIANA)));
+        assertEquals(320, mediana.getWidth());
+        assertEquals(160, mediana.getHeight());
+        BufferedImage placeholder = ImageIO.read(new ByteArrayInputStream(derivados.get(TamanoMiniatura.PLACEHOLDER)));
+        assertEquals(16, placeholder.getWidth());
+    }
+
+    @Test
+    void testCodificarDerivados_CabeceraConDimensionesExcesivasNoSeDecodifica() throws Exception {
+        // PNG de 1x1 cuya cabecera IHDR declara 30000x30000: decodificarlo reservaría un raster de varios GB
+        byte[] imagen = png(1, 1);
+        ByteBuffer.wrap(imagen, 16, 8).putInt(30000).putInt(30000);
+
+        Map<TamanoMiniatura, byte[]> derivados = thumbnailService.codificarDerivados(imagen);
+
+        assertTrue(derivados.isEmpty());
+    }
+
+    @Test
+    void testCodificarDerivados_RespetaMaximoConfigurado() throws Exception {
+        ReflectionTestUtils.setField(thumbnailService, "maxPixeles", 100L);
+
+        assertTrue(thumbnailService.codificarDerivados(png(20, 10)).isEmpty());
+        assertEquals(TamanoMiniatura.values().length, thumbnailService.codificarDerivados(png(10, 10)).size());
+    }
+
+    @Test
+    void testEscalar_NoAmpliaImagenesPequenas() {
+        BufferedImage escalada = ThumbnailService.escalar(new BufferedImage(50, 40, BufferedImage.TYPE_INT_RGB), 720);
+
+        assertEquals(50, escalada.getWidth());
+        assertEquals(40, escalada.getHeight());
+    }
+
+    @Test
+    void testGenerarDerivados_GuardaCadaTamanoComoJpeg() throws Exception {
+        when(blobStore.guardar(any(), eq(ThumbnailService.FORMATO_DERIVADO)))
+            .thenAnswer(inv -> new BlobRef("blob", inv.<byte[]>getArgument(0).length, "hash"));
+
+        Map<String, BlobRef> derivados = thumbnailService.generarDerivados(png(800, 800));
+
+        assertEquals(List.of("96", "320", "720", "placeholder"), List.copyOf(derivados.keySet()));
+        verify(blobStore, times(4)).guardar(any(), eq(ThumbnailService.FORMATO_DERIVADO));
+    }
+
+    @Test
+    void testGenerarDerivados_FalloAlGuardarEliminaLasYaGuardadas() throws Exception {
+        when(blobStore.guardar(any(), eq(ThumbnailService.FORMATO_DERIVADO)))
+            .thenReturn(new BlobRef("blob-96", 10, "hash"))
+            .thenThrow(new IllegalStateException("GridFS no disponible"));
+
+        byte[] imagen = png(800, 800);
+        assertThrows(IllegalStateException.class, () -> thumbnailService.generarDerivados(imagen));
+
+        verify(blobStore).eliminar("blob-96");
+    }
+
+    @Test
+    void testGenerarDerivados_ImagenNoDecodificable() {
+        assertTrue(thumbnailService.generarDerivados(new byte[] {1, 2, 3}).isEmpty());
+        verifyNoInteractions(blobStore);
+    }
+}
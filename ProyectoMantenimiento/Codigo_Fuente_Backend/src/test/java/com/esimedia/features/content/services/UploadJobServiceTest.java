@@ -0,0 +1,249 @@
+package com.esimedia.features.content.services;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+import com.esimedia.features.auth.enums.Rol;
+import com.esimedia.features.auth.services.ValidationService;
+import com.esimedia.features.content.dto.ContentAudioUploadDTO;
+import com.esimedia.features.content.dto.ContentVideoUploadDTO;
+import com.esimedia.features.content.dto.UploadJobDTO;
+import com.esimedia.features.content.entity.BlobRef;
+import com.esimedia.features.content.entity.TrabajoSubida;
+import com.esimedia.features.content.enums.EstadoSubida;
+import com.esimedia.features.content.repository.TrabajoSubidaRepository;
+import com.esimedia.features.content.storage.BlobStore;
+import com.esimedia.shared.util.JwtValidationUtil;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+@ExtendWith(MockitoExtension.class)
+class UploadJobServiceTest {
+
+    private static final String TOKEN = "Bearer token";
+    private static final String CREADOR = "creador1";
+
+    @Mock private TrabajoSubidaRepository trabajoRepository;
+    @Mock private AudioContentUploadService audioUploadService;
+    @Mock private VideoContentService videoContentService;
+    @Mock private ValidationService validationService;
+    @Mock private JwtValidationUtil jwtValidationService;
+    @Mock private BlobStore blobStore;
+
+    // Repositorio y BlobStore en memoria; el repositorio reproduce las transiciones atómicas de estado
+    private final Map<String, TrabajoSubida> trabajos = new HashMap<>();
+    private final Map<String, byte[]> blobs = new HashMap<>();
+    private final List<Runnable> pendientes = new ArrayList<>();
+    private UploadJobService uploadJobService;
+
+    @BeforeEach
+    void setUp() {
+        TaskExecutor executor = pendientes::add;
+        uploadJobService = servicio(executor);
+        lenient().when(jwtValidationService.validateContentUpload(eq(TOKEN), any())).thenReturn(CREADOR);
+        lenient().when(jwtValidationService.validateJwtWithBusinessRules(TOKEN, List.of(Rol.CREADOR), null))
+            .thenReturn(CREADOR);
+        lenient().when(blobStore.guardar(any(), eq("application/json"))).thenAnswer(invocation -> {
+            String id = "blob-" + blobs.size();
+            blobs.put(id, invocation.getArgument(0));
+            return new BlobRef(id, 0, "hash");
+        });
+        lenient().when(blobStore.leer(anyString())).thenAnswer(invocation -> blobs.get(invocation.<String>getArgument(0)));
+        lenient().doAnswer(invocation -> blobs.remove(invocation.<String>getArgument(0)))
+            .when(blobStore).eliminar(anyString());
+        lenient().when(trabajoRepository.guardar(any())).thenAnswer(invocation -> {
+            TrabajoSubida trabajo = invocation.getArgument(0);
+            trabajos.put(trabajo.getId(), trabajo);
+            return trabajo;
+        });
+        lenient().when(trabajoRepository.findById(anyString()))
+            .thenAnswer(invocation -> Optional.ofNullable(trabajos.get(invocation.<String>getArgument(0))));
+        lenient().when(trabajoRepository.reclamar(anyString())).thenAnswer(invocation -> {
+            TrabajoSubida trabajo = trabajos.get(invocation.<String>getArgument(0));
+            if (trabajo == null || trabajo.getEstado() != EstadoSubida.EN_COLA) {
+                return Optional.empty();
+            }
+            trabajo.setEstado(EstadoSubida.ANALIZANDO);
+            return Optional.of(trabajo);
+        });
+        lenient().doAnswer(invocation -> {
+            TrabajoSubida trabajo = trabajos.get(invocation.<String>getArgument(0));
+            trabajo.setEstado(invocation.getArgument(1));
+            trabajo.setMensaje(invocation.getArgument(2));
+            trabajo.setPeticionBlob(null);
+            return null;
+        }).when(trabajoRepository).terminar(anyString(), any(), any());
+    }
+
+    private UploadJobService servicio(TaskExecutor executor) {
+        return new UploadJobService(trabajoRepository, audioUploadService, videoContentService,
+            validationService, jwtValidationService, blobStore, new ObjectMapper(), executor, 60_000);
+    }
+
+    private static ContentAudioUploadDTO audio() {
+        ContentAudioUploadDTO audio = new ContentAudioUploadDTO();
+        audio.setTitulo("Audio");
+        audio.setFichero("AQIDBA==");
+        return audio;
+    }
+
+    private void procesarPendientes() {
+        List<Runnable> tareas = List.copyOf(pendientes);
+        pendientes.clear();
+        tareas.forEach(Runnable::run);
+    }
+
+    private static HttpStatus estado(ResponseStatusException e) {
+        return HttpStatus.valueOf(e.getStatusCode().value());
+    }
+
+    @Test
+    void testEncolarAudio_RespondeEnColaYTerminaGuardado() {
+        ContentAudioUploadDTO audio = audio();
+        when(audioUploadService.uploadAudioContent(CREADOR, audio)).thenReturn("SUCCESS:Contenido de audio subido exitosamente");
+
+        UploadJobDTO aceptado = uploadJobService.encolarAudio(TOKEN, audio);
+
+        // La respuesta no espera al procesado
+        assertEquals(EstadoSubida.EN_COLA, aceptado.estado());
+        verifyNoInteractions(audioUploadService);
+
+        procesarPendientes();
+
+        UploadJobDTO terminado = uploadJobService.estado(TOKEN, aceptado.id());
+        assertEquals(EstadoSubida.GUARDADO, terminado.estado());
+        assertEquals("Contenido de audio subido exitosamente", terminado.mensaje());
+        assertNull(trabajos.get(aceptado.id()).getPeticionBlob());
+        assertTrue(blobs.isEmpty());
+    }
+
+    @Test
+    void testEncolar_ElTrabajoSoloGuardaLaReferenciaALaPeticion() throws Exception {
+        String id = uploadJobService.encolarAudio(TOKEN, audio()).id();
+
+        TrabajoSubida trabajo = trabajos.get(id);
+        assertNotNull(trabajo.getPeticionBlob());
+        assertEquals(audio(), new ObjectMapper().readValue(blobs.get(trabajo.getPeticionBlob()), ContentAudioUploadDTO.class));
+    }
+
+    @Test
+    void testEjecutar_SinPeticionQuedaFallido() {
+        String id = uploadJobService.encolarAudio(TOKEN, audio()).id();
+        blobs.clear();
+
+        procesarPendientes();
+
+        assertEquals(EstadoSubida.FALLIDO, trabajos.get(id).getEstado());
+        assertEquals(UploadJobService.PETICION_NO_DISPONIBLE, trabajos.get(id).getMensaje());
+        verifyNoInteractions(audioUploadService);
+    }
+
+    @Test
+    void testEncolarVideo_FalloDelProcesadoQuedaComoFallido() {
+        ContentVideoUploadDTO video = new ContentVideoUploadDTO();
+        when(videoContentService.uploadVideoContentAs(CREADOR, video)).thenThrow(new IllegalStateException("Mongo caído"));
+
+        String id = uploadJobService.encolarVideo(TOKEN, video).id();
+        procesarPendientes();
+
+        UploadJobDTO terminado = uploadJobService.estado(TOKEN, id);
+        assertEquals(EstadoSubida.FALLIDO, terminado.estado());
+        assertEquals(UploadJobService.ERROR_INTERNO, terminado.mensaje());
+    }
+
+    @Test
+    void testEncolar_DatosInvalidosOColaLlena() {
+        when(validationService.validateAudioContent(any())).thenReturn("El título es obligatorio").thenReturn(null);
+
+        ResponseStatusException invalido = assertThrows(ResponseStatusException.class,
+            () -> uploadJobService.encolarAudio(TOKEN, audio()));
+        assertEquals(HttpStatus.BAD_REQUEST, estado(invalido));
+        verify(trabajoRepository, never()).guardar(any());
+
+        UploadJobService saturado = servicio(tarea -> { throw new TaskRejectedException("llena"); });
+        ResponseStatusException llena = assertThrows(ResponseStatusException.class,
+            () -> saturado.encolarAudio(TOKEN, audio()));
+        assertEquals(HttpStatus.SERVICE_UNAVAILABLE, estado(llena));
+        verify(trabajoRepository).deleteById(anyString());
+        assertTrue(blobs.isEmpty());
+    }
+
+    @Test
+    void testEstado_SubidaDeOtroCreador() {
+        String id = uploadJobService.encolarAudio(TOKEN, audio()).id();
+        when(jwtValidationService.validateJwtWithBusinessRules("Bearer otro", List.of(Rol.CREADOR), null))
+            .thenReturn("otro");
+
+        ResponseStatusException ajena = assertThrows(ResponseStatusException.class,
+            () -> uploadJobService.estado("Bearer otro", id));
+        assertEquals(HttpStatus.NOT_FOUND, estado(ajena));
+    }
+
+    @Test
+    void testReanudar_RelanzaLosPendientesUnaSolaVez() {
+        ContentAudioUploadDTO audio = audio();
+        when(audioUploadService.uploadAudioContent(CREADOR, audio)).thenReturn("SUCCESS:ok");
+        String id = uploadJobService.encolarAudio(TOKEN, audio).id();
+        when(trabajoRepository.findIdsEnCola()).thenReturn(List.of(id));
+
+        // Tras un reinicio el mismo trabajo queda dos veces en el ejecutor: solo una lo procesa
+        uploadJobService.reanudar();
+        procesarPendientes();
+
+        verify(trabajoRepository).reiniciarInterrumpidos();
+        verify(audioUploadService, times(1)).uploadAudioContent(CREADOR, audio);
+        assertEquals(EstadoSubida.GUARDADO, trabajos.get(id).getEstado());
+    }
+
+    @Test
+    void testEstado_ValidaElTokenAntesDeBuscar() {
+        when(jwtValidationService.validateJwtWithBusinessRules("Bearer caducado", List.of(Rol.CREADOR), null))
+            .thenThrow(new ResponseStatusException(HttpStatus.UNAUTHORIZED, "Token inválido"));
+
+        assertThrows(ResponseStatusException.class, () -> uploadJobService.estado("Bearer caducado", "id"));
+        verify(trabajoRepository, never()).findById(anyString());
+    }
+
+    @Test
+    void testRelanzarPendientes_LanzaLosQueNoCupieronSinDuplicar() {
+        List<Runnable> aceptadas = new ArrayList<>();
+        boolean[] llena = {true};
+        UploadJobService servicio = servicio(tarea -> {
+            if (llena[0]) {
+                throw new TaskRejectedException("llena");
+            }
+            aceptadas.add(tarea);
+        });
+        TrabajoSubida trabajo = new TrabajoSubida();
+        trabajo.setId("t1");
+        trabajo.setEstado(EstadoSubida.EN_COLA);
+        trabajos.put("t1", trabajo);
+        when(trabajoRepository.findIdsEnCola()).thenReturn(List.of("t1"));
+
+        // Al arrancar la cola está llena: el trabajo sigue pendiente
+        servicio.reanudar();
+        assertTrue(aceptadas.isEmpty());
+
+        // Con sitio se lanza una sola vez aunque la pasada se repita antes de que empiece
+        llena[0] = false;
+        servicio.relanzarPendientes();
+        servicio.relanzarPendientes();
+        assertEquals(1, aceptadas.size());
+    }
+}
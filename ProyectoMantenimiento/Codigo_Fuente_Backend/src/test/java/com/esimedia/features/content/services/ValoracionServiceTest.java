@@ -14,6 +14,8 @@ import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.web.server.ResponseStatusException;
 
+import com.esimedia.features.auth.enums.TipoContenido;
+import com.esimedia.features.content.dto.ValoracionResumenDTO;
 import com.esimedia.features.content.entity.*;
 import com.esimedia.features.content.repository.*;
 
@@ -21,8 +23,10 @@ import com.esimedia.features.content.repository.*;
 public class ValoracionServiceTest {
 
     @Mock private ValoracionContenidoRepository valoracionRepository;
-    @Mock private ContenidosAudioRepository audioRepository;
-    @Mock private ContenidosVideoRepository videoRepository;
+    @Mock private ContentRatingRepository ratingRepository;
+    @Mock private RatingRecomputeService recomputeService;
+    @Mock private ContentTypeRegistry contentTypeRegistry;
+    @Mock private LeaderboardService leaderboardService;
 
     @InjectMocks
     private ValoracionService valoracionService;
@@ -32,23 +36,35 @@ public class ValoracionServiceTest {
 
     private ContenidosAudio audio;
     private ContenidosVideo video;
-    private ValoracionContenido valoracion;
 
     @BeforeEach
     void setUp() {
         audio = ContenidosAudio.builder()
             .id(CONTENT_ID)
             .titulo("Test Audio")
-            .valoracionMedia(0.0)
+            .valoracionMedia(4.0)
+            .sumaValoraciones(8.0)
+            .numValoraciones(2L)
+            .histogramaValoraciones(new HashMap<>(Map.of("6", 1L, "10", 1L)))
             .build();
 
         video = ContenidosVideo.builder()
             .id(CONTENT_ID)
             .titulo("Test Video")
             .valoracionMedia(0.0)
+            .sumaValoraciones(0.0)
+            .numValoraciones(0L)
+            .histogramaValoraciones(new HashMap<>())
             .build();
+    }
+
+    private static RatingTotals variacion(double suma, long num, Map<String, Long> histograma) {
+        return argThat(variacion -> variacion != null && variacion.getSuma() == suma && variacion.getNum() == num
+            && CONTENT_ID.equals(variacion.getIdContenido()) && variacion.histogramaDocumento().equals(histograma));
+    }
 
-        valoracion = new ValoracionContenido(CONTENT_ID, USER_ID, 5.0);
+    private static Contenido agregados(double suma, long num) {
+        return ContenidosAudio.builder().id(CONTENT_ID).sumaValoraciones(suma).numValoraciones(num).build();
     }
 
     // ========== valorarContenido - Cubre validación y branches ==========
@@ -65,188 +81,172 @@ public class ValoracionServiceTest {
             valoracionService.valorarContenido(CONTENT_ID, USER_ID, 6.0));
     }
 
+    @Test
+    void testValorarContenido_PasoInvalido() {
+        assertThrows(ResponseStatusException.class, () ->
+            valoracionService.valorarContenido(CONTENT_ID, USER_ID, 3.3));
+    }
+
     @Test
     void testValorarContenido_ContentNotFound() {
-        when(audioRepository.findById(CONTENT_ID)).thenReturn(Optional.empty());
-        when(videoRepository.findById(CONTENT_ID)).thenReturn(Optional.empty());
+        when(contentTypeRegistry.tipoDe(CONTENT_ID)).thenReturn(Optional.empty());
 
         assertThrows(ResponseStatusException.class, () ->
             valoracionService.valorarContenido(CONTENT_ID, USER_ID, 5.0));
+        verify(ratingRepository, never()).cambiarValoracion(anyString(), anyString(), anyDouble());
     }
 
     @Test
     void testValorarContenido_NewValoracion_Audio() {
-        when(audioRepository.findById(CONTENT_ID)).thenReturn(Optional.of(audio));
-        when(valoracionRepository.findByIdContenidoAndIdUsuario(CONTENT_ID, USER_ID)).thenReturn(null);
-        when(valoracionRepository.findByIdContenido(CONTENT_ID)).thenReturn(Arrays.asList(valoracion));
+        when(contentTypeRegistry.tipoDe(CONTENT_ID)).thenReturn(Optional.of(TipoContenido.AUDIO));
+        when(ratingRepository.findAgregados(ContenidosAudio.class, CONTENT_ID)).thenReturn(audio);
+        when(ratingRepository.cambiarValoracion(CONTENT_ID, USER_ID, 4.5)).thenReturn(null);
+        when(ratingRepository.aplicar(eq(ContenidosAudio.class), variacion(4.5, 1L, Map.of("9", 1L))))
+            .thenReturn(agregados(12.5, 3L));
 
-        valoracionService.valorarContenido(CONTENT_ID, USER_ID, 5.0);
+        valoracionService.valorarContenido(CONTENT_ID, USER_ID, 4.5);
 
-        verify(valoracionRepository, atLeastOnce()).save(any(ValoracionContenido.class));
-        verify(audioRepository).save(any(ContenidosAudio.class));
+        // La clasificación recibe los totales que devuelve la actualización
+        verify(leaderboardService).registrarValoracion(ContenidosAudio.class, CONTENT_ID, 4.5, 12.5, 3L);
+        // Los agregados ya existen: no se recorren las valoraciones
+        verify(valoracionRepository, never()).findByIdContenido(anyString());
     }
 
     @Test
     void testValorarContenido_NewValoracion_Video() {
-        when(audioRepository.findById(CONTENT_ID)).thenReturn(Optional.empty());
-        when(videoRepository.findById(CONTENT_ID)).thenReturn(Optional.of(video));
-        when(valoracionRepository.findByIdContenidoAndIdUsuario(CONTENT_ID, USER_ID)).thenReturn(null);
-        when(valoracionRepository.findByIdContenido(CONTENT_ID)).thenReturn(Arrays.asList(valoracion));
+        when(contentTypeRegistry.tipoDe(CONTENT_ID)).thenReturn(Optional.of(TipoContenido.VIDEO));
+        when(ratingRepository.findAgregados(ContenidosVideo.class, CONTENT_ID)).thenReturn(video);
+        when(ratingRepository.cambiarValoracion(CONTENT_ID, USER_ID, 4.0)).thenReturn(null);
+        when(ratingRepository.aplicar(eq(ContenidosVideo.class), variacion(4.0, 1L, Map.of("8", 1L))))
+            .thenReturn(agregados(4.0, 1L));
 
         valoracionService.valorarContenido(CONTENT_ID, USER_ID, 4.0);
 
-        verify(valoracionRepository, atLeastOnce()).save(any(ValoracionContenido.class));
-        verify(videoRepository).save(any(ContenidosVideo.class));
+        verify(leaderboardService).registrarValoracion(ContenidosVideo.class, CONTENT_ID, 4.0, 4.0, 1L);
     }
 
     @Test
-    void testValorarContenido_UpdateExisting() {
-        ValoracionContenido existing = new ValoracionContenido(CONTENT_ID, USER_ID, 3.0);
-        
-        when(audioRepository.findById(CONTENT_ID)).thenReturn(Optional.of(audio));
-        when(valoracionRepository.findByIdContenidoAndIdUsuario(CONTENT_ID, USER_ID)).thenReturn(existing);
-        when(valoracionRepository.findByIdContenido(CONTENT_ID)).thenReturn(Arrays.asList(existing));
+    void testValorarContenido_UpdateExisting_AplicaDelta() {
+        when(contentTypeRegistry.tipoDe(CONTENT_ID)).thenReturn(Optional.of(TipoContenido.AUDIO));
+        when(ratingRepository.findAgregados(ContenidosAudio.class, CONTENT_ID)).thenReturn(audio);
+        when(ratingRepository.cambiarValoracion(CONTENT_ID, USER_ID, 5.0)).thenReturn(3.0);
+        when(ratingRepository.aplicar(eq(ContenidosAudio.class), variacion(2.0, 0L, Map.of("6", -1L, "10", 1L))))
+            .thenReturn(agregados(10.0, 2L));
 
         valoracionService.valorarContenido(CONTENT_ID, USER_ID, 5.0);
 
-        verify(valoracionRepository, atLeastOnce()).save(any(ValoracionContenido.class));
-        assertEquals(5, existing.getValoracion());
+        verify(leaderboardService).registrarValoracion(ContenidosAudio.class, CONTENT_ID, 5.0, 10.0, 2L);
+        // El valor anterior sale del intercambio atómico, no de una lectura previa
+        verify(valoracionRepository, never()).findByIdContenidoAndIdUsuario(anyString(), anyString());
+        verify(valoracionRepository, never()).save(any());
     }
 
-    // ========== actualizarValoracionMedia - Cubre branches audio/video ==========
-
     @Test
-    void testActualizarValoracionMedia_Audio() {
-        ValoracionContenido val1 = new ValoracionContenido(CONTENT_ID, "user1", 5.0);
-        ValoracionContenido val2 = new ValoracionContenido(CONTENT_ID, "user2", 3.0);
-        
-        when(audioRepository.findById(CONTENT_ID)).thenReturn(Optional.of(audio));
-        when(valoracionRepository.findByIdContenidoAndIdUsuario(CONTENT_ID, USER_ID)).thenReturn(null);
-        when(valoracionRepository.findByIdContenido(CONTENT_ID)).thenReturn(Arrays.asList(val1, val2));
+    void testValorarContenido_ContenidoBorradoEntretanto_NoActualizaClasificacion() {
+        when(contentTypeRegistry.tipoDe(CONTENT_ID)).thenReturn(Optional.of(TipoContenido.AUDIO));
+        when(ratingRepository.findAgregados(ContenidosAudio.class, CONTENT_ID)).thenReturn(audio);
+        when(ratingRepository.cambiarValoracion(CONTENT_ID, USER_ID, 2.0)).thenReturn(4.0);
+        when(ratingRepository.aplicar(eq(ContenidosAudio.class), variacion(-2.0, 0L, Map.of("8", -1L, "4", 1L))))
+            .thenReturn(null);
 
-        valoracionService.valorarContenido(CONTENT_ID, USER_ID, 4.0);
+        valoracionService.valorarContenido(CONTENT_ID, USER_ID, 2.0);
 
-        verify(audioRepository).save(argThat(a -> a.getValoracionMedia() == 4.0));
+        verifyNoInteractions(leaderboardService);
     }
 
     @Test
-    void testActualizarValoracionMedia_Video() {
-        ValoracionContenido val1 = new ValoracionContenido(CONTENT_ID, "user1", 4.0);
-        
-        when(audioRepository.findById(CONTENT_ID)).thenReturn(Optional.empty());
-        when(videoRepository.findById(CONTENT_ID)).thenReturn(Optional.of(video));
-        when(valoracionRepository.findByIdContenidoAndIdUsuario(CONTENT_ID, USER_ID)).thenReturn(null);
-        when(valoracionRepository.findByIdContenido(CONTENT_ID)).thenReturn(Arrays.asList(val1));
+    void testValorarContenido_MismaValoracion_NoActualizaAgregados() {
+        when(contentTypeRegistry.tipoDe(CONTENT_ID)).thenReturn(Optional.of(TipoContenido.AUDIO));
+        when(ratingRepository.findAgregados(ContenidosAudio.class, CONTENT_ID)).thenReturn(audio);
+        when(ratingRepository.cambiarValoracion(CONTENT_ID, USER_ID, 3.0)).thenReturn(3.0);
 
-        valoracionService.valorarContenido(CONTENT_ID, USER_ID, 5.0);
+        valoracionService.valorarContenido(CONTENT_ID, USER_ID, 3.0);
 
-        verify(videoRepository).save(argThat(v -> v.getValoracionMedia() > 0.0));
+        verify(ratingRepository).cambiarValoracion(CONTENT_ID, USER_ID, 3.0);
+        verify(ratingRepository, never()).aplicar(any(), any());
     }
 
     @Test
-    void testActualizarValoracionMedia_NoValoraciones() {
-        when(audioRepository.findById(CONTENT_ID)).thenReturn(Optional.of(audio));
-        when(valoracionRepository.findByIdContenidoAndIdUsuario(CONTENT_ID, USER_ID)).thenReturn(null);
-        when(valoracionRepository.findByIdContenido(CONTENT_ID)).thenReturn(Collections.emptyList());
+    void testValorarContenido_SinAgregados_InicializaUnaVezAntesDeGuardar() {
+        ContenidosAudio antiguo = ContenidosAudio.builder().id(CONTENT_ID).valoracionMedia(4.0).build();
+        when(contentTypeRegistry.tipoDe(CONTENT_ID)).thenReturn(Optional.of(TipoContenido.AUDIO));
+        when(ratingRepository.findAgregados(ContenidosAudio.class, CONTENT_ID)).thenReturn(antiguo);
+        when(valoracionRepository.findByIdContenido(CONTENT_ID)).thenReturn(List.of(
+            new ValoracionContenido(CONTENT_ID, "user1", 5.0),
+            new ValoracionContenido(CONTENT_ID, "user2", 3.0)));
+        when(ratingRepository.inicializar(ContenidosAudio.class, CONTENT_ID, 8.0, 2L, Map.of("10", 1L, "6", 1L)))
+            .thenReturn(true);
+        when(ratingRepository.cambiarValoracion(CONTENT_ID, USER_ID, 4.0)).thenReturn(null);
+        when(ratingRepository.aplicar(eq(ContenidosAudio.class), variacion(4.0, 1L, Map.of("8", 1L))))
+            .thenReturn(agregados(12.0, 3L));
 
-        valoracionService.valorarContenido(CONTENT_ID, USER_ID, 5.0);
+        valoracionService.valorarContenido(CONTENT_ID, USER_ID, 4.0);
 
-        verify(audioRepository).save(argThat(a -> a.getValoracionMedia() == 0.0));
+        var orden = inOrder(ratingRepository);
+        orden.verify(ratingRepository).inicializar(eq(ContenidosAudio.class), eq(CONTENT_ID), anyDouble(), anyLong(), anyMap());
+        orden.verify(ratingRepository).cambiarValoracion(CONTENT_ID, USER_ID, 4.0);
+        orden.verify(ratingRepository).aplicar(eq(ContenidosAudio.class), any(RatingTotals.class));
     }
 
     @Test
-    void testActualizarValoracionMedia_ContentNotFoundInUpdate() {
-        when(audioRepository.findById(CONTENT_ID)).thenReturn(Optional.of(audio));
-        when(valoracionRepository.findByIdContenidoAndIdUsuario(CONTENT_ID, USER_ID)).thenReturn(null);
-        when(valoracionRepository.findByIdContenido(CONTENT_ID)).thenReturn(Arrays.asList(valoracion));
-        
-        // En actualizarValoracionMedia, tanto audio como video retornan empty
-        when(audioRepository.findById(CONTENT_ID))
-            .thenReturn(Optional.of(audio))
-            .thenReturn(Optional.empty());
-        when(videoRepository.findById(CONTENT_ID)).thenReturn(Optional.empty());
+    void testGetResumenValoraciones_InicializacionConcurrente_UsaLaExistente() {
+        ContenidosAudio antiguo = ContenidosAudio.builder().id(CONTENT_ID).build();
+        when(contentTypeRegistry.tipoDe(CONTENT_ID)).thenReturn(Optional.of(TipoContenido.AUDIO));
+        when(ratingRepository.findAgregados(ContenidosAudio.class, CONTENT_ID)).thenReturn(antiguo).thenReturn(audio);
+        when(valoracionRepository.findByIdContenido(CONTENT_ID)).thenReturn(List.of());
+        when(ratingRepository.inicializar(any(), anyString(), anyDouble(), anyLong(), anyMap())).thenReturn(false);
 
-        valoracionService.valorarContenido(CONTENT_ID, USER_ID, 5.0);
+        ValoracionResumenDTO resumen = valoracionService.getResumenValoraciones(CONTENT_ID);
 
-        // Debe ejecutarse sin lanzar excepción
-        verify(valoracionRepository, atLeastOnce()).save(any());
+        assertEquals(2, resumen.getNumValoraciones());
+        assertEquals(4.0, resumen.getValoracionMedia());
     }
 
-    // ========== getValoracionMedia - Cubre branches ==========
+    // ========== getValoracionMedia / getResumenValoraciones ==========
 
     @Test
     void testGetValoracionMedia_Audio() {
-        audio.setValoracionMedia(4.5);
-        when(audioRepository.findById(CONTENT_ID)).thenReturn(Optional.of(audio));
-
-        double result = valoracionService.getValoracionMedia(CONTENT_ID);
-
-        assertEquals(4.5, result);
-    }
-
-    @Test
-    void testGetValoracionMedia_Video() {
-        video.setValoracionMedia(3.8);
-        when(audioRepository.findById(CONTENT_ID)).thenReturn(Optional.empty());
-        when(videoRepository.findById(CONTENT_ID)).thenReturn(Optional.of(video));
-
-        double result = valoracionService.getValoracionMedia(CONTENT_ID);
+        when(contentTypeRegistry.tipoDe(CONTENT_ID)).thenReturn(Optional.of(TipoContenido.AUDIO));
+        when(ratingRepository.findAgregados(ContenidosAudio.class, CONTENT_ID)).thenReturn(audio);
 
-        assertEquals(3.8, result);
+        assertEquals(4.0, valoracionService.getValoracionMedia(CONTENT_ID));
     }
 
     @Test
     void testGetValoracionMedia_NotFound() {
-        when(audioRepository.findById(CONTENT_ID)).thenReturn(Optional.empty());
-        when(videoRepository.findById(CONTENT_ID)).thenReturn(Optional.empty());
+        when(contentTypeRegistry.tipoDe(CONTENT_ID)).thenReturn(Optional.empty());
 
-        double result = valoracionService.getValoracionMedia(CONTENT_ID);
-
-        assertEquals(0.0, result);
+        assertEquals(0.0, valoracionService.getValoracionMedia(CONTENT_ID));
     }
 
-    // ========== eliminarValoracionesDeUsuario ==========
-
     @Test
-    void testEliminarValoracionesDeUsuario_Audio() {
-        ValoracionContenido val1 = new ValoracionContenido("content1", USER_ID, 5.0);
-        ValoracionContenido val2 = new ValoracionContenido("content2", USER_ID, 4.0);
-        
-        when(valoracionRepository.findByIdUsuario(USER_ID)).thenReturn(Arrays.asList(val1, val2));
-        when(valoracionRepository.findByIdContenido("content1")).thenReturn(Collections.emptyList());
-        when(valoracionRepository.findByIdContenido("content2")).thenReturn(Collections.emptyList());
-        when(audioRepository.findById("content1")).thenReturn(Optional.of(audio));
-        when(audioRepository.findById("content2")).thenReturn(Optional.of(audio));
+    void testGetResumenValoraciones_HistogramaDeOnceCubetas() {
+        when(contentTypeRegistry.tipoDe(CONTENT_ID)).thenReturn(Optional.of(TipoContenido.AUDIO));
+        when(ratingRepository.findAgregados(ContenidosAudio.class, CONTENT_ID)).thenReturn(audio);
 
-        valoracionService.eliminarValoracionesDeUsuario(USER_ID);
+        ValoracionResumenDTO resumen = valoracionService.getResumenValoraciones(CONTENT_ID);
 
-        verify(valoracionRepository).deleteByIdUsuario(USER_ID);
-        verify(audioRepository, times(2)).save(any());
+        assertEquals(4.0, resumen.getValoracionMedia());
+        assertEquals(2, resumen.getNumValoraciones());
+        assertEquals(List.of(0L, 0L, 0L, 0L, 0L, 0L, 1L, 0L, 0L, 0L, 1L), resumen.getHistograma());
+        verifyNoInteractions(valoracionRepository);
     }
 
     @Test
-    void testEliminarValoracionesDeUsuario_Video() {
-        ValoracionContenido val = new ValoracionContenido("content1", USER_ID, 5.0);
-        
-        when(valoracionRepository.findByIdUsuario(USER_ID)).thenReturn(Arrays.asList(val));
-        when(valoracionRepository.findByIdContenido("content1")).thenReturn(Collections.emptyList());
-        when(audioRepository.findById("content1")).thenReturn(Optional.empty());
-        when(videoRepository.findById("content1")).thenReturn(Optional.of(video));
-
-        valoracionService.eliminarValoracionesDeUsuario(USER_ID);
+    void testGetResumenValoraciones_NotFound() {
+        when(contentTypeRegistry.tipoDe(CONTENT_ID)).thenReturn(Optional.empty());
 
-        verify(valoracionRepository).deleteByIdUsuario(USER_ID);
-        verify(videoRepository).save(any());
+        assertThrows(ResponseStatusException.class, () -> valoracionService.getResumenValoraciones(CONTENT_ID));
     }
 
-    @Test
-    void testEliminarValoracionesDeUsuario_Empty() {
-        when(valoracionRepository.findByIdUsuario(USER_ID)).thenReturn(Collections.emptyList());
+    // ========== eliminarValoracionesDeUsuario ==========
 
-        valoracionService.eliminarValoracionesDeUsuario(USER_ID);
+    @Test
+    void testEliminarValoracionesDeUsuario_SeProgramaEnSegundoPlano() {
+        RatingRecomputeJob trabajo = new RatingRecomputeJob("job1", USER_ID);
+        when(recomputeService.programarBorradoUsuario(USER_ID)).thenReturn(trabajo);
 
-        verify(valoracionRepository).deleteByIdUsuario(USER_ID);
-        verify(audioRepository, never()).save(any());
-        verify(videoRepository, never()).save(any());
+        assertSame(trabajo, valoracionService.eliminarValoracionesDeUsuario(USER_ID));
+        verifyNoInteractions(valoracionRepository, ratingRepository, contentTypeRegistry);
     }
-}
\ No newline at end of file
+}
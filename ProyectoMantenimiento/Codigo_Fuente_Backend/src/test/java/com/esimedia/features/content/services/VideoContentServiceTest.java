@@ -6,12 +6,16 @@ import static org.mockito.Mockito.*;
 
 import java.util.*;
 
+import org.bson.Document;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.mongodb.core.query.Update;
 import org.springframework.web.server.ResponseStatusException;
 
 import com.esimedia.features.auth.entity.CreadorContenido;
@@ -28,6 +32,8 @@ import com.esimedia.features.content.entity.*;
 import com.esimedia.features.content.enums.Resolucion;
 import com.esimedia.features.content.enums.RestriccionEdad;
 import com.esimedia.features.content.repository.*;
+import com.esimedia.features.content.storage.BlobStore;
+import com.esimedia.features.content.repository.ContentVersionRepository;
 import com.esimedia.shared.util.JwtValidationUtil;
 
 @ExtendWith(MockitoExtension.class)
@@ -38,10 +44,21 @@ public class VideoContentServiceTest {
     @Mock private ContentAuthorizationService contentAuthorizationService;
     @Mock private ContenidosVideoRepository contenidoVideoRepository;
     @Mock private ContenidoVideoTagRepository contenidoVideoTagRepository;
-    @Mock private TagsRepository tagsRepository;
+    @Mock private TagDictionary tagDictionary;
+    @Mock private ViewCounterService viewCounterService;
     @Mock private CreadorContenidoRepository creadorContenidoRepository;
     @Mock private ValoracionContenidoRepository valoracionRepository;
     @Mock private UsuarioNormalRepository usuarioNormalRepository;
+    @Mock private ContentBatchLoader batchLoader;
+    @Mock private ContentCatalogRepository catalogRepository;
+    @Mock private BlobStore blobStore;
+    @Mock private ContentTypeRegistry contentTypeRegistry;
+    @Mock private ThumbnailService thumbnailService;
+    @Mock private ContentTagIndex tagIndex;
+    @Mock private ContentSimilarityIndex similarityIndex;
+    @Mock private LeaderboardService leaderboardService;
+    @Mock private ContentVersionRepository versionRepository;
+    @Spy private ContentMediaUrls mediaUrls = new ContentMediaUrls("secreto-de-prueba");
 
     @InjectMocks
     private VideoContentService videoContentService;
@@ -56,6 +73,8 @@ public class VideoContentServiceTest {
 
     @BeforeEach
     void setUp() {
+        // Cada alta, edición o borrado avanza la versión del catálogo
+        lenient().when(versionRepository.avanzar()).thenReturn(new ContentVersionRepository.Version(7, new Date(7000)));
         videoDTO = new ContentVideoUploadDTO();
         videoDTO.setTitulo("Test Video");
         videoDTO.setDescripcion("Test Description");
@@ -85,37 +104,25 @@ public class VideoContentServiceTest {
             .build();
     }
 
-    // ========== uploadVideoContent - Cubre 2 branches ==========
+    // ========== uploadVideoContentAs ==========
 
     @Test
     void testUploadVideoContent_ValidationError() {
-        when(jwtValidationService.validateContentUpload(AUTH_HEADER, TipoContenido.VIDEO)).thenReturn(USER_ID);
         when(validationService.validateVideoContent(videoDTO)).thenReturn("Error de validación");
 
-        String result = videoContentService.uploadVideoContent(AUTH_HEADER, videoDTO);
+        String result = videoContentService.uploadVideoContentAs(USER_ID, videoDTO);
 
         assertEquals("Error de validación", result);
     }
 
-    @Test
-    void testUploadVideoContent_Exception() {
-        when(jwtValidationService.validateContentUpload(AUTH_HEADER, TipoContenido.VIDEO))
-            .thenThrow(new RuntimeException("Error"));
-
-        String result = videoContentService.uploadVideoContent(AUTH_HEADER, videoDTO);
-
-        assertEquals("Error interno del servidor", result);
-    }
-
     // ========== validateVideoProcessingInputs - Cubre branches ==========
 
     @Test
     void testValidateVideoProcessingInputs_InvalidUrl() {
         videoDTO.setUrlArchivo("invalid-url");
-        when(jwtValidationService.validateContentUpload(AUTH_HEADER, TipoContenido.VIDEO)).thenReturn(USER_ID);
         when(validationService.validateVideoContent(videoDTO)).thenReturn(null);
 
-        String result = videoContentService.uploadVideoContent(AUTH_HEADER, videoDTO);
+        String result = videoContentService.uploadVideoContentAs(USER_ID, videoDTO);
 
         assertTrue(result.contains("URL del video no es válida"));
     }
@@ -123,10 +130,9 @@ public class VideoContentServiceTest {
     @Test
     void testValidateVideoProcessingInputs_InvalidResolution() {
         videoDTO.setResolucion("invalid");
-        when(jwtValidationService.validateContentUpload(AUTH_HEADER, TipoContenido.VIDEO)).thenReturn(USER_ID);
         when(validationService.validateVideoContent(videoDTO)).thenReturn(null);
 
-        String result = videoContentService.uploadVideoContent(AUTH_HEADER, videoDTO);
+        String result = videoContentService.uploadVideoContentAs(USER_ID, videoDTO);
 
         assertTrue(result.contains("Resolución inválida"));
     }
@@ -136,10 +142,9 @@ public class VideoContentServiceTest {
     @Test
     void testIsValidUrl_Null() {
         videoDTO.setUrlArchivo(null);
-        when(jwtValidationService.validateContentUpload(AUTH_HEADER, TipoContenido.VIDEO)).thenReturn(USER_ID);
         when(validationService.validateVideoContent(videoDTO)).thenReturn(null);
 
-        String result = videoContentService.uploadVideoContent(AUTH_HEADER, videoDTO);
+        String result = videoContentService.uploadVideoContentAs(USER_ID, videoDTO);
 
         assertTrue(result.contains("URL del video no es válida"));
     }
@@ -147,10 +152,9 @@ public class VideoContentServiceTest {
     @Test
     void testIsValidUrl_Empty() {
         videoDTO.setUrlArchivo("   ");
-        when(jwtValidationService.validateContentUpload(AUTH_HEADER, TipoContenido.VIDEO)).thenReturn(USER_ID);
         when(validationService.validateVideoContent(videoDTO)).thenReturn(null);
 
-        String result = videoContentService.uploadVideoContent(AUTH_HEADER, videoDTO);
+        String result = videoContentService.uploadVideoContentAs(USER_ID, videoDTO);
 
         assertTrue(result.contains("URL del video no es válida"));
     }
@@ -160,14 +164,14 @@ public class VideoContentServiceTest {
     @Test
     void testMapResolutionString_720() {
         videoDTO.setResolucion("720");
-        when(jwtValidationService.validateContentUpload(AUTH_HEADER, TipoContenido.VIDEO)).thenReturn(USER_ID);
         when(validationService.validateVideoContent(videoDTO)).thenReturn(null);
         when(creadorContenidoRepository.findById(USER_ID)).thenReturn(Optional.of(creador));
         when(contenidoVideoRepository.save(any())).thenReturn(video);
 
-        videoContentService.uploadVideoContent(AUTH_HEADER, videoDTO);
+        videoContentService.uploadVideoContentAs(USER_ID, videoDTO);
 
         verify(contenidoVideoRepository).save(any());
+        verify(contentTypeRegistry).registrar(video.getId(), TipoContenido.VIDEO);
     }
 
     // ========== createAndSaveVideoContent - Miniatura branches ==========
@@ -176,25 +180,32 @@ public class VideoContentServiceTest {
     void testCreateAndSaveVideoContent_WithMiniatura() {
         videoDTO.setMiniatura("base64data");
         videoDTO.setFormatoMiniatura("image/png");
-        when(jwtValidationService.validateContentUpload(AUTH_HEADER, TipoContenido.VIDEO)).thenReturn(USER_ID);
         when(validationService.validateVideoContent(videoDTO)).thenReturn(null);
         when(creadorContenidoRepository.findById(USER_ID)).thenReturn(Optional.of(creador));
         when(contenidoVideoRepository.save(any())).thenReturn(video);
 
-        videoContentService.uploadVideoContent(AUTH_HEADER, videoDTO);
+        BlobRef blob = new BlobRef("blob-miniatura", 10, "hash");
+        Map<String, BlobRef> derivados = Map.of("320", new BlobRef("blob-320", 5, "hash320"));
+        when(blobStore.guardar(any(), eq("image/png"))).thenReturn(blob);
+        when(thumbnailService.generarDerivados(any())).thenReturn(derivados);
 
-        verify(contenidoVideoRepository).save(any());
+        videoContentService.uploadVideoContentAs(USER_ID, videoDTO);
+
+        ArgumentCaptor<ContenidosVideo> captor = ArgumentCaptor.forClass(ContenidosVideo.class);
+        verify(contenidoVideoRepository).save(captor.capture());
+        assertSame(blob, captor.getValue().getMiniaturaBlob());
+        assertSame(derivados, captor.getValue().getMiniaturasDerivadas());
+        assertNull(captor.getValue().getMiniatura());
     }
 
     @Test
     void testCreateAndSaveVideoContent_WithRestriccionEdad() {
         videoDTO.setRestriccionEdad(18);
-        when(jwtValidationService.validateContentUpload(AUTH_HEADER, TipoContenido.VIDEO)).thenReturn(USER_ID);
         when(validationService.validateVideoContent(videoDTO)).thenReturn(null);
         when(creadorContenidoRepository.findById(USER_ID)).thenReturn(Optional.of(creador));
         when(contenidoVideoRepository.save(any())).thenReturn(video);
 
-        videoContentService.uploadVideoContent(AUTH_HEADER, videoDTO);
+        videoContentService.uploadVideoContentAs(USER_ID, videoDTO);
 
         verify(contenidoVideoRepository).save(any());
     }
@@ -241,8 +252,7 @@ public class VideoContentServiceTest {
         when(jwtValidationService.getRolFromToken(AUTH_HEADER)).thenReturn(Rol.NORMAL);
         when(usuarioNormalRepository.findById(USER_ID)).thenReturn(Optional.of(user));
         when(validationService.calculateAge(any())).thenReturn(20);
-        when(contenidoVideoRepository.findAll()).thenReturn(Arrays.asList(video));
-        when(contenidoVideoTagRepository.findByIdContenido(any())).thenReturn(Collections.emptyList());
+        when(catalogRepository.findAllVisible(eq(ContenidosVideo.class), any())).thenReturn(Arrays.asList(video));
 
         List<ContentVideoUploadDTO> result = videoContentService.getAllVideosAsDTO(AUTH_HEADER);
 
@@ -260,11 +270,15 @@ public class VideoContentServiceTest {
         when(jwtValidationService.getRolFromToken(AUTH_HEADER)).thenReturn(Rol.NORMAL);
         when(usuarioNormalRepository.findById(USER_ID)).thenReturn(Optional.of(user));
         when(validationService.calculateAge(any())).thenReturn(10);
-        when(contenidoVideoRepository.findAll()).thenReturn(Arrays.asList(video));
+        // El filtro se aplica en MongoDB: el repositorio no devuelve el contenido
+        when(catalogRepository.findAllVisible(eq(ContenidosVideo.class), any())).thenReturn(List.of());
 
         List<ContentVideoUploadDTO> result = videoContentService.getAllVideosAsDTO(AUTH_HEADER);
 
         assertTrue(result.isEmpty());
+        ArgumentCaptor<CatalogFilter> filter = ArgumentCaptor.forClass(CatalogFilter.class);
+        verify(catalogRepository).findAllVisible(eq(ContenidosVideo.class), filter.capture());
+        assertEquals(10, filter.getValue().getEdadUsuario());
     }
 
     @Test
@@ -274,19 +288,22 @@ public class VideoContentServiceTest {
         when(jwtValidationService.validateContentAccess(AUTH_HEADER, TipoContenido.VIDEO)).thenReturn(USER_ID);
         when(jwtValidationService.getRolFromToken(AUTH_HEADER)).thenReturn(Rol.NORMAL);
         when(usuarioNormalRepository.findById(USER_ID)).thenReturn(Optional.of(new UsuarioNormal()));
-        when(contenidoVideoRepository.findAll()).thenReturn(Arrays.asList(video));
+        // El filtro se aplica en MongoDB: el repositorio no devuelve el contenido
+        when(catalogRepository.findAllVisible(eq(ContenidosVideo.class), any())).thenReturn(List.of());
 
         List<ContentVideoUploadDTO> result = videoContentService.getAllVideosAsDTO(AUTH_HEADER);
 
         assertTrue(result.isEmpty());
+        ArgumentCaptor<CatalogFilter> filter = ArgumentCaptor.forClass(CatalogFilter.class);
+        verify(catalogRepository).findAllVisible(eq(ContenidosVideo.class), filter.capture());
+        assertTrue(filter.getValue().isSoloVisibles());
     }
 
     @Test
     void testGetAllVideosAsDTO_RolCreador() {
         when(jwtValidationService.validateContentAccess(AUTH_HEADER, TipoContenido.VIDEO)).thenReturn(USER_ID);
         when(jwtValidationService.getRolFromToken(AUTH_HEADER)).thenReturn(Rol.CREADOR);
-        when(contenidoVideoRepository.findAll()).thenReturn(Arrays.asList(video));
-        when(contenidoVideoTagRepository.findByIdContenido(any())).thenReturn(Collections.emptyList());
+        when(catalogRepository.findAllVisible(eq(ContenidosVideo.class), any())).thenReturn(Arrays.asList(video));
 
         List<ContentVideoUploadDTO> result = videoContentService.getAllVideosAsDTO(AUTH_HEADER);
 
@@ -299,27 +316,22 @@ public class VideoContentServiceTest {
         
         when(jwtValidationService.validateContentAccess(AUTH_HEADER, TipoContenido.VIDEO)).thenReturn(USER_ID);
         when(jwtValidationService.getRolFromToken(AUTH_HEADER)).thenReturn(Rol.ADMINISTRADOR);
-        when(contenidoVideoRepository.findAll()).thenReturn(Arrays.asList(video));
-        when(contenidoVideoRepository.save(any())).thenReturn(video);
-        when(contenidoVideoTagRepository.findByIdContenido(any())).thenReturn(Collections.emptyList());
+        when(catalogRepository.findAllVisible(eq(ContenidosVideo.class), any())).thenReturn(Arrays.asList(video));
 
-        videoContentService.getAllVideosAsDTO(AUTH_HEADER);
+        List<ContentVideoUploadDTO> result = videoContentService.getAllVideosAsDTO(AUTH_HEADER);
 
-        verify(contenidoVideoRepository).save(any());
+        // La lectura no escribe: el barrido programado persiste la caducidad
+        verify(catalogRepository, never()).ocultarCaducados(any(), any());
+        verify(contenidoVideoRepository, never()).save(any());
+        assertFalse(result.get(0).getVisibilidad());
     }
 
     @Test
     void testGetAllVideosAsDTO_WithTags() {
-        ContenidoVideoTag tag = new ContenidoVideoTag();
-        tag.setIdTag("tag1");
-        Tags tagEntity = new Tags();
-        tagEntity.setNombre("TestTag");
-        
         when(jwtValidationService.validateContentAccess(AUTH_HEADER, TipoContenido.VIDEO)).thenReturn(USER_ID);
         when(jwtValidationService.getRolFromToken(AUTH_HEADER)).thenReturn(Rol.ADMINISTRADOR);
-        when(contenidoVideoRepository.findAll()).thenReturn(Arrays.asList(video));
-        when(contenidoVideoTagRepository.findByIdContenido(any())).thenReturn(Arrays.asList(tag));
-        when(tagsRepository.findByIdTagIn(any())).thenReturn(Arrays.asList(tagEntity));
+        when(catalogRepository.findAllVisible(eq(ContenidosVideo.class), any())).thenReturn(Arrays.asList(video));
+        when(batchLoader.cargarTagsVideos(anyList())).thenReturn(Map.of(video.getId(), List.of("TestTag")));
 
         List<ContentVideoUploadDTO> result = videoContentService.getAllVideosAsDTO(AUTH_HEADER);
 
@@ -333,13 +345,23 @@ public class VideoContentServiceTest {
     void testGetVideoByIdAsDTO_Success() {
         when(jwtValidationService.validateContentAccess(AUTH_HEADER, TipoContenido.VIDEO)).thenReturn(USER_ID);
         when(contenidoVideoRepository.findById(CONTENT_ID)).thenReturn(Optional.of(video));
-        when(contenidoVideoTagRepository.findByIdContenido(any())).thenReturn(Collections.emptyList());
 
         ContentVideoUploadDTO result = videoContentService.getVideoByIdAsDTO(AUTH_HEADER, CONTENT_ID);
 
         assertNotNull(result);
     }
 
+    @Test
+    void testGetVideoByIdAsDTO_WithUserRating() {
+        when(jwtValidationService.validateContentAccess(AUTH_HEADER, TipoContenido.VIDEO)).thenReturn(USER_ID);
+        when(contenidoVideoRepository.findById(CONTENT_ID)).thenReturn(Optional.of(video));
+        when(batchLoader.cargarValoracionesUsuario(USER_ID, List.of(video.getId()))).thenReturn(Map.of(video.getId(), 3.5));
+
+        ContentVideoUploadDTO result = videoContentService.getVideoByIdAsDTO(AUTH_HEADER, CONTENT_ID);
+
+        assertEquals(3.5, result.getValoracionUsuario());
+    }
+
     @Test
     void testGetVideoByIdAsDTO_NotFound() {
         when(jwtValidationService.validateContentAccess(AUTH_HEADER, TipoContenido.VIDEO)).thenReturn(USER_ID);
@@ -362,11 +384,21 @@ public class VideoContentServiceTest {
         when(creadorContenidoRepository.findById(USER_ID)).thenReturn(Optional.of(creador));
         when(contenidoVideoRepository.findById(CONTENT_ID)).thenReturn(Optional.of(video));
         when(validationService.validateContentUpdate(updateDTO)).thenReturn(null);
-        when(contenidoVideoRepository.save(any())).thenReturn(video);
+        when(catalogRepository.actualizar(eq(ContenidosVideo.class), eq(CONTENT_ID), any())).thenReturn(true);
 
         String result = videoContentService.updateVideoContent(AUTH_HEADER, CONTENT_ID, updateDTO);
 
         assertTrue(result.contains("SUCCESS"));
+        Document set = (Document) actualizacion().getUpdateObject().get("$set");
+        assertEquals("New Title", set.get("titulo"));
+        assertFalse(set.containsKey("visualizaciones"));
+        verify(contenidoVideoRepository, never()).save(any());
+    }
+
+    private Update actualizacion() {
+        ArgumentCaptor<Update> update = ArgumentCaptor.forClass(Update.class);
+        verify(catalogRepository).actualizar(eq(ContenidosVideo.class), eq(CONTENT_ID), update.capture());
+        return update.getValue();
     }
 
     @Test
@@ -393,11 +425,11 @@ public class VideoContentServiceTest {
         when(creadorContenidoRepository.findById(USER_ID)).thenReturn(Optional.of(creador));
         when(contenidoVideoRepository.findById(CONTENT_ID)).thenReturn(Optional.of(video));
         when(validationService.validateContentUpdate(updateDTO)).thenReturn(null);
-        when(contenidoVideoRepository.save(any())).thenReturn(video);
+        when(catalogRepository.actualizar(eq(ContenidosVideo.class), eq(CONTENT_ID), any())).thenReturn(true);
 
         videoContentService.updateVideoContent(AUTH_HEADER, CONTENT_ID, updateDTO);
 
-        verify(contenidoVideoRepository).save(argThat(v -> v.getResolucion() == Resolucion.FHD_1080));
+        assertEquals(Resolucion.FHD_1080, ((Document) actualizacion().getUpdateObject().get("$set")).get("resolucion"));
     }
 
     @Test
@@ -427,17 +459,17 @@ public class VideoContentServiceTest {
 
     @Test
     void testIncrementarVisualizaciones_Success() {
-        when(contenidoVideoRepository.findById(CONTENT_ID)).thenReturn(Optional.of(video));
-        when(contenidoVideoRepository.save(any())).thenReturn(video);
+        when(contenidoVideoRepository.existsById(CONTENT_ID)).thenReturn(true);
 
         videoContentService.incrementarVisualizaciones(CONTENT_ID);
 
-        verify(contenidoVideoRepository).save(argThat(v -> v.getVisualizaciones() == 1));
+        verify(viewCounterService).registrar(ContenidosVideo.class, CONTENT_ID);
+        verify(contenidoVideoRepository, never()).save(any());
     }
 
     @Test
     void testIncrementarVisualizaciones_NotFound() {
-        when(contenidoVideoRepository.findById(CONTENT_ID)).thenReturn(Optional.empty());
+        when(contenidoVideoRepository.existsById(CONTENT_ID)).thenReturn(false);
 
         assertThrows(ResponseStatusException.class, () ->
             videoContentService.incrementarVisualizaciones(CONTENT_ID));
@@ -454,6 +486,23 @@ public class VideoContentServiceTest {
 
         verify(contenidoVideoTagRepository).deleteByIdContenido(CONTENT_ID);
         verify(contenidoVideoRepository).deleteById(CONTENT_ID);
+        verify(contentTypeRegistry).eliminar(CONTENT_ID);
+        verify(tagIndex).eliminar(CONTENT_ID);
+        verify(similarityIndex).eliminar(CONTENT_ID);
+        verify(leaderboardService).eliminar(CONTENT_ID);
+        verify(versionRepository).avanzar();
+    }
+
+    @Test
+    void testDeleteVideoContent_EliminaMiniaturaEnGridFs() {
+        video.setMiniaturaBlob(new BlobRef("blob-miniatura", 10, "hash"));
+        when(contenidoVideoRepository.findById(CONTENT_ID)).thenReturn(Optional.of(video));
+        when(valoracionRepository.findByIdContenido(CONTENT_ID)).thenReturn(Collections.emptyList());
+        doCallRealMethod().when(blobStore).eliminarBlobs(any());
+
+        videoContentService.deleteVideoContent(AUTH_HEADER, CONTENT_ID);
+
+        verify(blobStore).eliminar("blob-miniatura");
     }
 
     @Test
@@ -0,0 +1,149 @@
+package com.esimedia.features.content.services;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.bson.Document;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.UpdateDefinition;
+import org.springframework.data.util.Pair;
+
+import com.esimedia.features.content.entity.ContenidosAudio;
+import com.esimedia.features.content.entity.ContenidosVideo;
+import com.esimedia.features.content.repository.ContentVersionRepository;
+
+@ExtendWith(MockitoExtension.class)
+class ViewCounterServiceTest {
+
+    @Mock private MongoTemplate mongoTemplate;
+    @Mock private BulkOperations bulkOperations;
+    @Mock private LeaderboardService leaderboardService;
+    @Mock private ContentVersionRepository versionRepository;
+
+    @InjectMocks
+    private ViewCounterService viewCounterService;
+
+    private static final ContentVersionRepository.Version VERSION = new ContentVersionRepository.Version(7, new Date(7000));
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testVolcar_UnIncPorContenidoEnUnSoloBulk() {
+        when(versionRepository.avanzar()).thenReturn(VERSION);
+        when(mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, ContenidosAudio.class)).thenReturn(bulkOperations);
+        when(bulkOperations.updateOne(anyList())).thenReturn(bulkOperations);
+        viewCounterService.registrar(ContenidosAudio.class, "a1");
+        viewCounterService.registrar(ContenidosAudio.class, "a1");
+        viewCounterService.registrar(ContenidosAudio.class, "a2");
+        assertEquals(3, viewCounterService.getPendientes());
+        verify(leaderboardService, times(2)).registrarVisualizacion(ContenidosAudio.class, "a1");
+
+        assertEquals(3, viewCounterService.volcar());
+
+        ArgumentCaptor<List<Pair<Query, UpdateDefinition>>> updates = ArgumentCaptor.forClass(List.class);
+        verify(bulkOperations).updateOne(updates.capture());
+        verify(bulkOperations).execute();
+        Map<Object, Object> incPorId = new HashMap<>();
+        for (Pair<Query, UpdateDefinition> update : updates.getValue()) {
+            Document inc = (Document) update.getSecond().getUpdateObject().get("$inc");
+            incPorId.put(update.getFirst().getQueryObject().get("_id"), inc.get("visualizaciones"));
+            // Todas las operaciones del volcado llevan la misma versión del catálogo
+            assertEquals(7L, ((Document) update.getSecond().getUpdateObject().get("$max")).get("version"));
+        }
+        assertEquals(Map.of("a1", 2L, "a2", 1L), incPorId);
+        assertEquals(0, viewCounterService.getPendientes());
+        verify(mongoTemplate, never()).bulkOps(any(), eq(ContenidosVideo.class));
+    }
+
+    @Test
+    void testVolcar_SinPendientesNoEscribe() {
+        assertEquals(0, viewCounterService.volcar());
+        verifyNoInteractions(mongoTemplate);
+    }
+
+    @Test
+    void testVolcar_ErrorDevuelveLosIncrementos() {
+        when(versionRepository.avanzar()).thenReturn(VERSION);
+        when(mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, ContenidosVideo.class)).thenReturn(bulkOperations);
+        when(bulkOperations.updateOne(anyList())).thenReturn(bulkOperations);
+        when(bulkOperations.execute()).thenThrow(new RuntimeException("Mongo caído"));
+        viewCounterService.registrar(ContenidosVideo.class, "v1");
+
+        assertEquals(0, viewCounterService.volcar());
+        assertEquals(1, viewCounterService.getPendientes());
+    }
+
+    @Test
+    void testVolcarAlParar_EscribeLoPendiente() {
+        when(versionRepository.avanzar()).thenReturn(VERSION);
+        when(mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, ContenidosVideo.class)).thenReturn(bulkOperations);
+        when(bulkOperations.updateOne(anyList())).thenReturn(bulkOperations);
+        viewCounterService.registrar(ContenidosVideo.class, "v1");
+
+        viewCounterService.volcarAlParar();
+
+        verify(bulkOperations).execute();
+        assertEquals(0, viewCounterService.getPendientes());
+    }
+
+    @Test
+    void testRegistrar_ConcurrenteNoPierdeVisualizaciones() throws InterruptedException {
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        for (int i = 0; i < 8; i++) {
+            executor.submit(() -> {
+                for (int j = 0; j < 1000; j++) {
+                    viewCounterService.registrar(ContenidosAudio.class, "a1");
+                }
+            });
+        }
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+
+        assertEquals(8000, viewCounterService.getPendientes());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testVolcar_ConcurrenteConRegistrosNoPierdeVisualizaciones() throws InterruptedException {
+        AtomicLong escritas = new AtomicLong();
+        when(versionRepository.avanzar()).thenReturn(VERSION);
+        when(mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, ContenidosAudio.class)).thenReturn(bulkOperations);
+        when(bulkOperations.updateOne(anyList())).thenAnswer(inv -> {
+            for (Pair<Query, UpdateDefinition> update : (List<Pair<Query, UpdateDefinition>>) inv.getArgument(0)) {
+                escritas.addAndGet((Long) ((Document) update.getSecond().getUpdateObject().get("$inc")).get("visualizaciones"));
+            }
+            return bulkOperations;
+        });
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        for (int i = 0; i < 4; i++) {
+            executor.submit(() -> {
+                for (int j = 0; j < 5000; j++) {
+                    viewCounterService.registrar(ContenidosAudio.class, "a" + (j % 3));
+                }
+            });
+        }
+        executor.shutdown();
+        // Volcados continuos mientras se registra, incluidos los que encuentran contadores a cero
+        while (!executor.isTerminated()) {
+            viewCounterService.volcar();
+        }
+        viewCounterService.volcar();
+
+        assertEquals(20000, escritas.get());
+        assertEquals(0, viewCounterService.getPendientes());
+    }
+}
@@ -0,0 +1,125 @@
+package com.esimedia.features.content.storage;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+import java.util.Date;
+import java.util.List;
+
+import org.bson.Document;
+import org.bson.types.Binary;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.AdditionalMatchers;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+import com.esimedia.features.content.entity.BlobRef;
+import com.esimedia.features.content.entity.ContenidosAudio;
+import com.esimedia.features.content.repository.ContentCatalogRepository;
+import com.esimedia.features.content.repository.ContentVersionRepository;
+import com.mongodb.client.result.UpdateResult;
+
+@ExtendWith(MockitoExtension.class)
+class BlobMigrationJobTest {
+
+    @Mock private MongoTemplate mongoTemplate;
+    @Mock private BlobStore blobStore;
+    @Mock private ContentVersionRepository versionRepository;
+
+    @InjectMocks
+    private BlobMigrationJob job;
+
+    private static final BlobRef BLOB = new BlobRef("blob-1", 3, "hash");
+
+    @BeforeEach
+    void setUp() {
+        when(mongoTemplate.getCollectionName(ContenidosAudio.class)).thenReturn("contenidosAudio");
+    }
+
+    private Document documentoEmbebido() {
+        return new Document("_id", "audio1")
+            .append(ContentCatalogRepository.FICHERO, new Binary(new byte[] {1, 2, 3}))
+            .append(ContentCatalogRepository.FICHERO_EXTENSION, "audio/mpeg");
+    }
+
+    private int migrarFicheros() {
+        return job.migrar(ContenidosAudio.class, ContentCatalogRepository.FICHERO,
+            ContentCatalogRepository.FICHERO_EXTENSION, ContentCatalogRepository.FICHERO_BLOB);
+    }
+
+    @Test
+    void testMigrar_MueveBinarioYDejaReferencia() {
+        when(mongoTemplate.find(any(Query.class), eq(Document.class), eq("contenidosAudio")))
+            .thenReturn(List.of(documentoEmbebido()));
+        when(blobStore.guardar(AdditionalMatchers.aryEq(new byte[] {1, 2, 3}), eq("audio/mpeg"))).thenReturn(BLOB);
+        when(versionRepository.avanzar()).thenReturn(new ContentVersionRepository.Version(4, new Date(4000)));
+        when(mongoTemplate.updateFirst(any(Query.class), any(Update.class), eq(ContenidosAudio.class)))
+            .thenReturn(UpdateResult.acknowledged(1, 1L, null));
+
+        assertEquals(1, migrarFicheros());
+
+        ArgumentCaptor<Update> update = ArgumentCaptor.forClass(Update.class);
+        verify(mongoTemplate).updateFirst(any(Query.class), update.capture(), eq(ContenidosAudio.class));
+        Document cambios = update.getValue().getUpdateObject();
+        assertEquals(BLOB, cambios.get("$set", Document.class).get(ContentCatalogRepository.FICHERO_BLOB));
+        assertTrue(cambios.get("$unset", Document.class).containsKey(ContentCatalogRepository.FICHERO));
+        assertEquals(4L, cambios.get("$max", Document.class).get(ContentVersionRepository.VERSION));
+        verify(blobStore, never()).eliminar(any());
+    }
+
+    @Test
+    void testMigrar_DocumentoModificadoEliminaBlobHuerfano() {
+        when(mongoTemplate.find(any(Query.class), eq(Document.class), eq("contenidosAudio")))
+            .thenReturn(List.of(documentoEmbebido()));
+        when(blobStore.guardar(any(), any())).thenReturn(BLOB);
+        when(versionRepository.avanzar()).thenReturn(new ContentVersionRepository.Version(4, new Date(4000)));
+        when(mongoTemplate.updateFirst(any(Query.class), any(Update.class), eq(ContenidosAudio.class)))
+            .thenReturn(UpdateResult.acknowledged(0, 0L, null));
+
+        assertEquals(0, migrarFicheros());
+        verify(blobStore).eliminar("blob-1");
+    }
+
+    @Test
+    void testMigrar_SoloBuscaBinariosBson() {
+        when(mongoTemplate.find(any(Query.class), eq(Document.class), eq("contenidosAudio"))).thenReturn(List.of());
+
+        migrarFicheros();
+
+        ArgumentCaptor<Query> query = ArgumentCaptor.forClass(Query.class);
+        verify(mongoTemplate).find(query.capture(), eq(Document.class), eq("contenidosAudio"));
+        Document filtro = query.getValue().getQueryObject();
+        assertEquals(new Document("$type", 5), filtro.get(ContentCatalogRepository.FICHERO));
+    }
+
+    @Test
+    void testMigrar_NoBinariosSeCuentanUnaSolaVez() {
+        when(mongoTemplate.count(any(Query.class), eq("contenidosAudio"))).thenReturn(2L);
+        when(mongoTemplate.find(any(Query.class), eq(Document.class), eq("contenidosAudio"))).thenReturn(List.of());
+
+        migrarFicheros();
+        migrarFicheros();
+
+        ArgumentCaptor<Query> query = ArgumentCaptor.forClass(Query.class);
+        verify(mongoTemplate, times(1)).count(query.capture(), eq("contenidosAudio"));
+        Document condicion = query.getValue().getQueryObject().get(ContentCatalogRepository.FICHERO, Document.class);
+        assertEquals(new Document("$type", 5), condicion.get("$not"));
+    }
+
+    @Test
+    void testMigrar_SinPendientes() {
+        when(mongoTemplate.find(any(Query.class), eq(Document.class), eq("contenidosAudio"))).thenReturn(List.of());
+
+        assertEquals(0, migrarFicheros());
+        verifyNoInteractions(blobStore);
+        verifyNoInteractions(versionRepository);
+    }
+}
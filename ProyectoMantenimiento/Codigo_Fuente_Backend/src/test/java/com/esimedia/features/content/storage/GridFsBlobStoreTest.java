@@ -0,0 +1,87 @@
+package com.esimedia.features.content.storage;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.util.Date;
+
+import org.bson.BsonObjectId;
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.core.io.Resource;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.gridfs.GridFsResource;
+import org.springframework.data.mongodb.gridfs.GridFsTemplate;
+
+import com.esimedia.features.content.entity.BlobRef;
+import com.mongodb.client.gridfs.model.GridFSFile;
+
+@ExtendWith(MockitoExtension.class)
+class GridFsBlobStoreTest {
+
+    @Mock private GridFsTemplate gridFsTemplate;
+
+    @InjectMocks
+    private GridFsBlobStore blobStore;
+
+    private static final String SHA256_ABC = "ba7816bf8f01cfea414140de5dae2223b00361a396177a9cb410ff61f20015ad";
+
+    @Test
+    void testGuardar_DevuelveIdTamanoYHash() {
+        ObjectId id = new ObjectId();
+        when(gridFsTemplate.store(any(InputStream.class), eq(SHA256_ABC), eq("audio/mpeg"), any(Document.class)))
+            .thenReturn(id);
+
+        BlobRef ref = blobStore.guardar("abc".getBytes(), "audio/mpeg");
+
+        assertEquals(id.toHexString(), ref.getId());
+        assertEquals(3, ref.getTamano());
+        assertEquals(SHA256_ABC, ref.getSha256());
+        ArgumentCaptor<Document> metadata = ArgumentCaptor.forClass(Document.class);
+        verify(gridFsTemplate).store(any(InputStream.class), anyString(), anyString(), metadata.capture());
+        assertEquals(SHA256_ABC, metadata.getValue().getString(GridFsBlobStore.METADATA_SHA256));
+    }
+
+    @Test
+    void testAbrir_ExistenteSePuedeLeerVariasVeces() throws Exception {
+        ObjectId id = new ObjectId();
+        GridFSFile fichero = new GridFSFile(new BsonObjectId(id), "hash", 3, 255 * 1024, new Date(1000), null);
+        when(gridFsTemplate.findOne(any(Query.class))).thenReturn(fichero);
+        // Cada lectura abre un stream de descarga nuevo
+        when(gridFsTemplate.getResource(fichero)).thenAnswer(invocation ->
+            new GridFsResource(fichero, new ByteArrayInputStream("abc".getBytes())));
+
+        Resource recurso = blobStore.abrir(id.toHexString()).orElseThrow();
+
+        assertEquals(3, recurso.contentLength());
+        assertEquals(1000, recurso.lastModified());
+        try (InputStream primera = recurso.getInputStream(); InputStream segunda = recurso.getInputStream()) {
+            assertArrayEquals("abc".getBytes(), primera.readAllBytes());
+            assertArrayEquals("abc".getBytes(), segunda.readAllBytes());
+        }
+    }
+
+    @Test
+    void testAbrir_Inexistente() {
+        when(gridFsTemplate.findOne(any(Query.class))).thenReturn(null);
+
+        assertTrue(blobStore.abrir(new ObjectId().toHexString()).isEmpty());
+    }
+
+    @Test
+    void testAbrirYEliminar_IdNoValidoNoConsulta() {
+        assertTrue(blobStore.abrir("no-es-un-object-id").isEmpty());
+        blobStore.eliminar("no-es-un-object-id");
+
+        verifyNoInteractions(gridFsTemplate);
+    }
+}
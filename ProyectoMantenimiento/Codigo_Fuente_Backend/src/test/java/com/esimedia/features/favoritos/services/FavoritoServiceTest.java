@@ -20,8 +20,9 @@ import org.springframework.http.HttpStatus;
 
 import com.esimedia.features.favoritos.entity.ContenidoFavorito;
 import com.esimedia.features.favoritos.repository.ContenidoFavoritoRepository;
-import com.esimedia.features.content.repository.ContenidosVideoRepository;
-import com.esimedia.features.content.repository.ContenidosAudioRepository;
+import com.esimedia.features.auth.enums.TipoContenido;
+import com.esimedia.features.content.services.ContentTypeRegistry;
+import com.esimedia.features.content.services.LeaderboardService;
 import com.esimedia.features.favoritos.dto.FavoritoDTO;
 
 @ExtendWith(MockitoExtension.class)
@@ -30,9 +31,9 @@ class FavoritoServiceTest {
     @Mock
     private ContenidoFavoritoRepository favoritoRepository;
     @Mock
-    private ContenidosVideoRepository videoRepository;
+    private ContentTypeRegistry contentTypeRegistry;
     @Mock
-    private ContenidosAudioRepository audioRepository;
+    private LeaderboardService leaderboardService;
 
     @InjectMocks
     private FavoritoService favoritoService;
@@ -57,7 +58,7 @@ class FavoritoServiceTest {
 
     @Test
     void testAgregarFavorito_Success() {
-        when(videoRepository.existsById("content123")).thenReturn(true);
+        when(contentTypeRegistry.tipoExistente("content123")).thenReturn(Optional.of(TipoContenido.VIDEO));
         when(favoritoRepository.existsByIdUsuarioAndIdContenido("user123", "content123"))
             .thenReturn(false);
 
@@ -65,12 +66,12 @@ class FavoritoServiceTest {
 
         assertEquals("SUCCESS: Contenido agregado a favoritos", result);
         verify(favoritoRepository).save(any(ContenidoFavorito.class));
+        verify(leaderboardService).registrarFavorito(TipoContenido.VIDEO, "content123");
     }
 
     @Test
     void testAgregarFavorito_ContenidoNoExiste() {
-        when(videoRepository.existsById("content123")).thenReturn(false);
-        when(audioRepository.existsById("content123")).thenReturn(false);
+        when(contentTypeRegistry.tipoExistente("content123")).thenReturn(Optional.empty());
 
         ResponseStatusException ex = assertThrows(
             ResponseStatusException.class,
@@ -83,7 +84,7 @@ class FavoritoServiceTest {
 
     @Test
     void testAgregarFavorito_YaEsFavorito() {
-        when(videoRepository.existsById("content123")).thenReturn(true);
+        when(contentTypeRegistry.tipoExistente("content123")).thenReturn(Optional.of(TipoContenido.VIDEO));
         when(favoritoRepository.existsByIdUsuarioAndIdContenido("user123", "content123"))
             .thenReturn(true);
 
@@ -98,7 +99,7 @@ class FavoritoServiceTest {
 
     @Test
     void testAgregarFavorito_UnexpectedException() {
-        when(videoRepository.existsById("content123")).thenThrow(new RuntimeException("DB down"));
+        when(contentTypeRegistry.tipoExistente("content123")).thenThrow(new RuntimeException("DB down"));
 
         ResponseStatusException ex = assertThrows(
             ResponseStatusException.class,
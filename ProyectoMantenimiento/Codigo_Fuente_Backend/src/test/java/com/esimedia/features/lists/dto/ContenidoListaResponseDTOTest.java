@@ -3,6 +3,7 @@ package com.esimedia.features.lists.dto;
 import org.junit.jupiter.api.Test;
 
 import java.util.Arrays;
+import java.util.Map;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -105,8 +106,9 @@ class ContenidoListaResponseDTOTest {
         ContenidoListaResponseDTO dto = new ContenidoListaResponseDTO(
                 "1", "T", "D", 10, "Yoga", true,
                 Arrays.asList("a", "b"),
-                true, "img", "png", f1, f2, 4.5, 18,
-                "file", "1080p", "aud", "mp3"
+                true, "img", "png", "/content/1/miniatura", f1, f2, 4.5, 18,
+                "file", "1080p", "aud", "mp3", "/content/audio/1/stream",
+                Map.of("96", "/content/1/thumbnail?size=96")
         );
 
         assertEquals("1", dto.getId());
@@ -119,6 +121,7 @@ class ContenidoListaResponseDTOTest {
         assertTrue(dto.isEsVIP());
         assertEquals("img", dto.getMiniatura());
         assertEquals("png", dto.getFormatoMiniatura());
+        assertEquals("/content/1/miniatura", dto.getMiniaturaUrl());
         assertEquals(f1, dto.getFechaSubida());
         assertEquals(f2, dto.getFechaExpiracion());
         assertEquals(4.5, dto.getValoracionMedia());
@@ -127,6 +130,8 @@ class ContenidoListaResponseDTOTest {
         assertEquals("1080p", dto.getResolucion());
         assertEquals("aud", dto.getFichero());
         assertEquals("mp3", dto.getFicheroExtension());
+        assertEquals("/content/audio/1/stream", dto.getFicheroUrl());
+        assertEquals("/content/1/thumbnail?size=96", dto.getMiniaturas().get("96"));
     }
 
     @Test
@@ -8,7 +8,7 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Date;
 import java.util.List;
-import java.util.Optional;
+import java.util.Map;
 
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
@@ -16,20 +16,18 @@ import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
 
-import com.esimedia.features.content.entity.ContenidoAudioTag;
-import com.esimedia.features.content.entity.ContenidoVideoTag;
+import com.esimedia.features.auth.enums.TipoContenido;
 import com.esimedia.features.content.entity.ContenidosAudio;
 import com.esimedia.features.content.entity.ContenidosVideo;
-import com.esimedia.features.content.entity.Tags;
 import com.esimedia.features.content.enums.Resolucion;
 import com.esimedia.features.content.enums.RestriccionEdad;
-import com.esimedia.features.content.repository.ContenidoAudioTagRepository;
-import com.esimedia.features.content.repository.ContenidoVideoTagRepository;
-import com.esimedia.features.content.repository.ContenidosAudioRepository;
-import com.esimedia.features.content.repository.ContenidosVideoRepository;
-import com.esimedia.features.content.repository.TagsRepository;
+import com.esimedia.features.content.repository.ContentCatalogRepository;
+import com.esimedia.features.content.services.ContentBatchLoader;
+import com.esimedia.features.content.services.ContentMediaUrls;
+import com.esimedia.features.content.services.ContentTypeRegistry;
 import com.esimedia.features.lists.dto.ContenidoListaResponseDTO;
 
 @ExtendWith(MockitoExtension.class)
@@ -37,42 +35,25 @@ import com.esimedia.features.lists.dto.ContenidoListaResponseDTO;
 class PublicListHelperTest {
 
     @Mock
-    private ContenidosAudioRepository contenidoAudioRepository;
+    private ContentCatalogRepository catalogRepository;
 
     @Mock
-    private ContenidosVideoRepository contenidoVideoRepository;
+    private ContentBatchLoader batchLoader;
 
     @Mock
-    private ContenidoAudioTagRepository contenidoAudioTagRepository;
+    private ContentTypeRegistry contentTypeRegistry;
 
-    @Mock
-    private ContenidoVideoTagRepository contenidoVideoTagRepository;
-
-    @Mock
-    private TagsRepository tagsRepository;
+    @Spy
+    private ContentMediaUrls mediaUrls = new ContentMediaUrls("secreto-de-prueba");
 
     @InjectMocks
     private PublicListHelper publicListHelper;
 
     private ContenidosAudio audio;
     private ContenidosVideo video;
-    private List<Tags> tags;
-    private List<ContenidoAudioTag> audioTags;
-    private List<ContenidoVideoTag> videoTags;
 
     @BeforeEach
     void setUp() {
-        // Setup de Tags
-        Tags tag1 = new Tags();
-        tag1.setIdTag("tag1");
-        tag1.setNombre("Rock");
-
-        Tags tag2 = new Tags();
-        tag2.setIdTag("tag2");
-        tag2.setNombre("Clásico");
-
-        tags = Arrays.asList(tag1, tag2);
-
         // Setup de Audio
         audio = ContenidosAudio.builder()
             .id("audio-123")
@@ -112,19 +93,6 @@ class PublicListHelperTest {
             .resolucion(Resolucion.HD_720)
             .idCreador("creator-456")
             .build();
-
-        // Setup de AudioTags
-        ContenidoAudioTag audioTag1 = new ContenidoAudioTag("audio-123", "tag1");
-        ContenidoAudioTag audioTag2 = new ContenidoAudioTag("audio-123", "tag2");
-
-        audioTags = Arrays.asList(audioTag1, audioTag2);
-
-        // Setup de VideoTags
-        ContenidoVideoTag videoTag1 = new ContenidoVideoTag();
-        videoTag1.setIdContenido("video-456");
-        videoTag1.setIdTag("tag1");
-
-        videoTags = Arrays.asList(videoTag1);
     }
 
     // ==================== Obtener Contenidos Completos ====================
@@ -135,12 +103,11 @@ class PublicListHelperTest {
         // Given
         List<String> idsContenidos = Arrays.asList("audio-123");
 
-        when(contenidoAudioRepository.findById("audio-123"))
-            .thenReturn(Optional.of(audio));
-        when(contenidoAudioTagRepository.findByIdContenido("audio-123"))
-            .thenReturn(audioTags);
-        when(tagsRepository.findByIdTagIn(anyList()))
-            .thenReturn(tags);
+        when(contentTypeRegistry.tiposDe(idsContenidos)).thenReturn(Map.of("audio-123", TipoContenido.AUDIO));
+        when(catalogRepository.findMetadataByIds(ContenidosAudio.class, idsContenidos))
+            .thenReturn(List.of(audio));
+        when(batchLoader.cargarTagsAudios(List.of("audio-123")))
+            .thenReturn(Map.of("audio-123", List.of("Rock", "Clásico")));
 
         // When
         List<ContenidoListaResponseDTO> resultado = publicListHelper.obtenerContenidosCompletos(idsContenidos);
@@ -164,9 +131,8 @@ class PublicListHelperTest {
         assertNotNull(dto.getFichero());
         assertEquals(".mp3", dto.getFicheroExtension());
 
-        verify(contenidoAudioRepository, times(1)).findById("audio-123");
-        verify(contenidoAudioTagRepository, times(1)).findByIdContenido("audio-123");
-        verify(tagsRepository, times(1)).findByIdTagIn(anyList());
+        verify(catalogRepository, times(1)).findMetadataByIds(ContenidosAudio.class, idsContenidos);
+        verify(catalogRepository, never()).findMetadataByIds(eq(ContenidosVideo.class), anyList());
     }
 
     @Test
@@ -175,14 +141,11 @@ class PublicListHelperTest {
         // Given
         List<String> idsContenidos = Arrays.asList("video-456");
 
-        when(contenidoAudioRepository.findById("video-456"))
-            .thenReturn(Optional.empty());
-        when(contenidoVideoRepository.findById("video-456"))
-            .thenReturn(Optional.of(video));
-        when(contenidoVideoTagRepository.findByIdContenido("video-456"))
-            .thenReturn(videoTags);
-        when(tagsRepository.findByIdTagIn(anyList()))
-            .thenReturn(Arrays.asList(tags.get(0)));
+        when(contentTypeRegistry.tiposDe(idsContenidos)).thenReturn(Map.of("video-456", TipoContenido.VIDEO));
+        when(catalogRepository.findMetadataByIds(ContenidosVideo.class, List.of("video-456")))
+            .thenReturn(List.of(video));
+        when(batchLoader.cargarTagsVideos(List.of("video-456")))
+            .thenReturn(Map.of("video-456", List.of("Rock")));
 
         // When
         List<ContenidoListaResponseDTO> resultado = publicListHelper.obtenerContenidosCompletos(idsContenidos);
@@ -206,46 +169,38 @@ class PublicListHelperTest {
         assertEquals("https://example.com/video.mp4", dto.getUrlArchivo());
         assertEquals("720", dto.getResolucion());
 
-        verify(contenidoAudioRepository, times(1)).findById("video-456");
-        verify(contenidoVideoRepository, times(1)).findById("video-456");
-        verify(contenidoVideoTagRepository, times(1)).findByIdContenido("video-456");
-        verify(tagsRepository, times(1)).findByIdTagIn(anyList());
+        // El registro indica que es un video: no se consulta la colección de audios
+        verify(catalogRepository, never()).findMetadataByIds(eq(ContenidosAudio.class), anyList());
+        verify(catalogRepository, times(1)).findMetadataByIds(ContenidosVideo.class, List.of("video-456"));
     }
 
     @Test
     @DisplayName("CA-03: Obtener contenidos completos con audios y videos - Éxito")
     void testObtenerContenidosCompletos_ConAudiosYVideos_Success() {
         // Given
-        List<String> idsContenidos = Arrays.asList("audio-123", "video-456");
-
-        // Configurar mock para audio
-        when(contenidoAudioRepository.findById("audio-123"))
-            .thenReturn(Optional.of(audio));
-        when(contenidoAudioTagRepository.findByIdContenido("audio-123"))
-            .thenReturn(audioTags);
-
-        // Configurar mock para video
-        when(contenidoAudioRepository.findById("video-456"))
-            .thenReturn(Optional.empty());
-        when(contenidoVideoRepository.findById("video-456"))
-            .thenReturn(Optional.of(video));
-        when(contenidoVideoTagRepository.findByIdContenido("video-456"))
-            .thenReturn(videoTags);
+        List<String> idsContenidos = Arrays.asList("video-456", "audio-123");
 
-        when(tagsRepository.findByIdTagIn(anyList()))
-            .thenReturn(tags);
+        when(contentTypeRegistry.tiposDe(idsContenidos)).thenReturn(Map.of(
+            "video-456", TipoContenido.VIDEO,
+            "audio-123", TipoContenido.AUDIO));
+        when(catalogRepository.findMetadataByIds(ContenidosAudio.class, List.of("audio-123")))
+            .thenReturn(List.of(audio));
+        when(catalogRepository.findMetadataByIds(ContenidosVideo.class, List.of("video-456")))
+            .thenReturn(List.of(video));
 
         // When
         List<ContenidoListaResponseDTO> resultado = publicListHelper.obtenerContenidosCompletos(idsContenidos);
 
-        // Then
+        // Then: se respeta el orden de la lista, no el de las consultas
         assertNotNull(resultado);
         assertEquals(2, resultado.size());
-        assertEquals("audio-123", resultado.get(0).getId());
-        assertEquals("video-456", resultado.get(1).getId());
+        assertEquals("video-456", resultado.get(0).getId());
+        assertEquals("audio-123", resultado.get(1).getId());
 
-        verify(contenidoAudioRepository, times(2)).findById(anyString());
-        verify(contenidoVideoRepository, times(1)).findById("video-456");
+        verify(catalogRepository, times(1)).findMetadataByIds(eq(ContenidosAudio.class), anyList());
+        verify(catalogRepository, times(1)).findMetadataByIds(eq(ContenidosVideo.class), anyList());
+        verify(batchLoader, times(1)).cargarTagsAudios(anyList());
+        verify(batchLoader, times(1)).cargarTagsVideos(anyList());
     }
 
     @Test
@@ -254,10 +209,7 @@ class PublicListHelperTest {
         // Given
         List<String> idsContenidos = Arrays.asList("no-existe-123");
 
-        when(contenidoAudioRepository.findById("no-existe-123"))
-            .thenReturn(Optional.empty());
-        when(contenidoVideoRepository.findById("no-existe-123"))
-            .thenReturn(Optional.empty());
+        when(contentTypeRegistry.tiposDe(idsContenidos)).thenReturn(Map.of());
 
         // When
         List<ContenidoListaResponseDTO> resultado = publicListHelper.obtenerContenidosCompletos(idsContenidos);
@@ -266,8 +218,8 @@ class PublicListHelperTest {
         assertNotNull(resultado);
         assertTrue(resultado.isEmpty());
 
-        verify(contenidoAudioRepository, times(1)).findById("no-existe-123");
-        verify(contenidoVideoRepository, times(1)).findById("no-existe-123");
+        // Un id sin tipo registrado no existe: no se consulta ninguna colección
+        verifyNoInteractions(catalogRepository);
     }
 
     @Test
@@ -283,8 +235,7 @@ class PublicListHelperTest {
         assertNotNull(resultado);
         assertTrue(resultado.isEmpty());
 
-        verify(contenidoAudioRepository, never()).findById(anyString());
-        verify(contenidoVideoRepository, never()).findById(anyString());
+        verifyNoInteractions(catalogRepository, batchLoader, contentTypeRegistry);
     }
 
     @Test
@@ -293,12 +244,9 @@ class PublicListHelperTest {
         // Given
         List<String> idsContenidos = Arrays.asList("audio-123");
 
-        when(contenidoAudioRepository.findById("audio-123"))
-            .thenReturn(Optional.of(audio));
-        when(contenidoAudioTagRepository.findByIdContenido("audio-123"))
-            .thenReturn(new ArrayList<>());
-        when(tagsRepository.findByIdTagIn(anyList()))
-            .thenReturn(new ArrayList<>());
+        when(contentTypeRegistry.tiposDe(idsContenidos)).thenReturn(Map.of("audio-123", TipoContenido.AUDIO));
+        when(catalogRepository.findMetadataByIds(ContenidosAudio.class, idsContenidos))
+            .thenReturn(List.of(audio));
 
         // When
         List<ContenidoListaResponseDTO> resultado = publicListHelper.obtenerContenidosCompletos(idsContenidos);
@@ -311,42 +259,19 @@ class PublicListHelperTest {
         assertNotNull(dto.getTags());
         assertTrue(dto.getTags().isEmpty());
 
-        verify(contenidoAudioRepository, times(1)).findById("audio-123");
-        verify(contenidoAudioTagRepository, times(1)).findByIdContenido("audio-123");
+        verify(batchLoader, times(1)).cargarTagsAudios(List.of("audio-123"));
     }
 
     @Test
     @DisplayName("CA-07: Obtener contenidos completos - Video sin restricción de edad")
     void testObtenerContenidosCompletos_VideoSinRestriccionEdad() {
         // Given
-        ContenidosVideo videoSinRestriccion = ContenidosVideo.builder()
-            .id("video-456")
-            .titulo("Mi Video Test")
-            .descripcion("Descripción del video")
-            .duracion(300)
-            .especialidad("Documentales")
-            .visibilidad(true)
-            .esVIP(true)
-            .miniatura("miniatura_video".getBytes())
-            .formatoMiniatura("image/png")
-            .fechaSubida(new Date())
-            .fechaDisponibleHasta(new Date(System.currentTimeMillis() + 86400000))
-            .valoracionMedia(4.8)
-            .restriccionEdad(null)
-            .urlArchivo("https://example.com/video.mp4")
-            .resolucion(Resolucion.HD_720)
-            .idCreador("creator-456")
-            .build();
+        video.setRestriccionEdad(null);
         List<String> idsContenidos = Arrays.asList("video-456");
 
-        when(contenidoAudioRepository.findById("video-456"))
-            .thenReturn(Optional.empty());
-        when(contenidoVideoRepository.findById("video-456"))
-            .thenReturn(Optional.of(videoSinRestriccion));
-        when(contenidoVideoTagRepository.findByIdContenido("video-456"))
-            .thenReturn(videoTags);
-        when(tagsRepository.findByIdTagIn(anyList()))
-            .thenReturn(Arrays.asList(tags.get(0)));
+        when(contentTypeRegistry.tiposDe(idsContenidos)).thenReturn(Map.of("video-456", TipoContenido.VIDEO));
+        when(catalogRepository.findMetadataByIds(ContenidosVideo.class, List.of("video-456")))
+            .thenReturn(List.of(video));
 
         // When
         List<ContenidoListaResponseDTO> resultado = publicListHelper.obtenerContenidosCompletos(idsContenidos);
@@ -357,8 +282,6 @@ class PublicListHelperTest {
         
         ContenidoListaResponseDTO dto = resultado.get(0);
         assertNull(dto.getRestriccionEdad());
-
-        verify(contenidoVideoRepository, times(1)).findById("video-456");
     }
 
     @Test
@@ -366,11 +289,10 @@ class PublicListHelperTest {
     void testConstructor() {
         // Arrange & Act
         PublicListHelper helper = new PublicListHelper(
-            contenidoAudioRepository,
-            contenidoVideoRepository,
-            contenidoAudioTagRepository,
-            contenidoVideoTagRepository,
-            tagsRepository
+            catalogRepository,
+            batchLoader,
+            contentTypeRegistry,
+            mediaUrls
         );
 
         // Assert
@@ -12,6 +12,7 @@ import com.esimedia.features.auth.repository.SesionRepository;
 import com.esimedia.features.auth.repository.UsuarioNormalRepository;
 
 import com.esimedia.features.auth.services.ValidationService;
+import com.esimedia.features.content.services.RatingRecomputeJob;
 import com.esimedia.features.content.services.ValoracionService;
 import com.esimedia.features.favoritos.repository.ContenidoFavoritoRepository;
 
@@ -781,8 +782,9 @@ class ManagementServiceTest {
     @Test
     void deleteUserSelf_deberiaEliminarUsuarioYSusSesiones() {
         when(usuarioNormalRepository.findById("u1")).thenReturn(Optional.of(usuario));
+        when(valoracionService.eliminarValoracionesDeUsuario("u1")).thenReturn(new RatingRecomputeJob("job1", "u1"));
 
-        managementService.deleteUserSelf("u1");
+        assertEquals("job1", managementService.deleteUserSelf("u1"));
 
         verify(contenidoFavoritoRepository).deleteByIdUsuario("u1");  // 👈 AÑADIR
         verify(sesionRepository).deleteByIdUsuario("u1");
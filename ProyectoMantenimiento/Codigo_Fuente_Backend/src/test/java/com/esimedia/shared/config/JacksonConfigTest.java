@@ -0,0 +1,89 @@
+package com.esimedia.shared.config;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.converter.cbor.MappingJackson2CborHttpMessageConverter;
+import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
+import org.springframework.http.converter.smile.MappingJackson2SmileHttpMessageConverter;
+import org.springframework.mock.http.MockHttpInputMessage;
+import org.springframework.mock.http.MockHttpOutputMessage;
+
+import com.esimedia.features.content.dto.ContentCatalogPageDTO;
+import com.esimedia.features.content.dto.ContentUploadDTO;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+class JacksonConfigTest {
+
+    private static final MediaType SMILE = MediaType.parseMediaType("application/x-jackson-smile");
+
+    private ObjectMapper objectMapper;
+    private JacksonConfig jacksonConfig;
+
+    @BeforeEach
+    void setUp() {
+        objectMapper = new HttpClientConfig().objectMapper();
+        jacksonConfig = new JacksonConfig(objectMapper);
+    }
+
+    private ContentCatalogPageDTO pagina() {
+        List<ContentUploadDTO> items = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            ContentUploadDTO item = new ContentUploadDTO();
+            item.setId("id" + i);
+            item.setTitulo("Contenido " + i);
+            item.setDescripcion("Descripción del contenido " + i);
+            item.setTags(List.of("rock", "jazz"));
+            item.setDuracion(100 + i);
+            items.add(item);
+        }
+        return new ContentCatalogPageDTO(items, "cursor", true, Map.of("especialidad", Map.of("Rock", 50L)));
+    }
+
+    @Test
+    void testExtendMessageConverters_JsonSiguePrimero() {
+        List<HttpMessageConverter<?>> converters = new ArrayList<>();
+        converters.add(new MappingJackson2HttpMessageConverter(objectMapper));
+
+        jacksonConfig.extendMessageConverters(converters);
+
+        assertEquals(3, converters.size());
+        assertInstanceOf(MappingJackson2HttpMessageConverter.class, converters.get(0));
+        assertInstanceOf(MappingJackson2SmileHttpMessageConverter.class, converters.get(1));
+        assertInstanceOf(MappingJackson2CborHttpMessageConverter.class, converters.get(2));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testSmile_MismosDatosEnMenosBytes() throws Exception {
+        List<HttpMessageConverter<?>> converters = new ArrayList<>();
+        jacksonConfig.extendMessageConverters(converters);
+        HttpMessageConverter<Object> smile = (HttpMessageConverter<Object>) converters.get(0);
+        ContentCatalogPageDTO pagina = pagina();
+
+        MockHttpOutputMessage salida = new MockHttpOutputMessage();
+        smile.write(pagina, SMILE, salida);
+        Object leida = smile.read((Class<Object>) (Class<?>) ContentCatalogPageDTO.class,
+            new MockHttpInputMessage(salida.getBodyAsBytes()));
+
+        assertEquals(SMILE, salida.getHeaders().getContentType());
+        assertEquals(pagina, leida);
+        assertTrue(salida.getBodyAsBytes().length < objectMapper.writeValueAsBytes(pagina).length);
+    }
+
+    @Test
+    void testPrecalentarSerializadores_ConBlackbird() {
+        jacksonConfig.precalentarSerializadores();
+
+        assertTrue(objectMapper.getRegisteredModuleIds().stream()
+            .anyMatch(id -> id.toString().contains("Blackbird")));
+        assertEquals(8, JacksonConfig.tiposRespuesta(objectMapper.getTypeFactory()).size());
+    }
+}
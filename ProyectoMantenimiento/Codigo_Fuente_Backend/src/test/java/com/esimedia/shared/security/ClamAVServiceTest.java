@@ -0,0 +1,127 @@
+package com.esimedia.shared.security;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class ClamAVServiceTest {
+
+    private static final int CHUNK = 256 * 1024;
+
+    private FakeClamdServer clamd;
+    private ClamAVService clamAVService;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        clamd = new FakeClamdServer();
+        clamAVService = servicio(4, 4, 10_000);
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        clamAVService.cerrar();
+        clamd.close();
+    }
+
+    private ClamAVService servicio(int maxConexiones, int paralelismo, long esperaConexionMs) {
+        return new ClamAVService(true, "127.0.0.1", clamd.getPort(), 5, CHUNK, maxConexiones,
+            esperaConexionMs, 20_000, paralelismo);
+    }
+
+    private static byte[] fichero(int tamano, boolean infectado) {
+        byte[] datos = new byte[tamano];
+        Arrays.fill(datos, (byte) 'a');
+        if (infectado) {
+            System.arraycopy(FakeClamdServer.FIRMA, 0, datos, tamano / 2, FakeClamdServer.FIRMA.length);
+        }
+        return datos;
+    }
+
+    @Test
+    void testScanFile_ReutilizaLaSesionYEnviaBloquesGrandes() {
+        assertTrue(clamAVService.scanFile(fichero(1024 * 1024, false), "limpio.mp3"));
+        assertFalse(clamAVService.scanFile(fichero(100, true), "virus.mp3"));
+        assertTrue(clamAVService.scanFile("hola".getBytes(StandardCharsets.UTF_8), "corto.mp3"));
+
+        // Los tres escaneos van por la misma sesión IDSESSION
+        assertEquals(1, clamd.getConexiones());
+        assertEquals(CHUNK, clamd.getMaxBloque());
+        ClamAVMetricas metricas = clamAVService.getMetricas();
+        assertEquals(3, metricas.escaneos());
+        assertEquals(1, metricas.conexionesAbiertas());
+        assertEquals(0, metricas.conexionesEnUso());
+        assertTrue(metricas.latenciaMaxMs() >= metricas.latenciaMediaMs());
+        // Los atributos JMX dan los mismos valores
+        assertEquals(3, clamAVService.getEscaneos());
+        assertEquals(1, clamAVService.getConexionesAbiertas());
+        assertEquals(metricas.latenciaMediaMs(), clamAVService.getLatenciaMediaMs());
+    }
+
+    @Test
+    void testScanFile_ReconectaSiClamdCierraLaSesion() throws Exception {
+        assertTrue(clamAVService.scanFile(fichero(10, false), "a.mp3"));
+        clamd.cerrarSesiones();
+
+        assertTrue(clamAVService.scanFile(fichero(10, false), "b.mp3"));
+
+        assertEquals(2, clamd.getConexiones());
+        assertEquals(1, clamAVService.getMetricas().conexionesAbiertas());
+    }
+
+    @Test
+    void testScanFiles_EnParaleloYDetectaElInfectado() {
+        clamd.setRetrasoMs(200);
+        Map<String, byte[]> ficheros = new LinkedHashMap<>();
+        for (int i = 0; i < 4; i++) {
+            ficheros.put("f" + i + ".mp3", fichero(1000, false));
+        }
+
+        assertTrue(clamAVService.scanFiles(ficheros));
+        assertEquals(4, clamd.getMaxEscaneosSimultaneos());
+
+        ficheros.put("virus.mp3", fichero(1000, true));
+        assertFalse(clamAVService.scanFiles(ficheros));
+        // Las sesiones abiertas para el primer lote se reutilizan en el segundo
+        assertTrue(clamd.getConexiones() <= 4);
+    }
+
+    @Test
+    void testPoolSaturado_EsperaOFallaPorTimeout() throws Exception {
+        clamAVService.cerrar();
+        clamd.setRetrasoMs(300);
+        Map<String, byte[]> ficheros = Map.of("a.mp3", fichero(10, false), "b.mp3", fichero(10, false));
+
+        // Una sola conexión: el segundo escaneo espera a que termine el primero
+        clamAVService = servicio(1, 2, 10_000);
+        assertTrue(clamAVService.scanFiles(ficheros));
+        assertEquals(1, clamd.getMaxEscaneosSimultaneos());
+        assertEquals(1, clamAVService.getMetricas().esperasPoolLleno());
+
+        // Si la espera supera el límite el escaneo se rechaza
+        clamAVService.cerrar();
+        clamAVService = servicio(1, 2, 50);
+        assertThrows(AntivirusException.class, () -> clamAVService.scanFiles(ficheros));
+        assertEquals(1, clamAVService.getMetricas().timeoutsPool());
+    }
+
+    @Test
+    void testDeshabilitadoYDisponibilidad() throws Exception {
+        assertTrue(clamAVService.isAvailable());
+
+        ClamAVService deshabilitado = new ClamAVService(false, "127.0.0.1", clamd.getPort(), 5, CHUNK, 1, 1000, 20_000, 1);
+        assertTrue(deshabilitado.scanFile(fichero(100, true), "virus.mp3"));
+        assertFalse(deshabilitado.isAvailable());
+        deshabilitado.cerrar();
+
+        clamd.close();
+        assertFalse(clamAVService.isAvailable());
+        assertThrows(AntivirusException.class, () -> clamAVService.scanFile(fichero(10, false), "a.mp3"));
+    }
+}
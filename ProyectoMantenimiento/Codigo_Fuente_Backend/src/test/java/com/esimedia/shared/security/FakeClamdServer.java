@@ -0,0 +1,207 @@
+package com.esimedia.shared.security;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * clamd en memoria para los tests: habla el mismo protocolo (PING, INSTREAM, IDSESSION/END,
+ * comandos con prefijo 'z' o 'n') en un puerto local libre. Da positivo si el fichero contiene
+ * {@link #FIRMA} y, como clamd, cierra la conexión tras un comando suelto o al superar el tamaño máximo.
+ */
+class FakeClamdServer implements Closeable {
+
+    static final byte[] FIRMA = "EICAR-TEST".getBytes(StandardCharsets.US_ASCII);
+    private static final int MAX_STREAM = 10 * 1024 * 1024;
+
+    private final ServerSocket servidor;
+    private final ExecutorService hilos = Executors.newCachedThreadPool();
+    private final Set<Socket> abiertas = ConcurrentHashMap.newKeySet();
+    private final AtomicInteger conexiones = new AtomicInteger();
+    private final AtomicInteger escaneosEnCurso = new AtomicInteger();
+    private final AtomicInteger maxEscaneosSimultaneos = new AtomicInteger();
+    private final AtomicInteger maxBloque = new AtomicInteger();
+    private volatile long retrasoMs;
+
+    FakeClamdServer() throws IOException {
+        servidor = new ServerSocket(0, 50, InetAddress.getLoopbackAddress());
+        hilos.execute(this::aceptar);
+    }
+
+    int getPort() {
+        return servidor.getLocalPort();
+    }
+
+    /** Conexiones TCP aceptadas desde el arranque */
+    int getConexiones() {
+        return conexiones.get();
+    }
+
+    int getMaxEscaneosSimultaneos() {
+        return maxEscaneosSimultaneos.get();
+    }
+
+    /** Mayor bloque de INSTREAM recibido */
+    int getMaxBloque() {
+        return maxBloque.get();
+    }
+
+    /** Tiempo que tarda cada escaneo, para provocar concurrencia */
+    void setRetrasoMs(long retrasoMs) {
+        this.retrasoMs = retrasoMs;
+    }
+
+    /** Cierra las sesiones abiertas, como hace clamd al vencer su IdleTimeout */
+    void cerrarSesiones() throws IOException {
+        for (Socket socket : abiertas) {
+            socket.close();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        servidor.close();
+        cerrarSesiones();
+        hilos.shutdownNow();
+    }
+
+    private void aceptar() {
+        while (!servidor.isClosed()) {
+            try {
+                Socket socket = servidor.accept();
+                conexiones.incrementAndGet();
+                abiertas.add(socket);
+                hilos.execute(() -> atender(socket));
+            }
+            catch (IOException e) {
+                return;
+            }
+        }
+    }
+
+    private void atender(Socket socket) {
+        try (socket) {
+            DataInputStream entrada = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+            OutputStream salida = socket.getOutputStream();
+            boolean sesion = false;
+            int id = 0;
+            while (true) {
+                int prefijo = entrada.read();
+                if (prefijo < 0) {
+                    return;
+                }
+                char fin = prefijo == 'z' ? '\0' : '\n';
+                String comando = leerHasta(entrada, fin);
+                if ("IDSESSION".equals(comando)) {
+                    sesion = true;
+                    continue;
+                }
+                if ("END".equals(comando)) {
+                    return;
+                }
+                String respuesta;
+                boolean cerrar = !sesion;
+                if ("PING".equals(comando)) {
+                    respuesta = "PONG";
+                }
+                else if ("INSTREAM".equals(comando)) {
+                    byte[] contenido = leerStream(entrada);
+                    if (contenido == null) {
+                        respuesta = "INSTREAM size limit exceeded. ERROR";
+                        cerrar = true;
+                    }
+                    else {
+                        respuesta = escanear(contenido);
+                    }
+                }
+                else {
+                    respuesta = "UNKNOWN COMMAND";
+                }
+                String linea = (sesion ? ++id + ": " : "") + respuesta + fin;
+                salida.write(linea.getBytes(StandardCharsets.US_ASCII));
+                salida.flush();
+                if (cerrar) {
+                    return;
+                }
+            }
+        }
+        catch (IOException e) {
+            // Conexión cerrada por el cliente o por cerrarSesiones()
+        }
+        finally {
+            abiertas.remove(socket);
+        }
+    }
+
+    private String escanear(byte[] contenido) {
+        int enCurso = escaneosEnCurso.incrementAndGet();
+        maxEscaneosSimultaneos.accumulateAndGet(enCurso, Math::max);
+        try {
+            if (retrasoMs > 0) {
+                Thread.sleep(retrasoMs);
+            }
+            return contiene(contenido, FIRMA) ? "stream: Eicar-Test-Signature FOUND" : "stream: OK";
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return "stream: OK";
+        }
+        finally {
+            escaneosEnCurso.decrementAndGet();
+        }
+    }
+
+    /**
+     * Lee los bloques [longitud][datos] hasta el bloque de longitud 0.
+     * @return El fichero, o null si supera el tamaño máximo
+     */
+    private byte[] leerStream(DataInputStream entrada) throws IOException {
+        ByteArrayOutputStream contenido = new ByteArrayOutputStream();
+        int longitud;
+        while ((longitud = entrada.readInt()) > 0) {
+            maxBloque.accumulateAndGet(longitud, Math::max);
+            if (contenido.size() + longitud > MAX_STREAM) {
+                return null;
+            }
+            contenido.write(entrada.readNBytes(longitud));
+        }
+        return contenido.toByteArray();
+    }
+
+    private static String leerHasta(DataInputStream entrada, char fin) throws IOException {
+        StringBuilder comando = new StringBuilder();
+        int b;
+        while ((b = entrada.read()) >= 0 && b != fin) {
+            comando.append((char) b);
+        }
+        if (b < 0) {
+            throw new IOException("Conexión cerrada");
+        }
+        return comando.toString();
+    }
+
+    private static boolean contiene(byte[] datos, byte[] patron) {
+        for (int i = 0; i + patron.length <= datos.length; i++) {
+            int j = 0;
+            while (j < patron.length && datos[i + j] == patron[j]) {
+                j++;
+            }
+            if (j == patron.length) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
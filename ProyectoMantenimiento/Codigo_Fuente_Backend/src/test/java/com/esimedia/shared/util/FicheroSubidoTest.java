@@ -0,0 +1,54 @@
+package com.esimedia.shared.util;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.Base64;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+class FicheroSubidoTest {
+
+    private static byte[] aleatorio(int tamano) {
+        byte[] datos = new byte[tamano];
+        new Random(tamano).nextBytes(datos);
+        return datos;
+    }
+
+    @Test
+    void testDesdeBase64_MismosBytesYHashQueDecodificarYHashear() {
+        // Con y sin relleno, y mayor que un bloque de lectura
+        for (int tamano : new int[] {1, 2, 3, 1000, 200_001}) {
+            byte[] datos = aleatorio(tamano);
+            String base64 = Base64.getEncoder().encodeToString(datos);
+
+            FicheroSubido fichero = FicheroSubido.desdeBase64(base64);
+
+            assertArrayEquals(datos, fichero.datos());
+            assertEquals(tamano, fichero.tamano());
+            assertEquals(tamano, FicheroSubido.tamanoBase64(base64));
+            assertEquals(ContentUtil.sha256Hex(datos), fichero.sha256());
+            assertEquals(tamano, FicheroSubido.tamanoBase64(Base64.getEncoder().withoutPadding().encodeToString(datos)));
+        }
+    }
+
+    @Test
+    void testDesdeBase64_Invalido() {
+        assertThrows(IllegalArgumentException.class, () -> FicheroSubido.desdeBase64("abcde"));
+        assertThrows(IllegalArgumentException.class, () -> FicheroSubido.desdeBase64("ab$d"));
+        assertThrows(IllegalArgumentException.class, () -> FicheroSubido.desdeBase64("ab=d"));
+        assertEquals(-1, FicheroSubido.tamanoBase64("abcde"));
+        assertEquals(0, FicheroSubido.tamanoBase64(" "));
+    }
+
+    @Test
+    void testDetectarMime_SoloConLaCabecera() {
+        byte[] mp3 = new byte[FicheroSubido.CABECERA_DETECCION * 4];
+        System.arraycopy("ID3".getBytes(), 0, mp3, 0, 3);
+        mp3[3] = 3;
+
+        FicheroSubido fichero = FicheroSubido.desdeBase64(Base64.getEncoder().encodeToString(mp3));
+
+        assertEquals("audio/mpeg", fichero.mimeType());
+    }
+}
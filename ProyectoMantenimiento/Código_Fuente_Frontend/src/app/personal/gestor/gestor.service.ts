@@ -1,9 +1,24 @@
 import { Injectable } from '@angular/core';
 import { HttpClient, HttpEvent, HttpRequest,} from '@angular/common/http';
-import { Observable } from 'rxjs';
+import { Observable, map, switchMap, takeWhile, timer, last } from 'rxjs';
 import { ApiConfigService } from '../../shared/services/api-config.service';
 import { SharedService } from '@shared';
 
+/**
+ * Estado de una subida procesada en segundo plano (GET /content/jobs/{id})
+ */
+export interface UploadJob {
+  id: string;
+  tipo: 'AUDIO' | 'VIDEO';
+  estado: 'EN_COLA' | 'ANALIZANDO' | 'GUARDADO' | 'FALLIDO';
+  mensaje: string | null;
+  fechaCreacion: string;
+  fechaActualizacion: string;
+}
+
+// Intervalo entre consultas del estado de una subida
+const UPLOAD_JOB_POLL_MS = 2000;
+
 @Injectable({
   providedIn: 'root'
 })
@@ -76,11 +91,31 @@ export class GestorService {
 
   /**
    * Subida de audio como JSON (por ejemplo cuando el fichero ya está en base64)
-   * El backend debe aceptar la misma URL que uploadAudio pero con cuerpo JSON.
+   * El backend responde 202 con el trabajo de subida y la procesa en segundo plano:
+   * el observable emite el trabajo cuando termina y falla si la subida no se ha guardado.
    */
-  uploadAudioJson(audioData: any): Observable<any> {
+  uploadAudioJson(audioData: any): Observable<UploadJob> {
     const url = this.apiConfig.getContentUrl('uploadAudio');
-    return this.http.post(url, audioData, { headers: this.sharedService.getAuthHeaders(), responseType: 'text'  });
+    return this.http.post<UploadJob>(url, audioData, { headers: this.sharedService.getAuthHeaders() })
+      .pipe(switchMap(job => this.waitForUploadJob(job)));
+  }
+
+  /**
+   * Consulta el estado de una subida hasta que termina (GUARDADO o FALLIDO)
+   */
+  waitForUploadJob(job: UploadJob): Observable<UploadJob> {
+    const url = this.apiConfig.getContentUrl('uploadJob').replace('{id}', job.id);
+    return timer(UPLOAD_JOB_POLL_MS, UPLOAD_JOB_POLL_MS).pipe(
+      switchMap(() => this.http.get<UploadJob>(url, { headers: this.sharedService.getAuthHeaders() })),
+      takeWhile(estado => estado.estado === 'EN_COLA' || estado.estado === 'ANALIZANDO', true),
+      last(),
+      map(estado => {
+        if (estado.estado !== 'GUARDADO') {
+          throw new Error(estado.mensaje ?? 'La subida no se ha podido guardar');
+        }
+        return estado;
+      })
+    );
   }
 
   /**
@@ -107,11 +142,12 @@ export class GestorService {
   }
 
   /**
-   * Subida de video con URL (para videos externos)
+   * Subida de video con URL (para videos externos); se procesa en segundo plano como uploadAudioJson
    */
-  uploadVideo(videoData: any): Observable<any> {
+  uploadVideo(videoData: any): Observable<UploadJob> {
     const url = this.apiConfig.getContentUrl('uploadVideo');
-    return this.http.post(url, videoData, { headers: this.sharedService.getAuthHeaders() , responseType: 'text' });
+    return this.http.post<UploadJob>(url, videoData, { headers: this.sharedService.getAuthHeaders() })
+      .pipe(switchMap(job => this.waitForUploadJob(job)));
   }
 
 }
\ No newline at end of file
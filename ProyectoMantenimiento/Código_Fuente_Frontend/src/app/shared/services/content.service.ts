@@ -19,6 +19,8 @@ type ApiContentData = {
   restriccionEdad: number;
   miniatura: string;
   formatoMiniatura: string;
+  miniaturaUrl?: string;
+  miniaturas?: Record<string, string>;
   visibilidad: boolean;
   valoracionMedia: number;
   especialidad: string;
@@ -64,6 +66,18 @@ export class ContentService {
     return `data:${fullMimeType};base64,${base64}`;
   }
 
+  /**
+   * Resuelve la miniatura de un contenido: los listados no incluyen la imagen, solo la URL firmada
+   * de la derivada de 320 px o de la original, que un <img> puede cargar sin cabecera Authorization
+   */
+  private resolveMiniatura(item: ApiContentData): string {
+    if (item.miniatura) {
+      return item.miniatura;
+    }
+    const ruta = item.miniaturas?.['320'] ?? item.miniaturaUrl;
+    return ruta ? `${this.apiConfig.getBaseUrl()}${ruta}` : '';
+  }
+
   /**
    * Mapea datos del API a entidades del frontend
    * Convierte fechas de string a Date y asegura valores por defecto
@@ -85,7 +99,7 @@ export class ContentService {
         fechaSubida: item.fechaSubida ? new Date(item.fechaSubida) : null,
         fechaExpiracion: item.fechaExpiracion ? new Date(item.fechaExpiracion) : null,
         restriccionEdad: item.restriccionEdad ?? 3,
-        miniatura: item.miniatura, // Usar la Data URL procesada
+        miniatura: this.resolveMiniatura(item),
         formatoMiniatura: item.formatoMiniatura,
         visibilidad: item.visibilidad,
         valoracionMedia: item.valoracionMedia ?? 0,
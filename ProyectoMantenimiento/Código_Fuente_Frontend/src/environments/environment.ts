@@ -90,6 +90,7 @@ export const environment = {
     content: {
       uploadAudio: '/content/upload-audio', //SI
       uploadVideo: '/content/upload-video', //SI
+      uploadJob: '/content/jobs/{id}', //SI
       getAudio: '/content/getAudio', //SI
       getVideo: '/content/getVideo', //SI
       getAllContent: '/content/getAllContent', //SI